@@ -32,6 +32,7 @@ import org.whispersystems.textsecuregcm.configuration.DogstatsdConfiguration;
 import org.whispersystems.textsecuregcm.configuration.DynamicConfigurationManagerFactory;
 import org.whispersystems.textsecuregcm.configuration.DynamoDbClientFactory;
 import org.whispersystems.textsecuregcm.configuration.DynamoDbTables;
+import org.whispersystems.textsecuregcm.configuration.ExecutorConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ExternalRequestFilterConfiguration;
 import org.whispersystems.textsecuregcm.configuration.FaultTolerantRedisClusterFactory;
 import org.whispersystems.textsecuregcm.configuration.FcmConfiguration;
@@ -306,7 +307,7 @@ public class WhisperServerConfiguration extends Configuration {
   @Valid
   @NotNull
   @JsonProperty
-  private MessageByteLimitCardinalityEstimatorConfiguration messageByteLimitCardinalityEstimator = new MessageByteLimitCardinalityEstimatorConfiguration(Duration.ofDays(1));
+  private MessageByteLimitCardinalityEstimatorConfiguration messageByteLimitCardinalityEstimator = new MessageByteLimitCardinalityEstimatorConfiguration(Duration.ofDays(1), Duration.ofSeconds(10));
 
   @Valid
   @NotNull
@@ -318,6 +319,11 @@ public class WhisperServerConfiguration extends Configuration {
   @JsonProperty
   private VirtualThreadConfiguration virtualThread = new VirtualThreadConfiguration(Duration.ofMillis(1));
 
+  @Valid
+  @NotNull
+  @JsonProperty
+  private Map<String, @NotNull @Valid ExecutorConfiguration> executors = new HashMap<>();
+
 
   @Valid
   @NotNull
@@ -560,6 +566,10 @@ public class WhisperServerConfiguration extends Configuration {
     return virtualThread;
   }
 
+  public Map<String, ExecutorConfiguration> getExecutors() {
+    return executors;
+  }
+
   public S3ObjectMonitorFactory getMaxmindCityDatabase() {
     return maxmindCityDatabase;
   }
@@ -247,7 +247,9 @@ import org.whispersystems.textsecuregcm.subscriptions.BankMandateTranslator;
 import org.whispersystems.textsecuregcm.subscriptions.BraintreeManager;
 import org.whispersystems.textsecuregcm.subscriptions.GooglePlayBillingManager;
 import org.whispersystems.textsecuregcm.subscriptions.StripeManager;
+import org.whispersystems.textsecuregcm.util.AsyncConcurrencyLimiter;
 import org.whispersystems.textsecuregcm.util.BufferingInterceptor;
+import org.whispersystems.textsecuregcm.util.ExecutorRegistry;
 import org.whispersystems.textsecuregcm.util.ManagedAwsCrt;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.UsernameHashZkProofVerifier;
@@ -515,38 +517,24 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
             MetricsUtil.name(getClass(), "messageDeliveryExecutor"), MetricsUtil.PREFIX),
         "messageDelivery");
 
-    // TODO: generally speaking this is a DynamoDB I/O executor for the accounts table; we should eventually have a general executor for speaking to the accounts table, but most of the server is still synchronous so this isn't widely useful yet
-    ExecutorService batchIdentityCheckExecutor = environment.lifecycle().executorService(name(getClass(), "batchIdentityCheck-%d")).minThreads(32).maxThreads(32).build();
-    ExecutorService multiRecipientMessageExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "multiRecipientMessage-%d")).minThreads(64).maxThreads(64).build();
+    final ExecutorRegistry executorRegistry =
+        new ExecutorRegistry(getClass(), environment.lifecycle(), config.getExecutors());
+
+    // Shared by all batch identity checks so that concurrent requests can't collectively flood the accounts cache and table
+    final AsyncConcurrencyLimiter batchIdentityCheckLimiter = new AsyncConcurrencyLimiter("batchIdentityCheck", 32);
+    ExecutorService multiRecipientMessageExecutor = executorRegistry.executorService("multiRecipientMessage", 64);
     ExecutorService subscriptionProcessorExecutor = environment.lifecycle()
         .executorService(name(getClass(), "subscriptionProcessor-%d"))
         .maxThreads(availableProcessors)  // mostly this is IO bound so tying to number of processors is tenuous at best
         .minThreads(availableProcessors)  // mostly this is IO bound so tying to number of processors is tenuous at best
         .allowCoreThreadTimeOut(true).
         build();
-    ExecutorService receiptSenderExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "receiptSender-%d"))
-        .maxThreads(2)
-        .minThreads(2)
-        .workQueue(receiptSenderQueue)
-        .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
-        .build();
-    ExecutorService registrationCallbackExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "registration-%d"))
-        .maxThreads(2)
-        .minThreads(2)
-        .build();
-    ExecutorService accountLockExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "accountLock-%d"))
-        .minThreads(8)
-        .maxThreads(8)
-        .build();
-    ExecutorService clientPresenceExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "clientPresence-%d"))
-        .minThreads(8)
-        .maxThreads(8)
-        .build();
+    ExecutorService receiptSenderExecutor = executorRegistry.executorService("receiptSender", 2,
+        builder -> builder
+            .workQueue(receiptSenderQueue)
+            .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()));
+    ExecutorService registrationCallbackExecutor = executorRegistry.executorService("registration", 2);
+    ExecutorService clientPresenceExecutor = executorRegistry.executorService("clientPresence", 8);
     // unbounded executor (same as cachedThreadPool)
     ExecutorService hcaptchaHttpExecutor = environment.lifecycle()
         .executorService(name(getClass(), "hcaptcha-%d"))
@@ -563,11 +551,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         .workQueue(new SynchronousQueue<>())
         .keepAliveTime(io.dropwizard.util.Duration.seconds(60L))
         .build();
-    ExecutorService cloudflareTurnHttpExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "cloudflareTurn-%d"))
-        .maxThreads(2)
-        .minThreads(2)
-        .build();
+    ExecutorService cloudflareTurnHttpExecutor = executorRegistry.executorService("cloudflareTurn", 2);
     ExecutorService keyTransparencyCallbackExecutor = environment.lifecycle()
         .virtualExecutorService(name(getClass(), "keyTransparency-%d"));
     ExecutorService googlePlayBillingExecutor = environment.lifecycle()
@@ -633,15 +617,15 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         config.getReportMessageConfiguration().getCounterTtl());
     MessagesManager messagesManager = new MessagesManager(messagesDynamoDb, messagesCache, reportMessageManager,
         messageDeletionAsyncExecutor);
-    AccountLockManager accountLockManager = new AccountLockManager(dynamoDbClient,
+    AccountLockManager accountLockManager = new AccountLockManager(dynamoDbAsyncClient,
         config.getDynamoDbTables().getDeletedAccountsLock().getTableName());
     ClientPublicKeysManager clientPublicKeysManager =
-        new ClientPublicKeysManager(clientPublicKeys, accountLockManager, accountLockExecutor);
+        new ClientPublicKeysManager(clientPublicKeys, accountLockManager);
     AccountsManager accountsManager = new AccountsManager(accounts, phoneNumberIdentifiers, cacheCluster,
         accountLockManager, keysManager, messagesManager, profilesManager,
         secureStorageClient, secureValueRecovery2Client,
         clientPresenceManager,
-        registrationRecoveryPasswordsManager, clientPublicKeysManager, accountLockExecutor, clientPresenceExecutor,
+        registrationRecoveryPasswordsManager, clientPublicKeysManager, clientPresenceExecutor,
         clock, config.getLinkDeviceSecretConfiguration().secret().value(), dynamicConfigurationManager);
     RemoteConfigsManager remoteConfigsManager = new RemoteConfigsManager(remoteConfigs);
     APNSender apnSender = new APNSender(apnSenderExecutor, config.getApnConfiguration());
@@ -653,7 +637,10 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     RateLimiters rateLimiters = RateLimiters.createAndValidate(config.getLimitsConfiguration(),
         dynamicConfigurationManager, rateLimitersCluster);
     ProvisioningManager provisioningManager = new ProvisioningManager(
-        config.getProvisioningConfiguration().pubsub().build(sharedClientResources),
+        Stream.concat(Stream.of(config.getProvisioningConfiguration().pubsub()),
+                config.getProvisioningConfiguration().additionalPubsubShards().stream())
+            .map(redisClientFactory -> redisClientFactory.build(sharedClientResources))
+            .toList(),
         config.getProvisioningConfiguration().circuitBreaker());
     IssuedReceiptsManager issuedReceiptsManager = new IssuedReceiptsManager(
         config.getDynamoDbTables().getIssuedReceipts().getTableName(),
@@ -703,7 +690,9 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     final CardinalityEstimator messageByteLimitCardinalityEstimator = new CardinalityEstimator(
         rateLimitersCluster,
         "message_byte_limit",
-        config.getMessageByteLimitCardinalityEstimator().period());
+        config.getMessageByteLimitCardinalityEstimator().period(),
+        config.getMessageByteLimitCardinalityEstimator().flushInterval(),
+        recurringJobExecutor);
 
     HCaptchaClient hCaptchaClient = config.getHCaptchaConfiguration()
         .build(hcaptchaRetryExecutor, hcaptchaHttpExecutor, dynamicConfigurationManager);
@@ -727,7 +716,8 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     VirtualThreadPinEventMonitor virtualThreadPinEventMonitor = new VirtualThreadPinEventMonitor(
         virtualThreadEventLoggerExecutor,
         () -> dynamicConfigurationManager.getConfiguration().getVirtualThreads().allowedPinEvents(),
-        config.getVirtualThreadConfiguration().pinEventThreshold());
+        config.getVirtualThreadConfiguration().pinEventThreshold(),
+        executorRegistry::getExecutorName);
 
     StripeManager stripeManager = new StripeManager(config.getStripe().apiKey().value(), subscriptionProcessorExecutor,
         config.getStripe().idempotencyKeyGenerator().value(), config.getStripe().boostDescription(), config.getStripe().supportedCurrenciesByPaymentMethod());
@@ -755,6 +745,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     environment.lifecycle().manage(apnSender);
     environment.lifecycle().manage(pushNotificationScheduler);
     environment.lifecycle().manage(provisioningManager);
+    environment.lifecycle().manage(messageByteLimitCardinalityEstimator);
     environment.lifecycle().manage(messagesCache);
     environment.lifecycle().manage(clientPresenceManager);
     environment.lifecycle().manage(currencyManager);
@@ -1122,7 +1113,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         new PaymentsController(currencyManager, paymentsCredentialsGenerator),
         new ProfileController(clock, rateLimiters, accountsManager, profilesManager, dynamicConfigurationManager,
             profileBadgeConverter, config.getBadges(), cdnS3Client, profileCdnPolicyGenerator, profileCdnPolicySigner,
-            config.getCdnConfiguration().bucket(), zkSecretParams, zkProfileOperations, batchIdentityCheckExecutor),
+            config.getCdnConfiguration().bucket(), zkSecretParams, zkProfileOperations, batchIdentityCheckLimiter),
         new ProvisioningController(rateLimiters, provisioningManager),
         new RegistrationController(accountsManager, phoneVerificationTokenManager, registrationLockVerificationManager,
             rateLimiters),
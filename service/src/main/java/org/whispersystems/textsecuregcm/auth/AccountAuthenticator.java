@@ -8,20 +8,28 @@ package org.whispersystems.textsecuregcm.auth;
 import static com.codahale.metrics.MetricRegistry.name;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.UUID;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.whispersystems.textsecuregcm.metrics.MeterHandleCache;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.HmacUtils;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.Util;
 
@@ -33,18 +41,60 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
   private static final String AUTHENTICATION_SUCCEEDED_TAG_NAME = "succeeded";
   private static final String AUTHENTICATION_FAILURE_REASON_TAG_NAME = "reason";
 
+  private record AuthenticationCounterKey(boolean succeeded, @Nullable String failureReason) {
+  }
+
+  private static final MeterHandleCache<AuthenticationCounterKey, Counter> AUTHENTICATION_COUNTERS =
+      new MeterHandleCache<>("authentication", key -> {
+        Tags tags = Tags.of(
+            AUTHENTICATION_SUCCEEDED_TAG_NAME, String.valueOf(key.succeeded()));
+
+        if (StringUtils.isNotBlank(key.failureReason())) {
+          tags = tags.and(AUTHENTICATION_FAILURE_REASON_TAG_NAME, key.failureReason());
+        }
+
+        return Metrics.counter(AUTHENTICATION_COUNTER_NAME, tags);
+      });
+
   private static final String DAYS_SINCE_LAST_SEEN_DISTRIBUTION_NAME = name(LEGACY_NAME_PREFIX, "daysSinceLastSeen");
   private static final String IS_PRIMARY_DEVICE_TAG = "isPrimary";
 
   private static final Counter OLD_TOKEN_VERSION_COUNTER =
       Metrics.counter(name(AccountAuthenticator.class, "oldTokenVersionCounter"));
 
+  private static final String VERIFIED_CREDENTIAL_CACHE_COUNTER_NAME =
+      name(AccountAuthenticator.class, "verifiedCredentialCache");
+  private static final Counter VERIFIED_CREDENTIAL_CACHE_HIT_COUNTER =
+      Metrics.counter(VERIFIED_CREDENTIAL_CACHE_COUNTER_NAME, "outcome", "hit");
+  private static final Counter VERIFIED_CREDENTIAL_CACHE_MISS_COUNTER =
+      Metrics.counter(VERIFIED_CREDENTIAL_CACHE_COUNTER_NAME, "outcome", "miss");
+
+  private static final int VERIFIED_CREDENTIAL_CACHE_MAX_SIZE = 100_000;
+  private static final Duration VERIFIED_CREDENTIAL_CACHE_TTL = Duration.ofMinutes(10);
+
   @VisibleForTesting
   static final char DEVICE_ID_SEPARATOR = '.';
 
   private final AccountsManager accountsManager;
   private final Clock clock;
 
+  // Remembers recently-verified credentials so repeat requests from the same device can skip the (deliberately slow)
+  // token hash. Entries hold only a MAC of the password under a key that never leaves this process, and are bound to
+  // the device's token hash at the time of verification; if the device's credentials change or the device is removed,
+  // its stored token hash no longer matches and the entry is ignored.
+  private final Cache<DeviceKey, VerifiedCredential> verifiedCredentials = CacheBuilder.newBuilder()
+      .maximumSize(VERIFIED_CREDENTIAL_CACHE_MAX_SIZE)
+      .expireAfterWrite(VERIFIED_CREDENTIAL_CACHE_TTL)
+      .build();
+
+  private final byte[] verifiedCredentialMacKey = new byte[32];
+
+  private record DeviceKey(UUID accountIdentifier, byte deviceId) {
+  }
+
+  private record VerifiedCredential(byte[] passwordMac, SaltedTokenHash saltedTokenHash) {
+  }
+
   public AccountAuthenticator(AccountsManager accountsManager) {
     this(accountsManager, Clock.systemUTC());
   }
@@ -53,6 +103,8 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
   public AccountAuthenticator(AccountsManager accountsManager, Clock clock) {
     this.accountsManager = accountsManager;
     this.clock = clock;
+
+    new SecureRandom().nextBytes(verifiedCredentialMacKey);
   }
 
   static Pair<String, Byte> getIdentifierAndDeviceId(final String basicUsername) {
@@ -102,7 +154,7 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
       }
 
       SaltedTokenHash deviceSaltedTokenHash = device.get().getAuthTokenHash();
-      if (deviceSaltedTokenHash.verify(basicCredentials.getPassword())) {
+      if (verify(accountUuid, deviceId, deviceSaltedTokenHash, basicCredentials.getPassword())) {
         succeeded = true;
         Account authenticatedAccount = updateLastSeen(account.get(), device.get());
         if (deviceSaltedTokenHash.getVersion() != SaltedTokenHash.CURRENT_VERSION) {
@@ -121,15 +173,40 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
       failureReason = "invalidHeader";
       return Optional.empty();
     } finally {
-      Tags tags = Tags.of(
-          AUTHENTICATION_SUCCEEDED_TAG_NAME, String.valueOf(succeeded));
+      AUTHENTICATION_COUNTERS.get(new AuthenticationCounterKey(succeeded, failureReason)).increment();
+    }
+  }
 
-      if (StringUtils.isNotBlank(failureReason)) {
-        tags = tags.and(AUTHENTICATION_FAILURE_REASON_TAG_NAME, failureReason);
-      }
+  private boolean verify(final UUID accountIdentifier,
+      final byte deviceId,
+      final SaltedTokenHash deviceSaltedTokenHash,
+      final String password) {
+
+    final DeviceKey deviceKey = new DeviceKey(accountIdentifier, deviceId);
+    final byte[] passwordMac = HmacUtils.hmac256(verifiedCredentialMacKey, password.getBytes(StandardCharsets.UTF_8));
+
+    @Nullable final VerifiedCredential verifiedCredential = verifiedCredentials.getIfPresent(deviceKey);
+
+    if (verifiedCredential != null
+        && verifiedCredential.saltedTokenHash().equals(deviceSaltedTokenHash)
+        && MessageDigest.isEqual(verifiedCredential.passwordMac(), passwordMac)) {
 
-      Metrics.counter(AUTHENTICATION_COUNTER_NAME, tags).increment();
+      VERIFIED_CREDENTIAL_CACHE_HIT_COUNTER.increment();
+      return true;
     }
+
+    VERIFIED_CREDENTIAL_CACHE_MISS_COUNTER.increment();
+
+    if (!deviceSaltedTokenHash.verify(password)) {
+      return false;
+    }
+
+    // Outdated token hashes are replaced as soon as they're verified, so there's no point in remembering them
+    if (deviceSaltedTokenHash.getVersion() == SaltedTokenHash.CURRENT_VERSION) {
+      verifiedCredentials.put(deviceKey, new VerifiedCredential(passwordMac, deviceSaltedTokenHash));
+    }
+
+    return true;
   }
 
   @VisibleForTesting
@@ -5,10 +5,20 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.security.InvalidKeyException;
+import java.time.Duration;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.signal.libsignal.protocol.ecc.ECPrivateKey;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.SenderCertificate;
@@ -17,12 +27,36 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
 
+/**
+ * Generates signed sender certificates. Signed certificates are cached briefly and reused for identical requests; every
+ * input to a certificate is part of its cache key, so a change to an account's identity key or phone number always
+ * produces a new certificate. Reused certificates expire up to {@link #CERTIFICATE_CACHE_TTL} sooner than freshly-signed
+ * ones.
+ */
 public class CertificateGenerator {
 
   private final ECPrivateKey      privateKey;
   private final int               expiresDays;
   private final ServerCertificate serverCertificate;
 
+  private final Cache<CertificateKey, byte[]> certificateCache = CacheBuilder.newBuilder()
+      .maximumSize(CERTIFICATE_CACHE_MAX_SIZE)
+      .expireAfterWrite(CERTIFICATE_CACHE_TTL)
+      .build();
+
+  private static final int CERTIFICATE_CACHE_MAX_SIZE = 50_000;
+  private static final Duration CERTIFICATE_CACHE_TTL = Duration.ofHours(1);
+
+  private static final String CERTIFICATE_CACHE_COUNTER_NAME = name(CertificateGenerator.class, "certificateCache");
+  private static final Counter CERTIFICATE_CACHE_HIT_COUNTER =
+      Metrics.counter(CERTIFICATE_CACHE_COUNTER_NAME, "outcome", "hit");
+  private static final Counter CERTIFICATE_CACHE_MISS_COUNTER =
+      Metrics.counter(CERTIFICATE_CACHE_COUNTER_NAME, "outcome", "miss");
+  private static final Timer SIGN_CERTIFICATE_TIMER = Metrics.timer(name(CertificateGenerator.class, "signCertificate"));
+
+  private record CertificateKey(UUID aci, byte deviceId, @Nullable String e164, ByteString identityKey) {
+  }
+
   public CertificateGenerator(byte[] serverCertificate, ECPrivateKey privateKey, int expiresDays)
       throws InvalidProtocolBufferException
   {
@@ -32,15 +66,39 @@ public class CertificateGenerator {
   }
 
   public byte[] createFor(Account account, Device device, boolean includeE164) throws InvalidKeyException {
+    final CertificateKey certificateKey = new CertificateKey(account.getUuid(),
+        device.getId(),
+        includeE164 ? account.getNumber() : null,
+        ByteString.copyFrom(account.getIdentityKey(IdentityType.ACI).serialize()));
+
+    final byte[] cachedCertificate = certificateCache.getIfPresent(certificateKey);
+
+    if (cachedCertificate != null) {
+      CERTIFICATE_CACHE_HIT_COUNTER.increment();
+      return cachedCertificate.clone();
+    }
+
+    CERTIFICATE_CACHE_MISS_COUNTER.increment();
+
+    final Timer.Sample sample = Timer.start();
+    final byte[] certificate = createFor(certificateKey);
+    sample.stop(SIGN_CERTIFICATE_TIMER);
+
+    certificateCache.put(certificateKey, certificate);
+
+    return certificate.clone();
+  }
+
+  private byte[] createFor(final CertificateKey certificateKey) throws InvalidKeyException {
     SenderCertificate.Certificate.Builder builder = SenderCertificate.Certificate.newBuilder()
-        .setSenderDevice(Math.toIntExact(device.getId()))
+        .setSenderDevice(Math.toIntExact(certificateKey.deviceId()))
         .setExpires(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(expiresDays))
-        .setIdentityKey(ByteString.copyFrom(account.getIdentityKey(IdentityType.ACI).serialize()))
+        .setIdentityKey(certificateKey.identityKey())
         .setSigner(serverCertificate)
-        .setSenderUuid(account.getUuid().toString());
+        .setSenderUuid(certificateKey.aci().toString());
 
-    if (includeE164) {
-      builder.setSender(account.getNumber());
+    if (certificateKey.e164() != null) {
+      builder.setSender(certificateKey.e164());
     }
 
     byte[] certificate = builder.build().toByteArray();
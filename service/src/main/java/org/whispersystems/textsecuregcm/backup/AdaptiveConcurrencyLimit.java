@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.backup;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+
+/**
+ * An additive-increase/multiplicative-decrease (AIMD) concurrency limit. Callers report the latency, size, and outcome
+ * of each operation; the limit grows by roughly one permit per "window" of healthy operations and is cut by a constant
+ * factor when an operation fails or takes longer than its latency target. An operation's latency target is a fixed
+ * base latency plus the time it would take to transfer the operation's payload at a minimum acceptable throughput, so
+ * large payloads are not mistaken for signs of overload.
+ * <p>
+ * The limit backs off at most once per window: after a backoff, further overload signals are ignored until as many
+ * operations have completed as were allowed to run concurrently before the backoff. Operations that were already in
+ * flight when the limit was cut will often be slow for the same reason, and shouldn't cut the limit again.
+ * <p>
+ * Callers consult {@link #getLimit()} before starting each operation (e.g. as the limit of an
+ * {@link org.whispersystems.textsecuregcm.util.AsyncConcurrencyLimiter}) so the limit bounds all operations in flight,
+ * not just those belonging to one unit of work.
+ */
+class AdaptiveConcurrencyLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final Duration baseLatencyTarget;
+  private final long minThroughputBytesPerSecond;
+  private final double backoffRatio;
+
+  private double limit;
+
+  // The number of operations that must complete after a backoff before the limit may back off again, and the number
+  // that have completed since the last backoff
+  private int backoffWindow = 0;
+  private int completionsSinceBackoff = 0;
+
+  /**
+   * @param initialLimit                the limit before any operations have been observed
+   * @param minLimit                    the smallest limit to which this limit may shrink
+   * @param maxLimit                    the largest limit to which this limit may grow
+   * @param baseLatencyTarget           operations with an empty payload that are slower than this are treated as a
+   *                                    sign of overload
+   * @param minThroughputBytesPerSecond the slowest rate at which a healthy operation is expected to transfer its
+   *                                    payload; each operation's latency target is extended by the time it would take
+   *                                    to transfer its payload at this rate
+   * @param backoffRatio                the factor by which to multiply the limit when overload is observed; must be in
+   *                                    (0, 1)
+   */
+  AdaptiveConcurrencyLimit(final int initialLimit,
+      final int minLimit,
+      final int maxLimit,
+      final Duration baseLatencyTarget,
+      final long minThroughputBytesPerSecond,
+      final double backoffRatio) {
+
+    if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+    }
+
+    if (minThroughputBytesPerSecond <= 0) {
+      throw new IllegalArgumentException("Minimum throughput must be positive");
+    }
+
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+    }
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.baseLatencyTarget = baseLatencyTarget;
+    this.minThroughputBytesPerSecond = minThroughputBytesPerSecond;
+    this.backoffRatio = backoffRatio;
+    this.limit = initialLimit;
+  }
+
+  /**
+   * Records the outcome of a single operation.
+   *
+   * @param latency      how long the operation took
+   * @param payloadBytes the number of bytes the operation transferred
+   * @param failed       whether the operation failed in a way that suggests the downstream service is unhealthy
+   */
+  synchronized void onComplete(final Duration latency, final long payloadBytes, final boolean failed) {
+    completionsSinceBackoff++;
+
+    if (failed || latency.compareTo(getLatencyTarget(payloadBytes)) > 0) {
+      if (completionsSinceBackoff >= backoffWindow) {
+        backoffWindow = (int) limit;
+        completionsSinceBackoff = 0;
+
+        limit = Math.max(minLimit, limit * backoffRatio);
+      }
+    } else {
+      // Adding 1/limit per success grows the limit by about one permit for every `limit` successful operations
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  @VisibleForTesting
+  Duration getLatencyTarget(final long payloadBytes) {
+    return baseLatencyTarget.plusMillis(Math.max(0, payloadBytes) * 1000 / minThroughputBytesPerSecond);
+  }
+
+  /**
+   * @return the number of operations callers should currently allow to run concurrently
+   */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+}
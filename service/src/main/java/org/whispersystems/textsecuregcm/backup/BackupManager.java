@@ -23,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.signal.libsignal.protocol.ecc.ECPublicKey;
 import org.signal.libsignal.zkgroup.GenericServerSecretParams;
@@ -37,8 +38,10 @@ import org.whispersystems.textsecuregcm.auth.AuthenticatedBackupUser;
 import org.whispersystems.textsecuregcm.limits.RateLimiter;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.util.AsyncConcurrencyLimiter;
 import org.whispersystems.textsecuregcm.util.AsyncTimerUtil;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
@@ -51,14 +54,41 @@ public class BackupManager {
   public static final long MAX_TOTAL_BACKUP_MEDIA_BYTES = DataSize.gibibytes(100).toBytes();
   static final long MAX_MEDIA_OBJECT_SIZE = DataSize.mebibytes(101).toBytes();
 
-  // If the last media usage recalculation is over MAX_QUOTA_STALENESS, force a recalculation before quota enforcement.
+  // If the last media usage recalculation is over MAX_QUOTA_STALENESS when a user exceeds their quota, recalculate the
+  // user's usage in the background.
   static final Duration MAX_QUOTA_STALENESS = Duration.ofDays(1);
 
+  // How long other instances must wait before recalculating a user's media usage if a claimed recalculation never
+  // finishes
+  @VisibleForTesting
+  static final Duration MEDIA_USAGE_RECALCULATION_CLAIM_DURATION = Duration.ofMinutes(10);
+
   // How many cdn object deletion requests can be outstanding at a time per backup deletion operation
   private static final int DELETION_CONCURRENCY = 10;
 
-  // How many cdn object copy requests can be outstanding at a time per batch copy-to-backup operation
-  private static final int COPY_CONCURRENCY = 10;
+  // How many objects to list (and then delete, one request per object) at a time when deleting a prefix
+  private static final int DELETION_PAGE_SIZE = 1000;
+
+  // How many listed pages of objects may be deleted at a time per backup expiration. Expirations are expected to run
+  // many backups at once, so this is mostly about letting the next listing overlap with the current page's deletion.
+  private static final int EXPIRATION_CONCURRENT_PAGES = 2;
+
+  // How many cdn object copy requests can be outstanding at a time across all copy-to-backup operations. The actual
+  // limit adapts between the minimum and maximum based on observed copy latency and errors.
+  @VisibleForTesting
+  static final int INITIAL_COPY_CONCURRENCY = 10;
+  private static final int MIN_COPY_CONCURRENCY = 2;
+  @VisibleForTesting
+  static final int MAX_COPY_CONCURRENCY = 50;
+
+  // How many copies from a single batch copy-to-backup operation may be running or waiting for a permit at a time
+  private static final int MAX_QUEUED_COPIES_PER_BATCH = MAX_COPY_CONCURRENCY;
+
+  // Copies that take longer than the base latency target, plus the time to transfer the object at the minimum
+  // throughput, are treated as a sign that the cdn is overloaded
+  private static final Duration COPY_BASE_LATENCY_TARGET = Duration.ofSeconds(10);
+  private static final long COPY_MIN_THROUGHPUT_BYTES_PER_SECOND = DataSize.mebibytes(1).toBytes();
+  private static final double COPY_CONCURRENCY_BACKOFF_RATIO = 0.5;
 
 
   private static final String ZK_AUTHN_COUNTER_NAME = MetricsUtil.name(BackupManager.class, "authentication");
@@ -68,8 +98,11 @@ public class BackupManager {
       "usageRecalculation");
   private static final String DELETE_COUNT_DISTRIBUTION_NAME = MetricsUtil.name(BackupManager.class,
       "deleteCount");
+  private static final String DELETED_OBJECTS_COUNTER_NAME = MetricsUtil.name(BackupManager.class,
+      "deletedObjects");
   private static final Timer SYNCHRONOUS_DELETE_TIMER =
       Metrics.timer(MetricsUtil.name(BackupManager.class, "synchronousDelete"));
+  private static final String COPY_CONCURRENCY_GAUGE_NAME = MetricsUtil.name(BackupManager.class, "copyConcurrency");
 
   private static final String SUCCESS_TAG_NAME = "success";
   private static final String FAILURE_REASON_TAG_NAME = "reason";
@@ -82,6 +115,11 @@ public class BackupManager {
   private final RemoteStorageManager remoteStorageManager;
   private final SecureRandom secureRandom = new SecureRandom();
   private final Clock clock;
+  private final AdaptiveConcurrencyLimit copyConcurrencyLimit = new AdaptiveConcurrencyLimit(
+      INITIAL_COPY_CONCURRENCY, MIN_COPY_CONCURRENCY, MAX_COPY_CONCURRENCY,
+      COPY_BASE_LATENCY_TARGET, COPY_MIN_THROUGHPUT_BYTES_PER_SECOND, COPY_CONCURRENCY_BACKOFF_RATIO);
+  private final AsyncConcurrencyLimiter copyLimiter =
+      new AsyncConcurrencyLimiter("backupMediaCopy", copyConcurrencyLimit::getLimit);
 
 
   public BackupManager(
@@ -99,6 +137,8 @@ public class BackupManager {
     this.cdn3BackupCredentialGenerator = cdn3BackupCredentialGenerator;
     this.remoteStorageManager = remoteStorageManager;
     this.clock = clock;
+
+    Metrics.gauge(COPY_CONCURRENCY_GAUGE_NAME, copyConcurrencyLimit, AdaptiveConcurrencyLimit::getLimit);
   }
 
 
@@ -204,7 +244,10 @@ public class BackupManager {
    * will also be deducted from the user's quota. </p>
    * <p>
    * However, the converse isn't true. It's possible we may charge the user for media they failed to copy. As a result,
-   * the quota may be over reported. It should be recalculated before taking quota enforcement actions.
+   * the quota may be over reported. It is recalculated in the background when a user appears to be out of quota.
+   * <p>
+   * Copies run concurrently, up to an adaptive limit shared by all copy operations. Results are emitted as copies
+   * complete, which is not necessarily the order in which they were requested.
    *
    * @return A Flux that emits the locations of the double-encrypted objects on the backup cdn, or includes an error
    * detailing why the object could not be copied.
@@ -217,31 +260,58 @@ public class BackupManager {
         .fromFuture(enforceQuota(backupUser, toCopy))
 
         // Copy the ones we have enough quota to hold
-        .flatMapMany(quotaResult -> Flux.concat(
-
-            // These fit in our remaining quota, so perform the copy. If the copy fails, our estimated quota usage may not
-            // be exact since we already updated our usage. We make a best-effort attempt to undo the usage update if we
-            // know that the copied failed for sure though.
-            Flux.fromIterable(quotaResult.requestsToCopy()).flatMapSequential(
-                copyParams -> copyToBackup(backupUser, copyParams)
-                    .flatMap(copyResult -> switch (copyResult.outcome()) {
-                      case SUCCESS -> Mono.just(copyResult);
-                      case SOURCE_WRONG_LENGTH, SOURCE_NOT_FOUND, OUT_OF_QUOTA -> Mono
-                          .fromFuture(this.backupsDb.trackMedia(backupUser, -1, -copyParams.destinationObjectSize()))
-                          .thenReturn(copyResult);
-                    }),
-                COPY_CONCURRENCY),
-
-            // There wasn't enough quota remaining to perform these copies
-            Flux.fromIterable(quotaResult.requestsToReject())
-                .map(arg -> new CopyResult(CopyResult.Outcome.OUT_OF_QUOTA, arg.destinationMediaId(), null))));
+        .flatMapMany(quotaResult -> {
+          // If a copy fails, our estimated quota usage may not be exact since we already updated our usage. We make a
+          // best-effort attempt to undo the usage update if we know that the copy failed for sure though, coalescing
+          // the adjustments for the whole batch into a single update.
+          final AtomicLong failedCopyCount = new AtomicLong();
+          final AtomicLong failedCopyBytes = new AtomicLong();
+
+          return Flux.concat(
+              // These fit in our remaining quota, so perform the copy
+              Flux.fromIterable(quotaResult.requestsToCopy()).flatMap(
+                  copyParams -> copyToBackup(backupUser, copyParams)
+                      .doOnNext(copyResult -> {
+                        if (copyResult.outcome() != CopyResult.Outcome.SUCCESS) {
+                          failedCopyCount.incrementAndGet();
+                          failedCopyBytes.addAndGet(copyParams.destinationObjectSize());
+                        }
+                      }),
+                  MAX_QUEUED_COPIES_PER_BATCH),
+
+              // Restore the quota consumed by copies that definitely failed
+              Mono.defer(() -> failedCopyCount.get() == 0
+                      ? Mono.empty()
+                      : Mono.fromFuture(this.backupsDb.trackMedia(backupUser, -failedCopyCount.get(),
+                          -failedCopyBytes.get())))
+                  .then(Mono.<CopyResult>empty()),
+
+              // There wasn't enough quota remaining to perform these copies
+              Flux.fromIterable(quotaResult.requestsToReject())
+                  .map(arg -> new CopyResult(CopyResult.Outcome.OUT_OF_QUOTA, arg.destinationMediaId(), null)));
+        });
   }
 
   private Mono<CopyResult> copyToBackup(final AuthenticatedBackupUser backupUser, final CopyParameters copyParameters) {
-    return Mono.fromCompletionStage(() -> remoteStorageManager.copy(
-            copyParameters.sourceCdn(), copyParameters.sourceKey(), copyParameters.sourceLength(),
-            copyParameters.encryptionParameters(),
-            cdnMediaPath(backupUser, copyParameters.destinationMediaId())))
+    // Wait for a permit from the shared limiter, then time the copy itself
+    return Mono.fromCompletionStage(() -> copyLimiter.submit(() -> {
+          final long start = System.nanoTime();
+
+          return remoteStorageManager.copy(
+                  copyParameters.sourceCdn(), copyParameters.sourceKey(), copyParameters.sourceLength(),
+                  copyParameters.encryptionParameters(),
+                  cdnMediaPath(backupUser, copyParameters.destinationMediaId()))
+
+              // Feed the observed latency back into the copy concurrency limit; errors that map to an explicit result
+              // type are problems with the source object, not signs that the cdn is struggling
+              .whenComplete((ignored, throwable) -> {
+                final boolean cdnFailure = throwable != null
+                    && CopyResult.fromCopyError(throwable, copyParameters.destinationMediaId()).isEmpty();
+
+                copyConcurrencyLimit.onComplete(Duration.ofNanos(System.nanoTime() - start),
+                    copyParameters.sourceLength(), cdnFailure);
+              });
+        }))
 
         // Successfully copied!
         .thenReturn(new CopyResult(
@@ -283,25 +353,17 @@ public class BackupManager {
         .sum();
 
     return backupsDb.getMediaUsage(backupUser)
-        .thenComposeAsync(info -> {
-          long remainingQuota = MAX_TOTAL_BACKUP_MEDIA_BYTES - info.usageInfo().bytesUsed();
+        .thenApply(info -> {
+          final long remainingQuota = MAX_TOTAL_BACKUP_MEDIA_BYTES - info.usageInfo().bytesUsed();
           final boolean canStore = remainingQuota >= totalBytesAdded;
-          if (canStore || info.lastRecalculationTime().isAfter(clock.instant().minus(MAX_QUOTA_STALENESS))) {
-            return CompletableFuture.completedFuture(remainingQuota);
+          if (!canStore && !info.lastRecalculationTime().isAfter(clock.instant().minus(MAX_QUOTA_STALENESS))) {
+            // The user is out of quota, and we have not recently recalculated the user's usage. The tracked usage may
+            // have drifted from what's actually stored, but recalculating requires a scan of the user's entire media
+            // directory, so decide this request from the tracked usage and reconcile it in the background for future
+            // requests.
+            recalculateMediaUsage(backupUser);
           }
-
-          // The user is out of quota, and we have not recently recalculated the user's usage. Double check by doing a
-          // hard recalculation before actually forbidding the user from storing additional media.
-          return this.remoteStorageManager.calculateBytesUsed(cdnMediaDirectory(backupUser))
-              .thenCompose(usage -> backupsDb
-                  .setMediaUsage(backupUser, usage)
-                  .thenApply(ignored -> usage))
-              .whenComplete((newUsage, throwable) -> {
-                boolean usageChanged = throwable == null && !newUsage.equals(info.usageInfo());
-                Metrics.counter(USAGE_RECALCULATION_COUNTER_NAME, "usageChanged", String.valueOf(usageChanged))
-                    .increment();
-              })
-              .thenApply(newUsage -> MAX_TOTAL_BACKUP_MEDIA_BYTES - newUsage.bytesUsed());
+          return remainingQuota;
         })
         .thenCompose(remainingQuota -> {
           // Figure out how many of the requested objects fit in the remaining quota
@@ -322,6 +384,32 @@ public class BackupManager {
         });
   }
 
+  /**
+   * Recalculate the media usage of the backup user by querying the cdn directly, and reconcile the tracked usage with
+   * the result. A recalculation requires a scan of the user's entire media directory, so a recalculation must first be
+   * claimed in the backups table; if another instance already holds an unexpired claim, this does nothing. A claim
+   * whose recalculation fails is left to expire, which limits how often a failing recalculation is retried.
+   *
+   * @param backupUser the user whose usage should be recalculated
+   *
+   * @return a future that completes when the recalculation has been reconciled or skipped
+   */
+  private CompletableFuture<Void> recalculateMediaUsage(final AuthenticatedBackupUser backupUser) {
+    return backupsDb.claimMediaUsageRecalculation(backupUser, MEDIA_USAGE_RECALCULATION_CLAIM_DURATION)
+        .thenCompose(maybeClaimedUsage -> maybeClaimedUsage
+            .map(claimedUsage -> remoteStorageManager.calculateBytesUsed(cdnMediaDirectory(backupUser))
+                .thenCompose(measuredUsage -> backupsDb.reconcileMediaUsage(backupUser, claimedUsage, measuredUsage)
+                    .thenRun(() -> Metrics.counter(USAGE_RECALCULATION_COUNTER_NAME,
+                            "usageChanged", String.valueOf(!measuredUsage.equals(claimedUsage)))
+                        .increment())))
+            .orElseGet(() -> CompletableFuture.completedFuture(null)))
+        .whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            logger.warn("Failed to recalculate media usage", throwable);
+          }
+        });
+  }
+
   /**
    * @return the largest index i such that sum(ts[0],...ts[i - 1]) <= max
    */
@@ -402,7 +490,7 @@ public class BackupManager {
         // If there was already a pending swap, try to delete the cdn objects directly
         .exceptionallyCompose(ExceptionUtils.exceptionallyHandler(BackupsDb.PendingDeletionException.class, e ->
             AsyncTimerUtil.record(SYNCHRONOUS_DELETE_TIMER, () ->
-                deletePrefix(backupUser.backupDir(), DELETION_CONCURRENCY))));
+                deletePrefix(backupUser.backupDir(), 1, DELETION_CONCURRENCY).thenRun(Util.NOOP))));
   }
 
 
@@ -528,52 +616,80 @@ public class BackupManager {
     return this.backupsDb.getExpiredBackups(segments, scheduler, purgeTime);
   }
 
+  /**
+   * Like {@link #getExpiredBackups(int, Scheduler, Instant)}, but also reports scan progress.
+   *
+   * @param scannedRowsListener called with the number of backup rows examined by each scanned page, whether or not any
+   *                            of those rows were expired
+   */
+  public Flux<ExpiredBackup> getExpiredBackups(final int segments, final Scheduler scheduler, final Instant purgeTime,
+      final LongConsumer scannedRowsListener) {
+    return this.backupsDb.getExpiredBackups(segments, scheduler, purgeTime, scannedRowsListener);
+  }
+
+  /**
+   * @return the approximate number of stored backups; this figure may be several hours stale
+   */
+  public CompletableFuture<Long> getApproximateBackupCount() {
+    return this.backupsDb.getApproximateBackupCount();
+  }
+
   /**
    * Delete some or all of the objects associated with the backup, and update the backup database.
    *
    * @param expiredBackup The backup to expire. If the {@link ExpiredBackup} is a media expiration, only the media
    *                      objects will be deleted, otherwise all backup objects will be deleted
-   * @return A stage that completes when the deletion operation is finished
+   * @return A stage that completes with the number of cdn objects deleted when the deletion operation is finished
    */
-  public CompletableFuture<Void> expireBackup(final ExpiredBackup expiredBackup) {
+  public CompletableFuture<Long> expireBackup(final ExpiredBackup expiredBackup) {
     return backupsDb.startExpiration(expiredBackup)
-        // the deletion operation is effectively single threaded -- it's expected that the caller can increase
-        // concurrency by deleting more backups at once, rather than increasing concurrency deleting an individual
-        // backup
-        .thenCompose(ignored -> deletePrefix(expiredBackup.prefixToDelete(), 1))
-        .thenCompose(ignored -> backupsDb.finishExpiration(expiredBackup));
+        // the deletion of an individual backup is kept narrow -- it's expected that the caller can increase concurrency
+        // by deleting more backups at once, rather than increasing concurrency deleting an individual backup
+        .thenCompose(ignored -> deletePrefix(expiredBackup.prefixToDelete(), EXPIRATION_CONCURRENT_PAGES, 1))
+        .thenCompose(itemsRemoved -> backupsDb.finishExpiration(expiredBackup).thenApply(ignored -> itemsRemoved));
   }
 
   /**
-   * List and delete all files associated with a prefix
+   * List and delete all files associated with a prefix. Each listed page of objects is handed to
+   * {@link RemoteStorageManager#deleteAll}, which deletes the objects one request at a time, and listing the next page
+   * may proceed while earlier pages are being deleted.
    *
-   * @param prefixToDelete The prefix to expire.
-   * @return A stage that completes when all objects with the given prefix have been deleted
+   * @param prefixToDelete      The prefix to expire.
+   * @param concurrentPages     The number of listed pages that may be deleted at a time
+   * @param concurrentDeletes   The number of individual deletes per page that may be outstanding at a time, if the
+   *                            remote storage manager must delete objects individually
+   * @return A stage that completes with the number of objects removed when all objects with the given prefix have
+   * been deleted
    */
-  private CompletableFuture<Void> deletePrefix(final String prefixToDelete, int concurrentDeletes) {
+  private CompletableFuture<Long> deletePrefix(final String prefixToDelete, final int concurrentPages,
+      final int concurrentDeletes) {
     if (prefixToDelete.length() != BackupsDb.BACKUP_DIRECTORY_PATH_LENGTH
         && prefixToDelete.length() != BackupsDb.MEDIA_DIRECTORY_PATH_LENGTH) {
       throw new IllegalArgumentException("Unexpected prefix deletion for " + prefixToDelete);
     }
     final String prefix = prefixToDelete + "/";
     return Mono
-        .fromCompletionStage(this.remoteStorageManager.list(prefix, Optional.empty(), 1000))
+        .fromCompletionStage(this.remoteStorageManager.list(prefix, Optional.empty(), DELETION_PAGE_SIZE))
         .expand(listResult -> {
           if (listResult.cursor().isEmpty()) {
             return Mono.empty();
           }
-          return Mono.fromCompletionStage(() -> this.remoteStorageManager.list(prefix, listResult.cursor(), 1000));
+          return Mono.fromCompletionStage(
+              () -> this.remoteStorageManager.list(prefix, listResult.cursor(), DELETION_PAGE_SIZE));
         })
-        .flatMap(listResult -> Flux.fromIterable(listResult.objects()))
-        .flatMap(
-            result -> Mono.fromCompletionStage(() -> remoteStorageManager.delete(prefix + result.key())),
-            concurrentDeletes)
-        .count()
+        .filter(listResult -> !listResult.objects().isEmpty())
+        .flatMap(listResult -> {
+              final List<String> keys = listResult.objects().stream().map(entry -> prefix + entry.key()).toList();
+              return Mono.fromCompletionStage(() -> remoteStorageManager.deleteAll(keys, concurrentDeletes))
+                  .doOnSuccess(ignored -> Metrics.counter(DELETED_OBJECTS_COUNTER_NAME).increment(keys.size()))
+                  .thenReturn((long) keys.size());
+            },
+            concurrentPages)
+        .reduce(0L, Long::sum)
         .doOnSuccess(itemsRemoved -> DistributionSummary.builder(DELETE_COUNT_DISTRIBUTION_NAME)
             .publishPercentileHistogram(true)
             .register(Metrics.globalRegistry)
             .record(itemsRemoved))
-        .then()
         .toFuture();
   }
 
@@ -10,6 +10,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -20,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import org.signal.libsignal.protocol.InvalidKeyException;
 import org.signal.libsignal.protocol.ecc.ECPublicKey;
@@ -37,8 +39,11 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.Update;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
@@ -101,6 +106,9 @@ public class BackupsDb {
   // N: Time in seconds since epoch of last backup media usage recalculation. This timestamp is updated whenever we
   // recalculate the up-to-date bytes used by querying the cdn(s) directly.
   public static final String ATTR_MEDIA_USAGE_LAST_RECALCULATION = "MBTS";
+  // N: Time in seconds since epoch until which some instance has claimed the right to recalculate the backup media
+  // usage. Absent if no recalculation has been claimed since the last recalculation finished.
+  public static final String ATTR_MEDIA_USAGE_RECALCULATION_CLAIM = "MBRC";
   // S: The name of the user's backup directory on the CDN
   public static final String ATTR_BACKUP_DIR = "BD";
   // S: The name of the user's media directory within the backup directory on the CDN
@@ -382,6 +390,65 @@ public class BackupsDb {
   }
 
 
+  /**
+   * Claim the right to recalculate the backup user's media usage. At most one unexpired claim may exist for a backup at
+   * a time, so at most one instance scans the cdn for a given backup even if many instances find its usage stale.
+   *
+   * @param backupUser    The backup user
+   * @param claimDuration How long the claim lasts if the recalculation is never reconciled via
+   *                      {@link #reconcileMediaUsage}
+   * @return A stage that completes with the usage tracked at the time of the claim if the claim was acquired, or empty
+   * if another unexpired claim exists
+   */
+  CompletableFuture<Optional<UsageInfo>> claimMediaUsageRecalculation(final AuthenticatedBackupUser backupUser,
+      final Duration claimDuration) {
+    final Instant now = clock.instant();
+    return dynamoClient.updateItem(UpdateBuilder.forUser(backupTableName, backupUser)
+            .addSetExpression("#recalcClaim = :recalcClaim",
+                Map.entry("#recalcClaim", ATTR_MEDIA_USAGE_RECALCULATION_CLAIM),
+                Map.entry(":recalcClaim", AttributeValues.n(now.plus(claimDuration).getEpochSecond())))
+            .withConditionExpression("attribute_not_exists(#recalcClaim) OR #recalcClaim <= :now",
+                Map.entry("#recalcClaim", ATTR_MEDIA_USAGE_RECALCULATION_CLAIM),
+                Map.entry(":now", AttributeValues.n(now.getEpochSecond())))
+            .updateItemBuilder()
+            // Return the tracked usage as of the claim, so the caller can tell which changes the recalculation missed
+            .returnValues(ReturnValue.ALL_NEW)
+            .build())
+        .thenApply(response -> Optional.of(new UsageInfo(
+            AttributeValues.getLong(response.attributes(), ATTR_MEDIA_BYTES_USED, 0L),
+            AttributeValues.getLong(response.attributes(), ATTR_MEDIA_COUNT, 0L))))
+        .exceptionally(ExceptionUtils.exceptionallyHandler(ConditionalCheckFailedException.class,
+            e -> Optional.empty()));
+  }
+
+  /**
+   * Reconcile the tracked media usage with usage measured directly on the cdn, and release the claim acquired via
+   * {@link #claimMediaUsageRecalculation}.
+   * <p>
+   * Tracked usage may change while the cdn is being measured, so rather than overwriting the tracked usage with the
+   * measured usage, the difference between the measured usage and the usage tracked when the measurement was claimed is
+   * applied as a correction. Changes tracked during the measurement are preserved, at the cost of counting changes that
+   * the measurement also observed twice until the next recalculation.
+   *
+   * @param backupUser    The backup user
+   * @param claimedUsage  The tracked usage returned when the recalculation was claimed
+   * @param measuredUsage The usage measured on the cdn
+   * @return A stage that completes once the correction has been applied
+   */
+  CompletableFuture<Void> reconcileMediaUsage(final AuthenticatedBackupUser backupUser, final UsageInfo claimedUsage,
+      final UsageInfo measuredUsage) {
+    return dynamoClient.updateItem(UpdateBuilder.forUser(backupTableName, backupUser)
+            .incrementMediaBytes(measuredUsage.bytesUsed() - claimedUsage.bytesUsed())
+            .incrementMediaCount(measuredUsage.numObjects() - claimedUsage.numObjects())
+            .addSetExpression("#mediaRecalc = :mediaRecalc",
+                Map.entry("#mediaRecalc", ATTR_MEDIA_USAGE_LAST_RECALCULATION),
+                Map.entry(":mediaRecalc", AttributeValues.n(clock.instant().getEpochSecond())))
+            .addRemoveExpression(Map.entry("#recalcClaim", ATTR_MEDIA_USAGE_RECALCULATION_CLAIM))
+            .updateItemBuilder()
+            .build())
+        .thenRun(Util.NOOP);
+  }
+
   /**
    * Marks the backup as undergoing expiration.
    * <p>
@@ -473,6 +540,18 @@ public class BackupsDb {
   }
 
   Flux<ExpiredBackup> getExpiredBackups(final int segments, final Scheduler scheduler, final Instant purgeTime) {
+    return getExpiredBackups(segments, scheduler, purgeTime, ignored -> {});
+  }
+
+  /**
+   * Like {@link #getExpiredBackups(int, Scheduler, Instant)}, but also reports scan progress.
+   *
+   * @param scannedRowsListener called with the number of rows examined by each scanned page, whether or not any of
+   *                            those rows were expired
+   */
+  Flux<ExpiredBackup> getExpiredBackups(final int segments, final Scheduler scheduler, final Instant purgeTime,
+      final LongConsumer scannedRowsListener) {
+
     if (segments < 1) {
       throw new IllegalArgumentException("Total number of segments must be positive");
     }
@@ -480,7 +559,7 @@ public class BackupsDb {
     return Flux.range(0, segments)
         .parallel()
         .runOn(scheduler)
-        .flatMap(segment -> dynamoClient.scanPaginator(ScanRequest.builder()
+        .flatMap(segment -> Flux.from(dynamoClient.scanPaginator(ScanRequest.builder()
                 .tableName(backupTableName)
                 .consistentRead(true)
                 .segment(segment)
@@ -496,8 +575,13 @@ public class BackupsDb {
                 .projectionExpression("#backupIdHash, #refresh, #mediaRefresh, #backupDir, #mediaDir, #expiredPrefix")
                 .filterExpression(
                     "(#refresh < :purgeTime) OR (#mediaRefresh < :purgeTime) OR attribute_exists(#expiredPrefix)")
-                .build())
-            .items())
+                .build()))
+            .doOnNext(page -> {
+              if (page.scannedCount() != null) {
+                scannedRowsListener.accept(page.scannedCount());
+              }
+            })
+            .flatMapIterable(ScanResponse::items))
         .sequential()
         .filter(Predicate.not(Map::isEmpty))
         .mapNotNull(item -> {
@@ -543,6 +627,15 @@ public class BackupsDb {
         });
   }
 
+  /**
+   * Returns the approximate number of rows in the backups table. DynamoDB only updates this figure every few hours, so
+   * it's suitable for progress estimates but not much else.
+   */
+  CompletableFuture<Long> getApproximateBackupCount() {
+    return dynamoClient.describeTable(DescribeTableRequest.builder().tableName(backupTableName).build())
+        .thenApply(response -> response.table().itemCount());
+  }
+
   /**
    * Backup expiration will expire any prefix we tell it to, so confirm that the directory names that came out of the
    * database have the correct shape before handing them off.
@@ -3,6 +3,8 @@ package org.whispersystems.textsecuregcm.backup;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Handles management operations over a external cdn storage system.
@@ -83,4 +85,20 @@ public interface RemoteStorageManager {
    * @return the number of bytes freed by the deletion operation
    */
   CompletionStage<Long> delete(final String key);
+
+  /**
+   * Delete each of the specified objects. By default, and in every current implementation, this issues one
+   * {@link #delete(String)} request per object; a cdn with a bulk-delete API could override it.
+   *
+   * @param keys           the keys of the stored objects to delete
+   * @param maxConcurrency the maximum number of individual deletions to have outstanding at a time if the objects must
+   *                       be deleted individually
+   * @return the total number of bytes freed by the deletion operation
+   */
+  default CompletionStage<Long> deleteAll(final List<String> keys, final int maxConcurrency) {
+    return Flux.fromIterable(keys)
+        .flatMap(key -> Mono.fromCompletionStage(() -> delete(key)), maxConcurrency)
+        .reduce(0L, Long::sum)
+        .toFuture();
+  }
 }
@@ -7,51 +7,54 @@ package org.whispersystems.textsecuregcm.calls.routing;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
-import java.math.BigInteger;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import org.whispersystems.textsecuregcm.util.InetAddressPrefixTrie;
 
 public class CallRoutingTable {
-  private final TreeMap<Integer, Map<Integer, List<String>>> ipv4Map;
-  private final TreeMap<Integer, Map<BigInteger, List<String>>> ipv6Map;
+  private final Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4SubnetToDatacenter;
+  private final Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6SubnetToDatacenter;
   private final Map<GeoKey, List<String>> geoToDatacenter;
 
+  // Built once when the table is loaded; tables are immutable after construction and replaced wholesale by
+  // CallRoutingTableManager, so lookups can read the trie concurrently without locking
+  private final InetAddressPrefixTrie<List<String>> subnetTrie;
+
+  private final int maxIpv4PrefixLength;
+  private final int maxIpv6PrefixLength;
+
   public CallRoutingTable(
       Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4SubnetToDatacenter,
       Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6SubnetToDatacenter,
       Map<GeoKey, List<String>> geoToDatacenter
   ) {
-    this.ipv4Map = new TreeMap<>();
-    for (Map.Entry<CidrBlock.IpV4CidrBlock, List<String>> t : ipv4SubnetToDatacenter.entrySet()) {
-      if (!this.ipv4Map.containsKey(t.getKey().cidrBlockSize())) {
-        this.ipv4Map.put(t.getKey().cidrBlockSize(), new HashMap<>());
-      }
-      this.ipv4Map
-          .get(t.getKey().cidrBlockSize())
-          .put(t.getKey().subnet(), t.getValue());
-    }
-
-    this.ipv6Map = new TreeMap<>();
-    for (Map.Entry<CidrBlock.IpV6CidrBlock, List<String>> t : ipv6SubnetToDatacenter.entrySet()) {
-      if (!this.ipv6Map.containsKey(t.getKey().cidrBlockSize())) {
-        this.ipv6Map.put(t.getKey().cidrBlockSize(), new HashMap<>());
-      }
-      this.ipv6Map
-          .get(t.getKey().cidrBlockSize())
-          .put(t.getKey().subnet(), t.getValue());
-    }
-
+    this.ipv4SubnetToDatacenter = ipv4SubnetToDatacenter;
+    this.ipv6SubnetToDatacenter = ipv6SubnetToDatacenter;
     this.geoToDatacenter = geoToDatacenter;
+
+    this.subnetTrie = new InetAddressPrefixTrie<>();
+    ipv4SubnetToDatacenter.forEach((cidrBlock, datacenters) ->
+        subnetTrie.put(cidrBlock.subnetBytes(), cidrBlock.cidrBlockSize(), datacenters));
+    ipv6SubnetToDatacenter.forEach((cidrBlock, datacenters) ->
+        subnetTrie.put(cidrBlock.subnetBytes(), cidrBlock.cidrBlockSize(), datacenters));
+
+    this.maxIpv4PrefixLength = ipv4SubnetToDatacenter.keySet().stream()
+        .mapToInt(CidrBlock.IpV4CidrBlock::cidrBlockSize)
+        .max()
+        .orElse(0);
+
+    this.maxIpv6PrefixLength = ipv6SubnetToDatacenter.keySet().stream()
+        .mapToInt(CidrBlock.IpV6CidrBlock::cidrBlockSize)
+        .max()
+        .orElse(0);
   }
 
   public static CallRoutingTable empty() {
@@ -102,32 +105,30 @@ public class CallRoutingTable {
   }
 
   public boolean isEmpty() {
-    return this.ipv4Map.isEmpty() && this.ipv6Map.isEmpty() && this.geoToDatacenter.isEmpty();
+    return this.subnetTrie.isEmpty() && this.geoToDatacenter.isEmpty();
   }
 
   /**
    * Returns ordered list of fastest datacenters based on ip info. Prioritizes V4 connections.
    */
   public List<String> getDatacentersBySubnet(InetAddress address) throws IllegalArgumentException {
-    if(address instanceof Inet4Address) {
-      for(Map.Entry<Integer, Map<Integer, List<String>>> t:  this.ipv4Map.descendingMap().entrySet()) {
-        int maskedIp = CidrBlock.IpV4CidrBlock.maskToSize((Inet4Address) address, t.getKey());
-        if(t.getValue().containsKey(maskedIp)) {
-          return t.getValue().get(maskedIp);
-        }
-      }
-    } else if (address instanceof  Inet6Address) {
-      for(Map.Entry<Integer, Map<BigInteger, List<String>>> t:  this.ipv6Map.descendingMap().entrySet()) {
-        BigInteger maskedIp = CidrBlock.IpV6CidrBlock.maskToSize((Inet6Address) address, t.getKey());
-        if(t.getValue().containsKey(maskedIp)) {
-          return t.getValue().get(maskedIp);
-        }
-      }
-    } else {
+    if (!(address instanceof Inet4Address || address instanceof Inet6Address)) {
       throw new IllegalArgumentException("Expected either an Inet4Address or Inet6Address");
     }
 
-    return Collections.emptyList();
+    final List<String> datacenters = subnetTrie.getLongestPrefixMatch(address.getAddress());
+    return datacenters != null ? datacenters : Collections.emptyList();
+  }
+
+  /**
+   * Returns the length of the longest subnet prefix in this table for the given protocol. Addresses that share at least
+   * this many leading bits always match the same subnet.
+   */
+  public int getMaxPrefixLength(final Protocol protocol) {
+    return switch (protocol) {
+      case v4 -> maxIpv4PrefixLength;
+      case v6 -> maxIpv6PrefixLength;
+    };
   }
 
   /**
@@ -169,8 +170,8 @@ public class CallRoutingTable {
   public String toSummaryString() {
     return String.format(
         "[Ipv4Table=%s rows, Ipv6Table=%s rows, GeoTable=%s rows]",
-        ipv4Map.size(),
-        ipv6Map.size(),
+        ipv4SubnetToDatacenter.size(),
+        ipv6SubnetToDatacenter.size(),
         geoToDatacenter.size()
     );
   }
@@ -182,12 +183,13 @@ public class CallRoutingTable {
     if (o == null || getClass() != o.getClass())
       return false;
     CallRoutingTable that = (CallRoutingTable) o;
-    return Objects.equals(ipv4Map, that.ipv4Map) && Objects.equals(ipv6Map, that.ipv6Map) && Objects.equals(
-        geoToDatacenter, that.geoToDatacenter);
+    return Objects.equals(ipv4SubnetToDatacenter, that.ipv4SubnetToDatacenter)
+        && Objects.equals(ipv6SubnetToDatacenter, that.ipv6SubnetToDatacenter)
+        && Objects.equals(geoToDatacenter, that.geoToDatacenter);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(ipv4Map, ipv6Map, geoToDatacenter);
+    return Objects.hash(ipv4SubnetToDatacenter, ipv6SubnetToDatacenter, geoToDatacenter);
   }
 }
@@ -10,6 +10,8 @@ import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Can be used to check if an IP is in the CIDR block
@@ -95,6 +97,10 @@ public interface CidrBlock {
     public static int maskToSize(Inet4Address address, int cidrBlockSize) {
       return ipToInt(address) & mask(cidrBlockSize);
     }
+
+    byte[] subnetBytes() {
+      return ByteBuffer.allocate(4).putInt(subnet).array();
+    }
   }
 
   record IpV6CidrBlock(BigInteger subnet, BigInteger subnetMask, int cidrBlockSize) implements CidrBlock {
@@ -133,5 +139,17 @@ public interface CidrBlock {
     public static BigInteger maskToSize(Inet6Address address, int cidrBlockSize) {
       return ipToInt(address).and(mask(cidrBlockSize));
     }
+
+    byte[] subnetBytes() {
+      // The subnet is a signed, two's-complement value that may have been stored in fewer than 16 bytes; sign-extend it
+      // back to the full width of an IPv6 address
+      final byte[] twosComplement = subnet.toByteArray();
+      final byte[] octets = new byte[16];
+
+      Arrays.fill(octets, 0, octets.length - twosComplement.length, (byte) (subnet.signum() < 0 ? 0xff : 0x00));
+      System.arraycopy(twosComplement, 0, octets, octets.length - twosComplement.length, twosComplement.length);
+
+      return octets;
+    }
   }
 }
@@ -5,17 +5,27 @@
 
 package org.whispersystems.textsecuregcm.calls.routing;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.maxmind.geoip2.model.CityResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.util.Util;
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -36,6 +46,70 @@ public class TurnCallRouter {
   // controls whether instance IPs are shuffled. using if & boolean is ~5x faster than a function pointer
   private final boolean stableSelect;
 
+  // Caches the datacenters selected for a client network. Entries are keyed by the routing sources used to select them,
+  // so entries computed from a replaced routing table or geo database are never returned; the whole cache is also
+  // cleared when any source changes to free those entries promptly. Instance selection depends on DNS records and
+  // randomization, so it always happens per request and is not cached.
+  private final Cache<DatacenterCacheKey, List<String>> datacenterCache;
+  private final AtomicReference<RoutingSources> currentRoutingSources = new AtomicReference<>();
+
+  @VisibleForTesting
+  static final int DATACENTER_CACHE_MAX_SIZE = 100_000;
+
+  // Clients in the same IPv4 /24 or IPv6 /48 are assumed to share geolocation; routing tables with longer subnets than
+  // these are keyed at their own granularity instead
+  private static final int MIN_IPV4_CACHE_PREFIX_LENGTH = 24;
+  private static final int MIN_IPV6_CACHE_PREFIX_LENGTH = 48;
+
+  private static final String DATACENTER_CACHE_COUNTER_NAME = name(TurnCallRouter.class, "datacenterCache");
+  private static final Counter DATACENTER_CACHE_HIT_COUNTER =
+      Metrics.counter(DATACENTER_CACHE_COUNTER_NAME, "outcome", "hit");
+  private static final Counter DATACENTER_CACHE_MISS_COUNTER =
+      Metrics.counter(DATACENTER_CACHE_COUNTER_NAME, "outcome", "miss");
+
+  /**
+   * A snapshot of the data used to select datacenters for a client. Snapshots deliberately use identity equality; a
+   * source "changes" when its manager swaps in a new instance.
+   */
+  private static final class RoutingSources {
+
+    private final CallRoutingTable manualRouting;
+    private final CallRoutingTable performanceRouting;
+    private final DatabaseReader geoIp;
+
+    private final int ipv4CachePrefixLength;
+    private final int ipv6CachePrefixLength;
+
+    private RoutingSources(final CallRoutingTable manualRouting,
+        final CallRoutingTable performanceRouting,
+        final DatabaseReader geoIp) {
+
+      this.manualRouting = manualRouting;
+      this.performanceRouting = performanceRouting;
+      this.geoIp = geoIp;
+
+      this.ipv4CachePrefixLength = Math.max(MIN_IPV4_CACHE_PREFIX_LENGTH, Math.max(
+          manualRouting.getMaxPrefixLength(CallRoutingTable.Protocol.v4),
+          performanceRouting.getMaxPrefixLength(CallRoutingTable.Protocol.v4)));
+
+      this.ipv6CachePrefixLength = Math.max(MIN_IPV6_CACHE_PREFIX_LENGTH, Math.max(
+          manualRouting.getMaxPrefixLength(CallRoutingTable.Protocol.v6),
+          performanceRouting.getMaxPrefixLength(CallRoutingTable.Protocol.v6)));
+    }
+
+    private boolean isCurrent(final CallRoutingTable manualRouting,
+        final CallRoutingTable performanceRouting,
+        final DatabaseReader geoIp) {
+
+      return this.manualRouting == manualRouting
+          && this.performanceRouting == performanceRouting
+          && this.geoIp == geoIp;
+    }
+  }
+
+  private record DatacenterCacheKey(RoutingSources routingSources, ByteBuffer networkAddress) {
+  }
+
   public TurnCallRouter(
       @Nonnull Supplier<CallDnsRecords> callDnsRecords,
       @Nonnull Supplier<CallRoutingTable> performanceRouting,
@@ -50,6 +124,10 @@ public class TurnCallRouter {
     this.configTurnRouter = configTurnRouter;
     this.geoIp = geoIp;
     this.stableSelect = stableSelect;
+
+    this.datacenterCache = CacheBuilder.newBuilder()
+        .maximumSize(DATACENTER_CACHE_MAX_SIZE)
+        .build();
   }
 
   /**
@@ -94,9 +172,68 @@ public class TurnCallRouter {
       return new TurnServerOptions(hostname, null, this.configTurnRouter.randomUrls());
     }
 
+    final RoutingSources routingSources = getRoutingSources();
+    final DatacenterCacheKey cacheKey =
+        new DatacenterCacheKey(routingSources, getNetworkAddress(clientAddress.get(), routingSources));
+
+    List<String> datacenters = datacenterCache.getIfPresent(cacheKey);
+
+    if (datacenters != null) {
+      DATACENTER_CACHE_HIT_COUNTER.increment();
+    } else {
+      DATACENTER_CACHE_MISS_COUNTER.increment();
+
+      datacenters = getDatacenters(routingSources, clientAddress.get());
+      datacenterCache.put(cacheKey, datacenters);
+    }
+
+    List<String> urlsWithIps = getUrlsForInstances(
+        selectInstances(
+            datacenters,
+            instanceLimit
+        ));
+    return new TurnServerOptions(hostname, urlsWithIps, minimalRandomUrls());
+  }
+
+  private RoutingSources getRoutingSources() {
+    final CallRoutingTable manualRoutingTable = this.manualRouting.get();
+    final CallRoutingTable performanceRoutingTable = this.performanceRouting.get();
+    final DatabaseReader geoIpReader = this.geoIp.get();
+
+    final RoutingSources routingSources = currentRoutingSources.get();
+
+    if (routingSources != null && routingSources.isCurrent(manualRoutingTable, performanceRoutingTable, geoIpReader)) {
+      return routingSources;
+    }
+
+    final RoutingSources updatedRoutingSources =
+        new RoutingSources(manualRoutingTable, performanceRoutingTable, geoIpReader);
+
+    if (currentRoutingSources.compareAndSet(routingSources, updatedRoutingSources)) {
+      datacenterCache.invalidateAll();
+    }
+
+    return updatedRoutingSources;
+  }
+
+  private static ByteBuffer getNetworkAddress(final InetAddress address, final RoutingSources routingSources) {
+    final byte[] networkAddress = address.getAddress();
+    final int prefixLength = address instanceof Inet4Address
+        ? routingSources.ipv4CachePrefixLength
+        : routingSources.ipv6CachePrefixLength;
+
+    for (int i = 0; i < networkAddress.length; i++) {
+      final int bitsInPrefix = Math.clamp(prefixLength - (i * 8), 0, 8);
+      networkAddress[i] &= (byte) (0xff00 >>> bitsInPrefix);
+    }
+
+    return ByteBuffer.wrap(networkAddress);
+  }
+
+  private static List<String> getDatacenters(final RoutingSources routingSources, final InetAddress clientAddress) {
     CityResponse geoInfo;
     try {
-      geoInfo = geoIp.get().city(clientAddress.get());
+      geoInfo = routingSources.geoIp.city(clientAddress);
     } catch (IOException | GeoIp2Exception e) {
       throw new RuntimeException(e);
     }
@@ -104,28 +241,23 @@ public class TurnCallRouter {
         ? Optional.of(geoInfo.getSubdivisions().getFirst().getIsoCode())
         : Optional.empty();
 
-    List<String> datacenters = this.manualRouting.get().getDatacentersFor(
-        clientAddress.get(),
+    List<String> datacenters = routingSources.manualRouting.getDatacentersFor(
+        clientAddress,
         geoInfo.getContinent().getCode(),
         geoInfo.getCountry().getIsoCode(),
         subdivision
     );
 
     if (datacenters.isEmpty()){
-      datacenters = this.performanceRouting.get().getDatacentersFor(
-          clientAddress.get(),
+      datacenters = routingSources.performanceRouting.getDatacentersFor(
+          clientAddress,
           geoInfo.getContinent().getCode(),
           geoInfo.getCountry().getIsoCode(),
           subdivision
       );
     }
 
-    List<String> urlsWithIps = getUrlsForInstances(
-        selectInstances(
-            datacenters,
-            instanceLimit
-        ));
-    return new TurnServerOptions(hostname, urlsWithIps, minimalRandomUrls());
+    return datacenters;
   }
 
   // Includes only the udp options in the randomUrls
@@ -68,7 +68,7 @@ public class DynamoDbTables {
   private final TableWithExpiration registrationRecovery;
   private final Table remoteConfig;
   private final Table reportMessage;
-  private final TableWithExpiration scheduledJobs;
+  private final ScheduledJobsTableConfiguration scheduledJobs;
   private final Table subscriptions;
   private final Table verificationSessions;
 
@@ -94,7 +94,7 @@ public class DynamoDbTables {
       @JsonProperty("registrationRecovery") final TableWithExpiration registrationRecovery,
       @JsonProperty("remoteConfig") final Table remoteConfig,
       @JsonProperty("reportMessage") final Table reportMessage,
-      @JsonProperty("scheduledJobs") final TableWithExpiration scheduledJobs,
+      @JsonProperty("scheduledJobs") final ScheduledJobsTableConfiguration scheduledJobs,
       @JsonProperty("subscriptions") final Table subscriptions,
       @JsonProperty("verificationSessions") final Table verificationSessions) {
 
@@ -252,7 +252,7 @@ public class DynamoDbTables {
 
   @NotNull
   @Valid
-  public TableWithExpiration getScheduledJobs() {
+  public ScheduledJobsTableConfiguration getScheduledJobs() {
     return scheduledJobs;
   }
 
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.Positive;
+
+/**
+ * Overrides the default behavior of a named executor created via
+ * {@link org.whispersystems.textsecuregcm.util.ExecutorRegistry}.
+ *
+ * @param virtualThreads whether the executor should run each task on a new virtual thread instead of a fixed pool of
+ *                       platform threads; not permitted for executors that customize their platform thread pool (e.g.
+ *                       with a bounded queue)
+ * @param maxConcurrency the maximum number of tasks the executor may run at once (i.e. the number of platform threads or
+ *                       the number of permits available to virtual threads); if absent, the executor's default thread
+ *                       count is used
+ */
+public record ExecutorConfiguration(boolean virtualThreads, @Nullable @Positive Integer maxConcurrency) {
+}
@@ -8,4 +8,16 @@ package org.whispersystems.textsecuregcm.configuration;
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
 
-public record MessageByteLimitCardinalityEstimatorConfiguration(@NotNull Duration period) {}
+/**
+ * @param period how long the shared estimate covers before it resets
+ * @param flushInterval how often locally-observed elements are merged into the shared estimate
+ */
+public record MessageByteLimitCardinalityEstimatorConfiguration(@NotNull Duration period,
+                                                                @NotNull Duration flushInterval) {
+
+  public MessageByteLimitCardinalityEstimatorConfiguration {
+    if (flushInterval == null) {
+      flushInterval = Duration.ofSeconds(10);
+    }
+  }
+}
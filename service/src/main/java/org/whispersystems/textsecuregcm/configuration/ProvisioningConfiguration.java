@@ -6,13 +6,25 @@
 package org.whispersystems.textsecuregcm.configuration;
 
 
+import java.util.List;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
+/**
+ * @param pubsub the Redis instance used to relay provisioning messages
+ * @param additionalPubsubShards additional Redis instances across which provisioning addresses should be spread; the
+ *                               {@code pubsub} instance is always the first shard
+ * @param circuitBreaker the circuit breaker configuration applied to each pub/sub shard
+ */
 public record ProvisioningConfiguration(@Valid @NotNull SingletonRedisClientFactory pubsub,
+                                        @Valid @NotNull List<@NotNull SingletonRedisClientFactory> additionalPubsubShards,
                                         @Valid @NotNull CircuitBreakerConfiguration circuitBreaker) {
 
   public ProvisioningConfiguration {
+    if (additionalPubsubShards == null) {
+      additionalPubsubShards = List.of();
+    }
+
     if (circuitBreaker == null) {
       circuitBreaker = new CircuitBreakerConfiguration();
     }
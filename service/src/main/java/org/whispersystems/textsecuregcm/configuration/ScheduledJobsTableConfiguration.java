@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Duration;
+import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
+
+public class ScheduledJobsTableConfiguration extends DynamoDbTables.TableWithExpiration {
+
+  private final int shardCount;
+  private final int maxWriteCapacityUnitsPerSecond;
+
+  /**
+   * @param shardCount the number of partitions across which each scheduler's jobs are spread; defaults to 1
+   * @param maxWriteCapacityUnitsPerSecond the maximum rate at which a single job processor may consume write capacity
+   *                                       while clearing processed jobs, or 0 for no limit; defaults to 0
+   */
+  public ScheduledJobsTableConfiguration(
+      @JsonProperty("tableName") final String tableName,
+      @JsonProperty("expiration") final Duration expiration,
+      @JsonProperty("shardCount") @Nullable final Integer shardCount,
+      @JsonProperty("maxWriteCapacityUnitsPerSecond") @Nullable final Integer maxWriteCapacityUnitsPerSecond) {
+
+    super(tableName, expiration);
+
+    this.shardCount = shardCount != null ? shardCount : 1;
+    this.maxWriteCapacityUnitsPerSecond = maxWriteCapacityUnitsPerSecond != null ? maxWriteCapacityUnitsPerSecond : 0;
+  }
+
+  @Min(1)
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  @Min(0)
+  public int getMaxWriteCapacityUnitsPerSecond() {
+    return maxWriteCapacityUnitsPerSecond;
+  }
+}
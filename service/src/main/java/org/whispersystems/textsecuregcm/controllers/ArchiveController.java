@@ -18,17 +18,20 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Stream;
 import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -656,15 +659,38 @@ public class ArchiveController {
     if (account.isPresent()) {
       throw new BadRequestException("must not use authenticated connection for anonymous operations");
     }
-    final Stream<CopyParameters> copyParams = copyMediaRequest.items().stream().map(CopyMediaRequest::toCopyParameters);
+    final List<CopyParameters> copyParams = copyMediaRequest.items().stream()
+        .map(CopyMediaRequest::toCopyParameters)
+        .toList();
+
     return Mono.fromFuture(backupManager.authenticateBackupUser(presentation.presentation, signature.signature))
-        .flatMapMany(backupUser -> backupManager.copyToBackup(backupUser, copyParams.toList()))
-        .map(CopyMediaBatchResponse.Entry::fromCopyResult)
+        .flatMapMany(backupUser -> backupManager.copyToBackup(backupUser, copyParams))
         .collectList()
+        // Copy results arrive as copies complete, but clients expect responses in the order of their requests
+        .map(copyResults -> sortByRequestOrder(copyParams, copyResults).stream()
+            .map(CopyMediaBatchResponse.Entry::fromCopyResult)
+            .toList())
         .map(list -> Response.status(207).entity(new CopyMediaBatchResponse(list)).build())
         .toFuture();
   }
 
+  private static List<CopyResult> sortByRequestOrder(final List<CopyParameters> copyParams,
+      final List<CopyResult> copyResults) {
+
+    final Map<ByteBuffer, Integer> requestIndexesByMediaId = new HashMap<>();
+
+    for (int i = 0; i < copyParams.size(); i++) {
+      requestIndexesByMediaId.putIfAbsent(ByteBuffer.wrap(copyParams.get(i).destinationMediaId()), i);
+    }
+
+    // List.sort is stable, so results for duplicate media IDs keep their relative order
+    final List<CopyResult> sortedCopyResults = new ArrayList<>(copyResults);
+    sortedCopyResults.sort(Comparator.comparingInt(copyResult ->
+        requestIndexesByMediaId.getOrDefault(ByteBuffer.wrap(copyResult.mediaId()), Integer.MAX_VALUE)));
+
+    return sortedCopyResults;
+  }
+
   @POST
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(
@@ -6,6 +6,7 @@ package org.whispersystems.textsecuregcm.controllers;
 
 import com.google.common.net.HttpHeaders;
 import io.dropwizard.auth.Auth;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
@@ -65,6 +66,7 @@ import org.whispersystems.textsecuregcm.entities.SignedPreKey;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
+import org.whispersystems.textsecuregcm.metrics.MeterHandleCache;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
 import org.whispersystems.textsecuregcm.storage.Account;
@@ -92,6 +94,15 @@ public class KeysController {
   private static final String IDENTITY_TYPE_TAG_NAME = "identityType";
   private static final String KEY_TYPE_TAG_NAME = "keyType";
 
+  private record GetKeysCounterKey(Tag platformTag, IdentityType identityType, boolean oneTimeEcKeyAvailable) {
+  }
+
+  private static final MeterHandleCache<GetKeysCounterKey, Counter> GET_KEYS_COUNTERS =
+      new MeterHandleCache<>("getKeys", key -> Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
+          key.platformTag(),
+          Tag.of(IDENTITY_TYPE_TAG_NAME, key.identityType().name()),
+          Tag.of("oneTimeEcKeyAvailable", String.valueOf(key.oneTimeEcKeyAvailable())))));
+
   private static final CompletableFuture<?>[] EMPTY_FUTURE_ARRAY = new CompletableFuture[0];
 
   public KeysController(RateLimiters rateLimiters, KeysManager keysManager, AccountsManager accounts, ServerSecretParams serverSecretParams, Clock clock) {
@@ -361,6 +372,7 @@ public class KeysController {
 
     final List<Device> devices = parseDeviceId(deviceId, target);
     final List<PreKeyResponseItem> responseItems = new ArrayList<>(devices.size());
+    final Tag platformTag = UserAgentTagUtil.getPlatformTag(userAgent);
 
     final List<CompletableFuture<Void>> tasks = devices.stream().map(device -> {
           final CompletableFuture<Optional<ECPreKey>> unsignedEcPreKeyFuture =
@@ -378,10 +390,9 @@ public class KeysController {
                 final ECPreKey unsignedEcPreKey = unsignedEcPreKeyFuture.join().orElse(null);
                 final ECSignedPreKey signedEcPreKey = signedEcPreKeyFuture.join().orElse(null);
 
-                Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
-                        UserAgentTagUtil.getPlatformTag(userAgent),
-                        Tag.of(IDENTITY_TYPE_TAG_NAME, targetIdentifier.identityType().name()),
-                        Tag.of("oneTimeEcKeyAvailable", String.valueOf(unsignedEcPreKey != null))))
+                GET_KEYS_COUNTERS.get(new GetKeysCounterKey(platformTag,
+                        targetIdentifier.identityType(),
+                        unsignedEcPreKey != null))
                     .increment();
 
                 if (signedEcPreKey != null || unsignedEcPreKey != null || pqPreKey != null) {
@@ -109,6 +109,7 @@ import org.whispersystems.textsecuregcm.limits.CardinalityEstimator;
 import org.whispersystems.textsecuregcm.limits.MessageDeliveryLoopMonitor;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
+import org.whispersystems.textsecuregcm.metrics.MeterHandleCache;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
 import org.whispersystems.textsecuregcm.providers.MultiRecipientMessageProvider;
@@ -204,6 +205,23 @@ public class MessageController {
   private static final String ENDPOINT_TYPE_SINGLE = "single";
   private static final String ENDPOINT_TYPE_MULTI = "multi";
 
+  private record SentMessageCounterKey(Tag platformTag,
+                                       String endpointType,
+                                       boolean ephemeral,
+                                       String senderType,
+                                       String authType,
+                                       IdentityType identityType) {
+  }
+
+  private static final MeterHandleCache<SentMessageCounterKey, Counter> SENT_MESSAGE_COUNTERS =
+      new MeterHandleCache<>("sentMessages", key -> Metrics.counter(SENT_MESSAGE_COUNTER_NAME, Tags.of(
+          key.platformTag(),
+          Tag.of(ENDPOINT_TYPE_TAG_NAME, key.endpointType()),
+          Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(key.ephemeral())),
+          Tag.of(SENDER_TYPE_TAG_NAME, key.senderType()),
+          Tag.of(AUTH_TYPE_TAG_NAME, key.authType()),
+          Tag.of(IDENTITY_TYPE_TAG_NAME, key.identityType().name()))));
+
   @VisibleForTesting
   static final long MAX_MESSAGE_SIZE = DataSize.kibibytes(256).toBytes();
 
@@ -420,17 +438,18 @@ public class MessageController {
           authType = AUTH_TYPE_ACCESS_KEY;
         }
 
-        final List<Tag> tags = List.of(UserAgentTagUtil.getPlatformTag(userAgent),
-            Tag.of(ENDPOINT_TYPE_TAG_NAME, ENDPOINT_TYPE_SINGLE),
-            Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(messages.online())),
-            Tag.of(SENDER_TYPE_TAG_NAME, senderType),
-            Tag.of(AUTH_TYPE_TAG_NAME, authType),
-            Tag.of(IDENTITY_TYPE_TAG_NAME, destinationIdentifier.identityType().name()));
+        final Counter sentMessageCounter = SENT_MESSAGE_COUNTERS.get(new SentMessageCounterKey(
+            UserAgentTagUtil.getPlatformTag(userAgent),
+            ENDPOINT_TYPE_SINGLE,
+            messages.online(),
+            senderType,
+            authType,
+            destinationIdentifier.identityType()));
 
         for (final IncomingMessage incomingMessage : messages.messages()) {
           destination.get().getDevice(incomingMessage.destinationDeviceId())
               .ifPresent(destinationDevice -> {
-                Metrics.counter(SENT_MESSAGE_COUNTER_NAME, tags).increment();
+                sentMessageCounter.increment();
                 sendIndividualMessage(
                     source,
                     destination.get(),
@@ -651,6 +670,8 @@ public class MessageController {
       authType = AUTH_TYPE_ACCESS_KEY;
     }
 
+    final Tag platformTag = UserAgentTagUtil.getPlatformTag(userAgent);
+
     try {
       @Nullable final byte[] sharedMrmKey =
           dynamicConfigurationManager.getConfiguration().getMessagesConfiguration().storeSharedMrmData()
@@ -660,13 +681,13 @@ public class MessageController {
       CompletableFuture.allOf(
               recipients.values().stream()
                   .flatMap(recipientData -> {
-                    final Counter sentMessageCounter = Metrics.counter(SENT_MESSAGE_COUNTER_NAME, Tags.of(
-                        UserAgentTagUtil.getPlatformTag(userAgent),
-                        Tag.of(ENDPOINT_TYPE_TAG_NAME, ENDPOINT_TYPE_MULTI),
-                        Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(online)),
-                        Tag.of(SENDER_TYPE_TAG_NAME, SENDER_TYPE_UNIDENTIFIED),
-                        Tag.of(AUTH_TYPE_TAG_NAME, authType),
-                        Tag.of(IDENTITY_TYPE_TAG_NAME, recipientData.serviceIdentifier().identityType().name())));
+                    final Counter sentMessageCounter = SENT_MESSAGE_COUNTERS.get(new SentMessageCounterKey(
+                        platformTag,
+                        ENDPOINT_TYPE_MULTI,
+                        online,
+                        SENDER_TYPE_UNIDENTIFIED,
+                        authType,
+                        recipientData.serviceIdentifier().identityType()));
 
                     validateContentLength(multiRecipientMessage.messageSizeForRecipient(recipientData.recipient()), true, userAgent);
 
@@ -17,9 +17,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HexFormat;
 import java.util.List;
@@ -28,7 +26,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
@@ -95,12 +92,15 @@ import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
 import org.whispersystems.textsecuregcm.storage.ProfilesManager;
 import org.whispersystems.textsecuregcm.storage.VersionedProfile;
+import org.whispersystems.textsecuregcm.util.AsyncConcurrencyLimiter;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.ProfileHelper;
 import org.whispersystems.textsecuregcm.util.Util;
 import org.whispersystems.websocket.auth.Mutable;
 import org.whispersystems.websocket.auth.ReadOnly;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 
@@ -125,13 +125,15 @@ public class ProfileController {
   private final S3Client s3client;
   private final String bucket;
 
-  private final Executor batchIdentityCheckExecutor;
+  private final AsyncConcurrencyLimiter batchIdentityCheckLimiter;
 
   private static final String EXPIRING_PROFILE_KEY_CREDENTIAL_TYPE = "expiringProfileKey";
 
   private static final Counter VERSION_NOT_FOUND_COUNTER = Metrics.counter(name(ProfileController.class, "versionNotFound"));
   private static final String INVALID_ACCEPT_LANGUAGE_COUNTER_NAME = name(ProfileController.class, "invalidAcceptLanguage");
 
+  private static final int MAX_BATCH_IDENTITY_CHECK_CONCURRENCY_PER_REQUEST = 32;
+
   public ProfileController(
       Clock clock,
       RateLimiters rateLimiters,
@@ -146,7 +148,7 @@ public class ProfileController {
       String bucket,
       ServerSecretParams serverSecretParams,
       ServerZkProfileOperations zkProfileOperations,
-      Executor batchIdentityCheckExecutor) {
+      AsyncConcurrencyLimiter batchIdentityCheckLimiter) {
     this.clock = clock;
     this.rateLimiters = rateLimiters;
     this.accountsManager = accountsManager;
@@ -161,7 +163,7 @@ public class ProfileController {
     this.s3client = s3client;
     this.policyGenerator = policyGenerator;
     this.policySigner = policySigner;
-    this.batchIdentityCheckExecutor = Preconditions.checkNotNull(batchIdentityCheckExecutor);
+    this.batchIdentityCheckLimiter = Preconditions.checkNotNull(batchIdentityCheckLimiter);
   }
 
   @PUT
@@ -328,58 +330,32 @@ public class ProfileController {
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/identity_check/batch")
   public CompletableFuture<BatchIdentityCheckResponse> runBatchIdentityCheck(@NotNull @Valid BatchIdentityCheckRequest request) {
-    return CompletableFuture.supplyAsync(() -> {
-          List<BatchIdentityCheckResponse.Element> responseElements = Collections.synchronizedList(new ArrayList<>());
-
-          final int targetBatchCount = 10;
-          // clamp the amount per batch to be in the closed range [30, 100]
-          final int batchSize = Math.min(Math.max(request.elements().size() / targetBatchCount, 30), 100);
-          // add 1 extra batch if there is any remainder to consume the final non-full batch
-          final int batchCount =
-              request.elements().size() / batchSize + (request.elements().size() % batchSize != 0 ? 1 : 0);
-
-          @SuppressWarnings("rawtypes") CompletableFuture[] futures = new CompletableFuture[batchCount];
-          for (int i = 0; i < batchCount; ++i) {
-            List<BatchIdentityCheckRequest.Element> batch = request.elements()
-                .subList(i * batchSize, Math.min((i + 1) * batchSize, request.elements().size()));
-            futures[i] = CompletableFuture.runAsync(() -> {
-              MessageDigest sha256;
-              try {
-                sha256 = MessageDigest.getInstance("SHA-256");
-              } catch (NoSuchAlgorithmException e) {
-                throw new AssertionError(e);
-              }
-              for (final BatchIdentityCheckRequest.Element element : batch) {
-                checkFingerprintAndAdd(element, responseElements, sha256);
-              }
-            }, batchIdentityCheckExecutor);
-          }
-
-      return new Pair<>(futures, responseElements);
-    }).thenCompose(futuresAndResponseElements -> CompletableFuture.allOf(futuresAndResponseElements.first())
-        .thenApply((ignored) -> new BatchIdentityCheckResponse(futuresAndResponseElements.second())));
+    return Flux.fromIterable(request.elements())
+        .flatMap(element -> {
+          final ServiceIdentifier identifier = Objects.requireNonNullElse(element.uuid(), element.aci());
+
+          return Mono.fromFuture(() -> batchIdentityCheckLimiter.submit(
+                  () -> accountsManager.getByServiceIdentifierAsync(identifier)))
+              .flatMap(Mono::justOrEmpty)
+              .mapNotNull(account -> account.getIdentityKey(identifier.identityType()))
+              .filter(identityKey -> !fingerprintMatches(identityKey, element.fingerprint()))
+              .map(identityKey -> new BatchIdentityCheckResponse.Element(element.uuid(), element.aci(), identityKey));
+        }, MAX_BATCH_IDENTITY_CHECK_CONCURRENCY_PER_REQUEST)
+        .collectList()
+        .map(BatchIdentityCheckResponse::new)
+        .toFuture();
   }
 
-  private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element,
-      Collection<BatchIdentityCheckResponse.Element> responseElements, MessageDigest md) {
-
-    final ServiceIdentifier identifier = Objects.requireNonNullElse(element.uuid(), element.aci());
-    final Optional<Account> maybeAccount = accountsManager.getByServiceIdentifier(identifier);
-
-    maybeAccount.ifPresent(account -> {
-      final IdentityKey identityKey = account.getIdentityKey(identifier.identityType());
-      if (identityKey == null) {
-        return;
-      }
-
-      md.reset();
-      byte[] digest = md.digest(identityKey.serialize());
-      byte[] fingerprint = Util.truncate(digest, 4);
+  private static boolean fingerprintMatches(final IdentityKey identityKey, final byte[] fingerprint) {
+    final MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
 
-      if (!Arrays.equals(fingerprint, element.fingerprint())) {
-        responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), element.aci(), identityKey));
-      }
-    });
+    final byte[] digest = sha256.digest(identityKey.serialize());
+    return Arrays.equals(Util.truncate(digest, 4), fingerprint);
   }
 
   private ExpiringProfileKeyCredentialProfileResponse buildExpiringProfileKeyCredentialProfileResponse(
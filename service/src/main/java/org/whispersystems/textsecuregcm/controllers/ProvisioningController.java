@@ -18,6 +18,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
@@ -77,7 +78,7 @@ public class ProvisioningController {
   @ApiResponse(responseCode="204", description="The provisioning message was delivered to the given provisioning address")
   @ApiResponse(responseCode="400", description="The provisioning message was too large")
   @ApiResponse(responseCode="404", description="No device with the given provisioning address was connected at the time of the request")
-  public void sendProvisioningMessage(@ReadOnly @Auth final AuthenticatedDevice auth,
+  public CompletableFuture<Void> sendProvisioningMessage(@ReadOnly @Auth final AuthenticatedDevice auth,
 
       @Parameter(description = "The temporary provisioning address to which to send a provisioning message")
       @PathParam("destination") final String provisioningAddress,
@@ -95,11 +96,11 @@ public class ProvisioningController {
 
     rateLimiters.getMessagesLimiter().validate(auth.getAccount().getUuid());
 
-    final boolean subscriberPresent =
-        provisioningManager.sendProvisioningMessage(provisioningAddress, Base64.getMimeDecoder().decode(message.body()));
-
-    if (!subscriberPresent) {
-      throw new WebApplicationException(Response.Status.NOT_FOUND);
-    }
+    return provisioningManager.sendProvisioningMessage(provisioningAddress, Base64.getMimeDecoder().decode(message.body()))
+        .thenAccept(subscriberPresent -> {
+          if (!subscriberPresent) {
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+          }
+        });
   }
 }
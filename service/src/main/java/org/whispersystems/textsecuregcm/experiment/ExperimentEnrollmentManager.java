@@ -5,20 +5,24 @@
 
 package org.whispersystems.textsecuregcm.experiment;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import com.google.common.annotations.VisibleForTesting;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicExperimentEnrollmentConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPreRegistrationExperimentEnrollmentConfiguration;
 import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationView;
 import org.whispersystems.textsecuregcm.util.Util;
 
 public class ExperimentEnrollmentManager {
 
-  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+  private final DynamicConfigurationView<DynamicConfiguration, ExperimentIndex> experimentIndex;
   private final Random random;
 
 
@@ -31,25 +35,24 @@ public class ExperimentEnrollmentManager {
   ExperimentEnrollmentManager(
       final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
       final Random random) {
-    this.dynamicConfigurationManager = dynamicConfigurationManager;
+    this.experimentIndex = new DynamicConfigurationView<>(dynamicConfigurationManager, ExperimentIndex::new);
     this.random = random;
   }
 
   public boolean isEnrolled(final UUID accountUuid, final String experimentName) {
 
-    final Optional<DynamicExperimentEnrollmentConfiguration> maybeConfiguration = dynamicConfigurationManager
-        .getConfiguration().getExperimentEnrollmentConfiguration(experimentName);
+    final Optional<UuidExperiment> maybeExperiment = experimentIndex.get().getUuidExperiment(experimentName);
 
-    return maybeConfiguration
-        .map(config -> isAccountEnrolled(accountUuid, config)
-            .orElse(isEnrolled(accountUuid, config.getEnrollmentPercentage(), experimentName))
+    return maybeExperiment
+        .map(experiment -> isAccountEnrolled(accountUuid, experiment)
+            .orElse(isEnrolled(accountUuid, experiment.enrollmentPercentage(), experimentName))
         ).orElse(false);
   }
 
-  Optional<Boolean> isAccountEnrolled(final UUID accountUuid, DynamicExperimentEnrollmentConfiguration config) {
-    if (config.getUuidSelector().getUuids().contains(accountUuid)) {
+  private Optional<Boolean> isAccountEnrolled(final UUID accountUuid, final UuidExperiment experiment) {
+    if (experiment.uuids().contains(accountUuid)) {
       final int r = random.nextInt(100);
-      return Optional.of(r < config.getUuidSelector().getUuidEnrollmentPercentage());
+      return Optional.of(r < experiment.uuidEnrollmentPercentage());
     }
 
     return Optional.empty();
@@ -57,42 +60,41 @@ public class ExperimentEnrollmentManager {
 
   public boolean isEnrolled(final String e164, final UUID accountUuid, final String experimentName) {
 
-    final Optional<DynamicExperimentEnrollmentConfiguration> maybeConfiguration = dynamicConfigurationManager
-        .getConfiguration().getExperimentEnrollmentConfiguration(experimentName);
+    final Optional<UuidExperiment> maybeExperiment = experimentIndex.get().getUuidExperiment(experimentName);
 
-    return maybeConfiguration
-        .flatMap(config -> isAccountEnrolled(accountUuid, config))
+    return maybeExperiment
+        .flatMap(experiment -> isAccountEnrolled(accountUuid, experiment))
         .orElse(isEnrolled(e164, experimentName));
   }
 
   public boolean isEnrolled(final String e164, final String experimentName) {
 
-    final Optional<DynamicPreRegistrationExperimentEnrollmentConfiguration> maybeConfiguration = dynamicConfigurationManager
-        .getConfiguration().getPreRegistrationEnrollmentConfiguration(experimentName);
+    final Optional<PreRegistrationExperiment> maybeExperiment =
+        experimentIndex.get().getPreRegistrationExperiment(experimentName);
 
-    return maybeConfiguration.map(config -> {
+    return maybeExperiment.map(experiment -> {
 
-      if (config.getEnrolledE164s().contains(e164)) {
+      if (experiment.enrolledE164s().contains(e164)) {
         return true;
       }
 
-      if (config.getExcludedE164s().contains(e164)) {
+      if (experiment.excludedE164s().contains(e164)) {
         return false;
       }
 
       {
         final String countryCode = Util.getCountryCode(e164);
 
-        if (config.getIncludedCountryCodes().contains(countryCode)) {
+        if (experiment.includedCountryCodes().contains(countryCode)) {
           return true;
         }
 
-        if (config.getExcludedCountryCodes().contains(countryCode)) {
+        if (experiment.excludedCountryCodes().contains(countryCode)) {
           return false;
         }
       }
 
-      return isEnrolled(e164, config.getEnrollmentPercentage(), experimentName);
+      return isEnrolled(e164, experiment.enrollmentPercentage(), experimentName);
 
     }).orElse(false);
   }
@@ -102,4 +104,55 @@ public class ExperimentEnrollmentManager {
 
     return enrollmentHash < enrollmentPercentage;
   }
+
+  private record UuidExperiment(Set<UUID> uuids, int uuidEnrollmentPercentage, int enrollmentPercentage) {
+
+    private UuidExperiment(final DynamicExperimentEnrollmentConfiguration configuration) {
+      this(Set.copyOf(configuration.getUuidSelector().getUuids()),
+          configuration.getUuidSelector().getUuidEnrollmentPercentage(),
+          configuration.getEnrollmentPercentage());
+    }
+  }
+
+  private record PreRegistrationExperiment(Set<String> enrolledE164s,
+                                           Set<String> excludedE164s,
+                                           Set<String> includedCountryCodes,
+                                           Set<String> excludedCountryCodes,
+                                           int enrollmentPercentage) {
+
+    private PreRegistrationExperiment(final DynamicPreRegistrationExperimentEnrollmentConfiguration configuration) {
+      this(Set.copyOf(configuration.getEnrolledE164s()),
+          Set.copyOf(configuration.getExcludedE164s()),
+          Set.copyOf(configuration.getIncludedCountryCodes()),
+          Set.copyOf(configuration.getExcludedCountryCodes()),
+          configuration.getEnrollmentPercentage());
+    }
+  }
+
+  /**
+   * Pre-indexed experiment definitions for a single dynamic configuration snapshot. Experiments are indexed lazily as
+   * they're requested, and the whole index is discarded when a new configuration snapshot arrives.
+   */
+  private static class ExperimentIndex {
+
+    private final DynamicConfiguration configuration;
+
+    private final Map<String, Optional<UuidExperiment>> uuidExperiments = new ConcurrentHashMap<>();
+    private final Map<String, Optional<PreRegistrationExperiment>> preRegistrationExperiments =
+        new ConcurrentHashMap<>();
+
+    private ExperimentIndex(final DynamicConfiguration configuration) {
+      this.configuration = configuration;
+    }
+
+    private Optional<UuidExperiment> getUuidExperiment(final String experimentName) {
+      return uuidExperiments.computeIfAbsent(experimentName,
+          name -> configuration.getExperimentEnrollmentConfiguration(name).map(UuidExperiment::new));
+    }
+
+    private Optional<PreRegistrationExperiment> getPreRegistrationExperiment(final String experimentName) {
+      return preRegistrationExperiments.computeIfAbsent(experimentName,
+          name -> configuration.getPreRegistrationEnrollmentConfiguration(name).map(PreRegistrationExperiment::new));
+    }
+  }
 }
@@ -26,6 +26,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.grpc.RequestAttributesUtil;
+import org.whispersystems.textsecuregcm.util.InetAddressPrefixTrie;
 import org.whispersystems.textsecuregcm.util.InetAddressRange;
 
 public class ExternalRequestFilter implements Filter, ServerInterceptor {
@@ -36,12 +37,13 @@ public class ExternalRequestFilter implements Filter, ServerInterceptor {
   private static final String PROTOCOL_TAG_NAME = "protocol";
   private static final String BLOCKED_TAG_NAME = "blocked";
 
-  private final Set<InetAddressRange> permittedInternalAddressRanges;
+  private final InetAddressPrefixTrie<Boolean> permittedInternalAddressRanges = new InetAddressPrefixTrie<>();
   private final Set<String> filteredGrpcMethodNames;
 
   public ExternalRequestFilter(final Set<InetAddressRange> permittedInternalAddressRanges,
       final Set<String> filteredGrpcMethodNames) {
-      this.permittedInternalAddressRanges = permittedInternalAddressRanges;
+
+    permittedInternalAddressRanges.forEach(range -> this.permittedInternalAddressRanges.put(range, true));
     this.filteredGrpcMethodNames = filteredGrpcMethodNames;
   }
 
@@ -94,8 +96,7 @@ public class ExternalRequestFilter implements Filter, ServerInterceptor {
   }
 
   public boolean shouldBlock(InetAddress remoteAddress) {
-    return permittedInternalAddressRanges.stream()
-        .noneMatch(range -> range.contains(remoteAddress));
+    return !permittedInternalAddressRanges.contains(remoteAddress.getAddress());
   }
 
 }
@@ -5,7 +5,9 @@
 
 package org.whispersystems.textsecuregcm.geo;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Metrics;
@@ -13,9 +15,17 @@ import io.micrometer.core.instrument.Timer;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
@@ -26,28 +36,75 @@ import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.s3.S3ObjectMonitor;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 
+/**
+ * Keeps a MaxMind database up to date with a copy stored in S3. Each new copy of the database is extracted to a local
+ * file and memory-mapped rather than read onto the heap, so refreshing a large database doesn't briefly require heap
+ * space for two full copies. Callers may still be using a reader they obtained just before a refresh, so replaced
+ * readers are only closed (and their files deleted) after a grace period.
+ */
 public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed {
 
   private final S3ObjectMonitor databaseMonitor;
+  private final ScheduledExecutorService executorService;
 
-  private final AtomicReference<DatabaseReader> databaseReader = new AtomicReference<>();
+  private final AtomicReference<LoadedDatabase> loadedDatabase = new AtomicReference<>();
+  private final Set<LoadedDatabase> retiredDatabases = ConcurrentHashMap.newKeySet();
 
   private final String databaseTag;
+  private final Path databaseDirectory;
+  private final Duration retiredDatabaseGracePeriod;
 
   private final Timer refreshTimer;
 
+  // Lookups are quick, so this only needs to comfortably outlast any lookup that started before a refresh
+  private static final Duration RETIRED_DATABASE_GRACE_PERIOD = Duration.ofMinutes(1);
+
+  private static final String DATABASE_FILE_SUFFIX = ".mmdb";
+
   private static final Logger log = LoggerFactory.getLogger(MaxMindDatabaseManager.class);
 
+  private record LoadedDatabase(DatabaseReader reader, Path path) {
+
+    void close() {
+      try {
+        reader.close();
+      } catch (final IOException e) {
+        log.warn("Failed to close MaxMind database reader for {}", path, e);
+      }
+
+      try {
+        Files.deleteIfExists(path);
+      } catch (final IOException e) {
+        log.warn("Failed to delete MaxMind database file {}", path, e);
+      }
+    }
+  }
+
   public MaxMindDatabaseManager(final ScheduledExecutorService executorService,
       final AwsCredentialsProvider awsCredentialsProvider, final S3ObjectMonitorFactory configuration,
       final String databaseTag) {
 
-    this.databaseMonitor = configuration.build(awsCredentialsProvider, executorService);
+    this(configuration.build(awsCredentialsProvider, executorService), executorService, databaseTag,
+        Path.of(System.getProperty("java.io.tmpdir")), RETIRED_DATABASE_GRACE_PERIOD);
+  }
+
+  @VisibleForTesting
+  MaxMindDatabaseManager(final S3ObjectMonitor databaseMonitor,
+      final ScheduledExecutorService executorService,
+      final String databaseTag,
+      final Path databaseDirectory,
+      final Duration retiredDatabaseGracePeriod) {
+
+    this.databaseMonitor = databaseMonitor;
+    this.executorService = executorService;
     this.databaseTag = databaseTag;
+    this.databaseDirectory = databaseDirectory;
+    this.retiredDatabaseGracePeriod = retiredDatabaseGracePeriod;
     this.refreshTimer = Metrics.timer(MetricsUtil.name(MaxMindDatabaseManager.class, "refresh"), "db", databaseTag);
   }
 
-  private void handleDatabaseChanged(final InputStream inputStream) {
+  @VisibleForTesting
+  void handleDatabaseChanged(final InputStream inputStream) {
     refreshTimer.record(() -> {
       boolean foundDatabaseEntry = false;
 
@@ -61,11 +118,10 @@ public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed
           if (nextEntry.getName().toLowerCase().endsWith(".mmdb")) {
             foundDatabaseEntry = true;
 
-            final DatabaseReader oldReader = databaseReader.getAndSet(
-                new DatabaseReader.Builder(tarInputStream).withCache(new CHMCache()).build()
-            );
-            if (oldReader != null) {
-              oldReader.close();
+            final LoadedDatabase previousDatabase = loadedDatabase.getAndSet(loadDatabase(tarInputStream));
+
+            if (previousDatabase != null) {
+              retire(previousDatabase);
             }
             break;
           }
@@ -80,23 +136,89 @@ public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed
     });
   }
 
+  private void retire(final LoadedDatabase database) {
+    retiredDatabases.add(database);
+
+    executorService.schedule(() -> {
+      if (retiredDatabases.remove(database)) {
+        database.close();
+      }
+    }, retiredDatabaseGracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private String getDatabaseFilePrefix() {
+    return "maxmind-" + databaseTag + "-";
+  }
+
+  private LoadedDatabase loadDatabase(final InputStream databaseInputStream) throws IOException {
+    final Path databasePath = Files.createTempFile(databaseDirectory, getDatabaseFilePrefix(), DATABASE_FILE_SUFFIX);
+
+    try {
+      Files.copy(databaseInputStream, databasePath, StandardCopyOption.REPLACE_EXISTING);
+
+      final DatabaseReader reader = new DatabaseReader.Builder(databasePath.toFile())
+          .fileMode(Reader.FileMode.MEMORY_MAPPED)
+          .withCache(new CHMCache())
+          .build();
+
+      return new LoadedDatabase(reader, databasePath);
+    } catch (final IOException e) {
+      Files.deleteIfExists(databasePath);
+      throw e;
+    }
+  }
+
   @Override
   public void start() throws Exception {
+    deleteStaleDatabaseFiles();
     databaseMonitor.start(this::handleDatabaseChanged);
   }
 
+  /**
+   * Deletes database files left behind by a process that exited without cleaning up after itself. Files that another
+   * live process has memory-mapped remain readable by that process after they're unlinked.
+   */
+  @VisibleForTesting
+  void deleteStaleDatabaseFiles() {
+    final String prefix = getDatabaseFilePrefix();
+
+    try (final Stream<Path> paths = Files.list(databaseDirectory)) {
+      paths.filter(path -> {
+            final String fileName = path.getFileName().toString();
+            return fileName.startsWith(prefix) && fileName.endsWith(DATABASE_FILE_SUFFIX);
+          })
+          .forEach(path -> {
+            try {
+              Files.deleteIfExists(path);
+              log.info("Deleted stale MaxMind database file {}", path);
+            } catch (final IOException e) {
+              log.warn("Failed to delete stale MaxMind database file {}", path, e);
+            }
+          });
+    } catch (final IOException e) {
+      log.warn("Failed to list stale MaxMind database files in {}", databaseDirectory, e);
+    }
+  }
+
   @Override
   public void stop() throws Exception {
     databaseMonitor.stop();
 
-    final DatabaseReader reader = databaseReader.getAndSet(null);
-    if (reader != null) {
-      reader.close();
+    final LoadedDatabase database = loadedDatabase.getAndSet(null);
+    if (database != null) {
+      database.close();
     }
+
+    // Don't wait out the grace period for databases that were replaced shortly before shutdown
+    retiredDatabases.removeIf(retiredDatabase -> {
+      retiredDatabase.close();
+      return true;
+    });
   }
 
   @Override
   public DatabaseReader get() {
-    return this.databaseReader.get();
+    final LoadedDatabase database = this.loadedDatabase.get();
+    return database != null ? database.reader() : null;
   }
 }
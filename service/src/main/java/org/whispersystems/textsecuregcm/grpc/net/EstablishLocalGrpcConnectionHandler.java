@@ -86,6 +86,9 @@ class EstablishLocalGrpcConnectionHandler extends ChannelInboundHandlerAdapter {
               pendingReads.forEach(remoteChannelContext::fireChannelRead);
               pendingReads.clear();
 
+              // The proxy handler defers flushes until the end of a batch of reads; mark the end of the buffered batch
+              remoteChannelContext.fireChannelReadComplete();
+
               remoteChannelContext.pipeline().remove(EstablishLocalGrpcConnectionHandler.this);
             } else {
               log.warn("Failed to establish local connection to gRPC server", localChannelFuture.cause());
@@ -6,19 +6,50 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 
 /**
- * A proxy handler writes all data read from one channel to another peer channel.
+ * A proxy handler writes all data read from one channel to another peer channel. Writes are not flushed until the
+ * current batch of reads is complete, so a burst of HTTP/2 frames read from one channel reaches the peer channel in a
+ * single flush rather than one flush per frame. Local gRPC channels share their remote channel's event loop (see
+ * {@link EstablishLocalGrpcConnectionHandler}), so deferring flushes saves flush calls, not event loop hops.
  */
 class ProxyHandler extends ChannelInboundHandlerAdapter {
 
   private final Channel peerChannel;
 
+  private boolean flushPending = false;
+
   public ProxyHandler(final Channel peerChannel) {
     this.peerChannel = peerChannel;
   }
 
   @Override
   public void channelRead(final ChannelHandlerContext context, final Object message) {
-    peerChannel.writeAndFlush(message)
+    peerChannel.write(message)
         .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+
+    flushPending = true;
+  }
+
+  @Override
+  public void channelReadComplete(final ChannelHandlerContext context) {
+    flushIfPending();
+    context.fireChannelReadComplete();
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext context) {
+    flushIfPending();
+    context.fireChannelInactive();
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext context) {
+    flushIfPending();
+  }
+
+  private void flushIfPending() {
+    if (flushPending) {
+      flushPending = false;
+      peerChannel.flush();
+    }
   }
 }
@@ -6,29 +6,68 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import java.time.Duration;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.util.Util;
 
 /**
- * Estimate the number of unique items seen over a configurable period and update a metric
+ * Estimate the number of unique items seen over a configurable period and update a metric.
+ * <p>
+ * Elements are de-duplicated locally and merged into a shared Redis HyperLogLog once per flush interval with a single
+ * {@code PFADD}, so adding an element never requires a Redis round trip. The reported estimate is read back from the
+ * shared HyperLogLog after each flush and so reflects elements added by all instances.
  */
-public class CardinalityEstimator {
+public class CardinalityEstimator implements Managed {
 
   private volatile double uniqueElementCount;
   private final FaultTolerantRedisCluster redisCluster;
   private final String hllName;
   private final Duration period;
+  private final Duration flushInterval;
+  private final ScheduledExecutorService scheduledExecutorService;
+
+  // Adders share the read lock; a flush takes the write lock to swap out the pending set so that no element can be
+  // added to a set that has already been drained
+  private final ReadWriteLock pendingElementsLock = new ReentrantReadWriteLock();
+  private Set<String> pendingElements = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean(false);
+
+  private ScheduledFuture<?> flushFuture;
+
+  // Flush early if a burst of distinct elements arrives between scheduled flushes so local memory stays bounded
+  @VisibleForTesting
+  static final int MAX_PENDING_ELEMENTS = 10_000;
+
+  private static final Logger logger = LoggerFactory.getLogger(CardinalityEstimator.class);
+
+  public CardinalityEstimator(final FaultTolerantRedisCluster redisCluster,
+      final String name,
+      final Duration period,
+      final Duration flushInterval,
+      final ScheduledExecutorService scheduledExecutorService) {
 
-  public CardinalityEstimator(final FaultTolerantRedisCluster redisCluster, final String name, final Duration period) {
     this.redisCluster = redisCluster;
     this.hllName = "cardinality_estimator::" + name;
     this.period = period;
+    this.flushInterval = flushInterval;
+    this.scheduledExecutorService = scheduledExecutorService;
+
     Metrics.gauge(
         MetricsUtil.name(getClass(), "unique"),
         Tags.of("metricName", name),
@@ -36,37 +75,106 @@ public class CardinalityEstimator {
         obj -> obj.uniqueElementCount);
   }
 
-  public void add(String element) {
-    addAsync(element).toCompletableFuture().join();
+  @Override
+  public void start() {
+    flushFuture = scheduledExecutorService.scheduleWithFixedDelay(this::flushAndWait,
+        flushInterval.toMillis(),
+        flushInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (flushFuture != null) {
+      flushFuture.cancel(false);
+    }
+
+    flushAndWait();
+  }
+
+  public void add(final String element) {
+    final int pendingElementCount;
+
+    pendingElementsLock.readLock().lock();
+
+    try {
+      pendingElements.add(element);
+      pendingElementCount = pendingElements.size();
+    } finally {
+      pendingElementsLock.readLock().unlock();
+    }
+
+    if (pendingElementCount >= MAX_PENDING_ELEMENTS && earlyFlushScheduled.compareAndSet(false, true)) {
+      scheduledExecutorService.execute(this::flushAndWait);
+    }
+  }
+
+  private void flushAndWait() {
+    try {
+      flush().toCompletableFuture().join();
+    } catch (final Exception e) {
+      logger.warn("Failed to flush cardinality estimate to {}", hllName, e);
+    }
   }
 
-  public CompletionStage<Void> addAsync(String element) {
-    return redisCluster.withCluster(connection -> connection.async()
-        .pfadd(hllName, element)
-        .thenCompose(modCount -> {
-          if (modCount == 0) {
-            return CompletableFuture.completedFuture(false);
-          }
-
-          // The hll changed - update our local view of the cardinality, and
-          // initialize the TTL if required
-          return connection.async()
-              .pfcount(hllName)
-              .thenCompose(count -> {
-                uniqueElementCount = count;
-                // check if this is a new hll with no TTL set
-                return connection.async().ttl(hllName).thenApply(ttl -> ttl == -1);
-              });
-        })
-        .thenCompose(isNewHll -> {
-          if (!isNewHll) {
-            return CompletableFuture.completedFuture(null);
-          }
-
-          // If this is a new hll, we need to set the TTL. This could be
-          // a single atomic op in redis 7.x with EXPIRE NX
-          return connection.async().expire(hllName, period).thenRun(Util.NOOP);
-        }));
+  /**
+   * Merges all locally-observed elements into the shared HyperLogLog and refreshes the local view of the shared
+   * estimate.
+   */
+  @VisibleForTesting
+  CompletionStage<Void> flush() {
+    final String[] elements = drainPendingElements();
+
+    return redisCluster.withCluster(connection -> {
+      final CompletionStage<Boolean> isNewHllFuture;
+
+      if (elements.length == 0) {
+        isNewHllFuture = CompletableFuture.completedFuture(false);
+      } else {
+        isNewHllFuture = connection.async()
+            .pfadd(hllName, elements)
+            .thenCompose(modCount -> {
+              if (modCount == 0) {
+                return CompletableFuture.completedFuture(false);
+              }
+
+              // The hll changed; check if this is a new hll with no TTL set
+              return connection.async().ttl(hllName).thenApply(ttl -> ttl == -1);
+            });
+      }
+
+      return isNewHllFuture
+          .thenCompose(isNewHll -> {
+            if (!isNewHll) {
+              return CompletableFuture.completedFuture(null);
+            }
+
+            // If this is a new hll, we need to set the TTL. This could be
+            // a single atomic op in redis 7.x with EXPIRE NX
+            return connection.async().expire(hllName, period).thenRun(Util.NOOP);
+          })
+          // Other instances may have added elements even if we didn't, so always refresh the shared estimate
+          .thenCompose(ignored -> connection.async().pfcount(hllName))
+          .thenAccept(count -> uniqueElementCount = count);
+    });
+  }
+
+  @VisibleForTesting
+  String[] drainPendingElements() {
+    final Set<String> drainedElements;
+
+    pendingElementsLock.writeLock().lock();
+
+    try {
+      drainedElements = pendingElements;
+      pendingElements = ConcurrentHashMap.newKeySet();
+    } finally {
+      pendingElementsLock.writeLock().unlock();
+    }
+
+    earlyFlushScheduled.set(false);
+
+    return drainedElements.toArray(String[]::new);
   }
 
   @VisibleForTesting
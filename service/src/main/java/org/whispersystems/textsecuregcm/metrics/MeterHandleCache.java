@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A meter handle cache maps small, low-cardinality keys (typically records of enums, booleans, and pre-built tags) to
+ * already-registered meters. Hot paths can resolve a meter with a single map lookup instead of building tag arrays and
+ * searching the meter registry for every event.
+ * <p>
+ * Caches hold at most a fixed number of meters. If a cache fills up, which generally means a caller is using a
+ * high-cardinality value as part of its key, additional meters are still resolved (and so still report correctly) but
+ * are not cached, and the overflow is reported so the offending cache can be found and fixed.
+ *
+ * @param <K> the type of key used to identify meters
+ * @param <M> the type of meter held by this cache
+ */
+public class MeterHandleCache<K, M extends Meter> {
+
+  private final String name;
+  private final int maxSize;
+  private final Function<K, M> meterFactory;
+
+  private final Map<K, M> meters = new ConcurrentHashMap<>();
+  private final AtomicBoolean loggedOverflow = new AtomicBoolean(false);
+
+  public static final int DEFAULT_MAX_SIZE = 1_024;
+
+  private static final String OVERFLOW_COUNTER_NAME = name(MeterHandleCache.class, "overflow");
+
+  private static final Logger logger = LoggerFactory.getLogger(MeterHandleCache.class);
+
+  /**
+   * @param name a name for this cache, used to identify it when reporting overflows
+   * @param meterFactory a function that resolves (and registers, if necessary) the meter for a given key
+   */
+  public MeterHandleCache(final String name, final Function<K, M> meterFactory) {
+    this(name, DEFAULT_MAX_SIZE, meterFactory);
+  }
+
+  /**
+   * @param name a name for this cache, used to identify it when reporting overflows
+   * @param maxSize the maximum number of meters to cache
+   * @param meterFactory a function that resolves (and registers, if necessary) the meter for a given key
+   */
+  public MeterHandleCache(final String name, final int maxSize, final Function<K, M> meterFactory) {
+    this.name = name;
+    this.maxSize = maxSize;
+    this.meterFactory = meterFactory;
+  }
+
+  /**
+   * Returns the meter for the given key, resolving and caching it if this cache has not yet seen the key.
+   *
+   * @param key the key that identifies the meter
+   *
+   * @return the meter for the given key
+   */
+  public M get(final K key) {
+    final M meter = meters.get(key);
+
+    if (meter != null) {
+      return meter;
+    }
+
+    if (meters.size() >= maxSize) {
+      Metrics.counter(OVERFLOW_COUNTER_NAME, "cache", name).increment();
+
+      if (loggedOverflow.compareAndSet(false, true)) {
+        logger.warn("Meter handle cache {} exceeded {} entries; keys may have unbounded cardinality", name, maxSize);
+      }
+
+      return meterFactory.apply(key);
+    }
+
+    return meters.computeIfAbsent(key, meterFactory);
+  }
+
+  int getMaxSize() {
+    return maxSize;
+  }
+
+  int size() {
+    return meters.size();
+  }
+}
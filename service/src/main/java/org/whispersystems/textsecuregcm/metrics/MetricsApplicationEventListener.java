@@ -5,6 +5,9 @@
 
 package org.whispersystems.textsecuregcm.metrics;
 
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.monitoring.ApplicationEvent;
 import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
@@ -30,6 +33,21 @@ public class MetricsApplicationEventListener implements ApplicationEventListener
 
   @Override
   public void onEvent(final ApplicationEvent event) {
+    if (event.getType() == ApplicationEvent.Type.INITIALIZATION_FINISHED) {
+      metricsRequestEventListener.setResourceMethodCount(countResourceMethods(event.getResourceModel().getResources()));
+    }
+  }
+
+  @VisibleForTesting
+  static int countResourceMethods(final Collection<Resource> resources) {
+    int resourceMethodCount = 0;
+
+    for (final Resource resource : resources) {
+      resourceMethodCount += resource.getAllMethods().size();
+      resourceMethodCount += countResourceMethods(resource.getChildResources());
+    }
+
+    return resourceMethodCount;
   }
 
   @Override
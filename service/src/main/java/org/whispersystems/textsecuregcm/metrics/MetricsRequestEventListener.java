@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.metrics;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HttpHeaders;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
@@ -16,10 +17,10 @@ import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
 import org.glassfish.jersey.server.monitoring.RequestEventListener;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
+import org.whispersystems.textsecuregcm.util.ua.ClientPlatform;
 import org.whispersystems.textsecuregcm.util.logging.UriInfoUtil;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,6 +49,21 @@ public class MetricsRequestEventListener implements RequestEventListener {
   private final TrafficSource trafficSource;
   private final MeterRegistry meterRegistry;
 
+  private volatile MeterHandleCache<RequestCounterKey, Counter> requestCounters;
+  private final MeterHandleCache<RequestByVersionCounterKey, Counter> requestByVersionCounters;
+
+  // Path templates come from matched resource methods and client versions from the set of known releases, so both keys
+  // have bounded cardinality
+  private record RequestCounterKey(String path, String method, int status, Tag platformTag) {
+  }
+
+  private record RequestByVersionCounterKey(Tag clientVersionTag, Tag platformTag) {
+  }
+
+  // A generous estimate of the distinct status codes a single route returns in practice (success, a handful of client
+  // errors, and server errors)
+  private static final int STATUS_CODES_PER_ROUTE = 16;
+
   public MetricsRequestEventListener(final TrafficSource trafficSource, final ClientReleaseManager clientReleaseManager) {
     this(trafficSource, Metrics.globalRegistry, clientReleaseManager);
   }
@@ -60,35 +76,65 @@ public class MetricsRequestEventListener implements RequestEventListener {
     this.trafficSource = trafficSource;
     this.meterRegistry = meterRegistry;
     this.clientReleaseManager = clientReleaseManager;
+
+    this.requestCounters = buildRequestCounterCache(MeterHandleCache.DEFAULT_MAX_SIZE);
+
+    this.requestByVersionCounters = new MeterHandleCache<>(REQUESTS_BY_VERSION_COUNTER_NAME, key ->
+        meterRegistry.counter(REQUESTS_BY_VERSION_COUNTER_NAME, Tags.of(key.clientVersionTag(), key.platformTag())));
+  }
+
+  /**
+   * Sizes the request counter cache to fit every combination of route, status, and platform the application can be
+   * expected to produce. Must be called before the application begins serving requests.
+   *
+   * @param resourceMethodCount the number of resource methods (i.e. path template and method pairs) in the application
+   */
+  void setResourceMethodCount(final int resourceMethodCount) {
+    // Each route may be requested by any known platform or by an unrecognized client
+    final int platformCount = ClientPlatform.values().length + 1;
+
+    requestCounters = buildRequestCounterCache(
+        Math.max(MeterHandleCache.DEFAULT_MAX_SIZE, resourceMethodCount * platformCount * STATUS_CODES_PER_ROUTE));
+  }
+
+  @VisibleForTesting
+  int getRequestCounterCacheMaxSize() {
+    return requestCounters.getMaxSize();
+  }
+
+  private MeterHandleCache<RequestCounterKey, Counter> buildRequestCounterCache(final int maxSize) {
+    return new MeterHandleCache<>(REQUEST_COUNTER_NAME, maxSize, key ->
+        meterRegistry.counter(REQUEST_COUNTER_NAME, Tags.of(
+            Tag.of(PATH_TAG, key.path()),
+            Tag.of(METHOD_TAG, key.method()),
+            Tag.of(STATUS_CODE_TAG, String.valueOf(key.status())),
+            Tag.of(TRAFFIC_SOURCE_TAG, trafficSource.name().toLowerCase()),
+            key.platformTag())));
   }
 
   @Override
   public void onEvent(final RequestEvent event) {
     if (event.getType() == RequestEvent.Type.FINISHED) {
       if (!event.getUriInfo().getMatchedTemplates().isEmpty()) {
-        final List<Tag> tags = new ArrayList<>(5);
-        tags.add(Tag.of(PATH_TAG, UriInfoUtil.getPathTemplate(event.getUriInfo())));
-        tags.add(Tag.of(METHOD_TAG, event.getContainerRequest().getMethod()));
-        tags.add(Tag.of(STATUS_CODE_TAG, String.valueOf(Optional
-            .ofNullable(event.getContainerResponse())
-            .map(ContainerResponse::getStatus)
-            .orElse(499))));
-        tags.add(Tag.of(TRAFFIC_SOURCE_TAG, trafficSource.name().toLowerCase()));
-
         @Nullable final String userAgent;
         {
           final List<String> userAgentValues = event.getContainerRequest().getRequestHeader(HttpHeaders.USER_AGENT);
           userAgent = userAgentValues != null && !userAgentValues.isEmpty() ? userAgentValues.get(0) : null;
         }
 
-        tags.add(UserAgentTagUtil.getPlatformTag(userAgent));
+        final Tag platformTag = UserAgentTagUtil.getPlatformTag(userAgent);
 
-        meterRegistry.counter(REQUEST_COUNTER_NAME, tags).increment();
+        requestCounters.get(new RequestCounterKey(UriInfoUtil.getPathTemplate(event.getUriInfo()),
+                event.getContainerRequest().getMethod(),
+                Optional.ofNullable(event.getContainerResponse())
+                    .map(ContainerResponse::getStatus)
+                    .orElse(499),
+                platformTag))
+            .increment();
 
         UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager)
-            .ifPresent(clientVersionTag -> meterRegistry.counter(REQUESTS_BY_VERSION_COUNTER_NAME,
-                    Tags.of(clientVersionTag, UserAgentTagUtil.getPlatformTag(userAgent)))
-                .increment());
+            .ifPresent(clientVersionTag ->
+                requestByVersionCounters.get(new RequestByVersionCounterKey(clientVersionTag, platformTag)).increment());
       }
     }
   }
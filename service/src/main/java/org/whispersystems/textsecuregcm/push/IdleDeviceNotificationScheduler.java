@@ -33,9 +33,11 @@ public class IdleDeviceNotificationScheduler extends JobScheduler {
       final DynamoDbAsyncClient dynamoDbAsyncClient,
       final String tableName,
       final Duration jobExpiration,
+      final int shardCount,
+      final int maxWriteCapacityUnitsPerSecond,
       final Clock clock) {
 
-    super(dynamoDbAsyncClient, tableName, jobExpiration, clock);
+    super(dynamoDbAsyncClient, tableName, jobExpiration, shardCount, maxWriteCapacityUnitsPerSecond, clock);
 
     this.accountsManager = accountsManager;
     this.pushNotificationManager = pushNotificationManager;
@@ -7,6 +7,7 @@ package org.whispersystems.textsecuregcm.push;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.lifecycle.Managed;
@@ -16,26 +17,35 @@ import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.configuration.CircuitBreakerConfiguration;
-import org.whispersystems.textsecuregcm.redis.RedisOperation;
 import org.whispersystems.textsecuregcm.storage.PubSubProtos;
 import org.whispersystems.textsecuregcm.util.CircuitBreakerUtil;
 
+/**
+ * A provisioning manager relays provisioning messages from primary devices to new devices via Redis pub/sub. Provisioning
+ * addresses may be spread across several independent Redis "shards;" each address is always published and subscribed on
+ * the same shard, which is chosen by hashing the address. Note that changing the number of shards remaps most
+ * addresses, and so should only be done in a way that tolerates interrupting in-progress provisioning attempts.
+ * <p>
+ * All Redis operations are non-blocking. Subscribe and unsubscribe requests for a shard are queued and sent in batches:
+ * while one batch is awaiting a response from Redis, new requests accumulate and are then sent together as a single
+ * {@code SUBSCRIBE} or {@code UNSUBSCRIBE} command.
+ */
 public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> implements Managed {
 
-  private final RedisClient redisClient;
-  private final StatefulRedisPubSubConnection<byte[], byte[]> subscriptionConnection;
-  private final StatefulRedisConnection<byte[], byte[]> publicationConnection;
-
-  private final CircuitBreaker circuitBreaker;
+  private final List<Shard> shards;
 
   private final Map<String, Consumer<PubSubProtos.PubSubMessage>> listenersByProvisioningAddress =
       new ConcurrentHashMap<>();
@@ -48,65 +58,122 @@ public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> impl
   private static final String RECEIVE_PROVISIONING_MESSAGE_COUNTER_NAME =
       name(ProvisioningManager.class, "receiveProvisioningMessage");
 
+  private static final String SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME =
+      name(ProvisioningManager.class, "subscriptionBatchSize");
+
   private static final Logger logger = LoggerFactory.getLogger(ProvisioningManager.class);
 
   public ProvisioningManager(final RedisClient redisClient,
       final CircuitBreakerConfiguration circuitBreakerConfiguration) {
 
-    this.redisClient = redisClient;
+    this(List.of(redisClient), circuitBreakerConfiguration);
+  }
+
+  public ProvisioningManager(final List<RedisClient> redisClients,
+      final CircuitBreakerConfiguration circuitBreakerConfiguration) {
+
+    if (redisClients.isEmpty()) {
+      throw new IllegalArgumentException("At least one Redis client must be provided");
+    }
 
-    this.subscriptionConnection = redisClient.connectPubSub(new ByteArrayCodec());
-    this.publicationConnection = redisClient.connect(new ByteArrayCodec());
+    final List<Shard> shards = new ArrayList<>(redisClients.size());
 
-    this.circuitBreaker = CircuitBreaker.of("pubsub-breaker", circuitBreakerConfiguration.toCircuitBreakerConfig());
+    for (int i = 0; i < redisClients.size(); i++) {
+      shards.add(new Shard(redisClients.get(i), i, circuitBreakerConfiguration));
+    }
 
-    CircuitBreakerUtil.registerMetrics(circuitBreaker, ProvisioningManager.class, Tags.empty());
+    this.shards = List.copyOf(shards);
 
     Metrics.gaugeMapSize(ACTIVE_LISTENERS_GAUGE_NAME, Tags.empty(), listenersByProvisioningAddress);
   }
 
   @Override
   public void start() throws Exception {
-    subscriptionConnection.addListener(this);
+    shards.forEach(shard -> shard.subscriptionConnection.addListener(this));
   }
 
   @Override
   public void stop() throws Exception {
-    subscriptionConnection.removeListener(this);
+    for (final Shard shard : shards) {
+      shard.subscriptionConnection.removeListener(this);
 
-    subscriptionConnection.close();
-    publicationConnection.close();
+      shard.subscriptionConnection.close();
+      shard.publicationConnection.close();
 
-    redisClient.shutdown();
+      shard.redisClient.shutdown();
+    }
   }
 
-  public void addListener(final String address, final Consumer<PubSubProtos.PubSubMessage> listener) {
+  /**
+   * Registers a listener for messages sent to the given provisioning address.
+   *
+   * @param address the provisioning address for which to listen
+   * @param listener the listener to notify when a message arrives for the given address
+   *
+   * @return a future that completes when the subscription for the given address is active; messages sent to the address
+   * before the returned future completes may not be delivered
+   */
+  public CompletableFuture<Void> addListener(final String address, final Consumer<PubSubProtos.PubSubMessage> listener) {
     listenersByProvisioningAddress.put(address, listener);
 
-    circuitBreaker.executeRunnable(
-        () -> subscriptionConnection.sync().subscribe(address.getBytes(StandardCharsets.UTF_8)));
+    return getShard(address).enqueue(address.getBytes(StandardCharsets.UTF_8), true);
   }
 
-  public void removeListener(final String address) {
-    RedisOperation.unchecked(() -> circuitBreaker.executeRunnable(
-        () -> subscriptionConnection.sync().unsubscribe(address.getBytes(StandardCharsets.UTF_8))));
-
+  /**
+   * Stops delivering messages for the given provisioning address. The listener for the given address is removed
+   * immediately; the returned future completes when the underlying subscription has been cancelled.
+   *
+   * @param address the provisioning address for which to stop listening
+   *
+   * @return a future that completes when the subscription for the given address has been cancelled
+   */
+  public CompletableFuture<Void> removeListener(final String address) {
     listenersByProvisioningAddress.remove(address);
+
+    return getShard(address).enqueue(address.getBytes(StandardCharsets.UTF_8), false)
+        .whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            logger.warn("Failed to unsubscribe from provisioning address", throwable);
+          }
+        });
   }
 
-  public boolean sendProvisioningMessage(final String address, final byte[] body) {
+  /**
+   * Sends a provisioning message to the given provisioning address.
+   *
+   * @param address the provisioning address to which to send the message
+   * @param body the body of the message
+   *
+   * @return a future that yields {@code true} if a listener was present for the given address or {@code false}
+   * otherwise
+   */
+  public CompletableFuture<Boolean> sendProvisioningMessage(final String address, final byte[] body) {
     final PubSubProtos.PubSubMessage pubSubMessage = PubSubProtos.PubSubMessage.newBuilder()
         .setType(PubSubProtos.PubSubMessage.Type.DELIVER)
         .setContent(ByteString.copyFrom(body))
         .build();
 
-    final boolean receiverPresent = circuitBreaker.executeSupplier(
-        () -> publicationConnection.sync()
-            .publish(address.getBytes(StandardCharsets.UTF_8), pubSubMessage.toByteArray()) > 0);
+    final Shard shard = getShard(address);
+
+    return shard.circuitBreaker.executeCompletionStage(() -> shard.publicationConnection.async()
+            .publish(address.getBytes(StandardCharsets.UTF_8), pubSubMessage.toByteArray()))
+        .toCompletableFuture()
+        .thenApply(receivers -> {
+          final boolean receiverPresent = receivers > 0;
+          Metrics.counter(SEND_PROVISIONING_MESSAGE_COUNTER_NAME, "online", String.valueOf(receiverPresent)).increment();
 
-    Metrics.counter(SEND_PROVISIONING_MESSAGE_COUNTER_NAME, "online", String.valueOf(receiverPresent)).increment();
+          return receiverPresent;
+        });
+  }
 
-    return receiverPresent;
+  @VisibleForTesting
+  static int getShardIndex(final String address, final int shardCount) {
+    // String#hashCode is defined by the language specification, so every server maps addresses to the same shards
+    return Math.floorMod(address.hashCode(), shardCount);
+  }
+
+  private Shard getShard(final String address) {
+    return shards.get(getShardIndex(address, shards.size()));
   }
 
   @Override
@@ -136,4 +203,113 @@ public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> impl
   public void unsubscribed(final byte[] channel, final long count) {
     listenersByProvisioningAddress.remove(new String(channel, StandardCharsets.UTF_8));
   }
+
+  private record PendingSubscriptionChange(byte[] channel, boolean subscribe, CompletableFuture<Void> future) {
+  }
+
+  private static class Shard {
+
+    private final RedisClient redisClient;
+    private final StatefulRedisPubSubConnection<byte[], byte[]> subscriptionConnection;
+    private final StatefulRedisConnection<byte[], byte[]> publicationConnection;
+
+    private final CircuitBreaker circuitBreaker;
+    private final DistributionSummary batchSizeDistributionSummary;
+
+    private List<PendingSubscriptionChange> pendingSubscriptionChanges = new ArrayList<>();
+    private boolean flushInProgress = false;
+
+    private Shard(final RedisClient redisClient,
+        final int shardIndex,
+        final CircuitBreakerConfiguration circuitBreakerConfiguration) {
+
+      this.redisClient = redisClient;
+
+      this.subscriptionConnection = redisClient.connectPubSub(new ByteArrayCodec());
+      this.publicationConnection = redisClient.connect(new ByteArrayCodec());
+
+      this.circuitBreaker = CircuitBreaker.of("pubsub-breaker", circuitBreakerConfiguration.toCircuitBreakerConfig());
+
+      final Tags tags = Tags.of("shard", String.valueOf(shardIndex));
+      CircuitBreakerUtil.registerMetrics(circuitBreaker, ProvisioningManager.class, tags);
+
+      this.batchSizeDistributionSummary = DistributionSummary.builder(SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME)
+          .tags(tags)
+          .publishPercentileHistogram(true)
+          .register(Metrics.globalRegistry);
+    }
+
+    private CompletableFuture<Void> enqueue(final byte[] channel, final boolean subscribe) {
+      final CompletableFuture<Void> future = new CompletableFuture<>();
+      final boolean shouldFlush;
+
+      synchronized (this) {
+        pendingSubscriptionChanges.add(new PendingSubscriptionChange(channel, subscribe, future));
+
+        shouldFlush = !flushInProgress;
+        flushInProgress = true;
+      }
+
+      if (shouldFlush) {
+        flush();
+      }
+
+      return future;
+    }
+
+    private void flush() {
+      final List<PendingSubscriptionChange> batch;
+
+      synchronized (this) {
+        if (pendingSubscriptionChanges.isEmpty()) {
+          flushInProgress = false;
+          return;
+        }
+
+        batch = pendingSubscriptionChanges;
+        pendingSubscriptionChanges = new ArrayList<>();
+      }
+
+      batchSizeDistributionSummary.record(batch.size());
+
+      // Collapse runs of subscribe/unsubscribe requests into single commands. Lettuce writes commands to the connection
+      // in the order they're issued, so preserving the order of runs means a subscribe followed by an unsubscribe for
+      // the same channel (or vice versa) resolves the way callers expect.
+      final List<CompletableFuture<Void>> commandFutures = new ArrayList<>();
+
+      int runStart = 0;
+
+      while (runStart < batch.size()) {
+        final boolean subscribe = batch.get(runStart).subscribe();
+        int runEnd = runStart;
+
+        while (runEnd < batch.size() && batch.get(runEnd).subscribe() == subscribe) {
+          runEnd++;
+        }
+
+        final List<PendingSubscriptionChange> run = batch.subList(runStart, runEnd);
+        final byte[][] channels = run.stream().map(PendingSubscriptionChange::channel).toArray(byte[][]::new);
+
+        final CompletableFuture<Void> commandFuture = circuitBreaker.executeCompletionStage(() -> subscribe
+                ? subscriptionConnection.async().subscribe(channels)
+                : subscriptionConnection.async().unsubscribe(channels))
+            .toCompletableFuture()
+            .thenRun(() -> {});
+
+        commandFuture.whenComplete((ignored, throwable) -> run.forEach(change -> {
+          if (throwable == null) {
+            change.future().complete(null);
+          } else {
+            change.future().completeExceptionally(throwable);
+          }
+        }));
+
+        commandFutures.add(commandFuture);
+        runStart = runEnd;
+      }
+
+      CompletableFuture.allOf(commandFutures.toArray(CompletableFuture[]::new))
+          .whenComplete((ignored, throwable) -> flush());
+    }
+  }
 }
@@ -13,8 +13,10 @@ import io.lettuce.core.Range;
 import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.SetArgs;
 import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
@@ -24,6 +26,8 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
@@ -38,6 +42,7 @@ import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class PushNotificationScheduler implements Managed {
@@ -48,16 +53,25 @@ public class PushNotificationScheduler implements Managed {
   private static final String LAST_BACKGROUND_NOTIFICATION_TIMESTAMP_KEY_PREFIX = "LAST_BACKGROUND_NOTIFICATION";
   private static final String PENDING_DELAYED_NOTIFICATIONS_KEY_PREFIX = "DELAYED";
 
+  // For each range of slots, a sorted set of the notification queue keys in that range, scored by the time at which the
+  // earliest entry in each queue becomes due, and a lease held by the worker currently processing queues in that range
+  private static final String DUE_QUEUES_KEY_PREFIX = "pending_notification_due_queues";
+  private static final String SLOT_RANGE_LEASE_KEY_PREFIX = "pending_notification_slot_range_lease";
+
   @VisibleForTesting
-  static final String NEXT_SLOT_TO_PROCESS_KEY = "pending_notification_next_slot";
+  static final int SLOT_RANGE_SIZE = 256;
+
+  private static final int SLOT_RANGE_COUNT = SlotHash.SLOT_COUNT / SLOT_RANGE_SIZE;
 
   private static final Counter BACKGROUND_NOTIFICATION_SCHEDULED_COUNTER = Metrics.counter(name(PushNotificationScheduler.class, "backgroundNotification", "scheduled"));
   private static final String BACKGROUND_NOTIFICATION_SENT_COUNTER_NAME = name(PushNotificationScheduler.class, "backgroundNotification", "sent");
 
   private static final String DELAYED_NOTIFICATION_SCHEDULED_COUNTER_NAME = name(PushNotificationScheduler.class, "delayedNotificationScheduled");
   private static final String DELAYED_NOTIFICATION_SENT_COUNTER_NAME = name(PushNotificationScheduler.class, "delayedNotificationSent");
+  private static final String NOTIFICATION_LAG_TIMER_NAME = name(PushNotificationScheduler.class, "notificationLag");
   private static final String TOKEN_TYPE_TAG = "tokenType";
   private static final String ACCEPTED_TAG = "accepted";
+  private static final String NOTIFICATION_TYPE_TAG = "notificationType";
 
   private final APNSender apnSender;
   private final FcmSender fcmSender;
@@ -66,19 +80,52 @@ public class PushNotificationScheduler implements Managed {
   private final Clock clock;
 
   private final ClusterLuaScript scheduleBackgroundApnsNotificationScript;
+  private final ClusterLuaScript updateNotificationDueTimeScript;
+  private final ClusterLuaScript claimDueNotificationQueuesScript;
+  private final ClusterLuaScript finishNotificationQueueScript;
+  private final ClusterLuaScript releaseSlotRangeLeaseScript;
 
   private final Thread[] workerThreads;
+  private final Thread reindexThread;
 
   @VisibleForTesting
   static final Duration BACKGROUND_NOTIFICATION_PERIOD = Duration.ofMinutes(20);
 
+  // The maximum number of due queues a worker will claim from a slot range in a single pass
+  private static final int MAX_DUE_QUEUES_PER_PASS = 256;
+
+  // How long a worker's claim on a due queue (and its lease on the queue's slot range) lasts; if a worker doesn't finish
+  // processing a queue in this time, another worker may claim it
+  private static final Duration QUEUE_CLAIM_DURATION = Duration.ofMinutes(1);
+
+  // When no notifications are due in any slot range, a worker sleeps until the earliest due time in any range's index,
+  // but no longer than the maximum. Notifications scheduled by other nodes can't wake a sleeping worker, so the maximum
+  // bounds how late a newly-scheduled, immediately-due notification may be. The minimum keeps workers from spinning on
+  // entries that are due but claimed by another worker.
+  private static final Duration MIN_IDLE_SLEEP = Duration.ofMillis(100);
+  private static final Duration MAX_IDLE_SLEEP = Duration.ofSeconds(5);
+
+  // How long a full pass over all slots to re-index notification queues should take. Re-indexing catches entries that
+  // are missing from the due-time index (i.e. entries scheduled before the index existed, or whose index update failed
+  // after the entry was added to its queue).
+  private static final Duration REINDEX_SWEEP_PERIOD = Duration.ofMinutes(30);
+
+  // If entries are still due after a worker has processed their queue (i.e. because sending failed), wait at least this
+  // long before trying again
+  private static final Duration FAILED_QUEUE_RETRY_DELAY = Duration.ofMinutes(1);
+
   private final AtomicBoolean running = new AtomicBoolean(false);
 
+  // Lets idle workers wake early when this node schedules a notification that may be due before they'd otherwise wake
+  private final Object idleWorkerMonitor = new Object();
+
   class NotificationWorker implements Runnable {
 
     private final int maxConcurrency;
+    private final String workerId = UUID.randomUUID().toString();
 
-    private static final int PAGE_SIZE = 128;
+    // Workers start at random positions so they don't all contend for the same slot ranges
+    private int nextSlotRange = ThreadLocalRandom.current().nextInt(SLOT_RANGE_COUNT);
 
     NotificationWorker(final int maxConcurrency) {
       this.maxConcurrency = maxConcurrency;
@@ -88,59 +135,256 @@ public class PushNotificationScheduler implements Managed {
     public void run() {
       do {
         try {
-          final long entriesProcessed = processNextSlot();
+          long entriesProcessed = 0;
+
+          for (int i = 0; i < SLOT_RANGE_COUNT; i++) {
+            entriesProcessed += processSlotRange(nextSlotRange);
+            nextSlotRange = (nextSlotRange + 1) % SLOT_RANGE_COUNT;
+          }
 
           if (entriesProcessed == 0) {
-            Util.sleep(1000);
+            sleepIdle(getIdleSleep());
           }
         } catch (Exception e) {
           logger.warn("Exception while operating", e);
+          Util.sleep(MAX_IDLE_SLEEP.toMillis());
         }
       } while (running.get());
     }
 
-    private long processNextSlot() {
-      final int slot = (int) (pushSchedulingCluster.withCluster(connection ->
-          connection.sync().incr(NEXT_SLOT_TO_PROCESS_KEY)) % SlotHash.SLOT_COUNT);
+    /**
+     * Returns how long an idle worker should sleep: until the earliest due time in any slot range's due-time index,
+     * bounded by {@link #MIN_IDLE_SLEEP} and {@link #MAX_IDLE_SLEEP}.
+     */
+    @VisibleForTesting
+    Duration getIdleSleep() {
+      final Long earliestDueTimeMillis = pushSchedulingCluster.withCluster(connection ->
+          Flux.range(0, SLOT_RANGE_COUNT)
+              .flatMap(slotRange -> getEarliestDueTime(connection, getDueQueuesKey(slotRange)))
+              .reduce(Math::min)
+              .block());
+
+      if (earliestDueTimeMillis == null) {
+        return MAX_IDLE_SLEEP;
+      }
+
+      final Duration untilEarliestDueTime = Duration.ofMillis(earliestDueTimeMillis - clock.millis());
+
+      if (untilEarliestDueTime.compareTo(MIN_IDLE_SLEEP) < 0) {
+        return MIN_IDLE_SLEEP;
+      }
+
+      return untilEarliestDueTime.compareTo(MAX_IDLE_SLEEP) > 0 ? MAX_IDLE_SLEEP : untilEarliestDueTime;
+    }
+
+    private void sleepIdle(final Duration sleep) {
+      synchronized (idleWorkerMonitor) {
+        try {
+          idleWorkerMonitor.wait(sleep.toMillis());
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Claims the queues in the given slot range that have entries due according to the range's due-time index,
+     * processes those queues, and then updates the index with the time at which each queue's next entry is due. Queues
+     * can only be claimed by the worker holding the range's lease, or by any worker if the range is not leased.
+     *
+     * @param slotRange the index of the slot range to process
+     *
+     * @return the number of notifications sent
+     */
+    @VisibleForTesting
+    long processSlotRange(final int slotRange) {
+      final long currentTimeMillis = clock.millis();
+      final long claimedUntilMillis = currentTimeMillis + QUEUE_CLAIM_DURATION.toMillis();
+      final String dueQueuesKey = getDueQueuesKey(slotRange);
+      final String leaseKey = getSlotRangeLeaseKey(slotRange);
+
+      @SuppressWarnings("unchecked") final List<String> claimedQueueKeys =
+          (List<String>) claimDueNotificationQueuesScript.execute(List.of(dueQueuesKey, leaseKey),
+              List.of(workerId,
+                  String.valueOf(currentTimeMillis),
+                  String.valueOf(claimedUntilMillis),
+                  String.valueOf(MAX_DUE_QUEUES_PER_PASS),
+                  String.valueOf(QUEUE_CLAIM_DURATION.toMillis())));
+
+      if (claimedQueueKeys.isEmpty()) {
+        return 0;
+      }
+
+      final AtomicLong processedNotifications = new AtomicLong(0);
+
+      try {
+        pushSchedulingCluster.useCluster(connection -> Flux.fromIterable(claimedQueueKeys)
+            .flatMap(queueKey -> processScheduledNotifications(connection, queueKey)
+                    .doOnNext(processedNotifications::addAndGet)
+                    // Leave any entries we couldn't process in the queue and the queue in the index; they'll be retried
+                    .onErrorResume(throwable -> {
+                      logger.warn("Failed to process notification queue {}", queueKey, throwable);
+                      return Mono.empty();
+                    })
+                    .then(finishProcessingQueue(connection, dueQueuesKey, queueKey, claimedUntilMillis)),
+                maxConcurrency)
+            .then()
+            .block());
+      } finally {
+        releaseSlotRangeLeaseScript.execute(List.of(leaseKey), List.of(workerId));
+      }
 
-      return processScheduledBackgroundApnsNotifications(slot) + processScheduledDelayedNotifications(slot);
+      return processedNotifications.get();
+    }
+
+    /**
+     * Updates a claimed queue's entry in the due-time index after the queue has been processed. If the queue still has
+     * entries, the index records when the earliest one is due; otherwise, the queue is removed from the index. The index
+     * is left unchanged if a notification with an earlier due time was scheduled while the queue was claimed.
+     */
+    private Mono<Void> finishProcessingQueue(final StatefulRedisClusterConnection<String, String> connection,
+        final String dueQueuesKey,
+        final String queueKey,
+        final long claimedUntilMillis) {
+
+      return getEarliestDueTime(connection, queueKey)
+          // Anything still due at this point is most likely an entry we failed to process; retry later instead of
+          // immediately
+          .map(dueTimeMillis -> {
+            final long currentTimeMillis = clock.millis();
+
+            return dueTimeMillis <= currentTimeMillis
+                ? currentTimeMillis + FAILED_QUEUE_RETRY_DELAY.toMillis()
+                : dueTimeMillis;
+          })
+          .map(String::valueOf)
+          .defaultIfEmpty("")
+          .flatMap(nextDueTimeMillis -> finishNotificationQueueScript.executeReactive(List.of(dueQueuesKey),
+                  List.of(queueKey, String.valueOf(claimedUntilMillis), nextDueTimeMillis))
+              .next())
+          .flatMap(removed -> {
+            if (!Long.valueOf(1).equals(removed)) {
+              return Mono.empty();
+            }
+
+            // A notification may have been scheduled after we found the queue empty, but before we removed the queue
+            // from the index; in that case, the scheduler may have left the index unchanged, so check once more
+            return getEarliestDueTime(connection, queueKey)
+                .flatMap(dueTimeMillis -> updateNotificationDueTimeScript.executeReactive(List.of(dueQueuesKey),
+                        List.of(queueKey, String.valueOf(dueTimeMillis)))
+                    .then());
+          });
     }
 
     @VisibleForTesting
     long processScheduledBackgroundApnsNotifications(final int slot) {
-      return processScheduledNotifications(getPendingBackgroundApnsNotificationQueueKey(slot),
-          PushNotificationScheduler.this::sendBackgroundApnsNotification);
+      return processScheduledNotifications(getPendingBackgroundApnsNotificationQueueKey(slot));
     }
 
     @VisibleForTesting
     long processScheduledDelayedNotifications(final int slot) {
-      return processScheduledNotifications(getDelayedNotificationQueueKey(slot),
-          PushNotificationScheduler.this::sendDelayedNotification);
+      return processScheduledNotifications(getDelayedNotificationQueueKey(slot));
     }
 
-    private long processScheduledNotifications(final String queueKey,
-        final BiFunction<Account, Device, CompletableFuture<Void>> sendNotificationFunction) {
+    private long processScheduledNotifications(final String queueKey) {
+      return pushSchedulingCluster.withCluster(connection ->
+          processScheduledNotifications(connection, queueKey).block());
+    }
+
+    private Mono<Long> processScheduledNotifications(final StatefulRedisClusterConnection<String, String> connection,
+        final String queueKey) {
+
+      final boolean backgroundApnsQueue = queueKey.startsWith(PENDING_BACKGROUND_NOTIFICATIONS_KEY_PREFIX);
+
+      final BiFunction<Account, Device, CompletableFuture<Void>> sendNotificationFunction = backgroundApnsQueue
+          ? PushNotificationScheduler.this::sendBackgroundApnsNotification
+          : PushNotificationScheduler.this::sendDelayedNotification;
+
+      final Timer lagTimer = Timer.builder(NOTIFICATION_LAG_TIMER_NAME)
+          .tags(NOTIFICATION_TYPE_TAG, backgroundApnsQueue ? "backgroundApns" : "delayed")
+          .publishPercentileHistogram(true)
+          .register(Metrics.globalRegistry);
 
       final long currentTimeMillis = clock.millis();
-      final AtomicLong processedNotifications = new AtomicLong(0);
 
-      pushSchedulingCluster.useCluster(
-          connection -> connection.reactive().zrangebyscore(queueKey, Range.create(0, currentTimeMillis))
-              .flatMap(encodedAciAndDeviceId -> Mono.fromFuture(
-                  () -> getAccountAndDeviceFromPairString(encodedAciAndDeviceId)), maxConcurrency)
-              .flatMap(Mono::justOrEmpty)
-              .flatMap(accountAndDevice -> Mono.fromFuture(
-                          () -> sendNotificationFunction.apply(accountAndDevice.first(), accountAndDevice.second()))
-                      .then(Mono.defer(() -> connection.reactive().zrem(queueKey, encodeAciAndDeviceId(accountAndDevice.first(), accountAndDevice.second()))))
-                      .doOnSuccess(ignored -> processedNotifications.incrementAndGet()),
-                  maxConcurrency)
-              .then()
-              .block());
+      return connection.reactive().zrangebyscoreWithScores(queueKey, Range.create(0, currentTimeMillis))
+          .flatMap(entry -> Mono.fromFuture(() -> getAccountAndDeviceFromPairString(entry.getValue()))
+                  .flatMap(maybeAccountAndDevice -> maybeAccountAndDevice
+                      .map(accountAndDevice -> Mono.fromFuture(
+                              () -> sendNotificationFunction.apply(accountAndDevice.first(), accountAndDevice.second()))
+                          .then(Mono.defer(() -> connection.reactive().zrem(queueKey, entry.getValue())))
+                          // Entries that fail are retried later; only record lag once a notification has actually been
+                          // sent so retried entries aren't counted more than once, and measure it at the time of
+                          // sending
+                          .doOnSuccess(ignored -> lagTimer.record(
+                              Math.max(0, clock.millis() - (long) entry.getScore()), TimeUnit.MILLISECONDS))
+                          .thenReturn(1L))
+                      // The account or device no longer exists, so there's nothing to send
+                      .orElseGet(() -> connection.reactive().zrem(queueKey, entry.getValue()).thenReturn(0L))),
+              maxConcurrency)
+          .reduce(0L, Long::sum);
+    }
+  }
 
-      return processedNotifications.get();
+  /**
+   * Continuously re-indexes notification queues, one slot at a time, so that entries missing from the due-time index
+   * are eventually sent even if workers are never idle.
+   */
+  private class Reindexer implements Runnable {
+
+    @Override
+    public void run() {
+      final long sleepMillisPerSlot = REINDEX_SWEEP_PERIOD.toMillis() / SlotHash.SLOT_COUNT;
+
+      // Nodes start at random positions so they don't all re-index the same slots at the same time
+      int nextSlot = ThreadLocalRandom.current().nextInt(SlotHash.SLOT_COUNT);
+
+      while (running.get()) {
+        try {
+          reindexSlot(nextSlot);
+          nextSlot = (nextSlot + 1) % SlotHash.SLOT_COUNT;
+        } catch (final Exception e) {
+          logger.warn("Failed to re-index notification queues in slot {}", nextSlot, e);
+        }
+
+        Util.sleep(sleepMillisPerSlot);
+      }
     }
   }
 
+  /**
+   * Adds the earliest entry in each of the given slot's notification queues to the due-time index (unless the index
+   * already has an earlier due time for the queue).
+   *
+   * @param slot the slot to re-index
+   */
+  @VisibleForTesting
+  void reindexSlot(final int slot) {
+    final String dueQueuesKey = getDueQueuesKey(getSlotRange(slot));
+
+    pushSchedulingCluster.useCluster(connection -> Flux.just(
+            getPendingBackgroundApnsNotificationQueueKey(slot),
+            getDelayedNotificationQueueKey(slot))
+        .flatMap(queueKey -> getEarliestDueTime(connection, queueKey)
+            .flatMap(dueTimeMillis -> updateNotificationDueTimeScript.executeReactive(List.of(dueQueuesKey),
+                    List.of(queueKey, String.valueOf(dueTimeMillis)))
+                .then()))
+        .then()
+        .block());
+  }
+
+  /**
+   * Returns the lowest score in the given sorted set (i.e. the earliest due time in a notification queue or due-time
+   * index), or an empty mono if the set is empty.
+   */
+  private static Mono<Long> getEarliestDueTime(final StatefulRedisClusterConnection<String, String> connection,
+      final String sortedSetKey) {
+
+    return connection.reactive().zrangeWithScores(sortedSetKey, 0, 0)
+        .next()
+        .map(earliestEntry -> (long) earliestEntry.getScore());
+  }
+
   public PushNotificationScheduler(final FaultTolerantRedisCluster pushSchedulingCluster,
       final APNSender apnSender,
       final FcmSender fcmSender,
@@ -175,11 +419,27 @@ public class PushNotificationScheduler implements Managed {
     this.scheduleBackgroundApnsNotificationScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
         "lua/apn/schedule_background_notification.lua", ScriptOutputType.VALUE);
 
+    this.updateNotificationDueTimeScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
+        "lua/apn/update_notification_due_time.lua", ScriptOutputType.BOOLEAN);
+
+    this.claimDueNotificationQueuesScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
+        "lua/apn/claim_due_notification_queues.lua", ScriptOutputType.MULTI);
+
+    this.finishNotificationQueueScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
+        "lua/apn/finish_notification_queue.lua", ScriptOutputType.INTEGER);
+
+    this.releaseSlotRangeLeaseScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
+        "lua/release_slot_range_lease.lua", ScriptOutputType.INTEGER);
+
     this.workerThreads = new Thread[dedicatedProcessThreadCount];
 
     for (int i = 0; i < this.workerThreads.length; i++) {
       this.workerThreads[i] = new Thread(new NotificationWorker(workerMaxConcurrency), "PushNotificationScheduler-" + i);
     }
+
+    this.reindexThread = this.workerThreads.length > 0
+        ? new Thread(new Reindexer(), "PushNotificationScheduler-reindex")
+        : null;
   }
 
   /**
@@ -196,15 +456,17 @@ public class PushNotificationScheduler implements Managed {
 
     BACKGROUND_NOTIFICATION_SCHEDULED_COUNTER.increment();
 
+    final String queueKey = getPendingBackgroundApnsNotificationQueueKey(account, device);
+
     return scheduleBackgroundApnsNotificationScript.executeAsync(
         List.of(
             getLastBackgroundApnsNotificationTimestampKey(account, device),
-            getPendingBackgroundApnsNotificationQueueKey(account, device)),
+            queueKey),
         List.of(
             encodeAciAndDeviceId(account, device),
             String.valueOf(clock.millis()),
             String.valueOf(BACKGROUND_NOTIFICATION_PERIOD.toMillis())))
-        .thenRun(Util.NOOP);
+        .thenCompose(dueTimeMillis -> updateNotificationDueTime(queueKey, (long) Double.parseDouble((String) dueTimeMillis)));
   }
 
   /**
@@ -219,16 +481,35 @@ public class PushNotificationScheduler implements Managed {
    * @return a future that completes once the notification has been scheduled
    */
   public CompletableFuture<Void> scheduleDelayedNotification(final Account account, final Device device, final Duration minDelay) {
+    final String queueKey = getDelayedNotificationQueueKey(account, device);
+    final long dueTimeMillis = clock.instant().plus(minDelay).toEpochMilli();
+
     return pushSchedulingCluster.withCluster(connection ->
-        connection.async().zadd(getDelayedNotificationQueueKey(account, device),
-            clock.instant().plus(minDelay).toEpochMilli(),
-            encodeAciAndDeviceId(account, device)))
+        connection.async().zadd(queueKey, dueTimeMillis, encodeAciAndDeviceId(account, device)))
+        .thenCompose(ignored -> updateNotificationDueTime(queueKey, dueTimeMillis))
         .thenRun(() -> Metrics.counter(DELAYED_NOTIFICATION_SCHEDULED_COUNTER_NAME,
                 TOKEN_TYPE_TAG, getTokenType(device))
             .increment())
         .toCompletableFuture();
   }
 
+  /**
+   * Records that the given queue has an entry that will be due at the given time, unless the queue already has an entry
+   * that will be due sooner. Callers must add the entry to the queue before updating the due-time index.
+   */
+  private CompletableFuture<Void> updateNotificationDueTime(final String queueKey, final long dueTimeMillis) {
+    return updateNotificationDueTimeScript.executeAsync(List.of(getDueQueuesKey(getSlotRange(SlotHash.getSlot(queueKey)))),
+            List.of(queueKey, String.valueOf(dueTimeMillis)))
+        .thenRun(() -> {
+          // Idle workers sleep for at most MAX_IDLE_SLEEP, so only notifications due before then need to wake them
+          if (dueTimeMillis < clock.millis() + MAX_IDLE_SLEEP.toMillis()) {
+            synchronized (idleWorkerMonitor) {
+              idleWorkerMonitor.notifyAll();
+            }
+          }
+        });
+  }
+
   /**
    * Cancel scheduled notifications for the given account and device.
    *
@@ -264,15 +545,27 @@ public class PushNotificationScheduler implements Managed {
     for (final Thread workerThread : workerThreads) {
       workerThread.start();
     }
+
+    if (reindexThread != null) {
+      reindexThread.start();
+    }
   }
 
   @Override
   public synchronized void stop() throws InterruptedException {
     running.set(false);
 
+    synchronized (idleWorkerMonitor) {
+      idleWorkerMonitor.notifyAll();
+    }
+
     for (final Thread workerThread : workerThreads) {
       workerThread.join();
     }
+
+    if (reindexThread != null) {
+      reindexThread.join();
+    }
   }
 
   @VisibleForTesting
@@ -372,6 +665,20 @@ public class PushNotificationScheduler implements Managed {
     return PENDING_DELAYED_NOTIFICATIONS_KEY_PREFIX + "::{" + RedisClusterUtil.getMinimalHashTag(slot) + "}";
   }
 
+  private static int getSlotRange(final int slot) {
+    return slot / SLOT_RANGE_SIZE;
+  }
+
+  @VisibleForTesting
+  static String getDueQueuesKey(final int slotRange) {
+    return DUE_QUEUES_KEY_PREFIX + "::{" + RedisClusterUtil.getMinimalHashTag(slotRange * SLOT_RANGE_SIZE) + "}";
+  }
+
+  @VisibleForTesting
+  static String getSlotRangeLeaseKey(final int slotRange) {
+    return SLOT_RANGE_LEASE_KEY_PREFIX + "::{" + RedisClusterUtil.getMinimalHashTag(slotRange * SLOT_RANGE_SIZE) + "}";
+  }
+
   @VisibleForTesting
   Optional<Instant> getLastBackgroundApnsNotificationTimestamp(final Account account, final Device device) {
     return Optional.ofNullable(
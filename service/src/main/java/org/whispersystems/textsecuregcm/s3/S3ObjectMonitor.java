@@ -5,16 +5,21 @@
 
 package org.whispersystems.textsecuregcm.s3;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import org.apache.commons.lang3.StringUtils;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
@@ -23,11 +28,13 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
-import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 /**
  * An S3 object monitor watches a specific object in an S3 bucket and notifies a listener if that object changes.
+ * <p>
+ * Monitors poll with conditional requests ({@code If-None-Match} with the last-seen entity tag), so checking an object
+ * that hasn't changed costs a single request with an empty "not modified" response.
  */
 public class S3ObjectMonitor {
 
@@ -43,6 +50,13 @@ public class S3ObjectMonitor {
 
   private final S3Client s3Client;
 
+  private static final String REFRESH_TIMER_NAME = name(S3ObjectMonitor.class, "refresh");
+  private static final String BYTES_DOWNLOADED_COUNTER_NAME = name(S3ObjectMonitor.class, "bytesDownloaded");
+  private static final String OBJECT_TAG_NAME = "object";
+  private static final String OUTCOME_TAG_NAME = "outcome";
+
+  private static final int HTTP_NOT_MODIFIED = 304;
+
   private static final Logger log = LoggerFactory.getLogger(S3ObjectMonitor.class);
 
   public S3ObjectMonitor(
@@ -111,15 +125,42 @@ public class S3ObjectMonitor {
    */
   @VisibleForTesting
   ResponseInputStream<GetObjectResponse> getObject() throws IOException {
-    final ResponseInputStream<GetObjectResponse> response = s3Client.getObject(GetObjectRequest.builder()
-        .key(objectKey)
-        .bucket(s3Bucket)
-        .build());
+    return getObjectIfChanged(null).orElseThrow();
+  }
+
+  /**
+   * Returns the monitored S3 object if its entity tag does not match the given entity tag.
+   *
+   * @param previousETag the entity tag of the last-retrieved version of the object, or {@code null} to retrieve the
+   * object unconditionally
+   *
+   * @return the current version of the monitored S3 object, or empty if the object has not changed. Caller should
+   * close() the returned stream upon completion.
+   * @throws IOException if the retrieved S3 object is larger than the configured maximum size
+   */
+  private Optional<ResponseInputStream<GetObjectResponse>> getObjectIfChanged(@Nullable final String previousETag)
+      throws IOException {
+
+    final ResponseInputStream<GetObjectResponse> response;
+
+    try {
+      response = s3Client.getObject(GetObjectRequest.builder()
+          .key(objectKey)
+          .bucket(s3Bucket)
+          .ifNoneMatch(previousETag)
+          .build());
+    } catch (final S3Exception e) {
+      if (e.statusCode() == HTTP_NOT_MODIFIED) {
+        return Optional.empty();
+      }
+
+      throw e;
+    }
 
     lastETag.set(response.response().eTag());
 
     if (response.response().contentLength() <= maxObjectSize) {
-      return response;
+      return Optional.of(response);
     } else {
       log.warn("Object at s3://{}/{} has a size of {} bytes, which exceeds the maximum allowed size of {} bytes",
           s3Bucket, objectKey, response.response().contentLength(), maxObjectSize);
@@ -129,29 +170,37 @@ public class S3ObjectMonitor {
   }
 
   /**
-   * Polls S3 for object metadata and notifies the listener provided at construction time if and only if the object has
-   * changed since the last call to {@link #getObject()} or {@code refresh()}.
+   * Conditionally fetches the monitored object and notifies the listener provided at construction time if and only if
+   * the object has changed since the last call to {@link #getObject()} or {@code refresh()}.
    */
   @VisibleForTesting
   void refresh(final Consumer<InputStream> changeListener) {
-    try {
-      final HeadObjectResponse objectMetadata = s3Client.headObject(HeadObjectRequest.builder()
-          .bucket(s3Bucket)
-          .key(objectKey)
-          .build());
+    final Timer.Sample sample = Timer.start();
+    String outcome = "error";
 
-      final String initialETag = lastETag.get();
-      final String refreshedETag = objectMetadata.eTag();
+    try {
+      final Optional<ResponseInputStream<GetObjectResponse>> maybeChangedObject = getObjectIfChanged(lastETag.get());
 
-      if (!StringUtils.equals(initialETag, refreshedETag) && lastETag.compareAndSet(initialETag, refreshedETag)) {
-        try (final ResponseInputStream<GetObjectResponse> response = getObject()) {
+      if (maybeChangedObject.isPresent()) {
+        try (final ResponseInputStream<GetObjectResponse> response = maybeChangedObject.get()) {
           log.info("Object at s3://{}/{} has changed; new eTag is {} and object size is {} bytes",
               s3Bucket, objectKey, response.response().eTag(), response.response().contentLength());
+
+          Metrics.counter(BYTES_DOWNLOADED_COUNTER_NAME, OBJECT_TAG_NAME, objectKey)
+              .increment(response.response().contentLength());
           changeListener.accept(response);
         }
+
+        outcome = "changed";
+      } else {
+        outcome = "unchanged";
       }
     } catch (final Exception e) {
       log.warn("Failed to refresh monitored object", e);
+    } finally {
+      sample.stop(Timer.builder(REFRESH_TIMER_NAME)
+          .tags(OBJECT_TAG_NAME, objectKey, OUTCOME_TAG_NAME, outcome)
+          .register(Metrics.globalRegistry));
     }
   }
 }
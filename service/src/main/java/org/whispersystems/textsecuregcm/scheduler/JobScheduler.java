@@ -2,6 +2,7 @@ package org.whispersystems.textsecuregcm.scheduler;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
@@ -23,24 +24,36 @@ import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A job scheduler maintains a delay queue of tasks to be run at some time in the future. Callers schedule jobs with
  * the {@link #scheduleJob(Instant, byte[])} method, and concrete subclasses actually execute jobs by implementing the
  * {@link #processJob(byte[])} method. Some entity must call {@link #processAvailableJobs()} to actually find and
  * process jobs that are ready for execution.
+ * <p>
+ * Jobs are spread across a fixed number of shards, each of which is stored under its own partition key, so a single
+ * busy scheduler isn't limited to the throughput of a single partition. Multiple processors may divide a scheduler's
+ * shards among themselves with {@link #processAvailableJobs(int, int)}. Note that changing the number of shards for a
+ * scheduler with jobs in flight will strand jobs in shards that no longer exist until they expire.
  */
 public abstract class JobScheduler {
 
   private final DynamoDbAsyncClient dynamoDbAsyncClient;
   private final String tableName;
   private final Duration jobExpiration;
+  private final int shardCount;
+  @Nullable
+  private final Duration minJobInterval;
   private final Clock clock;
 
+  private final Map<Integer, AtomicLong> backlogByShard = new ConcurrentHashMap<>();
+
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
-  // The name of this scheduler (DynamoDB string)
+  // The name of this scheduler, qualified by shard (DynamoDB string; please see #getPartitionKey for details)
   @VisibleForTesting
   public static final String KEY_SCHEDULER_NAME = "S";
 
@@ -58,8 +71,10 @@ public abstract class JobScheduler {
 
   private static final String SCHEDULE_JOB_COUNTER_NAME = MetricsUtil.name(JobScheduler.class, "scheduleJob");
   private static final String PROCESS_JOB_COUNTER_NAME = MetricsUtil.name(JobScheduler.class, "processJob");
+  private static final String BACKLOG_GAUGE_NAME = MetricsUtil.name(JobScheduler.class, "backlog");
 
   private static final String SCHEDULER_NAME_TAG = "schedulerName";
+  private static final String SHARD_TAG = "shard";
   private static final String OUTCOME_TAG = "outcome";
 
   private static final int MAX_CONCURRENCY = 16;
@@ -69,9 +84,40 @@ public abstract class JobScheduler {
       final Duration jobExpiration,
       final Clock clock) {
 
+    this(dynamoDbAsyncClient, tableName, jobExpiration, 1, 0, clock);
+  }
+
+  /**
+   * @param dynamoDbAsyncClient the client with which to store and retrieve jobs
+   * @param tableName the name of the table in which to store jobs
+   * @param jobExpiration the time after a job's scheduled time at which it will be discarded if not yet processed
+   * @param shardCount the number of partitions across which to spread this scheduler's jobs
+   * @param maxWriteCapacityUnitsPerSecond the maximum rate at which {@link #processAvailableJobs()} may clear processed
+   * jobs, or 0 for no limit; each cleared job consumes one write capacity unit
+   * @param clock the clock with which to determine which jobs are ready to run
+   */
+  protected JobScheduler(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final Duration jobExpiration,
+      final int shardCount,
+      final int maxWriteCapacityUnitsPerSecond,
+      final Clock clock) {
+
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("Shard count must be positive");
+    }
+
+    if (maxWriteCapacityUnitsPerSecond < 0) {
+      throw new IllegalArgumentException("Write capacity budget must not be negative");
+    }
+
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
     this.tableName = tableName;
     this.jobExpiration = jobExpiration;
+    this.shardCount = shardCount;
+    this.minJobInterval = maxWriteCapacityUnitsPerSecond > 0
+        ? Duration.ofNanos(Duration.ofSeconds(1).toNanos() / maxWriteCapacityUnitsPerSecond)
+        : null;
     this.clock = clock;
   }
 
@@ -111,7 +157,7 @@ public abstract class JobScheduler {
   @VisibleForTesting
   CompletableFuture<Void> scheduleJob(final AttributeValue runAt, final Instant expiration, @Nullable final byte[] jobData) {
     final Map<String, AttributeValue> item = new HashMap<>(Map.of(
-        KEY_SCHEDULER_NAME, AttributeValue.fromS(getSchedulerName()),
+        KEY_SCHEDULER_NAME, AttributeValue.fromS(getPartitionKey(getShard(runAt))),
         ATTR_RUN_AT, runAt,
         ATTR_TTL, AttributeValue.fromN(String.valueOf(expiration.getEpochSecond()))));
 
@@ -137,17 +183,39 @@ public abstract class JobScheduler {
    * @see #processJob(byte[])
    */
   public Mono<Void> processAvailableJobs() {
-    return Flux.from(dynamoDbAsyncClient.queryPaginator(QueryRequest.builder()
-            .tableName(tableName)
-            .keyConditionExpression("#schedulerName = :schedulerName AND #runAt <= :maxRunAt")
-            .expressionAttributeNames(Map.of(
-                "#schedulerName", KEY_SCHEDULER_NAME,
-                "#runAt", ATTR_RUN_AT))
-            .expressionAttributeValues(Map.of(
-                ":schedulerName", AttributeValue.fromS(getSchedulerName()),
-                ":maxRunAt", buildMaxRunAtAttribute(clock.instant())))
-            .build())
-        .items())
+    return processAvailableJobs(0, 1);
+  }
+
+  /**
+   * Finds and processes all jobs whose {@code runAt} time is less than or equal to the current time in the shards
+   * assigned to the given processor. Each shard is assigned to exactly one of {@code processorCount} processors, so
+   * processors may work through a scheduler's backlog in parallel without coordinating with one another. Scheduled jobs
+   * will be deleted once they have been processed successfully.
+   *
+   * @param processorIndex the index of the calling processor, from 0 (inclusive) to {@code processorCount} (exclusive)
+   * @param processorCount the total number of processors sharing this scheduler's shards
+   *
+   * @return a future that completes when all available jobs in the given processor's shards have been processed
+   *
+   * @see #processJob(byte[])
+   */
+  public Mono<Void> processAvailableJobs(final int processorIndex, final int processorCount) {
+    if (processorIndex < 0 || processorIndex >= processorCount) {
+      throw new IllegalArgumentException("Processor index must be between 0 and processor count");
+    }
+
+    final Instant maxRunAt = clock.instant();
+
+    Flux<Map<String, AttributeValue>> availableJobs = Flux.range(0, shardCount)
+        .filter(shard -> shard % processorCount == processorIndex)
+        .flatMap(shard -> getAvailableJobs(shard, maxRunAt));
+
+    if (minJobInterval != null) {
+      // Deleting a processed job consumes one write capacity unit; pace jobs so we don't exceed the configured budget
+      availableJobs = availableJobs.delayElements(minJobInterval);
+    }
+
+    return availableJobs
         .flatMap(item -> {
           final byte[] jobData = item.containsKey(ATTR_JOB_DATA)
               ? item.get(ATTR_JOB_DATA).b().asByteArray()
@@ -167,6 +235,49 @@ public abstract class JobScheduler {
         .then();
   }
 
+  private Flux<Map<String, AttributeValue>> getAvailableJobs(final int shard, final Instant maxRunAt) {
+    final AtomicLong backlog = new AtomicLong();
+
+    return Flux.from(dynamoDbAsyncClient.queryPaginator(QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("#schedulerName = :schedulerName AND #runAt <= :maxRunAt")
+                .expressionAttributeNames(Map.of(
+                    "#schedulerName", KEY_SCHEDULER_NAME,
+                    "#runAt", ATTR_RUN_AT))
+                .expressionAttributeValues(Map.of(
+                    ":schedulerName", AttributeValue.fromS(getPartitionKey(shard)),
+                    ":maxRunAt", buildMaxRunAtAttribute(maxRunAt)))
+                .build())
+            .items())
+        .doOnNext(ignored -> backlog.incrementAndGet())
+        // The number of jobs that were ready to run in this shard at the start of this pass
+        .doOnComplete(() -> getBacklogGauge(shard).set(backlog.get()));
+  }
+
+  private AtomicLong getBacklogGauge(final int shard) {
+    return backlogByShard.computeIfAbsent(shard, ignored -> Metrics.gauge(BACKLOG_GAUGE_NAME,
+        Tags.of(SCHEDULER_NAME_TAG, getSchedulerName(), SHARD_TAG, String.valueOf(shard)),
+        new AtomicLong()));
+  }
+
+  /**
+   * Returns the partition key for the given shard of this scheduler's jobs. The first shard uses the bare scheduler
+   * name so that jobs scheduled before this scheduler was sharded remain visible.
+   */
+  @VisibleForTesting
+  String getPartitionKey(final int shard) {
+    return shard == 0 ? getSchedulerName() : getSchedulerName() + "#" + shard;
+  }
+
+  /**
+   * Chooses a shard for a job based on its (random, probably-unique) sort key, so that jobs are spread evenly across
+   * shards, but attempts to schedule a job with the same sort key twice will collide.
+   */
+  @VisibleForTesting
+  int getShard(final AttributeValue runAt) {
+    return Math.floorMod(runAt.b().asByteBuffer().hashCode(), shardCount);
+  }
+
   private CompletableFuture<Void> deleteJob(final AttributeValue schedulerName, final AttributeValue runAt) {
     return dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
             .tableName(tableName)
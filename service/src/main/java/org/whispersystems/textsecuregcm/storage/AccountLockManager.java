@@ -1,87 +1,142 @@
 package org.whispersystems.textsecuregcm.storage;
 
-import com.amazonaws.services.dynamodbv2.AcquireLockOptions;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClient;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClientOptions;
-import com.amazonaws.services.dynamodbv2.LockItem;
-import com.amazonaws.services.dynamodbv2.ReleaseLockOptions;
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+/**
+ * The account lock manager acquires distributed, pessimistic, lease-based locks on phone numbers. Locks for all of the
+ * phone numbers involved in an operation are acquired in a single DynamoDB transaction, and all DynamoDB operations are
+ * asynchronous, so callers never block a (carrier) thread while waiting for a lock.
+ * <p>
+ * Lock items use the same schema as the <a href="https://github.com/awslabs/amazon-dynamodb-lock-client">DynamoDB
+ * lock client</a>: each item carries an owner name, a lease duration in milliseconds, and a "record version number"
+ * that the lock holder changes with every heartbeat. A lock whose record version number has not changed for a full
+ * lease duration is considered abandoned and may be taken over. Heartbeats and releases are conditioned on the
+ * record version number the holder last wrote, which fences out holders whose locks have been taken over.
+ */
 public class AccountLockManager {
 
-  private final AmazonDynamoDBLockClient lockClient;
+  private final DynamoDbAsyncClient dynamoDbAsyncClient;
+  private final String lockTableName;
+  private final Duration leaseDuration;
+  private final Duration heartbeatPeriod;
+  private final Duration retryPeriod;
+  private final Clock clock;
+
+  private final String ownerName = UUID.randomUUID().toString();
 
   static final String KEY_ACCOUNT_E164 = "P";
 
-  public AccountLockManager(final DynamoDbClient lockDynamoDb, final String lockTableName) {
-    this(new AmazonDynamoDBLockClient(
-        AmazonDynamoDBLockClientOptions.builder(lockDynamoDb, lockTableName)
-            .withPartitionKeyName(KEY_ACCOUNT_E164)
-            .withLeaseDuration(15L)
-            .withHeartbeatPeriod(2L)
-            .withTimeUnit(TimeUnit.SECONDS)
-            .withCreateHeartbeatBackgroundThread(true)
-            .build()));
+  @VisibleForTesting
+  static final String ATTR_OWNER_NAME = "ownerName";
+
+  @VisibleForTesting
+  static final String ATTR_LEASE_DURATION = "leaseDuration";
+
+  @VisibleForTesting
+  static final String ATTR_RECORD_VERSION_NUMBER = "recordVersionNumber";
+
+  private static final String ATTR_IS_RELEASED = "isReleased";
+  private static final String IS_RELEASED_VALUE = "1";
+
+  private static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(15);
+  private static final Duration DEFAULT_HEARTBEAT_PERIOD = Duration.ofSeconds(2);
+  private static final Duration DEFAULT_RETRY_PERIOD = Duration.ofSeconds(1);
+
+  private static final Timer ACQUIRE_LOCK_TIMER = Timer.builder(name(AccountLockManager.class, "acquireLock"))
+      .publishPercentileHistogram(true)
+      .register(Metrics.globalRegistry);
+
+  private static final String LOCK_NOT_ACQUIRED_COUNTER_NAME = name(AccountLockManager.class, "lockNotAcquired");
+  private static final String LOCK_LOST_COUNTER_NAME = name(AccountLockManager.class, "lockLost");
+
+  private static final Logger logger = LoggerFactory.getLogger(AccountLockManager.class);
+
+  public AccountLockManager(final DynamoDbAsyncClient dynamoDbAsyncClient, final String lockTableName) {
+    this(dynamoDbAsyncClient, lockTableName, DEFAULT_LEASE_DURATION, DEFAULT_HEARTBEAT_PERIOD, DEFAULT_RETRY_PERIOD,
+        Clock.systemUTC());
   }
 
   @VisibleForTesting
-  AccountLockManager(final AmazonDynamoDBLockClient lockClient) {
-    this.lockClient = lockClient;
+  AccountLockManager(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String lockTableName,
+      final Duration leaseDuration,
+      final Duration heartbeatPeriod,
+      final Duration retryPeriod,
+      final Clock clock) {
+
+    this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    this.lockTableName = lockTableName;
+    this.leaseDuration = leaseDuration;
+    this.heartbeatPeriod = heartbeatPeriod;
+    this.retryPeriod = retryPeriod;
+    this.clock = clock;
   }
 
   /**
    * Acquires a distributed, pessimistic lock for the accounts identified by the given phone numbers. By design, the
    * accounts need not actually exist in order to acquire a lock; this allows lock acquisition for operations that span
-   * account lifecycle changes (like deleting an account or changing a phone number). The given task runs once locks for
-   * all given phone numbers have been acquired, and the locks are released as soon as the task completes by any means.
+   * account lifecycle changes (like deleting an account or changing a phone number). The given task runs on the
+   * calling thread once locks for all given phone numbers have been acquired, and the locks are released as soon as the
+   * task completes by any means.
    *
    * @param e164s the phone numbers for which to acquire a distributed, pessimistic lock
    * @param task the task to execute once locks have been acquired
-   * @param lockAcquisitionExecutor the executor on which to run blocking lock acquire/release tasks. this executor
-   *                                should not use virtual threads.
    *
-   * @throws InterruptedException if interrupted while acquiring a lock
+   * @throws LockNotAcquiredException if the locks could not be acquired before the lock acquisition deadline
    */
-  public void withLock(final List<String> e164s, final Runnable task, final Executor lockAcquisitionExecutor) {
+  public void withLock(final List<String> e164s, final Runnable task) {
     if (e164s.isEmpty()) {
       throw new IllegalArgumentException("List of e164s to lock must not be empty");
     }
 
-    final List<LockItem> lockItems = new ArrayList<>(e164s.size());
+    final HeldLocks heldLocks;
 
     try {
-      // Offload the acquire/release tasks to the dedicated lock acquisition executor. The lock client performs blocking
-      // operations while holding locks which forces thread pinning when this method runs on a virtual thread.
-      // https://github.com/awslabs/amazon-dynamodb-lock-client/issues/97
-      CompletableFuture.runAsync(() -> {
-        for (final String e164 : e164s) {
-          try {
-            lockItems.add(lockClient.acquireLock(AcquireLockOptions.builder(e164)
-                .withAcquireReleasedLocksConsistently(true)
-                .build()));
-          } catch (final InterruptedException e) {
-            throw new CompletionException(e);
-          }
-        }
-      }, lockAcquisitionExecutor).join();
+      heldLocks = acquireLocks(e164s).join();
+    } catch (final CompletionException e) {
+      if (ExceptionUtils.unwrap(e) instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
 
+      throw e;
+    }
+
+    try {
       task.run();
     } finally {
-      CompletableFuture.runAsync(() -> {
-        for (final LockItem lockItem : lockItems) {
-          lockClient.releaseLock(ReleaseLockOptions.builder(lockItem)
-              .withBestEffort(true)
-              .build());
-        }
-      }, lockAcquisitionExecutor).join();
+      heldLocks.release().join();
     }
   }
 
@@ -93,35 +148,263 @@ public class AccountLockManager {
    *
    * @param e164s the phone numbers for which to acquire a distributed, pessimistic lock
    * @param taskSupplier a supplier for the task to execute once locks have been acquired
-   * @param executor the executor on which to acquire and release locks
    *
    * @return a future that completes normally when the given task has executed successfully and all locks have been
-   * released; the returned future may fail with an {@link InterruptedException} if interrupted while acquiring a lock
+   * released; the returned future may fail with a {@link LockNotAcquiredException} if the locks could not be acquired
+   * before the lock acquisition deadline
    */
   public <T> CompletableFuture<T> withLockAsync(final List<String> e164s,
-      final Supplier<CompletableFuture<T>> taskSupplier,
-      final Executor executor) {
+      final Supplier<CompletableFuture<T>> taskSupplier) {
 
     if (e164s.isEmpty()) {
       throw new IllegalArgumentException("List of e164s to lock must not be empty");
     }
 
-    final List<LockItem> lockItems = new ArrayList<>(e164s.size());
+    return acquireLocks(e164s).thenCompose(heldLocks -> {
+      CompletableFuture<T> taskFuture;
+
+      try {
+        taskFuture = taskSupplier.get();
+      } catch (final RuntimeException e) {
+        taskFuture = CompletableFuture.failedFuture(e);
+      }
+
+      return taskFuture
+          .handle((result, throwable) -> heldLocks.release()
+              .thenCompose(ignored -> throwable == null
+                  ? CompletableFuture.completedFuture(result)
+                  : CompletableFuture.<T>failedFuture(throwable)))
+          .thenCompose(Function.identity());
+    });
+  }
+
+  private CompletableFuture<HeldLocks> acquireLocks(final List<String> e164s) {
+    final Timer.Sample sample = Timer.start();
+    final Instant deadline = clock.instant().plus(leaseDuration.multipliedBy(2));
+
+    return acquireLocks(e164s.stream().distinct().toList(), new HashMap<>(), deadline)
+        .whenComplete((ignored, throwable) -> sample.stop(ACQUIRE_LOCK_TIMER));
+  }
+
+  /**
+   * Attempts to acquire locks for all of the given phone numbers in a single transaction. Each lock item may be written
+   * if it doesn't exist, if it has been marked as released, or if it still has the same record version number we
+   * observed at least one lease duration ago (i.e. its holder has stopped sending heartbeats).
+   */
+  private CompletableFuture<HeldLocks> acquireLocks(final List<String> e164s,
+      final Map<String, ObservedLock> observedLocks,
+      final Instant deadline) {
+
+    final Instant now = clock.instant();
+    final List<HeldLock> heldLocks = new ArrayList<>(e164s.size());
+    final List<TransactWriteItem> writeItems = new ArrayList<>(e164s.size());
+
+    for (final String e164 : e164s) {
+      final HeldLock heldLock = new HeldLock(e164, UUID.randomUUID().toString());
+      heldLocks.add(heldLock);
+
+      final Map<String, String> expressionAttributeNames = new HashMap<>(Map.of(
+          "#pk", KEY_ACCOUNT_E164,
+          "#ir", ATTR_IS_RELEASED));
+
+      final Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(Map.of(
+          ":ir", AttributeValues.fromString(IS_RELEASED_VALUE)));
+
+      String conditionExpression = "attribute_not_exists(#pk) OR #ir = :ir";
+
+      final ObservedLock observedLock = observedLocks.get(e164);
+
+      if (observedLock != null && observedLock.isExpired(now)) {
+        conditionExpression += " OR #rvn = :rvn";
+        expressionAttributeNames.put("#rvn", ATTR_RECORD_VERSION_NUMBER);
+        expressionAttributeValues.put(":rvn", AttributeValues.fromString(observedLock.recordVersionNumber()));
+      }
+
+      writeItems.add(TransactWriteItem.builder()
+          .put(Put.builder()
+              .tableName(lockTableName)
+              .item(buildLockItem(heldLock))
+              .conditionExpression(conditionExpression)
+              .expressionAttributeNames(expressionAttributeNames)
+              .expressionAttributeValues(expressionAttributeValues)
+              .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+              .build())
+          .build());
+    }
+
+    return dynamoDbAsyncClient.transactWriteItems(TransactWriteItemsRequest.builder()
+            .transactItems(writeItems)
+            .build())
+        .thenApply(ignored -> {
+          final HeldLocks locks = new HeldLocks(heldLocks);
+          locks.scheduleHeartbeat();
+
+          return locks;
+        })
+        .exceptionallyCompose(throwable -> {
+          if (!(ExceptionUtils.unwrap(throwable) instanceof TransactionCanceledException transactionCanceledException)) {
+            return CompletableFuture.failedFuture(throwable);
+          }
+
+          final List<CancellationReason> cancellationReasons = transactionCanceledException.cancellationReasons();
+
+          for (int i = 0; i < cancellationReasons.size(); i++) {
+            final CancellationReason reason = cancellationReasons.get(i);
 
-    return CompletableFuture.runAsync(() -> {
-          for (final String e164 : e164s) {
-            try {
-              lockItems.add(lockClient.acquireLock(AcquireLockOptions.builder(e164)
-                  .withAcquireReleasedLocksConsistently(true)
-                  .build()));
-            } catch (final InterruptedException e) {
-              throw new CompletionException(e);
+            if ("ConditionalCheckFailed".equals(reason.code()) && reason.hasItem()) {
+              final String e164 = e164s.get(i);
+              final String recordVersionNumber =
+                  AttributeValues.getString(reason.item(), ATTR_RECORD_VERSION_NUMBER, null);
+
+              final ObservedLock previouslyObservedLock = observedLocks.get(e164);
+
+              // Only (re)start the lease clock if the holder has changed the lock since we last looked at it
+              if (previouslyObservedLock == null
+                  || !previouslyObservedLock.recordVersionNumber().equals(recordVersionNumber)) {
+
+                observedLocks.put(e164, new ObservedLock(recordVersionNumber, now, getLeaseDuration(reason.item())));
+              }
             }
           }
-        }, executor)
-        .thenCompose(ignored -> taskSupplier.get())
-        .whenCompleteAsync((ignored, throwable) -> lockItems.forEach(lockItem -> lockClient.releaseLock(ReleaseLockOptions.builder(lockItem)
-            .withBestEffort(true)
-            .build())), executor);
+
+          if (!clock.instant().isBefore(deadline)) {
+            Metrics.counter(LOCK_NOT_ACQUIRED_COUNTER_NAME).increment();
+            return CompletableFuture.failedFuture(new LockNotAcquiredException());
+          }
+
+          return CompletableFuture.supplyAsync(() -> null,
+                  CompletableFuture.delayedExecutor(retryPeriod.toMillis(), TimeUnit.MILLISECONDS))
+              .thenCompose(ignored -> acquireLocks(e164s, observedLocks, deadline));
+        });
+  }
+
+  private Map<String, AttributeValue> buildLockItem(final HeldLock heldLock) {
+    return Map.of(
+        KEY_ACCOUNT_E164, AttributeValues.fromString(heldLock.e164),
+        ATTR_OWNER_NAME, AttributeValues.fromString(ownerName),
+        ATTR_LEASE_DURATION, AttributeValues.fromString(String.valueOf(leaseDuration.toMillis())),
+        ATTR_RECORD_VERSION_NUMBER, AttributeValues.fromString(heldLock.recordVersionNumber));
+  }
+
+  private Duration getLeaseDuration(final Map<String, AttributeValue> item) {
+    try {
+      return Duration.ofMillis(Long.parseLong(AttributeValues.getString(item, ATTR_LEASE_DURATION, "")));
+    } catch (final NumberFormatException e) {
+      return leaseDuration;
+    }
+  }
+
+  private record ObservedLock(String recordVersionNumber, Instant observedAt, Duration leaseDuration) {
+
+    boolean isExpired(final Instant now) {
+      return !now.isBefore(observedAt.plus(leaseDuration));
+    }
+  }
+
+  private static class HeldLock {
+
+    private final String e164;
+    private String recordVersionNumber;
+
+    private HeldLock(final String e164, final String recordVersionNumber) {
+      this.e164 = e164;
+      this.recordVersionNumber = recordVersionNumber;
+    }
+  }
+
+  /**
+   * A set of locks acquired together. Heartbeats and the eventual release are chained so that no two operations on the
+   * same set of locks are ever in flight at once; this guarantees that the release always uses the most recent record
+   * version number.
+   */
+  private class HeldLocks {
+
+    private final List<HeldLock> locks;
+
+    private boolean released = false;
+    private CompletableFuture<Void> lastOperation = CompletableFuture.completedFuture(null);
+
+    private HeldLocks(final List<HeldLock> locks) {
+      this.locks = locks;
+    }
+
+    private void scheduleHeartbeat() {
+      CompletableFuture.delayedExecutor(heartbeatPeriod.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+        synchronized (this) {
+          if (released) {
+            return;
+          }
+
+          lastOperation = lastOperation
+              .thenCompose(ignored -> CompletableFuture.allOf(locks.stream()
+                  .map(this::sendHeartbeat)
+                  .toArray(CompletableFuture[]::new)))
+              .whenComplete((ignored, throwable) -> scheduleHeartbeat());
+        }
+      });
+    }
+
+    private CompletableFuture<Void> sendHeartbeat(final HeldLock lock) {
+      final String newRecordVersionNumber = UUID.randomUUID().toString();
+
+      return dynamoDbAsyncClient.updateItem(UpdateItemRequest.builder()
+              .tableName(lockTableName)
+              .key(Map.of(KEY_ACCOUNT_E164, AttributeValues.fromString(lock.e164)))
+              .updateExpression("SET #rvn = :newRvn, #ld = :ld")
+              .conditionExpression("#rvn = :rvn AND #on = :on")
+              .expressionAttributeNames(Map.of(
+                  "#rvn", ATTR_RECORD_VERSION_NUMBER,
+                  "#ld", ATTR_LEASE_DURATION,
+                  "#on", ATTR_OWNER_NAME))
+              .expressionAttributeValues(Map.of(
+                  ":newRvn", AttributeValues.fromString(newRecordVersionNumber),
+                  ":rvn", AttributeValues.fromString(lock.recordVersionNumber),
+                  ":ld", AttributeValues.fromString(String.valueOf(leaseDuration.toMillis())),
+                  ":on", AttributeValues.fromString(ownerName)))
+              .build())
+          .thenRun(() -> lock.recordVersionNumber = newRecordVersionNumber)
+          .exceptionally(throwable -> {
+            if (ExceptionUtils.unwrap(throwable) instanceof ConditionalCheckFailedException) {
+              Metrics.counter(LOCK_LOST_COUNTER_NAME).increment();
+              logger.warn("Lost lock while still holding it; another process may have taken over an expired lease");
+            } else {
+              // We'll try again on the next heartbeat, which should still be well within the lease duration
+              logger.warn("Failed to send lock heartbeat", throwable);
+            }
+
+            return null;
+          });
+    }
+
+    /**
+     * Releases all locks in this set on a best-effort basis. The returned future never fails; any locks that could not
+     * be released will expire once their leases run out.
+     */
+    private synchronized CompletableFuture<Void> release() {
+      released = true;
+
+      lastOperation = lastOperation
+          .exceptionally(ignored -> null)
+          .thenCompose(ignored -> CompletableFuture.allOf(locks.stream()
+              .map(lock -> dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
+                      .tableName(lockTableName)
+                      .key(Map.of(KEY_ACCOUNT_E164, AttributeValues.fromString(lock.e164)))
+                      .conditionExpression("#rvn = :rvn")
+                      .expressionAttributeNames(Map.of("#rvn", ATTR_RECORD_VERSION_NUMBER))
+                      .expressionAttributeValues(Map.of(":rvn", AttributeValues.fromString(lock.recordVersionNumber)))
+                      .build())
+                  .handle((response, throwable) -> {
+                    if (throwable != null
+                        && !(ExceptionUtils.unwrap(throwable) instanceof ConditionalCheckFailedException)) {
+
+                      logger.warn("Failed to release lock", throwable);
+                    }
+
+                    return null;
+                  }))
+              .toArray(CompletableFuture[]::new)));
+
+      return lastOperation;
+    }
   }
 }
@@ -59,6 +59,7 @@ import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
@@ -1254,6 +1255,52 @@ public class Accounts extends AbstractDynamoDbStore {
         .sequential();
   }
 
+  /**
+   * A single page of results from a scan of one segment of the accounts table.
+   *
+   * @param accounts the accounts in this page
+   * @param lastEvaluatedAccountIdentifier the identifier of the last account evaluated in this page, from which a later
+   *                                       scan may resume; empty if this is the last page in the segment
+   * @param consumedCapacityUnits the read capacity consumed to fetch this page
+   */
+  public record ScanPage(List<Account> accounts, Optional<UUID> lastEvaluatedAccountIdentifier,
+                         double consumedCapacityUnits) {
+  }
+
+  /**
+   * Scans a single segment of the accounts table page by page, optionally resuming from a previous scan.
+   *
+   * @param segment the segment to scan
+   * @param totalSegments the total number of segments into which the table is divided
+   * @param exclusiveStartAccountIdentifier the last account evaluated by a previous scan of the same segment, or
+   *                                        {@code null} to start from the beginning of the segment
+   *
+   * @return a publisher of pages of accounts in the given segment
+   */
+  Flux<ScanPage> getAllFromSegment(final int segment, final int totalSegments,
+      @Nullable final UUID exclusiveStartAccountIdentifier) {
+
+    final ScanRequest.Builder scanRequestBuilder = ScanRequest.builder()
+        .tableName(accountsTableName)
+        .consistentRead(true)
+        .segment(segment)
+        .totalSegments(totalSegments)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+    if (exclusiveStartAccountIdentifier != null) {
+      scanRequestBuilder.exclusiveStartKey(
+          Map.of(KEY_ACCOUNT_UUID, AttributeValues.fromUUID(exclusiveStartAccountIdentifier)));
+    }
+
+    return Flux.from(asyncClient.scanPaginator(scanRequestBuilder.build()))
+        .map(response -> new ScanPage(
+            response.items().stream().map(Accounts::fromItem).toList(),
+            response.hasLastEvaluatedKey() && response.lastEvaluatedKey().containsKey(KEY_ACCOUNT_UUID)
+                ? Optional.of(UUIDUtil.fromByteBuffer(response.lastEvaluatedKey().get(KEY_ACCOUNT_UUID).b().asByteBuffer()))
+                : Optional.empty(),
+            response.consumedCapacity() != null ? response.consumedCapacity().capacityUnits() : 0));
+  }
+
   @Nonnull
   private Optional<Account> getByIndirectLookup(
       final Timer timer,
@@ -117,7 +117,6 @@ public class AccountsManager {
   private final ClientPresenceManager clientPresenceManager;
   private final RegistrationRecoveryPasswordsManager registrationRecoveryPasswordsManager;
   private final ClientPublicKeysManager clientPublicKeysManager;
-  private final Executor accountLockExecutor;
   private final Executor clientPresenceExecutor;
   private final Clock clock;
   private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
@@ -167,7 +166,6 @@ public class AccountsManager {
       final ClientPresenceManager clientPresenceManager,
       final RegistrationRecoveryPasswordsManager registrationRecoveryPasswordsManager,
       final ClientPublicKeysManager clientPublicKeysManager,
-      final Executor accountLockExecutor,
       final Executor clientPresenceExecutor,
       final Clock clock,
       final byte[] linkDeviceSecret,
@@ -184,7 +182,6 @@ public class AccountsManager {
     this.clientPresenceManager = clientPresenceManager;
     this.registrationRecoveryPasswordsManager = requireNonNull(registrationRecoveryPasswordsManager);
     this.clientPublicKeysManager = clientPublicKeysManager;
-    this.accountLockExecutor = accountLockExecutor;
     this.clientPresenceExecutor = clientPresenceExecutor;
     this.clock = requireNonNull(clock);
     this.dynamicConfigurationManager = dynamicConfigurationManager;
@@ -297,7 +294,7 @@ public class AccountsManager {
 
         accountAttributes.recoveryPassword().ifPresent(registrationRecoveryPassword ->
             registrationRecoveryPasswordsManager.storeForCurrentNumber(account.getNumber(), registrationRecoveryPassword));
-      }, accountLockExecutor);
+      });
 
       return account;
     });
@@ -305,8 +302,7 @@ public class AccountsManager {
 
   public CompletableFuture<Pair<Account, Device>> addDevice(final Account account, final DeviceSpec deviceSpec, final String linkDeviceToken) {
     return accountLockManager.withLockAsync(List.of(account.getNumber()),
-        () -> addDevice(account.getIdentifier(IdentityType.ACI), deviceSpec, linkDeviceToken, MAX_UPDATE_ATTEMPTS),
-        accountLockExecutor);
+        () -> addDevice(account.getIdentifier(IdentityType.ACI), deviceSpec, linkDeviceToken, MAX_UPDATE_ATTEMPTS));
   }
 
   private CompletableFuture<Pair<Account, Device>> addDevice(final UUID accountIdentifier, final DeviceSpec deviceSpec, final String linkDeviceToken, final int retries) {
@@ -468,8 +464,7 @@ public class AccountsManager {
     }
 
     return accountLockManager.withLockAsync(List.of(account.getNumber()),
-        () -> removeDevice(account.getIdentifier(IdentityType.ACI), deviceId, MAX_UPDATE_ATTEMPTS),
-        accountLockExecutor);
+        () -> removeDevice(account.getIdentifier(IdentityType.ACI), deviceId, MAX_UPDATE_ATTEMPTS));
   }
 
   private CompletableFuture<Account> removeDevice(final UUID accountIdentifier, final byte deviceId, final int retries) {
@@ -581,7 +576,7 @@ public class AccountsManager {
           AccountChangeValidator.NUMBER_CHANGE_VALIDATOR);
 
       updatedAccount.set(numberChangedAccount);
-    }, accountLockExecutor);
+    });
 
     return updatedAccount.get();
   }
@@ -1104,10 +1099,16 @@ public class AccountsManager {
     return accounts.getAll(segments, scheduler);
   }
 
+  public Flux<Accounts.ScanPage> streamSegmentFromDynamo(final int segment, final int totalSegments,
+      @Nullable final UUID exclusiveStartAccountIdentifier) {
+
+    return accounts.getAllFromSegment(segment, totalSegments, exclusiveStartAccountIdentifier);
+  }
+
   public CompletableFuture<Void> delete(final Account account, final DeletionReason deletionReason) {
     final Timer.Sample sample = Timer.start();
 
-    return accountLockManager.withLockAsync(List.of(account.getNumber()), () -> delete(account), accountLockExecutor)
+    return accountLockManager.withLockAsync(List.of(account.getNumber()), () -> delete(account))
         .whenComplete((ignored, throwable) -> {
           sample.stop(deleteTimer);
 
@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import org.signal.libsignal.protocol.ecc.ECPublicKey;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
@@ -18,15 +17,12 @@ public class ClientPublicKeysManager {
   private final ClientPublicKeys clientPublicKeys;
 
   private final AccountLockManager accountLockManager;
-  private final Executor accountLockExecutor;
 
   public ClientPublicKeysManager(final ClientPublicKeys clientPublicKeys,
-      final AccountLockManager accountLockManager,
-      final Executor accountLockExecutor) {
+      final AccountLockManager accountLockManager) {
 
     this.clientPublicKeys = clientPublicKeys;
     this.accountLockManager = accountLockManager;
-    this.accountLockExecutor = accountLockExecutor;
   }
 
   /**
@@ -42,8 +38,7 @@ public class ClientPublicKeysManager {
    */
   public CompletableFuture<Void> setPublicKey(final Account account, final byte deviceId, final ECPublicKey publicKey) {
     return accountLockManager.withLockAsync(List.of(account.getNumber()),
-        () -> clientPublicKeys.setPublicKey(account.getIdentifier(IdentityType.ACI), deviceId, publicKey),
-        accountLockExecutor);
+        () -> clientPublicKeys.setPublicKey(account.getIdentifier(IdentityType.ACI), deviceId, publicKey));
   }
 
   /**
@@ -11,12 +11,15 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
@@ -32,6 +35,15 @@ import software.amazon.awssdk.services.appconfigdata.model.GetLatestConfiguratio
 import software.amazon.awssdk.services.appconfigdata.model.StartConfigurationSessionRequest;
 import software.amazon.awssdk.services.appconfigdata.model.StartConfigurationSessionResponse;
 
+/**
+ * A dynamic configuration manager periodically polls AWS AppConfig for new versions of a configuration object. Each
+ * version is parsed into a new snapshot that replaces the previous snapshot wholesale; callers should treat snapshots as
+ * immutable. Components that derive expensive state from the configuration can register a listener via
+ * {@link #addConfigurationListener(Consumer)} or wrap the manager in a {@link DynamicConfigurationView} so that derived
+ * state is rebuilt only when a new version arrives.
+ *
+ * @param <T> the type of configuration object managed by this manager
+ */
 public class DynamicConfigurationManager<T> {
 
   private final String application;
@@ -43,6 +55,7 @@ public class DynamicConfigurationManager<T> {
   // Set on initial config fetch
   private final AtomicReference<T> configuration = new AtomicReference<>();
   private final CountDownLatch initialized = new CountDownLatch(1);
+  private final List<Consumer<T>> configurationListeners = new CopyOnWriteArrayList<>();
   private final ScheduledExecutorService scheduledExecutorService;
   private String configurationToken = null;
 
@@ -79,6 +92,13 @@ public class DynamicConfigurationManager<T> {
   }
 
   public T getConfiguration() {
+    // Once the initial configuration has been loaded, the current snapshot is never null and we can skip the latch
+    final T currentConfiguration = configuration.get();
+
+    if (currentConfiguration != null) {
+      return currentConfiguration;
+    }
+
     try {
       initialized.await();
     } catch (InterruptedException e) {
@@ -88,22 +108,51 @@ public class DynamicConfigurationManager<T> {
     return configuration.get();
   }
 
+  /**
+   * Registers a listener to be notified whenever a new configuration snapshot is loaded. If a configuration has already
+   * been loaded, the listener is notified immediately with the current snapshot. Listeners are otherwise called from
+   * the thread that polls for configuration updates, and so should not block.
+   *
+   * @param listener the listener to notify when a new configuration snapshot is available
+   */
+  public void addConfigurationListener(final Consumer<T> listener) {
+    configurationListeners.add(listener);
+
+    final T currentConfiguration = configuration.get();
+
+    if (currentConfiguration != null) {
+      listener.accept(currentConfiguration);
+    }
+  }
+
   public void start() {
     if (initialized.getCount() == 0) {
       return;
     }
-    configuration.set(retrieveInitialDynamicConfiguration());
+    setConfiguration(retrieveInitialDynamicConfiguration());
     initialized.countDown();
 
     scheduledExecutorService.scheduleWithFixedDelay(() -> {
       try {
-        retrieveDynamicConfiguration().ifPresent(configuration::set);
+        retrieveDynamicConfiguration().ifPresent(this::setConfiguration);
       } catch (Exception e) {
         logger.warn("Error retrieving dynamic configuration", e);
       }
     }, 0, 5, TimeUnit.SECONDS);
   }
 
+  private void setConfiguration(final T newConfiguration) {
+    configuration.set(newConfiguration);
+
+    for (final Consumer<T> listener : configurationListeners) {
+      try {
+        listener.accept(newConfiguration);
+      } catch (final Exception e) {
+        logger.warn("Configuration listener failed to process new configuration", e);
+      }
+    }
+  }
+
   private Optional<T> retrieveDynamicConfiguration() throws JsonProcessingException {
     if (configurationToken == null) {
         logger.error("Invalid configuration token, will not be able to fetch configuration updates");
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A dynamic configuration view is a value derived from the current dynamic configuration snapshot (e.g. a pre-indexed
+ * lookup table). The derived value is computed when first requested and recomputed only when the
+ * {@link DynamicConfigurationManager} presents a new configuration snapshot, so callers on hot paths can call
+ * {@link #get()} freely.
+ * <p>
+ * Because views detect new snapshots by identity, view functions must not depend on state that changes within a
+ * single snapshot.
+ *
+ * @param <T> the type of configuration object from which values are derived
+ * @param <V> the type of derived value
+ */
+public class DynamicConfigurationView<T, V> implements Supplier<V> {
+
+  private final DynamicConfigurationManager<T> dynamicConfigurationManager;
+  private final Function<T, V> viewFunction;
+
+  private final AtomicReference<DerivedValue<T, V>> derivedValue = new AtomicReference<>();
+
+  private record DerivedValue<T, V>(T configuration, V value) {
+  }
+
+  public DynamicConfigurationView(final DynamicConfigurationManager<T> dynamicConfigurationManager,
+      final Function<T, V> viewFunction) {
+
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
+    this.viewFunction = viewFunction;
+  }
+
+  @Override
+  public V get() {
+    final T configuration = dynamicConfigurationManager.getConfiguration();
+    final DerivedValue<T, V> currentDerivedValue = derivedValue.get();
+
+    if (currentDerivedValue != null && currentDerivedValue.configuration() == configuration) {
+      return currentDerivedValue.value();
+    }
+
+    // Two threads may race to derive a value for a new snapshot; that's fine, since both will derive equivalent values
+    final V value = viewFunction.apply(configuration);
+    derivedValue.set(new DerivedValue<>(configuration, value));
+
+    return value;
+  }
+}
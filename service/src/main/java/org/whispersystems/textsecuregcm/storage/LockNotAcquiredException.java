@@ -0,0 +1,13 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+/**
+ * Indicates that a distributed lock could not be acquired before the lock acquisition deadline.
+ */
+public class LockNotAcquiredException extends RuntimeException {
+
+}
@@ -11,13 +11,22 @@ import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
@@ -52,6 +61,32 @@ public class MessagePersister implements Managed {
       .distributionStatisticExpiry(Duration.ofMinutes(10))
       .register(Metrics.globalRegistry);
 
+  private final Counter stolenSlotCounter = Metrics.counter(name(MessagePersister.class, "stolenSlot"));
+
+  // Gauges of the age of the oldest unpersisted queue in each range of slots, as of the last time this persister
+  // scanned the range. Ranges are leased to whichever worker gets to them first, so a gauge is removed if this
+  // persister loses its lease on the range mid-scan or hasn't scanned the range recently; otherwise, gauges for ranges
+  // now scanned by other nodes would report stale values indefinitely.
+  private final Map<Integer, OldestUnpersistedQueueAgeGauge> oldestUnpersistedQueueAgeGaugesBySlotRange =
+      new ConcurrentHashMap<>();
+
+  private static class OldestUnpersistedQueueAgeGauge {
+
+    private final Gauge gauge;
+    private final AtomicLong ageMillis = new AtomicLong();
+    private volatile Instant lastUpdated;
+
+    private OldestUnpersistedQueueAgeGauge(final int slotRange, final Instant currentTime) {
+      lastUpdated = currentTime;
+      gauge = Gauge.builder(OLDEST_UNPERSISTED_QUEUE_AGE_GAUGE_NAME, ageMillis, AtomicLong::get)
+          .tags(Tags.of("slotRange", String.valueOf(slotRange)))
+          .register(Metrics.globalRegistry);
+    }
+  }
+
+  private static final String OLDEST_UNPERSISTED_QUEUE_AGE_GAUGE_NAME =
+      name(MessagePersister.class, "oldestUnpersistedQueueAge");
+
   static final int QUEUE_BATCH_LIMIT = 100;
   static final int MESSAGE_BATCH_LIMIT = 100;
 
@@ -59,6 +94,12 @@ public class MessagePersister implements Managed {
 
   private static final int CONSECUTIVE_EMPTY_CACHE_REMOVAL_LIMIT = 3;
 
+  // Leases only govern which worker scans a range for busy slots, so they can be short; a worker that outlives its
+  // lease may finish persisting the slots it has already claimed
+  private static final Duration SLOT_RANGE_LEASE_DURATION = Duration.ofSeconds(30);
+
+  private static final Duration OLDEST_UNPERSISTED_QUEUE_AGE_GAUGE_EXPIRATION = Duration.ofMinutes(1);
+
   private static final Logger logger = LoggerFactory.getLogger(MessagePersister.class);
 
   public MessagePersister(final MessagesCache messagesCache, final MessagesManager messagesManager,
@@ -75,11 +116,15 @@ public class MessagePersister implements Managed {
 
     for (int i = 0; i < workerThreads.length; i++) {
       workerThreads[i] = new Thread(() -> {
+        // Workers walk the slot ranges independently, starting at random positions so they don't all contend for the
+        // same ranges; whichever worker leases a range first scans it
+        int nextSlotRange = ThreadLocalRandom.current().nextInt(MessagesCache.PERSIST_SLOT_RANGE_COUNT);
+
         while (running) {
           if (dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration()
               .isPersistenceEnabled()) {
             try {
-              final int queuesPersisted = persistNextQueues(Instant.now());
+              final int queuesPersisted = persistNextQueues(Instant.now(), nextSlotRange);
               queueCountDistributionSummery.record(queuesPersisted);
 
               if (queuesPersisted == 0) {
@@ -89,6 +134,8 @@ public class MessagePersister implements Managed {
               logger.warn("Failed to persist queues", t);
               Util.sleep(EXCEPTION_PAUSE_MILLIS);
             }
+
+            nextSlotRange = (nextSlotRange + 1) % MessagesCache.PERSIST_SLOT_RANGE_COUNT;
           } else {
             Util.sleep(1000);
           }
@@ -122,18 +169,116 @@ public class MessagePersister implements Managed {
         logger.warn("Interrupted while waiting for worker thread to complete current operation");
       }
     }
+
+    oldestUnpersistedQueueAgeGaugesBySlotRange.keySet().forEach(this::removeOldestUnpersistedQueueAgeGauge);
   }
 
+  /**
+   * Attempts to lease the given range of slots and persists queues from any slots in that range with queues older than
+   * the persistence delay, oldest first. Busy slots are offered to all workers before this worker begins persisting
+   * them, so idle workers (i.e. those that couldn't lease a range or found nothing to do in their own range) may steal
+   * slots from a range with a large backlog.
+   *
+   * @param currentTime the current time
+   * @param slotRange the index of the range of slots to lease
+   *
+   * @return the number of queues persisted
+   */
   @VisibleForTesting
-  int persistNextQueues(final Instant currentTime) {
-    final int slot = messagesCache.getNextSlotToPersist();
+  int persistNextQueues(final Instant currentTime, final int slotRange) {
+    final Instant maxTime = currentTime.minus(persistDelay);
+    final String leaseHolder = UUID.randomUUID().toString();
+
+    int queuesPersisted = 0;
+
+    removeExpiredOldestUnpersistedQueueAgeGauges(currentTime);
+
+    if (messagesCache.leaseSlotRangeToPersist(slotRange, leaseHolder, SLOT_RANGE_LEASE_DURATION)) {
+      try {
+        final Map<Integer, Instant> oldestQueueTimestampsBySlot = messagesCache.getOldestQueueTimestamps(slotRange);
+
+        recordOldestUnpersistedQueueAge(slotRange, currentTime, oldestQueueTimestampsBySlot.values().stream()
+            .min(Comparator.naturalOrder())
+            .map(oldestQueueTimestamp -> Duration.between(oldestQueueTimestamp, currentTime))
+            .orElse(Duration.ZERO));
+
+        final Map<Integer, Instant> busySlots = oldestQueueTimestampsBySlot.entrySet().stream()
+            .filter(entry -> !entry.getValue().isAfter(maxTime))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        messagesCache.offerBusySlotsToPersist(busySlots);
+
+        final List<Integer> busySlotsOldestFirst = busySlots.entrySet().stream()
+            .sorted(Map.Entry.comparingByValue())
+            .map(Map.Entry::getKey)
+            .toList();
+
+        for (final int slot : busySlotsOldestFirst) {
+          // Another worker may have stolen this slot in the meantime
+          if (messagesCache.claimBusySlotToPersist(slot)) {
+            queuesPersisted += persistQueues(slot, maxTime);
+          }
+        }
+      } finally {
+        if (!messagesCache.releaseSlotRangeLease(slotRange, leaseHolder)) {
+          // Our lease expired while we were working, and another worker may have scanned the range since
+          removeOldestUnpersistedQueueAgeGauge(slotRange);
+        }
+      }
+    }
+
+    if (queuesPersisted == 0) {
+      final Optional<Integer> maybeStolenSlot = messagesCache.claimOldestBusySlotToPersist();
+
+      if (maybeStolenSlot.isPresent()) {
+        stolenSlotCounter.increment();
+        queuesPersisted += persistQueues(maybeStolenSlot.get(), maxTime);
+      }
+    }
+
+    return queuesPersisted;
+  }
+
+  private void recordOldestUnpersistedQueueAge(final int slotRange, final Instant currentTime, final Duration age) {
+    final OldestUnpersistedQueueAgeGauge oldestUnpersistedQueueAgeGauge =
+        oldestUnpersistedQueueAgeGaugesBySlotRange.computeIfAbsent(slotRange,
+            ignored -> new OldestUnpersistedQueueAgeGauge(slotRange, currentTime));
+
+    oldestUnpersistedQueueAgeGauge.ageMillis.set(age.toMillis());
+    oldestUnpersistedQueueAgeGauge.lastUpdated = currentTime;
+  }
+
+  private void removeExpiredOldestUnpersistedQueueAgeGauges(final Instant currentTime) {
+    final Instant expiration = currentTime.minus(OLDEST_UNPERSISTED_QUEUE_AGE_GAUGE_EXPIRATION);
+
+    oldestUnpersistedQueueAgeGaugesBySlotRange.forEach((slotRange, oldestUnpersistedQueueAgeGauge) -> {
+      if (oldestUnpersistedQueueAgeGauge.lastUpdated.isBefore(expiration)) {
+        removeOldestUnpersistedQueueAgeGauge(slotRange);
+      }
+    });
+  }
+
+  private void removeOldestUnpersistedQueueAgeGauge(final int slotRange) {
+    final OldestUnpersistedQueueAgeGauge oldestUnpersistedQueueAgeGauge =
+        oldestUnpersistedQueueAgeGaugesBySlotRange.remove(slotRange);
+
+    if (oldestUnpersistedQueueAgeGauge != null) {
+      Metrics.globalRegistry.remove(oldestUnpersistedQueueAgeGauge.gauge);
+    }
+  }
+
+  @VisibleForTesting
+  Set<Integer> getSlotRangesWithOldestUnpersistedQueueAgeGauges() {
+    return oldestUnpersistedQueueAgeGaugesBySlotRange.keySet();
+  }
 
+  private int persistQueues(final int slot, final Instant maxTime) {
     List<String> queuesToPersist;
     int queuesPersisted = 0;
 
     do {
       queuesToPersist = getQueuesTimer.record(
-          () -> messagesCache.getQueuesToPersist(slot, currentTime.minus(persistDelay), QUEUE_BATCH_LIMIT));
+          () -> messagesCache.getQueuesToPersist(slot, maxTime, QUEUE_BATCH_LIMIT));
 
       for (final String queue : queuesToPersist) {
         final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queue);
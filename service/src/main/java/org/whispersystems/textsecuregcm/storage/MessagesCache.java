@@ -11,6 +11,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.lifecycle.Managed;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.SetArgs;
 import io.lettuce.core.ZAddArgs;
 import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
@@ -26,6 +28,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -93,6 +96,12 @@ import reactor.core.scheduler.Schedulers;
  *   <dt>{@code queueTotalIndexKey}</dt>
  *   <dd>A sorted set of all queues in a shard. A queue’s score is the timestamp of its oldest message, which is used by
  *   the {@link MessagePersister} to prioritize queues to persist.</dd>
+ *   <dt>{@code slotRangeLeaseKey}</dt>
+ *   <dd>Indicates that a {@link MessagePersister} worker is scanning a range of slots for queues to persist.</dd>
+ *   <dt>{@code busySlotsKey}</dt>
+ *   <dd>A sorted set, one per range of slots, of slots in that range that have queues ready to persist, scored by the
+ *   timestamp of the oldest queue in each slot. Slots are added by the worker that holds the lease on the range, and
+ *   may be claimed by any worker.</dd>
  * </dl>
  * <p>
  * At a high level, the process is:
@@ -138,6 +147,7 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
   private final MessagesCacheRemoveQueueScript removeQueueScript;
   private final MessagesCacheGetQueuesToPersistScript getQueuesToPersistScript;
   private final MessagesCacheRemoveRecipientViewFromMrmDataScript removeRecipientViewFromMrmDataScript;
+  private final MessagesCacheReleaseSlotRangeLeaseScript releaseSlotRangeLeaseScript;
 
   private final ReentrantLock messageListenersLock = new ReentrantLock();
   private final Map<String, MessageAvailabilityListener> messageListenersByQueueName = new HashMap<>();
@@ -165,7 +175,10 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
   private final Counter sharedMrmDataKeyRemovedCounter = Metrics.counter(
       name(MessagesCache.class, "sharedMrmKeyRemoved"));
 
-  static final String NEXT_SLOT_TO_PERSIST_KEY = "user_queue_persist_slot";
+
+  // Persister workers lease contiguous ranges of this many slots at a time
+  static final int PERSIST_SLOT_RANGE_SIZE = 256;
+  static final int PERSIST_SLOT_RANGE_COUNT = SlotHash.SLOT_COUNT / PERSIST_SLOT_RANGE_SIZE;
   private static final byte[] LOCK_VALUE = "1".getBytes(StandardCharsets.UTF_8);
 
   private static final String QUEUE_KEYSPACE_PREFIX = "__keyspace@0__:user_queue::";
@@ -200,7 +213,8 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         new MessagesCacheRemoveByGuidScript(redisCluster),
         new MessagesCacheRemoveQueueScript(redisCluster),
         new MessagesCacheGetQueuesToPersistScript(redisCluster),
-        new MessagesCacheRemoveRecipientViewFromMrmDataScript(redisCluster)
+        new MessagesCacheRemoveRecipientViewFromMrmDataScript(redisCluster),
+        new MessagesCacheReleaseSlotRangeLeaseScript(redisCluster)
     );
   }
 
@@ -213,7 +227,8 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
       final MessagesCacheGetItemsScript getItemsScript, final MessagesCacheRemoveByGuidScript removeByGuidScript,
       final MessagesCacheRemoveQueueScript removeQueueScript,
       final MessagesCacheGetQueuesToPersistScript getQueuesToPersistScript,
-      final MessagesCacheRemoveRecipientViewFromMrmDataScript removeRecipientViewFromMrmDataScript)
+      final MessagesCacheRemoveRecipientViewFromMrmDataScript removeRecipientViewFromMrmDataScript,
+      final MessagesCacheReleaseSlotRangeLeaseScript releaseSlotRangeLeaseScript)
       throws IOException {
 
     this.redisCluster = redisCluster;
@@ -234,6 +249,7 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
     this.removeQueueScript = removeQueueScript;
     this.getQueuesToPersistScript = getQueuesToPersistScript;
     this.removeRecipientViewFromMrmDataScript = removeRecipientViewFromMrmDataScript;
+    this.releaseSlotRangeLeaseScript = releaseSlotRangeLeaseScript;
   }
 
   @Override
@@ -607,9 +623,134 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         .thenRun(() -> sample.stop(clearQueueTimer));
   }
 
-  int getNextSlotToPersist() {
-    return (int) (redisCluster.withCluster(connection -> connection.sync().incr(NEXT_SLOT_TO_PERSIST_KEY))
-        % SlotHash.SLOT_COUNT);
+  /**
+   * Attempts to lease the given range of slots.
+   *
+   * @param slotRange the index of the range of slots to lease
+   * @param leaseHolder an identifier for the worker acquiring the lease
+   * @param leaseDuration the time after which the lease expires if not released
+   *
+   * @return {@code true} if the caller now holds the lease or {@code false} if the range is already leased by another
+   * worker
+   */
+  boolean leaseSlotRangeToPersist(final int slotRange, final String leaseHolder, final Duration leaseDuration) {
+    return redisCluster.withCluster(connection -> "OK".equals(connection.sync()
+        .set(getSlotRangeLeaseKey(slotRange), leaseHolder, SetArgs.Builder.nx().px(leaseDuration))));
+  }
+
+  /**
+   * Releases a lease acquired via {@link #leaseSlotRangeToPersist(int, String, Duration)}.
+   *
+   * @return {@code true} if the lease was still held by the given holder when released or {@code false} if it had
+   * already expired
+   */
+  boolean releaseSlotRangeLease(final int slotRange, final String leaseHolder) {
+    return releaseSlotRangeLeaseScript.execute(slotRange, leaseHolder);
+  }
+
+  /**
+   * Returns the timestamp of the oldest queue in each non-empty slot in the given range of slots.
+   *
+   * @param slotRange the index of the range of slots to examine
+   *
+   * @return a map of slots to the timestamps of their oldest queues; empty slots are omitted
+   */
+  Map<Integer, Instant> getOldestQueueTimestamps(final int slotRange) {
+    final int firstSlot = slotRange * PERSIST_SLOT_RANGE_SIZE;
+
+    return redisCluster.withBinaryCluster(connection -> {
+      // Issue all commands before waiting for any of them to complete so they can be pipelined
+      final List<CompletableFuture<List<ScoredValue<byte[]>>>> oldestQueueFutures =
+          new ArrayList<>(PERSIST_SLOT_RANGE_SIZE);
+
+      for (int slot = firstSlot; slot < firstSlot + PERSIST_SLOT_RANGE_SIZE; slot++) {
+        oldestQueueFutures.add(connection.async().zrangeWithScores(getQueueIndexKey(slot), 0, 0).toCompletableFuture());
+      }
+
+      final Map<Integer, Instant> oldestQueueTimestamps = new HashMap<>();
+
+      for (int i = 0; i < oldestQueueFutures.size(); i++) {
+        final List<ScoredValue<byte[]>> oldestQueue = oldestQueueFutures.get(i).join();
+
+        if (!oldestQueue.isEmpty()) {
+          oldestQueueTimestamps.put(firstSlot + i, Instant.ofEpochMilli((long) oldestQueue.getFirst().getScore()));
+        }
+      }
+
+      return oldestQueueTimestamps;
+    });
+  }
+
+  /**
+   * Makes the given slots available to be claimed by any persister worker.
+   *
+   * @param oldestQueueTimestampsBySlot a map of slots to the timestamps of their oldest queues
+   */
+  void offerBusySlotsToPersist(final Map<Integer, Instant> oldestQueueTimestampsBySlot) {
+    if (oldestQueueTimestampsBySlot.isEmpty()) {
+      return;
+    }
+
+    final Map<Integer, List<ScoredValue<String>>> busySlotsBySlotRange = new HashMap<>();
+
+    oldestQueueTimestampsBySlot.forEach((slot, oldestQueueTimestamp) ->
+        busySlotsBySlotRange.computeIfAbsent(getSlotRange(slot), ignored -> new ArrayList<>())
+            .add(ScoredValue.just(oldestQueueTimestamp.toEpochMilli(), String.valueOf(slot))));
+
+    redisCluster.useCluster(connection -> busySlotsBySlotRange.forEach((slotRange, busySlots) -> {
+      @SuppressWarnings("unchecked") final ScoredValue<String>[] busySlotArray = busySlots.toArray(ScoredValue[]::new);
+      connection.sync().zadd(getBusySlotsKey(slotRange), busySlotArray);
+    }));
+  }
+
+  /**
+   * Claims a specific busy slot previously offered via {@link #offerBusySlotsToPersist(Map)}.
+   *
+   * @return {@code true} if the slot was claimed by the caller or {@code false} if it was already claimed by another
+   * worker
+   */
+  boolean claimBusySlotToPersist(final int slot) {
+    return redisCluster.withCluster(connection ->
+        connection.sync().zrem(getBusySlotsKey(getSlotRange(slot)), String.valueOf(slot))) > 0;
+  }
+
+  /**
+   * Claims the busy slot with the oldest queue across all ranges of slots, regardless of which worker offered it.
+   *
+   * @return the claimed slot, or empty if no slots are waiting to be claimed
+   */
+  Optional<Integer> claimOldestBusySlotToPersist() {
+    return redisCluster.withCluster(connection -> {
+      // Issue all commands before waiting for any of them to complete so they can be pipelined
+      final List<CompletableFuture<List<ScoredValue<String>>>> oldestBusySlotFutures =
+          new ArrayList<>(PERSIST_SLOT_RANGE_COUNT);
+
+      for (int slotRange = 0; slotRange < PERSIST_SLOT_RANGE_COUNT; slotRange++) {
+        oldestBusySlotFutures.add(
+            connection.async().zrangeWithScores(getBusySlotsKey(slotRange), 0, 0).toCompletableFuture());
+      }
+
+      final List<ScoredValue<String>> oldestBusySlots = oldestBusySlotFutures.stream()
+          .map(CompletableFuture::join)
+          .flatMap(List::stream)
+          .sorted(Comparator.comparingDouble(ScoredValue::getScore))
+          .toList();
+
+      // Other workers may claim slots between our reads and our claim, so fall back to progressively newer slots
+      for (final ScoredValue<String> busySlot : oldestBusySlots) {
+        final int slot = Integer.parseInt(busySlot.getValue());
+
+        if (connection.sync().zrem(getBusySlotsKey(getSlotRange(slot)), busySlot.getValue()) > 0) {
+          return Optional.of(slot);
+        }
+      }
+
+      return Optional.empty();
+    });
+  }
+
+  static int getSlotRange(final int slot) {
+    return slot / PERSIST_SLOT_RANGE_SIZE;
   }
 
   List<String> getQueuesToPersist(final int slot, final Instant maxTime, final int limit) {
@@ -788,6 +929,15 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
     return ("user_queue_index::{" + RedisClusterUtil.getMinimalHashTag(slot) + "}").getBytes(StandardCharsets.UTF_8);
   }
 
+  static String getSlotRangeLeaseKey(final int slotRange) {
+    return "user_queue_persist_slot_range_lease::" + slotRange;
+  }
+
+  static String getBusySlotsKey(final int slotRange) {
+    return "user_queue_persist_busy_slots::{"
+        + RedisClusterUtil.getMinimalHashTag(slotRange * PERSIST_SLOT_RANGE_SIZE) + "}";
+  }
+
   static byte[] getSharedMrmKey(final UUID mrmGuid) {
     return ("mrm::{" + mrmGuid.toString() + "}").getBytes(StandardCharsets.UTF_8);
   }
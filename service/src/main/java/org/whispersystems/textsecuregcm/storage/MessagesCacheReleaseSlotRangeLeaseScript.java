@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import io.lettuce.core.ScriptOutputType;
+import java.io.IOException;
+import java.util.List;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+
+/**
+ * Releases a {@link MessagePersister} worker's lease on a range of slots if, and only if, the lease has not already
+ * expired and been acquired by another worker.
+ *
+ * @see MessagesCache#leaseSlotRangeToPersist(int, String, java.time.Duration)
+ */
+class MessagesCacheReleaseSlotRangeLeaseScript {
+
+  private final ClusterLuaScript releaseSlotRangeLeaseScript;
+
+  MessagesCacheReleaseSlotRangeLeaseScript(final FaultTolerantRedisCluster redisCluster) throws IOException {
+    this.releaseSlotRangeLeaseScript = ClusterLuaScript.fromResource(redisCluster, "lua/release_slot_range_lease.lua",
+        ScriptOutputType.INTEGER);
+  }
+
+  /**
+   * @return {@code true} if the lease was held by the given holder and has been released or {@code false} otherwise
+   */
+  boolean execute(final int slotRange, final String leaseHolder) {
+    final List<String> keys = List.of(
+        MessagesCache.getSlotRangeLeaseKey(slotRange) // leaseKey
+    );
+    final List<String> args = List.of(
+        leaseHolder // leaseHolder
+    );
+
+    return (long) releaseSlotRangeLeaseScript.execute(keys, args) > 0;
+  }
+}
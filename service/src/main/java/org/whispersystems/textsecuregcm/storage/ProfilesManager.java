@@ -5,10 +5,17 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
 import io.lettuce.core.RedisException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -25,6 +32,20 @@ public class ProfilesManager {
 
   private static final String CACHE_PREFIX = "profiles::";
 
+  // Versions known not to exist are cached separately (and briefly) so repeated lookups for a missing version don't all
+  // fall through to DynamoDB. Cached profiles are always checked first, so a profile that's created after its version
+  // was cached as missing is visible as soon as it's written to the profile cache.
+  private static final String MISSING_VERSION_CACHE_PREFIX = "profiles::missing::";
+
+  @VisibleForTesting
+  static final Duration MISSING_VERSION_CACHE_TTL = Duration.ofMinutes(1);
+
+  private static final String CACHE_LOOKUP_COUNTER_NAME = name(ProfilesManager.class, "cacheLookup");
+  private static final Counter CACHE_HIT_COUNTER = Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, "outcome", "hit");
+  private static final Counter MISSING_VERSION_CACHE_HIT_COUNTER =
+      Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, "outcome", "missingVersionHit");
+  private static final Counter CACHE_MISS_COUNTER = Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, "outcome", "miss");
+
   private final Profiles profiles;
   private final FaultTolerantRedisCluster cacheCluster;
   private final ObjectMapper mapper;
@@ -54,9 +75,23 @@ public class ProfilesManager {
   public Optional<VersionedProfile> get(UUID uuid, String version) {
     Optional<VersionedProfile> profile = redisGet(uuid, version);
 
-    if (profile.isEmpty()) {
-      profile = profiles.get(uuid, version);
-      profile.ifPresent(versionedProfile -> redisSet(uuid, versionedProfile));
+    if (profile.isPresent()) {
+      CACHE_HIT_COUNTER.increment();
+      return profile;
+    }
+
+    if (redisIsMissingVersion(uuid, version)) {
+      MISSING_VERSION_CACHE_HIT_COUNTER.increment();
+      return Optional.empty();
+    }
+
+    CACHE_MISS_COUNTER.increment();
+    profile = profiles.get(uuid, version);
+
+    if (profile.isPresent()) {
+      redisSet(uuid, profile.get());
+    } else {
+      redisSetMissingVersion(uuid, version);
     }
 
     return profile;
@@ -64,12 +99,27 @@ public class ProfilesManager {
 
   public CompletableFuture<Optional<VersionedProfile>> getAsync(UUID uuid, String version) {
     return redisGetAsync(uuid, version)
-        .thenCompose(maybeVersionedProfile -> maybeVersionedProfile
-            .map(versionedProfile -> CompletableFuture.completedFuture(maybeVersionedProfile))
-            .orElseGet(() -> profiles.getAsync(uuid, version)
+        .thenCompose(maybeVersionedProfile -> {
+          if (maybeVersionedProfile.isPresent()) {
+            CACHE_HIT_COUNTER.increment();
+            return CompletableFuture.completedFuture(maybeVersionedProfile);
+          }
+
+          return redisIsMissingVersionAsync(uuid, version).thenCompose(isMissingVersion -> {
+            if (isMissingVersion) {
+              MISSING_VERSION_CACHE_HIT_COUNTER.increment();
+              return CompletableFuture.completedFuture(Optional.empty());
+            }
+
+            CACHE_MISS_COUNTER.increment();
+
+            return profiles.getAsync(uuid, version)
                 .thenCompose(maybeVersionedProfileFromDynamo -> maybeVersionedProfileFromDynamo
-                    .map(profile -> redisSetAsync(uuid, profile).thenApply(ignored -> maybeVersionedProfileFromDynamo))
-                    .orElseGet(() -> CompletableFuture.completedFuture(maybeVersionedProfileFromDynamo)))));
+                    .map(profile -> redisSetAsync(uuid, profile))
+                    .orElseGet(() -> redisSetMissingVersionAsync(uuid, version))
+                    .thenApply(ignored -> maybeVersionedProfileFromDynamo));
+          });
+        });
   }
 
   private void redisSet(UUID uuid, VersionedProfile profile) {
@@ -131,6 +181,45 @@ public class ProfilesManager {
     }
   }
 
+  private boolean redisIsMissingVersion(UUID uuid, String version) {
+    try {
+      return cacheCluster.withCluster(connection -> connection.sync().get(getMissingVersionCacheKey(uuid, version))) != null;
+    } catch (RedisException e) {
+      logger.warn("Redis exception", e);
+      return false;
+    }
+  }
+
+  private CompletableFuture<Boolean> redisIsMissingVersionAsync(UUID uuid, String version) {
+    return cacheCluster.withCluster(connection -> connection.async().get(getMissingVersionCacheKey(uuid, version)))
+        .thenApply(Objects::nonNull)
+        .exceptionally(throwable -> {
+          logger.warn("Failed to check for missing versioned profile in Redis", throwable);
+          return false;
+        })
+        .toCompletableFuture();
+  }
+
+  private void redisSetMissingVersion(UUID uuid, String version) {
+    try {
+      cacheCluster.useCluster(connection -> connection.sync()
+          .setex(getMissingVersionCacheKey(uuid, version), MISSING_VERSION_CACHE_TTL.toSeconds(), "1"));
+    } catch (RedisException e) {
+      logger.warn("Failed to cache missing versioned profile", e);
+    }
+  }
+
+  private CompletableFuture<Void> redisSetMissingVersionAsync(UUID uuid, String version) {
+    return cacheCluster.withCluster(connection -> connection.async()
+            .setex(getMissingVersionCacheKey(uuid, version), MISSING_VERSION_CACHE_TTL.toSeconds(), "1"))
+        .thenRun(Util.NOOP)
+        .exceptionally(throwable -> {
+          logger.warn("Failed to cache missing versioned profile", throwable);
+          return null;
+        })
+        .toCompletableFuture();
+  }
+
   private CompletableFuture<Void> redisDelete(UUID uuid) {
     return cacheCluster.withCluster(connection -> connection.async().del(getCacheKey(uuid)))
         .toCompletableFuture()
@@ -140,4 +229,8 @@ public class ProfilesManager {
   private String getCacheKey(UUID uuid) {
     return CACHE_PREFIX + uuid.toString();
   }
+
+  private String getMissingVersionCacheKey(UUID uuid, String version) {
+    return MISSING_VERSION_CACHE_PREFIX + uuid + "::" + version;
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+
+/**
+ * Limits the number of asynchronous operations that may be in flight at once. Unlike a semaphore, callers never block
+ * while waiting for a permit; operations submitted while all permits are in use are queued and started, in submission
+ * order, as earlier operations complete. Because queued operations may be started on whichever thread completes an
+ * earlier operation, submitted operations must not block before returning their {@link CompletionStage}.
+ * <p>
+ * The limit may be fixed or may change over time. A limit that shrinks below the number of operations in flight stops
+ * new operations from starting until enough have completed; a limit that grows takes effect the next time an operation
+ * is submitted or completes.
+ */
+public class AsyncConcurrencyLimiter {
+
+  private final IntSupplier maxConcurrency;
+
+  // All guarded by this
+  private final Queue<Runnable> waitingTasks = new ArrayDeque<>();
+  private int activeTasks = 0;
+  private boolean draining = false;
+
+  private static final String WAITING_TASKS_GAUGE_NAME =
+      MetricsUtil.name(AsyncConcurrencyLimiter.class, "waitingTasks");
+
+  private static final String ACTIVE_TASKS_GAUGE_NAME =
+      MetricsUtil.name(AsyncConcurrencyLimiter.class, "activeTasks");
+
+  /**
+   * @param name           the name of this limiter; used to tag metrics
+   * @param maxConcurrency the maximum number of operations that may be in flight at once
+   */
+  public AsyncConcurrencyLimiter(final String name, final int maxConcurrency) {
+    this(name, checkMaxConcurrency(maxConcurrency));
+  }
+
+  /**
+   * @param name           the name of this limiter; used to tag metrics
+   * @param maxConcurrency supplies the maximum number of operations that may be in flight at once; checked each time an
+   *                       operation might start, and treated as 1 if it supplies anything less
+   */
+  public AsyncConcurrencyLimiter(final String name, final IntSupplier maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+
+    final Tags tags = Tags.of("limiter", name);
+
+    Metrics.gauge(WAITING_TASKS_GAUGE_NAME, tags, this, AsyncConcurrencyLimiter::getWaitingTasks);
+    Metrics.gauge(ACTIVE_TASKS_GAUGE_NAME, tags, this, AsyncConcurrencyLimiter::getActiveTasks);
+  }
+
+  private static IntSupplier checkMaxConcurrency(final int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive");
+    }
+
+    return () -> maxConcurrency;
+  }
+
+  /**
+   * Starts the given operation as soon as a permit is available.
+   *
+   * @param operation a supplier that starts the operation; must not block
+   *
+   * @return a future that completes with the result of the operation once it has been started and has finished
+   */
+  public <T> CompletableFuture<T> submit(final Supplier<? extends CompletionStage<T>> operation) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+
+    synchronized (this) {
+      waitingTasks.add(() -> {
+        try {
+          operation.get().whenComplete((value, throwable) -> {
+            release();
+
+            if (throwable != null) {
+              result.completeExceptionally(throwable);
+            } else {
+              result.complete(value);
+            }
+          });
+        } catch (final RuntimeException e) {
+          release();
+          result.completeExceptionally(e);
+        }
+      });
+    }
+
+    drain();
+
+    return result;
+  }
+
+  private void release() {
+    synchronized (this) {
+      activeTasks--;
+    }
+
+    drain();
+  }
+
+  private void drain() {
+    synchronized (this) {
+      // Operations that complete immediately call back into this method from the thread that's already draining the
+      // queue; let that thread pick up the freed permit instead of recursing
+      if (draining) {
+        return;
+      }
+
+      draining = true;
+    }
+
+    while (true) {
+      final Runnable task;
+
+      synchronized (this) {
+        if (activeTasks >= Math.max(1, maxConcurrency.getAsInt()) || waitingTasks.isEmpty()) {
+          draining = false;
+          return;
+        }
+
+        activeTasks++;
+        task = waitingTasks.poll();
+      }
+
+      task.run();
+    }
+  }
+
+  synchronized int getWaitingTasks() {
+    return waitingTasks.size();
+  }
+
+  synchronized int getActiveTasks() {
+    return activeTasks;
+  }
+}
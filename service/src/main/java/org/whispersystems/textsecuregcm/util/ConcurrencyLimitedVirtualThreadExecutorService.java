@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+
+/**
+ * An executor service that runs each task on a new virtual thread, but allows at most a fixed number of tasks to run
+ * at once. Tasks submitted while all permits are in use wait (on their own, cheap, virtual threads) until a permit
+ * becomes available. This makes the executor a drop-in replacement for a fixed-size pool of platform threads that
+ * exists mostly to bound concurrent blocking calls to a downstream service.
+ */
+class ConcurrencyLimitedVirtualThreadExecutorService extends AbstractExecutorService {
+
+  private final ExecutorService delegate;
+  private final Semaphore semaphore;
+
+  private final AtomicInteger waitingTasks = new AtomicInteger();
+  private final AtomicInteger activeTasks = new AtomicInteger();
+  private final Timer permitWaitTimer;
+
+  private static final String WAITING_TASKS_GAUGE_NAME =
+      MetricsUtil.name(ConcurrencyLimitedVirtualThreadExecutorService.class, "waitingTasks");
+
+  private static final String ACTIVE_TASKS_GAUGE_NAME =
+      MetricsUtil.name(ConcurrencyLimitedVirtualThreadExecutorService.class, "activeTasks");
+
+  private static final String PERMIT_WAIT_TIMER_NAME =
+      MetricsUtil.name(ConcurrencyLimitedVirtualThreadExecutorService.class, "permitWait");
+
+  /**
+   * @param name           the name of this executor; used to name threads and tag metrics
+   * @param maxConcurrency the maximum number of tasks that may run at once
+   */
+  ConcurrencyLimitedVirtualThreadExecutorService(final String name, final int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive");
+    }
+
+    this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    this.semaphore = new Semaphore(maxConcurrency);
+
+    final Tags tags = Tags.of("executor", name);
+
+    Metrics.gauge(WAITING_TASKS_GAUGE_NAME, tags, waitingTasks);
+    Metrics.gauge(ACTIVE_TASKS_GAUGE_NAME, tags, activeTasks);
+
+    permitWaitTimer = Timer.builder(PERMIT_WAIT_TIMER_NAME)
+        .tags(tags)
+        .publishPercentileHistogram(true)
+        .register(Metrics.globalRegistry);
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final long submitted = System.nanoTime();
+    waitingTasks.incrementAndGet();
+
+    try {
+      delegate.execute(() -> {
+        try {
+          semaphore.acquire();
+        } catch (final InterruptedException e) {
+          // The executor is shutting down; abandon the task as a platform thread pool would abandon queued tasks
+          waitingTasks.decrementAndGet();
+          Thread.currentThread().interrupt();
+          return;
+        }
+
+        waitingTasks.decrementAndGet();
+        permitWaitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+        activeTasks.incrementAndGet();
+
+        try {
+          command.run();
+        } finally {
+          activeTasks.decrementAndGet();
+          semaphore.release();
+        }
+      });
+    } catch (final RuntimeException e) {
+      waitingTasks.decrementAndGet();
+      throw e;
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
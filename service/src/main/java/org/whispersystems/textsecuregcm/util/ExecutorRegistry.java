@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.lifecycle.setup.ExecutorServiceBuilder;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.configuration.ExecutorConfiguration;
+import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+
+/**
+ * An executor registry creates named, instrumented executors whose implementation is chosen by configuration. By
+ * default, each executor is a fixed-size pool of platform threads; executors may instead be configured to run tasks on
+ * virtual threads, in which case the executor's thread count becomes a limit on concurrently-running tasks.
+ * <p>
+ * All executors report execution and idle times via Micrometer's {@link ExecutorServiceMetrics} under the executor's
+ * name. Virtual-thread executors additionally report the number of tasks waiting for a permit and how long they waited.
+ * The registry can also map thread names back to executor names so that virtual thread pin events can be attributed to
+ * the executor that produced them.
+ */
+public class ExecutorRegistry {
+
+  private final Class<?> owner;
+  private final LifecycleEnvironment lifecycleEnvironment;
+  private final Map<String, ExecutorConfiguration> executorConfigurations;
+
+  private final Set<String> executorNames = ConcurrentHashMap.newKeySet();
+
+  private static final ExecutorConfiguration DEFAULT_CONFIGURATION = new ExecutorConfiguration(false, null);
+  private static final Duration SHUTDOWN_PERIOD = Duration.seconds(5);
+
+  private static final Pattern THREAD_NAME_PATTERN = Pattern.compile("^(?:.*\\.)?([^.]+)-\\d+$");
+
+  static final String UNKNOWN_EXECUTOR_NAME = "unknown";
+
+  /**
+   * @param owner the class whose name should prefix platform thread names
+   * @param lifecycleEnvironment the lifecycle environment that should manage executors created by this registry
+   * @param executorConfigurations per-executor configuration overrides, keyed by executor name
+   */
+  public ExecutorRegistry(final Class<?> owner,
+      final LifecycleEnvironment lifecycleEnvironment,
+      final Map<String, ExecutorConfiguration> executorConfigurations) {
+
+    this.owner = owner;
+    this.lifecycleEnvironment = lifecycleEnvironment;
+    this.executorConfigurations = executorConfigurations;
+  }
+
+  /**
+   * Creates a new executor with the given name.
+   *
+   * @param name the name of the executor; must be unique within this registry
+   * @param defaultThreads the number of platform threads (or virtual thread permits) to use if no maximum concurrency
+   *                       has been configured for this executor
+   *
+   * @return a new executor
+   */
+  public ExecutorService executorService(final String name, final int defaultThreads) {
+    return executorService(name, defaultThreads, null);
+  }
+
+  /**
+   * Creates a new executor with the given name.
+   *
+   * @param name the name of the executor; must be unique within this registry
+   * @param defaultThreads the number of platform threads (or virtual thread permits) to use if no maximum concurrency
+   *                       has been configured for this executor
+   * @param platformThreadCustomizer additional customizations (e.g. a bounded work queue or a rejected execution
+   *                                 handler) to apply to this executor's pool of platform threads; virtual-thread
+   *                                 executors have no equivalent, so executors created with a customizer may not be
+   *                                 configured to use virtual threads
+   *
+   * @return a new executor
+   *
+   * @throws IllegalArgumentException if an executor with the given name has already been registered or if an executor
+   * with a platform thread customizer has been configured to use virtual threads
+   */
+  public ExecutorService executorService(final String name,
+      final int defaultThreads,
+      @Nullable final UnaryOperator<ExecutorServiceBuilder> platformThreadCustomizer) {
+
+    final ExecutorConfiguration configuration = executorConfigurations.getOrDefault(name, DEFAULT_CONFIGURATION);
+
+    if (configuration.virtualThreads() && platformThreadCustomizer != null) {
+      throw new IllegalArgumentException("Executor " + name + " requires platform threads");
+    }
+
+    if (!executorNames.add(name)) {
+      throw new IllegalArgumentException("Executor already registered: " + name);
+    }
+
+    final int maxConcurrency = configuration.maxConcurrency() != null ? configuration.maxConcurrency() : defaultThreads;
+
+    final ExecutorService executorService;
+
+    if (configuration.virtualThreads()) {
+      executorService = new ConcurrencyLimitedVirtualThreadExecutorService(name, maxConcurrency);
+      lifecycleEnvironment.manage(new ExecutorServiceManager(executorService, SHUTDOWN_PERIOD, name));
+    } else {
+      final ExecutorServiceBuilder builder = lifecycleEnvironment.executorService(name(owner, name + "-%d"))
+          .minThreads(maxConcurrency)
+          .maxThreads(maxConcurrency);
+
+      executorService = (platformThreadCustomizer != null ? platformThreadCustomizer.apply(builder) : builder).build();
+    }
+
+    return ExecutorServiceMetrics.monitor(Metrics.globalRegistry, executorService, name, MetricsUtil.PREFIX);
+  }
+
+  /**
+   * Returns the name of the executor that created the thread with the given name.
+   *
+   * @param threadName the name of the thread
+   *
+   * @return the name of the executor that created the given thread, or {@value #UNKNOWN_EXECUTOR_NAME} if the thread
+   * did not come from an executor created by this registry
+   */
+  public String getExecutorName(final String threadName) {
+    if (threadName != null) {
+      final Matcher matcher = THREAD_NAME_PATTERN.matcher(threadName);
+
+      if (matcher.matches() && executorNames.contains(matcher.group(1))) {
+        return matcher.group(1);
+      }
+    }
+
+    return UNKNOWN_EXECUTOR_NAME;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import java.net.InetAddress;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * An IP address prefix trie maps IPv4 and IPv6 network prefixes to values and finds the value associated with the
+ * longest prefix that contains a given address. Lookups walk at most one node per address bit and do not allocate, so
+ * matching an address against many prefixes costs the same as matching it against one.
+ * <p>
+ * Tries are intended to be populated once and then queried; they are safe for concurrent reads, but callers must not
+ * add prefixes while other threads may be reading.
+ *
+ * @param <V> the type of value associated with each prefix
+ */
+public class InetAddressPrefixTrie<V> {
+
+  private static final int IPV4_ADDRESS_LENGTH = 4;
+  private static final int IPV6_ADDRESS_LENGTH = 16;
+
+  private final Node<V> ipv4Root = new Node<>();
+  private final Node<V> ipv6Root = new Node<>();
+
+  private int size = 0;
+
+  private static class Node<V> {
+
+    @Nullable
+    private Node<V> zero;
+
+    @Nullable
+    private Node<V> one;
+
+    @Nullable
+    private V value;
+  }
+
+  /**
+   * Associates the given value with the given address range, replacing any value previously associated with exactly
+   * the same range.
+   *
+   * @param range the address range with which to associate the given value
+   * @param value the value to associate with the given range
+   */
+  public void put(final InetAddressRange range, final V value) {
+    put(range.getNetworkAddressBytes(), range.getPrefixLength(), value);
+  }
+
+  /**
+   * Associates the given value with the network prefix described by the given address bytes and prefix length,
+   * replacing any value previously associated with exactly the same prefix. Bits beyond the prefix length are ignored.
+   *
+   * @param networkAddress the address bytes of the network; must be 4 bytes for IPv4 or 16 bytes for IPv6
+   * @param prefixLength the number of leading bits of {@code networkAddress} that identify the network
+   * @param value the value to associate with the given prefix
+   */
+  public void put(final byte[] networkAddress, final int prefixLength, final V value) {
+    if (prefixLength < 0 || prefixLength > networkAddress.length * 8) {
+      throw new IllegalArgumentException("Bad prefix length: " + prefixLength);
+    }
+
+    Node<V> node = getRoot(networkAddress);
+
+    for (int bit = 0; bit < prefixLength; bit++) {
+      if (isSet(networkAddress, bit)) {
+        if (node.one == null) {
+          node.one = new Node<>();
+        }
+
+        node = node.one;
+      } else {
+        if (node.zero == null) {
+          node.zero = new Node<>();
+        }
+
+        node = node.zero;
+      }
+    }
+
+    if (node.value == null) {
+      size++;
+    }
+
+    node.value = value;
+  }
+
+  /**
+   * Finds the value associated with the longest prefix that contains the given address.
+   *
+   * @param address the raw bytes of the address to match; must be 4 bytes for IPv4 or 16 bytes for IPv6
+   *
+   * @return the value associated with the most specific matching prefix, or {@code null} if no prefix matches
+   */
+  @Nullable
+  public V getLongestPrefixMatch(final byte[] address) {
+    Node<V> node = getRoot(address);
+    V match = node.value;
+
+    for (int bit = 0; bit < address.length * 8; bit++) {
+      node = isSet(address, bit) ? node.one : node.zero;
+
+      if (node == null) {
+        break;
+      }
+
+      if (node.value != null) {
+        match = node.value;
+      }
+    }
+
+    return match;
+  }
+
+  /**
+   * Finds the value associated with the longest prefix that contains the given address.
+   *
+   * @param address the address to match
+   *
+   * @return the value associated with the most specific matching prefix, or empty if no prefix matches
+   */
+  public Optional<V> getLongestPrefixMatch(final InetAddress address) {
+    return Optional.ofNullable(getLongestPrefixMatch(address.getAddress()));
+  }
+
+  /**
+   * Tests whether any prefix in this trie contains the given address.
+   *
+   * @param address the raw bytes of the address to check; must be 4 bytes for IPv4 or 16 bytes for IPv6
+   *
+   * @return {@code true} if at least one prefix in this trie contains the given address or {@code false} otherwise
+   */
+  public boolean contains(final byte[] address) {
+    Node<V> node = getRoot(address);
+
+    for (int bit = 0; node != null; bit++) {
+      if (node.value != null) {
+        return true;
+      }
+
+      if (bit == address.length * 8) {
+        break;
+      }
+
+      node = isSet(address, bit) ? node.one : node.zero;
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the number of distinct prefixes in this trie
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private Node<V> getRoot(final byte[] address) {
+    return switch (address.length) {
+      case IPV4_ADDRESS_LENGTH -> ipv4Root;
+      case IPV6_ADDRESS_LENGTH -> ipv6Root;
+      default -> throw new IllegalArgumentException("Unexpected address length: " + address.length);
+    };
+  }
+
+  private static boolean isSet(final byte[] address, final int bit) {
+    return (address[bit >> 3] & (0x80 >>> (bit & 7))) != 0;
+  }
+}
@@ -18,6 +18,7 @@ public class InetAddressRange {
   private final InetAddress networkAddress;
 
   private final byte[] networkAddressBytes;
+  private final int prefixLength;
   private final byte[] prefixMask;
 
   public InetAddressRange(final String cidrBlock) {
@@ -27,8 +28,6 @@ public class InetAddressRange {
       throw new IllegalArgumentException("Unexpected CIDR block notation: " + cidrBlock);
     }
 
-    final int prefixLength;
-
     try {
       networkAddress = InetAddresses.forString(components[0]);
       prefixLength = Integer.parseInt(components[1]);
@@ -44,6 +43,14 @@ public class InetAddressRange {
     prefixMask = generatePrefixMask(networkAddressBytes.length, prefixLength);
   }
 
+  byte[] getNetworkAddressBytes() {
+    return networkAddressBytes;
+  }
+
+  int getPrefixLength() {
+    return prefixLength;
+  }
+
   @VisibleForTesting
   static byte[] generatePrefixMask(final int addressLengthBytes, final int prefixLengthBits) {
     final byte[] prefixMask = new byte[addressLengthBytes];
@@ -12,6 +12,7 @@ import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import jdk.jfr.consumer.RecordedEvent;
@@ -57,7 +58,20 @@ public class VirtualThreadPinEventMonitor implements Managed {
       final ExecutorService executorService,
       final Supplier<Set<String>> allowList,
       final Duration pinEventThreshold) {
-    this(executorService, allowList, pinEventThreshold, VirtualThreadPinEventMonitor::processPinEvent);
+    this(executorService, allowList, pinEventThreshold, ignored -> "unknown");
+  }
+
+  /**
+   * @param executorNameResolver maps the name of a pinned thread to the name of the executor that owns it, which is
+   *                             used to tag pin event metrics
+   */
+  public VirtualThreadPinEventMonitor(
+      final ExecutorService executorService,
+      final Supplier<Set<String>> allowList,
+      final Duration pinEventThreshold,
+      final Function<String, String> executorNameResolver) {
+    this(executorService, allowList, pinEventThreshold,
+        (event, allowedPinEvent) -> processPinEvent(event, allowedPinEvent, executorNameResolver));
   }
 
   @Override
@@ -76,13 +90,22 @@ public class VirtualThreadPinEventMonitor implements Managed {
     recordingStream.close();
   }
 
-  private static void processPinEvent(final RecordedEvent event, final boolean allowedPinEvent) {
+  private static void processPinEvent(final RecordedEvent event,
+      final boolean allowedPinEvent,
+      final Function<String, String> executorNameResolver) {
+
     if (allowedPinEvent) {
       logger.info("Long allowed virtual thread pin event detected {}", prettyEventString(event));
     } else {
       logger.error("Long forbidden virtual thread pin event detected {}", prettyEventString(event));
     }
-    Metrics.counter(PIN_COUNTER_NAME, "allowed", String.valueOf(allowedPinEvent)).increment();
+
+    final String threadName = event.getThread() != null ? event.getThread().getJavaName() : null;
+
+    Metrics.counter(PIN_COUNTER_NAME,
+            "allowed", String.valueOf(allowedPinEvent),
+            "executor", executorNameResolver.apply(threadName))
+        .increment();
   }
 
   private boolean allowed(final RecordedEvent event) {
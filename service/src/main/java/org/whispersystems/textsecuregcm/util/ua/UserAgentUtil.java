@@ -6,7 +6,11 @@
 package org.whispersystems.textsecuregcm.util.ua;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.vdurmont.semver4j.Semver;
+import javax.annotation.Nullable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
@@ -15,22 +19,70 @@ public class UserAgentUtil {
 
   private static final Pattern STANDARD_UA_PATTERN = Pattern.compile("^Signal-(Android|Desktop|iOS)/([^ ]+)( (.+))?$", Pattern.CASE_INSENSITIVE);
 
+  // The same handful of User-Agent strings appear on nearly every request, and a single request may be parsed by
+  // several filters and listeners; remember parse results (including failures) so each distinct string is parsed once.
+  // User-Agent strings are client-controlled, so only cache strings that could plausibly come from a Signal client, and
+  // bound the cache by the total length of the cached strings rather than by entry count.
+  @VisibleForTesting
+  static final int MAX_CACHEABLE_USER_AGENT_LENGTH = 256;
+
+  private static final String SIGNAL_USER_AGENT_PREFIX = "Signal-";
+
+  private static final long MAX_CACHED_USER_AGENT_CHARACTERS = 1_000_000;
+
+  private static final LoadingCache<String, ParseResult> PARSE_RESULTS = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_CACHED_USER_AGENT_CHARACTERS)
+      .weigher((final String userAgentString, final ParseResult ignored) -> userAgentString.length())
+      .build(CacheLoader.from(UserAgentUtil::parse));
+
+  // Failures are cached as a message rather than an exception so the cache doesn't pin stack traces
+  private record ParseResult(@Nullable UserAgent userAgent, @Nullable String failureMessage) {
+  }
+
   public static UserAgent parseUserAgentString(final String userAgentString) throws UnrecognizedUserAgentException {
     if (StringUtils.isBlank(userAgentString)) {
       throw new UnrecognizedUserAgentException("User-Agent string is blank");
     }
 
-    try {
-      final UserAgent standardUserAgent = parseStandardUserAgentString(userAgentString);
+    if (!isCacheable(userAgentString)) {
+      final UserAgent userAgent;
 
-      if (standardUserAgent != null) {
-        return standardUserAgent;
+      try {
+        userAgent = parseStandardUserAgentString(userAgentString);
+      } catch (final Exception e) {
+        throw new UnrecognizedUserAgentException(e);
       }
-    } catch (final Exception e) {
-      throw new UnrecognizedUserAgentException(e);
+
+      if (userAgent == null) {
+        throw new UnrecognizedUserAgentException();
+      }
+
+      return userAgent;
     }
 
-    throw new UnrecognizedUserAgentException();
+    final ParseResult parseResult = PARSE_RESULTS.getUnchecked(userAgentString);
+
+    if (parseResult.userAgent() != null) {
+      return parseResult.userAgent();
+    }
+
+    throw parseResult.failureMessage() != null
+        ? new UnrecognizedUserAgentException(parseResult.failureMessage())
+        : new UnrecognizedUserAgentException();
+  }
+
+  @VisibleForTesting
+  static boolean isCacheable(final String userAgentString) {
+    return userAgentString.length() <= MAX_CACHEABLE_USER_AGENT_LENGTH
+        && StringUtils.startsWithIgnoreCase(userAgentString, SIGNAL_USER_AGENT_PREFIX);
+  }
+
+  private static ParseResult parse(final String userAgentString) {
+    try {
+      return new ParseResult(parseStandardUserAgentString(userAgentString), null);
+    } catch (final Exception e) {
+      return new ParseResult(null, e.toString());
+    }
   }
 
   @VisibleForTesting
@@ -10,6 +10,8 @@ import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedDevice;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.entities.ProvisioningMessage;
@@ -40,6 +42,8 @@ public class ProvisioningConnectListener implements WebSocketConnectListener {
   private final ProvisioningManager provisioningManager;
   private final OpenWebSocketCounter openWebSocketCounter;
 
+  private static final Logger logger = LoggerFactory.getLogger(ProvisioningConnectListener.class);
+
   public ProvisioningConnectListener(final ProvisioningManager provisioningManager) {
     this.provisioningManager = provisioningManager;
     this.openWebSocketCounter = new OpenWebSocketCounter(MetricsUtil.name(getClass(), "openWebsockets"),
@@ -54,18 +58,26 @@ public class ProvisioningConnectListener implements WebSocketConnectListener {
     context.addWebsocketClosedListener((context1, statusCode, reason) -> provisioningManager.removeListener(provisioningAddress));
 
     provisioningManager.addListener(provisioningAddress, message -> {
-      assert message.getType() == PubSubProtos.PubSubMessage.Type.DELIVER;
+          assert message.getType() == PubSubProtos.PubSubMessage.Type.DELIVER;
 
-      final Optional<byte[]> body = Optional.of(message.getContent().toByteArray());
+          final Optional<byte[]> body = Optional.of(message.getContent().toByteArray());
 
-      context.getClient().sendRequest("PUT", "/v1/message", List.of(HeaderUtils.getTimestampHeader()), body)
-          .whenComplete((ignored, throwable) -> context.getClient().close(1000, "Closed"));
-    });
+          context.getClient().sendRequest("PUT", "/v1/message", List.of(HeaderUtils.getTimestampHeader()), body)
+              .whenComplete((ignored, throwable) -> context.getClient().close(1000, "Closed"));
+        })
+        // Don't hand out the provisioning address until we're actually listening for messages sent to it
+        .whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            logger.warn("Failed to subscribe to provisioning address", throwable);
+            context.getClient().close(1011, "Failed to subscribe to provisioning address");
+            return;
+          }
 
-    context.getClient().sendRequest("PUT", "/v1/address", List.of(HeaderUtils.getTimestampHeader()),
-        Optional.of(MessageProtos.ProvisioningAddress.newBuilder()
-            .setAddress(provisioningAddress)
-            .build().toByteArray()));
+          context.getClient().sendRequest("PUT", "/v1/address", List.of(HeaderUtils.getTimestampHeader()),
+              Optional.of(MessageProtos.ProvisioningAddress.newBuilder()
+                  .setAddress(provisioningAddress)
+                  .build().toByteArray()));
+        });
   }
 
   @VisibleForTesting
@@ -43,6 +43,7 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.limits.MessageDeliveryLoopMonitor;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
+import org.whispersystems.textsecuregcm.metrics.MeterHandleCache;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
 import org.whispersystems.textsecuregcm.push.DisplacedPresenceListener;
@@ -95,6 +96,13 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   private static final String STATUS_MESSAGE_TAG = "message";
   private static final String ERROR_TYPE_TAG = "errorType";
 
+  private record SendMessageErrorCounterKey(Tag platformTag, String errorType) {
+  }
+
+  private static final MeterHandleCache<SendMessageErrorCounterKey, Counter> SEND_MESSAGE_ERROR_COUNTERS =
+      new MeterHandleCache<>("sendMessageError", key -> Metrics.counter(SEND_MESSAGE_ERROR_COUNTER,
+          Tags.of(key.platformTag(), Tag.of(ERROR_TYPE_TAG, key.errorType()))));
+
   private static final long SLOW_DRAIN_THRESHOLD = 10_000;
 
   @VisibleForTesting
@@ -124,6 +132,9 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   private final AuthenticatedDevice auth;
   private final WebSocketClient client;
 
+  // A connection's User-Agent never changes, so resolve its platform tag once rather than for every delivered message
+  private final Tag platformTag;
+
   private final int sendFuturesTimeoutMillis;
 
   private final ScheduledExecutorService scheduledExecutorService;
@@ -196,6 +207,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
     this.pushNotificationScheduler = pushNotificationScheduler;
     this.auth = auth;
     this.client = client;
+    this.platformTag = UserAgentTagUtil.getPlatformTag(client.getUserAgent());
     this.sendFuturesTimeoutMillis = sendFuturesTimeoutMillis;
     this.scheduledExecutorService = scheduledExecutorService;
     this.messageDeliveryScheduler = messageDeliveryScheduler;
@@ -268,7 +280,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
               final List<Tag> tags = new ArrayList<>(
                   List.of(
                       Tag.of(STATUS_CODE_TAG, String.valueOf(response.getStatus())),
-                      UserAgentTagUtil.getPlatformTag(client.getUserAgent())
+                      platformTag
                   ));
 
               // TODO Remove this once we've identified the cause of message rejections from desktop clients
@@ -333,7 +345,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
         if (sentInitialQueueEmptyMessage.compareAndSet(false, true)) {
           final List<Tag> tags = List.of(
-              UserAgentTagUtil.getPlatformTag(client.getUserAgent())
+              platformTag
           );
           final long drainDuration = System.currentTimeMillis() - queueDrainStartTime.get();
 
@@ -365,7 +377,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
             client.close(1011, "Failed to retrieve messages");
           } else {
             logger.debug("Failed to clear queue", cause);
-            final List<Tag> tags = List.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent()));
+            final List<Tag> tags = List.of(platformTag);
 
             Metrics.counter(QUEUE_DRAIN_RETRY_COUNTER_NAME, tags).increment();
 
@@ -442,10 +454,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
       logger.warn(terminal ? "Send message failure terminated stream" : "Send message failed", e);
       errorType = "other";
     }
-    final Tags tags = Tags.of(
-        UserAgentTagUtil.getPlatformTag(client.getUserAgent()),
-        Tag.of(ERROR_TYPE_TAG, errorType));
-    Metrics.counter(SEND_MESSAGE_ERROR_COUNTER, tags).increment();
+    SEND_MESSAGE_ERROR_COUNTERS.get(new SendMessageErrorCounterKey(platformTag, errorType)).increment();
   }
 
   private CompletableFuture<Void> sendMessage(Envelope envelope) {
@@ -496,7 +505,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   @Override
   public void handleDisplacement(final boolean connectedElsewhere) {
     final Tags tags = Tags.of(
-        UserAgentTagUtil.getPlatformTag(client.getUserAgent()),
+        platformTag,
         Tag.of("connectedElsewhere", String.valueOf(connectedElsewhere))
     );
 
@@ -5,20 +5,43 @@
 
 package org.whispersystems.textsecuregcm.workers;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.cli.Cli;
 import io.dropwizard.core.cli.EnvironmentCommand;
 import io.dropwizard.core.setup.Environment;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.WhisperServerConfiguration;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.Accounts;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.util.logging.UncaughtExceptionHandler;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 
 public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractCommandWithDependencies {
 
@@ -28,6 +51,25 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractCom
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   private static final String SEGMENT_COUNT = "segments";
+  private static final String RESUME_ARGUMENT = "resume";
+  private static final String MAX_READ_CAPACITY_ARGUMENT = "maxReadCapacity";
+
+  private static final String ACCOUNTS_CRAWLED_GAUGE_NAME =
+      name(AbstractSinglePassCrawlAccountsCommand.class, "accountsCrawled");
+  private static final String SEGMENTS_COMPLETED_GAUGE_NAME =
+      name(AbstractSinglePassCrawlAccountsCommand.class, "segmentsCompleted");
+  private static final String ESTIMATED_TIME_REMAINING_GAUGE_NAME =
+      name(AbstractSinglePassCrawlAccountsCommand.class, "estimatedTimeRemaining");
+
+  private static final String COMMAND_TAG = "command";
+
+  // Each round hands at most this many pages per segment to the crawler. Checkpoints are saved only after the crawler
+  // has finished processing a round, so a resumed run repeats at most one round per segment. Crawlers must tolerate
+  // seeing an account twice.
+  @VisibleForTesting
+  static final int CHECKPOINT_INTERVAL_PAGES = 16;
+
+  private static final Duration PROGRESS_REPORT_INTERVAL = Duration.ofMinutes(1);
 
   public AbstractSinglePassCrawlAccountsCommand(final String name, final String description) {
     super(new Application<>() {
@@ -47,6 +89,20 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractCom
         .required(false)
         .setDefault(1)
         .help("The total number of segments for a DynamoDB scan");
+
+    subparser.addArgument("--resume")
+        .type(Boolean.class)
+        .dest(RESUME_ARGUMENT)
+        .required(false)
+        .setDefault(false)
+        .help("If true, resume from the checkpoints left by an interrupted run with the same number of segments");
+
+    subparser.addArgument("--max-read-capacity")
+        .type(Integer.class)
+        .dest(MAX_READ_CAPACITY_ARGUMENT)
+        .required(false)
+        .setDefault(0)
+        .help("The maximum read capacity units per second to consume across all segments, or 0 for no limit");
   }
 
   protected CommandDependencies getCommandDependencies() {
@@ -64,13 +120,232 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractCom
     this.commandDependencies = commandDependencies;
 
     final int segments = Objects.requireNonNull(namespace.getInt(SEGMENT_COUNT));
+    final boolean resume = Objects.requireNonNull(namespace.getBoolean(RESUME_ARGUMENT));
+    final int maxReadCapacity = Objects.requireNonNull(namespace.getInt(MAX_READ_CAPACITY_ARGUMENT));
 
     logger.info("Crawling accounts with {} segments and {} processors",
         segments,
         Runtime.getRuntime().availableProcessors());
 
-    crawlAccounts(commandDependencies.accountsManager().streamAllFromDynamo(segments, Schedulers.parallel()));
+    final AccountCrawlCheckpoints checkpoints =
+        new AccountCrawlCheckpoints(commandDependencies.cacheCluster(), getName(), segments);
+
+    if (!resume) {
+      checkpoints.clear();
+    }
+
+    final CrawlProgress progress = new CrawlProgress(getName(), segments,
+        getApproximateAccountCount(commandDependencies.dynamoDbAsyncClient(),
+            configuration.getDynamoDbTables().getAccounts().getTableName()));
+
+    final ReadCapacityThrottle readCapacityThrottle =
+        maxReadCapacity > 0 ? new ReadCapacityThrottle(maxReadCapacity, Clock.systemUTC()) : null;
+
+    final Disposable progressReporter = Flux.interval(PROGRESS_REPORT_INTERVAL)
+        .subscribe(ignored -> progress.logProgress());
+
+    try {
+      crawl(commandDependencies.accountsManager(), segments, checkpoints, progress, readCapacityThrottle,
+          this::crawlAccounts);
+    } finally {
+      progressReporter.dispose();
+    }
+
+    progress.logProgress();
+
+    // The crawl finished, so there's nothing to resume
+    checkpoints.clear();
+  }
+
+  /**
+   * Crawls all segments of the accounts table in rounds. Each round passes up to {@link #CHECKPOINT_INTERVAL_PAGES}
+   * pages from each unfinished segment to the given crawler. Crawlers may filter, buffer, or fan out accounts
+   * arbitrarily, so the only reliable signal that a round's accounts have been processed is the crawler returning.
+   * Checkpoints are therefore saved between rounds, from the calling thread.
+   */
+  @VisibleForTesting
+  static void crawl(final AccountsManager accountsManager,
+      final int totalSegments,
+      final AccountCrawlCheckpoints checkpoints,
+      final CrawlProgress progress,
+      @Nullable final ReadCapacityThrottle readCapacityThrottle,
+      final Consumer<Flux<Account>> crawler) {
+
+    final List<SegmentCrawl> unfinishedSegments = new ArrayList<>(totalSegments);
+
+    for (int segment = 0; segment < totalSegments; segment++) {
+      final SegmentCrawl segmentCrawl = new SegmentCrawl(segment, checkpoints.getCheckpoint(segment));
+
+      progress.addRestoredAccountsCrawled(segmentCrawl.accountsCrawled);
+      unfinishedSegments.add(segmentCrawl);
+    }
+
+    while (!unfinishedSegments.isEmpty()) {
+      unfinishedSegments.forEach(SegmentCrawl::startRound);
+
+      crawler.accept(Flux.fromIterable(unfinishedSegments)
+          .parallel()
+          .runOn(Schedulers.parallel())
+          .flatMap(segmentCrawl -> crawlRound(accountsManager, segmentCrawl, totalSegments, progress,
+              readCapacityThrottle))
+          .sequential());
+
+      // The crawler has returned, and so has processed every account in the round
+      for (final Iterator<SegmentCrawl> iterator = unfinishedSegments.iterator(); iterator.hasNext(); ) {
+        final SegmentCrawl segmentCrawl = iterator.next();
+
+        if (segmentCrawl.finished) {
+          progress.segmentCompleted();
+          iterator.remove();
+        } else if (segmentCrawl.lastEvaluatedAccountIdentifier != null) {
+          checkpoints.setCheckpoint(segmentCrawl.segment, new AccountCrawlCheckpoints.Checkpoint(
+              segmentCrawl.lastEvaluatedAccountIdentifier, segmentCrawl.accountsCrawled));
+        }
+      }
+    }
+  }
+
+  private static Flux<Account> crawlRound(final AccountsManager accountsManager,
+      final SegmentCrawl segmentCrawl,
+      final int totalSegments,
+      final CrawlProgress progress,
+      @Nullable final ReadCapacityThrottle readCapacityThrottle) {
+
+    return accountsManager.streamSegmentFromDynamo(segmentCrawl.segment, totalSegments,
+            segmentCrawl.lastEvaluatedAccountIdentifier)
+        .take(CHECKPOINT_INTERVAL_PAGES)
+        .delayUntil(page -> readCapacityThrottle != null
+            ? Mono.delay(readCapacityThrottle.recordRead(page.consumedCapacityUnits()))
+            : Mono.empty())
+        .doOnNext(page -> {
+          progress.addAccountsCrawled(page.accounts().size());
+          segmentCrawl.pageCrawled(page);
+        })
+        .concatMapIterable(Accounts.ScanPage::accounts);
+  }
+
+  /**
+   * Tracks how far a single segment has been crawled. Updated by the segment's scan during a round and read between
+   * rounds.
+   */
+  private static class SegmentCrawl {
+
+    private final int segment;
+
+    @Nullable
+    private volatile UUID lastEvaluatedAccountIdentifier;
+    private volatile long accountsCrawled;
+    private volatile boolean finished;
+
+    SegmentCrawl(final int segment, final Optional<AccountCrawlCheckpoints.Checkpoint> maybeCheckpoint) {
+      this.segment = segment;
+      this.lastEvaluatedAccountIdentifier = maybeCheckpoint
+          .map(AccountCrawlCheckpoints.Checkpoint::lastEvaluatedAccountIdentifier)
+          .orElse(null);
+      this.accountsCrawled = maybeCheckpoint.map(AccountCrawlCheckpoints.Checkpoint::accountsCrawled).orElse(0L);
+    }
+
+    void startRound() {
+      // A scan that yields no more pages has reached the end of the segment
+      finished = true;
+    }
+
+    void pageCrawled(final Accounts.ScanPage page) {
+      // Pages for a single segment arrive in order from a single scan
+      accountsCrawled += page.accounts().size();
+      lastEvaluatedAccountIdentifier = page.lastEvaluatedAccountIdentifier().orElse(null);
+      finished = page.lastEvaluatedAccountIdentifier().isEmpty();
+    }
+  }
+
+  private long getApproximateAccountCount(final DynamoDbAsyncClient dynamoDbAsyncClient, final String tableName) {
+    try {
+      // DynamoDB updates this figure roughly every six hours, which is plenty precise for estimating progress
+      return dynamoDbAsyncClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+          .join()
+          .table()
+          .itemCount();
+    } catch (final Exception e) {
+      logger.warn("Failed to get approximate account count; estimated time remaining will not be available", e);
+      return 0;
+    }
+  }
+
+  /**
+   * Tracks the progress of a crawl across all segments and estimates the time remaining.
+   */
+  @VisibleForTesting
+  static class CrawlProgress {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlProgress.class);
+
+    private final String crawlerName;
+    private final int totalSegments;
+    private final long approximateAccountCount;
+    private final Instant start = Instant.now();
+
+    private final AtomicLong accountsCrawled = new AtomicLong();
+    private final AtomicLong accountsCrawledAtStart = new AtomicLong();
+    private final AtomicInteger segmentsCompleted = new AtomicInteger();
+
+    CrawlProgress(final String crawlerName, final int totalSegments, final long approximateAccountCount) {
+      this.crawlerName = crawlerName;
+      this.totalSegments = totalSegments;
+      this.approximateAccountCount = approximateAccountCount;
+
+      final Tags tags = Tags.of(COMMAND_TAG, crawlerName);
+
+      Metrics.gauge(ACCOUNTS_CRAWLED_GAUGE_NAME, tags, accountsCrawled);
+      Metrics.gauge(SEGMENTS_COMPLETED_GAUGE_NAME, tags, segmentsCompleted);
+      Metrics.gauge(ESTIMATED_TIME_REMAINING_GAUGE_NAME, tags, this,
+          progress -> progress.getEstimatedTimeRemaining().map(Duration::toSeconds).orElse(-1L));
+    }
+
+    void addAccountsCrawled(final long accounts) {
+      accountsCrawled.addAndGet(accounts);
+    }
+
+    /**
+     * Records accounts crawled by a previous run, as restored from a checkpoint. These accounts count toward the crawl's
+     * progress, but not toward this run's crawl rate.
+     */
+    void addRestoredAccountsCrawled(final long accounts) {
+      accountsCrawledAtStart.addAndGet(accounts);
+      accountsCrawled.addAndGet(accounts);
+    }
+
+    void segmentCompleted() {
+      segmentsCompleted.incrementAndGet();
+    }
+
+    Optional<Duration> getEstimatedTimeRemaining() {
+      final long crawledThisRun = accountsCrawled.get() - accountsCrawledAtStart.get();
+      final Duration elapsed = Duration.between(start, Instant.now());
+
+      if (approximateAccountCount <= 0 || crawledThisRun <= 0 || elapsed.isZero()) {
+        return Optional.empty();
+      }
+
+      final long accountsRemaining = Math.max(0, approximateAccountCount - accountsCrawled.get());
+      return Optional.of(elapsed.multipliedBy(accountsRemaining).dividedBy(crawledThisRun));
+    }
+
+    void logProgress() {
+      logger.info("{} crawled {} of ~{} accounts; {} of {} segments complete; estimated time remaining: {}",
+          crawlerName,
+          accountsCrawled.get(),
+          approximateAccountCount,
+          segmentsCompleted.get(),
+          totalSegments,
+          getEstimatedTimeRemaining().map(Duration::toString).orElse("unknown"));
+    }
   }
 
+  /**
+   * Processes a batch of accounts, returning only once every account in the batch has been processed. A crawl calls
+   * this method once per round (see {@link #CHECKPOINT_INTERVAL_PAGES}), so a large crawl calls it many times.
+   *
+   * @param accounts the accounts to process
+   */
   protected abstract void crawlAccounts(final Flux<Account> accounts);
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+
+/**
+ * Stores per-segment progress for an account crawler so that a crawl interrupted partway through the accounts table
+ * can resume where it left off instead of starting over.
+ */
+class AccountCrawlCheckpoints {
+
+  private final FaultTolerantRedisCluster redisCluster;
+  private final String checkpointKey;
+
+  /**
+   * @param lastEvaluatedAccountIdentifier the last account evaluated in the segment as of this checkpoint
+   * @param accountsCrawled the number of accounts crawled in the segment as of this checkpoint
+   */
+  record Checkpoint(UUID lastEvaluatedAccountIdentifier, long accountsCrawled) {
+  }
+
+  // Abandoned checkpoints (i.e. for crawls that are never resumed) expire after this long
+  @VisibleForTesting
+  static final Duration CHECKPOINT_TTL = Duration.ofDays(7);
+
+  /**
+   * @param redisCluster the cluster in which to store checkpoints
+   * @param crawlerName the name of the crawler whose checkpoints are stored
+   * @param totalSegments the number of segments into which the crawler divides the accounts table; checkpoints from
+   *                      crawls with a different number of segments are not interchangeable, and are ignored
+   */
+  AccountCrawlCheckpoints(final FaultTolerantRedisCluster redisCluster,
+      final String crawlerName,
+      final int totalSegments) {
+
+    this.redisCluster = redisCluster;
+    this.checkpointKey = "account_crawl_checkpoints::{" + crawlerName + "}::" + totalSegments;
+  }
+
+  Optional<Checkpoint> getCheckpoint(final int segment) {
+    return Optional.ofNullable(redisCluster.withCluster(connection ->
+            connection.sync().hget(checkpointKey, String.valueOf(segment))))
+        .map(AccountCrawlCheckpoints::decodeCheckpoint);
+  }
+
+  void setCheckpoint(final int segment, final Checkpoint checkpoint) {
+    redisCluster.useCluster(connection -> {
+      connection.sync().hset(checkpointKey, String.valueOf(segment), encodeCheckpoint(checkpoint));
+      connection.sync().expire(checkpointKey, CHECKPOINT_TTL);
+    });
+  }
+
+  void clear() {
+    redisCluster.useCluster(connection -> connection.sync().del(checkpointKey));
+  }
+
+  private static String encodeCheckpoint(final Checkpoint checkpoint) {
+    return checkpoint.lastEvaluatedAccountIdentifier() + ":" + checkpoint.accountsCrawled();
+  }
+
+  private static Checkpoint decodeCheckpoint(final String encodedCheckpoint) {
+    final int separatorIndex = encodedCheckpoint.indexOf(':');
+
+    return new Checkpoint(UUID.fromString(encodedCheckpoint.substring(0, separatorIndex)),
+        Long.parseLong(encodedCheckpoint.substring(separatorIndex + 1)));
+  }
+}
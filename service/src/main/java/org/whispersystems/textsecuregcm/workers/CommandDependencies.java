@@ -126,8 +126,6 @@ record CommandDependencies(
         .executorService(name(name, "secureValueRecoveryService-%d")).maxThreads(8).minThreads(8).build();
     ExecutorService storageServiceExecutor = environment.lifecycle()
         .executorService(name(name, "storageService-%d")).maxThreads(8).minThreads(8).build();
-    ExecutorService accountLockExecutor = environment.lifecycle()
-        .executorService(name(name, "accountLock-%d")).minThreads(8).maxThreads(8).build();
     ExecutorService clientPresenceExecutor = environment.lifecycle()
         .executorService(name(name, "clientPresence-%d")).minThreads(8).maxThreads(8).build();
     ExecutorService remoteStorageHttpExecutor = environment.lifecycle()
@@ -221,14 +219,14 @@ record CommandDependencies(
         configuration.getReportMessageConfiguration().getCounterTtl());
     MessagesManager messagesManager = new MessagesManager(messagesDynamoDb, messagesCache,
         reportMessageManager, messageDeletionExecutor);
-    AccountLockManager accountLockManager = new AccountLockManager(dynamoDbClient,
+    AccountLockManager accountLockManager = new AccountLockManager(dynamoDbAsyncClient,
         configuration.getDynamoDbTables().getDeletedAccountsLock().getTableName());
     ClientPublicKeysManager clientPublicKeysManager =
-        new ClientPublicKeysManager(clientPublicKeys, accountLockManager, accountLockExecutor);
+        new ClientPublicKeysManager(clientPublicKeys, accountLockManager);
     AccountsManager accountsManager = new AccountsManager(accounts, phoneNumberIdentifiers, cacheCluster,
         accountLockManager, keys, messagesManager, profilesManager,
         secureStorageClient, secureValueRecovery2Client, clientPresenceManager,
-        registrationRecoveryPasswordsManager, clientPublicKeysManager, accountLockExecutor, clientPresenceExecutor,
+        registrationRecoveryPasswordsManager, clientPublicKeysManager, clientPresenceExecutor,
         clock, configuration.getLinkDeviceSecretConfiguration().secret().value(), dynamicConfigurationManager);
     RateLimiters rateLimiters = RateLimiters.createAndValidate(configuration.getLimitsConfiguration(),
         dynamicConfigurationManager, rateLimitersCluster);
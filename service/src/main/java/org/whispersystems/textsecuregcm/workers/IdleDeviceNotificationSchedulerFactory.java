@@ -16,6 +16,8 @@ public class IdleDeviceNotificationSchedulerFactory implements JobSchedulerFacto
         commandDependencies.dynamoDbAsyncClient(),
         configuration.getDynamoDbTables().getScheduledJobs().getTableName(),
         configuration.getDynamoDbTables().getScheduledJobs().getExpiration(),
+        configuration.getDynamoDbTables().getScheduledJobs().getShardCount(),
+        configuration.getDynamoDbTables().getScheduledJobs().getMaxWriteCapacityUnitsPerSecond(),
         Clock.systemUTC());
   }
 }
@@ -7,7 +7,7 @@ import net.sourceforge.argparse4j.inf.Subparser;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.whispersystems.textsecuregcm.configuration.DynamoDbTables;
+import org.whispersystems.textsecuregcm.configuration.ScheduledJobsTableConfiguration;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.push.IdleDeviceNotificationScheduler;
@@ -125,7 +125,7 @@ public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountsCom
 
   @VisibleForTesting
   protected IdleDeviceNotificationScheduler buildIdleDeviceNotificationScheduler() {
-    final DynamoDbTables.TableWithExpiration tableConfiguration = getConfiguration().getDynamoDbTables().getScheduledJobs();
+    final ScheduledJobsTableConfiguration tableConfiguration = getConfiguration().getDynamoDbTables().getScheduledJobs();
 
     return new IdleDeviceNotificationScheduler(
         getCommandDependencies().accountsManager(),
@@ -133,6 +133,8 @@ public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountsCom
         getCommandDependencies().dynamoDbAsyncClient(),
         tableConfiguration.getTableName(),
         tableConfiguration.getExpiration(),
+        tableConfiguration.getShardCount(),
+        tableConfiguration.getMaxWriteCapacityUnitsPerSecond(),
         Clock.systemUTC());
   }
 
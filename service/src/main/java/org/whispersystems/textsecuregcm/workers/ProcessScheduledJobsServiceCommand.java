@@ -32,6 +32,8 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
   private static final int DEFAULT_FIXED_DELAY_SECONDS = 60;
   private static final String SHUTDOWN_WAIT_SECONDS_ARGUMENT = "shutdownWait";
   private static final int DEFAULT_SHUTDOWN_WAIT_SECONDS = 60;
+  private static final String PROCESSOR_INDEX_ARGUMENT = "processorIndex";
+  private static final String PROCESSOR_COUNT_ARGUMENT = "processorCount";
 
   private static final Logger log = LoggerFactory.getLogger(ProcessScheduledJobsServiceCommand.class);
 
@@ -42,6 +44,8 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
 
     private final ScheduledExecutorService scheduledExecutorService;
     private final int fixedDelaySeconds;
+    private final int processorIndex;
+    private final int processorCount;
 
     private ScheduledFuture<?> processJobsFuture;
     private Disposable processAvailableJobsDisposableReference = Disposables.disposed();
@@ -50,11 +54,15 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
     @VisibleForTesting
     ScheduledJobProcessor(final JobScheduler jobScheduler,
         final ScheduledExecutorService scheduledExecutorService,
-        final int fixedDelaySeconds) {
+        final int fixedDelaySeconds,
+        final int processorIndex,
+        final int processorCount) {
 
       this.jobScheduler = jobScheduler;
       this.scheduledExecutorService = scheduledExecutorService;
       this.fixedDelaySeconds = fixedDelaySeconds;
+      this.processorIndex = processorIndex;
+      this.processorCount = processorCount;
     }
 
     @Override
@@ -67,7 +75,7 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
             return;
           }
 
-          processAvailableJobsDisposableReference = jobScheduler.processAvailableJobs()
+          processAvailableJobsDisposableReference = jobScheduler.processAvailableJobs(processorIndex, processorCount)
               // this CountDownLatch pattern is how Mono.block() is implemented
               .doOnCancel(latch::countDown)
               .doOnTerminate(latch::countDown)
@@ -129,6 +137,18 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
         .dest(SHUTDOWN_WAIT_SECONDS_ARGUMENT)
         .setDefault(DEFAULT_SHUTDOWN_WAIT_SECONDS)
         .help("The duration, in seconds, to wait for in-flight jobs to finish at shutdown");
+
+    subparser.addArgument("--processor-index")
+        .type(Integer.class)
+        .dest(PROCESSOR_INDEX_ARGUMENT)
+        .setDefault(0)
+        .help("The index of this processor among all processors for the same scheduler");
+
+    subparser.addArgument("--processor-count")
+        .type(Integer.class)
+        .dest(PROCESSOR_COUNT_ARGUMENT)
+        .setDefault(1)
+        .help("The total number of processors dividing the same scheduler's shards among themselves");
   }
 
   @Override
@@ -143,6 +163,8 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
 
     final int fixedDelaySeconds = namespace.getInt(FIXED_DELAY_SECONDS_ARGUMENT);
     final int shutdownWaitSeconds = namespace.getInt(SHUTDOWN_WAIT_SECONDS_ARGUMENT);
+    final int processorIndex = namespace.getInt(PROCESSOR_INDEX_ARGUMENT);
+    final int processorCount = namespace.getInt(PROCESSOR_COUNT_ARGUMENT);
 
     MetricsUtil.configureRegistries(configuration, environment, commandDependencies.dynamicConfigurationManager());
 
@@ -164,7 +186,8 @@ public class ProcessScheduledJobsServiceCommand extends ServerCommand<WhisperSer
 
     final JobScheduler jobScheduler = jobSchedulerFactory.buildJobScheduler(commandDependencies, configuration);
 
-    environment.lifecycle().manage(new ScheduledJobProcessor(jobScheduler, scheduledExecutorService, fixedDelaySeconds));
+    environment.lifecycle().manage(new ScheduledJobProcessor(jobScheduler, scheduledExecutorService, fixedDelaySeconds,
+        processorIndex, processorCount));
 
     MetricsUtil.registerSystemResourceMetrics(environment);
 
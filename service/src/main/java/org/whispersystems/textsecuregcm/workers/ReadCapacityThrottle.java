@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Paces a sequence of reads so their combined consumed capacity stays at or below a target rate. Because callers
+ * report the capacity each read actually consumed (which varies with the size of the items read) rather than a fixed
+ * cost per request, the request rate adapts to the shape of the data. A single throttle may be shared by many
+ * concurrent readers, in which case they share the capacity budget.
+ */
+class ReadCapacityThrottle {
+
+  private final double capacityUnitsPerSecond;
+  private final Clock clock;
+
+  private Instant nextReadAllowed;
+
+  ReadCapacityThrottle(final double capacityUnitsPerSecond, final Clock clock) {
+    if (capacityUnitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Capacity target must be positive");
+    }
+
+    this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+    this.clock = clock;
+    this.nextReadAllowed = clock.instant();
+  }
+
+  /**
+   * Records that a read consumed the given capacity.
+   *
+   * @param consumedCapacityUnits the capacity consumed by a read that has just completed
+   *
+   * @return the time the caller should wait before issuing its next read
+   */
+  synchronized Duration recordRead(final double consumedCapacityUnits) {
+    final Instant now = clock.instant();
+
+    // Don't let capacity left unused while idle accumulate into a burst
+    if (nextReadAllowed.isBefore(now)) {
+      nextReadAllowed = now;
+    }
+
+    nextReadAllowed = nextReadAllowed.plusNanos((long) (consumedCapacityUnits / capacityUnitsPerSecond * 1_000_000_000));
+
+    return Duration.between(now, nextReadAllowed);
+  }
+}
@@ -5,13 +5,17 @@
 
 package org.whispersystems.textsecuregcm.workers;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.setup.Environment;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.HexFormat;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
@@ -20,6 +24,8 @@ import org.whispersystems.textsecuregcm.WhisperServerConfiguration;
 import org.whispersystems.textsecuregcm.backup.BackupManager;
 import org.whispersystems.textsecuregcm.backup.ExpiredBackup;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -36,6 +42,7 @@ public class RemoveExpiredBackupsCommand extends AbstractCommandWithDependencies
   private static final Duration DEFAULT_GRACE_PERIOD = Duration.ofDays(60);
   private static final int DEFAULT_SEGMENT_COUNT = 1;
   private static final int DEFAULT_CONCURRENCY = 16;
+  private static final Duration PROGRESS_REPORT_INTERVAL = Duration.ofMinutes(1);
 
   private static final String EXPIRED_BACKUPS_COUNTER_NAME = MetricsUtil.name(RemoveExpiredBackupsCommand.class,
       "expiredBackups");
@@ -98,27 +105,104 @@ public class RemoveExpiredBackupsCommand extends AbstractCommandWithDependencies
         gracePeriod);
 
     final BackupManager backupManager = commandDependencies.backupManager();
-    final long backupsExpired = backupManager
-        .getExpiredBackups(segments, Schedulers.parallel(), clock.instant().minus(gracePeriod))
-        .flatMap(expiredBackup -> removeExpiredBackup(backupManager, expiredBackup, dryRun), concurrency)
-        .filter(Boolean.TRUE::equals)
-        .count()
-        .block();
+
+    // Used only to estimate how much of the table remains to be scanned
+    final long approximateBackupCount = backupManager.getApproximateBackupCount().join();
+
+    final ScanProgress progress = new ScanProgress(clock.instant(), approximateBackupCount);
+
+    final Disposable progressReporter = Flux.interval(PROGRESS_REPORT_INTERVAL)
+        .subscribe(ignored -> logProgress(progress));
+
+    final long backupsExpired;
+    try {
+      backupsExpired = backupManager
+          .getExpiredBackups(segments, Schedulers.parallel(), clock.instant().minus(gracePeriod),
+              progress.rowsScanned::addAndGet)
+          .doOnNext(ignored -> progress.backupsFound.incrementAndGet())
+          .flatMap(expiredBackup -> removeExpiredBackup(backupManager, expiredBackup, dryRun)
+                  .doOnNext(deleted -> {
+                    progress.backupsProcessed.incrementAndGet();
+                    deleted.ifPresent(progress.objectsDeleted::addAndGet);
+                  }),
+              concurrency)
+          .filter(Optional::isPresent)
+          .count()
+          .block();
+    } finally {
+      progressReporter.dispose();
+    }
+
+    logProgress(progress);
     logger.info("Expired {} backups", backupsExpired);
   }
 
-  private Mono<Boolean> removeExpiredBackup(
+  private record ScanProgress(Instant start,
+      long approximateBackupCount,
+      AtomicLong rowsScanned,
+      AtomicLong backupsFound,
+      AtomicLong backupsProcessed,
+      AtomicLong objectsDeleted) {
+
+    ScanProgress(final Instant start, final long approximateBackupCount) {
+      this(start, approximateBackupCount, new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong());
+    }
+  }
+
+  private void logProgress(final ScanProgress progress) {
+    final long rowsScanned = progress.rowsScanned().get();
+    final long backupsFound = progress.backupsFound().get();
+    final long backupsProcessed = progress.backupsProcessed().get();
+    final long objectsDeleted = progress.objectsDeleted().get();
+
+    final Duration elapsed = Duration.between(progress.start(), clock.instant());
+    final double objectsPerSecond = elapsed.isZero() ? 0 : objectsDeleted / (elapsed.toMillis() / 1000.0);
+
+    logger.info("Scanned {} of ~{} backups; processed {} of {} expired backups found so far",
+        rowsScanned, progress.approximateBackupCount(), backupsProcessed, backupsFound);
+
+    logger.info("Deleted {} objects in {} ({} objects/s); ~{} expired backups remaining",
+        objectsDeleted, elapsed, String.format("%.1f", objectsPerSecond),
+        estimateBackupsRemaining(progress.approximateBackupCount(), rowsScanned, backupsFound, backupsProcessed));
+  }
+
+  /**
+   * Estimates the number of expired backups that have yet to be processed, including those the scan hasn't reached yet,
+   * by assuming the unscanned part of the table has the same proportion of expired backups as the part scanned so far.
+   */
+  @VisibleForTesting
+  static long estimateBackupsRemaining(final long approximateBackupCount, final long rowsScanned,
+      final long backupsFound, final long backupsProcessed) {
+
+    final long backupsPending = backupsFound - backupsProcessed;
+
+    if (rowsScanned == 0) {
+      return backupsPending;
+    }
+
+    // The table's approximate item count may be hours stale, so the scan may run past it
+    final long rowsRemaining = Math.max(0, approximateBackupCount - rowsScanned);
+
+    return backupsPending + Math.round((double) backupsFound / rowsScanned * rowsRemaining);
+  }
+
+  /**
+   * @return a mono that yields the number of cdn objects deleted, or an empty optional if the backup could not be
+   * expired
+   */
+  private Mono<Optional<Long>> removeExpiredBackup(
       final BackupManager backupManager, final ExpiredBackup expiredBackup,
       final boolean dryRun) {
 
-    final Mono<Boolean> mono;
+    final Mono<Long> mono;
     if (dryRun) {
-      mono = Mono.just(true);
+      mono = Mono.just(0L);
     } else {
-      mono = Mono.fromCompletionStage(() -> backupManager.expireBackup(expiredBackup)).thenReturn(true);
+      mono = Mono.fromCompletionStage(() -> backupManager.expireBackup(expiredBackup));
     }
 
     return mono
+        .map(Optional::of)
         .doOnSuccess(ignored -> {
           logger.trace("Successfully expired {} for {}",
               expiredBackup.expirationType(),
@@ -133,7 +217,7 @@ public class RemoveExpiredBackupsCommand extends AbstractCommandWithDependencies
           logger.warn("Failed to remove tier {} for backup {}",
               expiredBackup.expirationType(),
               HexFormat.of().formatHex(expiredBackup.hashedBackupId()));
-          return Mono.just(false);
+          return Mono.just(Optional.empty());
         });
   }
 }
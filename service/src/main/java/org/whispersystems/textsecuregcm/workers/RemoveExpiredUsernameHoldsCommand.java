@@ -98,7 +98,7 @@ public class RemoveExpiredUsernameHoldsCommand extends AbstractSinglePassCrawlAc
               });
         }, maxConcurrency)
         .then().block();
-    log.info("Finished crawl of {} accounts", accountsInspected.get());
+    log.info("Finished crawling batch of {} accounts", accountsInspected.get());
   }
 
   @VisibleForTesting
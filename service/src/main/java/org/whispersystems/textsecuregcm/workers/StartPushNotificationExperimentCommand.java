@@ -83,7 +83,7 @@ public class StartPushNotificationExperimentCommand<T> extends AbstractSinglePas
     final PushNotificationExperimentSamples pushNotificationExperimentSamples =
         getCommandDependencies().pushNotificationExperimentSamples();
 
-    log.info("Starting \"{}\" with max concurrency: {}", experiment.getExperimentName(), maxConcurrency);
+    log.info("Processing batch for \"{}\" with max concurrency: {}", experiment.getExperimentName(), maxConcurrency);
 
     accounts
         .flatMap(account -> Flux.fromIterable(account.getDevices()).map(device -> Tuples.of(account, device)))
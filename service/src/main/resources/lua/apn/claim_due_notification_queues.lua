@@ -0,0 +1,31 @@
+-- Claims notification queues with entries that are due according to a slot range's due-time index. Claims are only
+-- granted to the holder of the range's lease (or to any worker if the range isn't leased), and acquiring a claim also
+-- (re)acquires the lease. Claimed queues stay in the index, but their due time is pushed back to the time at which the
+-- claim expires, so if the claiming worker fails to finish processing a queue, another worker will claim it later.
+-- Returns the keys of the claimed queues.
+local dueQueuesKey = KEYS[1]
+local leaseKey = KEYS[2]
+
+local leaseHolder = ARGV[1]
+local currentTimeMillis = tonumber(ARGV[2])
+local claimedUntilMillis = tonumber(ARGV[3])
+local limit = tonumber(ARGV[4])
+local leaseDurationMillis = tonumber(ARGV[5])
+
+local currentLeaseHolder = redis.call("GET", leaseKey)
+
+if currentLeaseHolder and currentLeaseHolder ~= leaseHolder then
+    return {}
+end
+
+local dueQueueKeys = redis.call("ZRANGEBYSCORE", dueQueuesKey, "-inf", currentTimeMillis, "LIMIT", 0, limit)
+
+if #dueQueueKeys > 0 then
+    redis.call("SET", leaseKey, leaseHolder, "PX", leaseDurationMillis)
+
+    for _, queueKey in ipairs(dueQueueKeys) do
+        redis.call("ZADD", dueQueuesKey, claimedUntilMillis, queueKey)
+    end
+end
+
+return dueQueueKeys
@@ -0,0 +1,23 @@
+-- Updates the due-time index entry for a notification queue after a worker has finished processing it. If the queue's
+-- due time has changed since it was claimed (i.e. because a notification with an earlier due time was scheduled in the
+-- meantime), the index is left unchanged. Otherwise, the queue's due time is set to the given next due time or, if no
+-- next due time is given, the queue is removed from the index. Returns 1 if the queue was removed or 0 otherwise.
+local dueQueuesKey = KEYS[1]
+
+local queueKey = ARGV[1]
+local claimedUntilMillis = tonumber(ARGV[2])
+local nextDueTimeMillis = ARGV[3]
+
+local currentDueTimeMillis = redis.call("ZSCORE", dueQueuesKey, queueKey)
+
+if (not currentDueTimeMillis) or tonumber(currentDueTimeMillis) ~= claimedUntilMillis then
+    return 0
+end
+
+if nextDueTimeMillis == "" then
+    redis.call("ZREM", dueQueuesKey, queueKey)
+    return 1
+end
+
+redis.call("ZADD", dueQueuesKey, tonumber(nextDueTimeMillis), queueKey)
+return 0
@@ -15,3 +15,6 @@ else
 end
 
 redis.call("ZADD", queueKey, "NX", nextNotificationTimestamp, accountDevicePair)
+
+-- Return the time at which the (possibly pre-existing) notification is due
+return redis.call("ZSCORE", queueKey, accountDevicePair)
@@ -0,0 +1,15 @@
+-- Records the time at which the earliest entry in a notification queue becomes due. If the queue is already present
+-- in the due-time index with an earlier due time, the index is left unchanged. Returns true if the index was updated.
+local dueQueuesKey = KEYS[1]
+
+local queueKey = ARGV[1]
+local dueTimeMillis = tonumber(ARGV[2])
+
+local currentDueTimeMillis = redis.call("ZSCORE", dueQueuesKey, queueKey)
+
+if (not currentDueTimeMillis) or dueTimeMillis < tonumber(currentDueTimeMillis) then
+    redis.call("ZADD", dueQueuesKey, dueTimeMillis, queueKey)
+    return true
+end
+
+return false
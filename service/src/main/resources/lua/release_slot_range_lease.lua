@@ -0,0 +1,10 @@
+-- releases a worker's lease on a range of slots, but only if the lease is still held by the given holder
+
+local leaseKey    = KEYS[1] -- [string] the key of the slot range lease
+local leaseHolder = ARGV[1] -- [string] the identifier of the worker that acquired the lease
+
+if redis.call("GET", leaseKey) == leaseHolder then
+    return redis.call("DEL", leaseKey)
+end
+
+return 0
@@ -175,6 +175,43 @@ class AccountAuthenticatorTest {
     verify(accountsManager, never()).updateDeviceAuthentication(any(), any(), any());;
   }
 
+  @Test
+  void testAuthenticateCachedCredentials() {
+    final UUID uuid = UUID.randomUUID();
+    final byte deviceId = 1;
+    final String password = "12345";
+
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+    final SaltedTokenHash credentials = mock(SaltedTokenHash.class);
+
+    clock.unpin();
+    when(accountsManager.getByAccountIdentifier(uuid)).thenReturn(Optional.of(account));
+    when(account.getUuid()).thenReturn(uuid);
+    when(account.getDevice(deviceId)).thenReturn(Optional.of(device));
+    when(device.getId()).thenReturn(deviceId);
+    when(device.getAuthTokenHash()).thenReturn(credentials);
+    when(credentials.verify(password)).thenReturn(true);
+    when(credentials.getVersion()).thenReturn(SaltedTokenHash.CURRENT_VERSION);
+
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isPresent();
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isPresent();
+    verify(credentials, times(1)).verify(password);
+
+    // A different password must never match a remembered credential
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password + "incorrect")))
+        .isEmpty();
+    verify(credentials).verify(password + "incorrect");
+
+    // Changing the device's credentials should invalidate the remembered credential
+    final SaltedTokenHash updatedCredentials = mock(SaltedTokenHash.class);
+    when(device.getAuthTokenHash()).thenReturn(updatedCredentials);
+    when(updatedCredentials.getVersion()).thenReturn(SaltedTokenHash.CURRENT_VERSION);
+
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isEmpty();
+    verify(updatedCredentials).verify(password);
+  }
+
   @Test
   void testAuthenticateNonDefaultDevice() {
     final UUID uuid = UUID.randomUUID();
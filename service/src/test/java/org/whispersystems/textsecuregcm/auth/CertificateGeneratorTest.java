@@ -5,17 +5,22 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.Curve;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.SenderCertificate;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -50,4 +55,36 @@ class CertificateGeneratorTest {
     assertTrue(certificateGenerator.createFor(account, device, true).length > 0);
     assertTrue(certificateGenerator.createFor(account, device, false).length > 0);
   }
+
+  @Test
+  void testCreateForCached() throws IOException, InvalidKeyException, org.signal.libsignal.protocol.InvalidKeyException {
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+    final CertificateGenerator certificateGenerator = new CertificateGenerator(
+        Base64.getDecoder().decode(SIGNING_CERTIFICATE),
+        Curve.decodePrivatePoint(Base64.getDecoder().decode(SIGNING_KEY)), 1);
+
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(IDENTITY_KEY);
+    when(account.getUuid()).thenReturn(UUID.randomUUID());
+    when(account.getNumber()).thenReturn("+18005551234");
+    when(device.getId()).thenReturn((byte) 4);
+
+    final byte[] certificate = certificateGenerator.createFor(account, device, true);
+    assertArrayEquals(certificate, certificateGenerator.createFor(account, device, true));
+    assertFalse(Arrays.equals(certificate, certificateGenerator.createFor(account, device, false)));
+
+    // Changing any input to the certificate should produce a new certificate
+    when(account.getNumber()).thenReturn("+18005556789");
+    final byte[] certificateForNewNumber = certificateGenerator.createFor(account, device, true);
+    assertEquals("+18005556789",
+        SenderCertificate.Certificate.parseFrom(SenderCertificate.parseFrom(certificateForNewNumber).getCertificate())
+            .getSender());
+
+    final IdentityKey newIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(newIdentityKey);
+    final byte[] certificateForNewIdentityKey = certificateGenerator.createFor(account, device, true);
+    assertArrayEquals(newIdentityKey.serialize(),
+        SenderCertificate.Certificate.parseFrom(SenderCertificate.parseFrom(certificateForNewIdentityKey).getCertificate())
+            .getIdentityKey().toByteArray());
+  }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.backup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private static final Duration LATENCY_TARGET = Duration.ofSeconds(1);
+  private static final long MIN_THROUGHPUT = 1_000;
+
+  @Test
+  public void additiveIncrease() {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, LATENCY_TARGET, MIN_THROUGHPUT, 0.5);
+
+    // It takes about `limit` healthy operations to grow the limit by one
+    for (int i = 0; i < 4; i++) {
+      limit.onComplete(Duration.ofMillis(10), 0, false);
+    }
+
+    assertThat(limit.getLimit()).isEqualTo(4);
+
+    limit.onComplete(Duration.ofMillis(10), 0, false);
+    assertThat(limit.getLimit()).isEqualTo(5);
+  }
+
+  @Test
+  public void multiplicativeDecrease() {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, LATENCY_TARGET, MIN_THROUGHPUT, 0.5);
+
+    limit.onComplete(Duration.ofMillis(10), 0, true);
+    assertThat(limit.getLimit()).isEqualTo(4);
+
+    // Let the operations that were in flight when the limit backed off drain
+    for (int i = 0; i < 8; i++) {
+      limit.onComplete(Duration.ofMillis(10), 0, false);
+    }
+
+    limit.onComplete(LATENCY_TARGET.plusMillis(1), 0, false);
+    assertThat(limit.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void backoffAtMostOncePerWindow() {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, LATENCY_TARGET, MIN_THROUGHPUT, 0.5);
+
+    // A whole batch of slow operations should only cut the limit once
+    for (int i = 0; i < 8; i++) {
+      limit.onComplete(LATENCY_TARGET.plusMillis(1), 0, true);
+    }
+
+    assertThat(limit.getLimit()).isEqualTo(4);
+
+    // ...but once the operations that were running before the backoff have completed, the limit may back off again
+    limit.onComplete(LATENCY_TARGET.plusMillis(1), 0, true);
+    assertThat(limit.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void latencyTargetScalesWithPayloadSize() {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, LATENCY_TARGET, MIN_THROUGHPUT, 0.5);
+
+    assertThat(limit.getLatencyTarget(0)).isEqualTo(LATENCY_TARGET);
+    assertThat(limit.getLatencyTarget(MIN_THROUGHPUT * 10)).isEqualTo(LATENCY_TARGET.plusSeconds(10));
+
+    // A large payload that transfers at better than the minimum throughput is not a sign of overload
+    limit.onComplete(LATENCY_TARGET.plusSeconds(5), MIN_THROUGHPUT * 10, false);
+    assertThat(limit.getLimit()).isEqualTo(8);
+
+    limit.onComplete(LATENCY_TARGET.plusSeconds(15), MIN_THROUGHPUT * 10, false);
+    assertThat(limit.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void bounds() {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 2, 3, LATENCY_TARGET, MIN_THROUGHPUT, 0.5);
+
+    for (int i = 0; i < 100; i++) {
+      limit.onComplete(Duration.ofMillis(10), 0, false);
+    }
+
+    assertThat(limit.getLimit()).isEqualTo(3);
+
+    for (int i = 0; i < 100; i++) {
+      limit.onComplete(Duration.ofMillis(10), 0, true);
+    }
+
+    assertThat(limit.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidArguments() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveConcurrencyLimit(1, 2, 3, LATENCY_TARGET, MIN_THROUGHPUT, 0.5));
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveConcurrencyLimit(2, 1, 3, LATENCY_TARGET, 0, 0.5));
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new AdaptiveConcurrencyLimit(2, 1, 3, LATENCY_TARGET, MIN_THROUGHPUT, 1.5));
+  }
+}
@@ -9,17 +9,25 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -52,6 +60,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junitpioneer.jupiter.cartesian.CartesianTest;
+import org.mockito.Answers;
 import org.signal.libsignal.protocol.InvalidKeyException;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
@@ -94,7 +103,9 @@ public class BackupManagerTest {
   private final RateLimiter mediaUploadLimiter = mock(RateLimiter.class);
   private final TusAttachmentGenerator tusAttachmentGenerator = mock(TusAttachmentGenerator.class);
   private final Cdn3BackupCredentialGenerator tusCredentialGenerator = mock(Cdn3BackupCredentialGenerator.class);
-  private final RemoteStorageManager remoteStorageManager = mock(RemoteStorageManager.class);
+  // Call through to default methods so that multi-object deletions are performed with (mocked) individual deletions
+  private final RemoteStorageManager remoteStorageManager =
+      mock(RemoteStorageManager.class, withSettings().defaultAnswer(Answers.CALLS_REAL_METHODS));
   private final byte[] backupKey = TestRandomUtil.nextBytes(32);
   private final UUID aci = UUID.randomUUID();
 
@@ -111,10 +122,10 @@ public class BackupManagerTest {
 
     when(remoteStorageManager.cdnNumber()).thenReturn(3);
 
-    this.backupsDb = new BackupsDb(
+    this.backupsDb = spy(new BackupsDb(
         DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
         DynamoDbExtensionSchema.Tables.BACKUPS.tableName(),
-        testClock);
+        testClock));
     this.backupManager = new BackupManager(
         backupsDb,
         backupAuthTestUtil.params,
@@ -411,6 +422,54 @@ public class BackupManagerTest {
     assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_BYTES_USED, -1L))
         .isEqualTo(toCopy.get(0).destinationObjectSize());
     assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_COUNT, -1L)).isEqualTo(1L);
+
+    // usage for both failed copies should be restored in a single update
+    verify(backupsDb).trackMedia(backupUser, -2,
+        -(toCopy.get(1).destinationObjectSize() + toCopy.get(2).destinationObjectSize()));
+  }
+
+  @Test
+  public void copyConcurrencyLimitedAcrossBatches() {
+    final List<CompletableFuture<Void>> pendingCopies = Collections.synchronizedList(new ArrayList<>());
+
+    when(remoteStorageManager.copy(anyInt(), anyString(), anyInt(), any(), any())).thenAnswer(ignored -> {
+      final CompletableFuture<Void> pendingCopy = new CompletableFuture<>();
+      pendingCopies.add(pendingCopy);
+      return pendingCopy;
+    });
+
+    final List<CompletableFuture<List<CopyResult>>> batches = IntStream.range(0, 2)
+        .mapToObj(i -> backupUser(TestRandomUtil.nextBytes(16), BackupLevel.MEDIA))
+        .map(backupUser -> backupManager.copyToBackup(backupUser, IntStream.range(0, 20)
+                .mapToObj(i -> new CopyParameters(3, "source" + i, 100, COPY_ENCRYPTION_PARAM,
+                    TestRandomUtil.nextBytes(15)))
+                .toList())
+            .collectList()
+            .toFuture())
+        .toList();
+
+    // Wait for both batches to reserve quota and queue their copies; copies from both batches share one limit
+    verify(backupsDb, timeout(5_000).times(2)).trackMedia(any(), anyLong(), anyLong());
+    verify(remoteStorageManager, after(500).times(BackupManager.INITIAL_COPY_CONCURRENCY))
+        .copy(anyInt(), anyString(), anyInt(), any(), any());
+
+    // Completing copies releases permits to queued copies from either batch
+    for (int completed = 0; completed < 40; ) {
+      final List<CompletableFuture<Void>> started;
+
+      synchronized (pendingCopies) {
+        started = pendingCopies.stream().filter(copy -> !copy.isDone()).toList();
+      }
+
+      assertThat(started).isNotEmpty().hasSizeLessThanOrEqualTo(BackupManager.MAX_COPY_CONCURRENCY);
+      started.forEach(copy -> copy.complete(null));
+      completed += started.size();
+    }
+
+    assertThat(pendingCopies).hasSize(40);
+    batches.forEach(batch -> assertThat(batch.join())
+        .hasSize(20)
+        .allMatch(copyResult -> copyResult.outcome() == CopyResult.Outcome.SUCCESS));
   }
 
   @Test
@@ -444,15 +503,19 @@ public class BackupManagerTest {
     // set the backupsDb to be totally out of quota at t=0
     testClock.pin(Instant.ofEpochSecond(0));
     backupsDb.setMediaUsage(backupUser, new UsageInfo(BackupManager.MAX_TOTAL_BACKUP_MEDIA_BYTES, 1000)).join();
-    testClock.pin(Instant.ofEpochSecond(0).plus(BackupManager.MAX_QUOTA_STALENESS));
+    final Instant recalculationTime = Instant.ofEpochSecond(0).plus(BackupManager.MAX_QUOTA_STALENESS);
+    testClock.pin(recalculationTime);
+
+    // The copy is rejected based on the tracked usage, but should trigger a recalculation in the background
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
+    awaitMediaUsageRecalculation(backupUser, recalculationTime);
 
-    // Should recalculate quota and copy can succeed
+    // Once the usage has been recalculated, the copy can succeed
     assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.SUCCESS);
 
     // backupsDb should have the new value
     final BackupsDb.TimestampedUsageInfo info = backupsDb.getMediaUsage(backupUser).join();
-    assertThat(info.lastRecalculationTime())
-        .isEqualTo(Instant.ofEpochSecond(0).plus(BackupManager.MAX_QUOTA_STALENESS));
+    assertThat(info.lastRecalculationTime()).isEqualTo(recalculationTime);
     assertThat(info.usageInfo().bytesUsed()).isEqualTo(BackupManager.MAX_TOTAL_BACKUP_MEDIA_BYTES);
     assertThat(info.usageInfo().numObjects()).isEqualTo(1001);
   }
@@ -480,18 +543,75 @@ public class BackupManagerTest {
       when(remoteStorageManager.calculateBytesUsed(eq(backupMediaPrefix)))
           .thenReturn(CompletableFuture.completedFuture(new UsageInfo(afterRecalcRemainingSpace, 1000)));
     }
-    final CopyResult copyResult = copy(backupUser);
-    if (hasSpaceBeforeRecalc || (hasSpaceAfterRecalc && doesReaclc)) {
-      assertThat(copyResult.outcome()).isEqualTo(CopyResult.Outcome.SUCCESS);
-    } else {
-      assertThat(copyResult.outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
-    }
+
+    // Copies are always accepted or rejected based on the tracked usage
+    assertThat(copy(backupUser).outcome())
+        .isEqualTo(hasSpaceBeforeRecalc ? CopyResult.Outcome.SUCCESS : CopyResult.Outcome.OUT_OF_QUOTA);
+
     if (doesReaclc && !hasSpaceBeforeRecalc) {
-      // should have recalculated if we exceeded quota
+      // should have recalculated in the background if we exceeded quota, and subsequent copies should use the
+      // recalculated usage
+      awaitMediaUsageRecalculation(backupUser, testClock.instant());
       verify(remoteStorageManager, times(1)).calculateBytesUsed(anyString());
+
+      assertThat(copy(backupUser).outcome())
+          .isEqualTo(hasSpaceAfterRecalc ? CopyResult.Outcome.SUCCESS : CopyResult.Outcome.OUT_OF_QUOTA);
+    } else {
+      verify(remoteStorageManager, never()).calculateBytesUsed(anyString());
     }
   }
 
+  @Test
+  public void quotaEnforcementRecalculationThrows() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupLevel.MEDIA);
+    final String backupMediaPrefix = "%s/%s/".formatted(backupUser.backupDir(), backupUser.mediaDir());
+
+    when(remoteStorageManager.calculateBytesUsed(eq(backupMediaPrefix)))
+        .thenThrow(new IllegalStateException("test"))
+        .thenReturn(CompletableFuture.completedFuture(new UsageInfo(0, 0)));
+
+    testClock.pin(Instant.ofEpochSecond(0));
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(BackupManager.MAX_TOTAL_BACKUP_MEDIA_BYTES, 1000)).join();
+    final Instant firstRecalculationTime = Instant.ofEpochSecond(0).plus(BackupManager.MAX_QUOTA_STALENESS);
+    testClock.pin(firstRecalculationTime);
+
+    // A failed background recalculation must not fail the request that triggered it
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
+    verify(remoteStorageManager, timeout(5_000)).calculateBytesUsed(backupMediaPrefix);
+
+    // The failed recalculation's claim should prevent immediate retries...
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
+    verify(remoteStorageManager, after(500).times(1)).calculateBytesUsed(backupMediaPrefix);
+
+    // ...but not retries after the claim has expired
+    final Instant secondRecalculationTime =
+        firstRecalculationTime.plus(BackupManager.MEDIA_USAGE_RECALCULATION_CLAIM_DURATION);
+    testClock.pin(secondRecalculationTime);
+
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
+    awaitMediaUsageRecalculation(backupUser, secondRecalculationTime);
+
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.SUCCESS);
+    verify(remoteStorageManager, times(2)).calculateBytesUsed(backupMediaPrefix);
+  }
+
+  @Test
+  public void quotaEnforcementRecalculationClaimed() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupLevel.MEDIA);
+
+    testClock.pin(Instant.ofEpochSecond(0));
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(BackupManager.MAX_TOTAL_BACKUP_MEDIA_BYTES, 1000)).join();
+    testClock.pin(Instant.ofEpochSecond(0).plus(BackupManager.MAX_QUOTA_STALENESS));
+
+    // Pretend another instance is already recalculating this user's usage
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser,
+        BackupManager.MEDIA_USAGE_RECALCULATION_CLAIM_DURATION).join()).isPresent();
+
+    assertThat(copy(backupUser).outcome()).isEqualTo(CopyResult.Outcome.OUT_OF_QUOTA);
+    verify(backupsDb, timeout(5_000).times(2)).claimMediaUsageRecalculation(any(), any());
+    verify(remoteStorageManager, never()).calculateBytesUsed(anyString());
+  }
+
   @ParameterizedTest
   @ValueSource(strings = {"", "cursor"})
   public void list(final String cursorVal) {
@@ -722,6 +842,7 @@ public class BackupManagerTest {
 
     backupManager.expireBackup(expiredBackup(expirationType, backupUser)).join();
     verify(remoteStorageManager, times(1)).list(anyString(), any(), anyLong());
+    verify(remoteStorageManager, times(1)).deleteAll(anyList(), anyInt());
     verify(remoteStorageManager, times(1)).delete(expectedPrefixToDelete + "abc");
     verify(remoteStorageManager, times(1)).delete(expectedPrefixToDelete + "def");
     verify(remoteStorageManager, times(1)).delete(expectedPrefixToDelete + "ghi");
@@ -775,6 +896,7 @@ public class BackupManagerTest {
     when(remoteStorageManager.delete(anyString())).thenReturn(CompletableFuture.completedFuture(1L));
     backupManager.expireBackup(expiredBackup).join();
     verify(remoteStorageManager, times(3)).list(anyString(), any(), anyLong());
+    verify(remoteStorageManager, times(3)).deleteAll(anyList(), anyInt());
     verify(remoteStorageManager, times(1)).delete(mediaPrefix + "abc");
     verify(remoteStorageManager, times(1)).delete(mediaPrefix + "def");
     verify(remoteStorageManager, times(1)).delete(mediaPrefix + "ghi");
@@ -789,6 +911,16 @@ public class BackupManagerTest {
     return backupManager.copyToBackup(backupUser, List.of(COPY_PARAM)).single().block();
   }
 
+  private void awaitMediaUsageRecalculation(final AuthenticatedBackupUser backupUser,
+      final Instant recalculationTime) {
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      while (!backupsDb.getMediaUsage(backupUser).join().lastRecalculationTime().equals(recalculationTime)) {
+        Thread.sleep(10);
+      }
+    });
+  }
+
   private CopyResult copy(final AuthenticatedBackupUser backupUser) {
     when(tusCredentialGenerator.generateUpload(any()))
         .thenReturn(new BackupUploadDescriptor(3, "def", Collections.emptyMap(), ""));
@@ -10,10 +10,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
@@ -85,6 +87,34 @@ public class BackupsDbTest {
     assertThat(info.usageInfo().numObjects()).isEqualTo(17L);
   }
 
+  @Test
+  public void mediaUsageRecalculation() {
+    testClock.pin(Instant.ofEpochSecond(5));
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupLevel.MEDIA);
+    this.backupsDb.trackMedia(backupUser, 3, 100).join();
+
+    final Duration claimDuration = Duration.ofSeconds(10);
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser, claimDuration).join())
+        .contains(new UsageInfo(100, 3));
+
+    // Only one recalculation may be claimed at a time
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser, claimDuration).join()).isEmpty();
+
+    // Changes tracked while the recalculation is in progress should survive reconciliation
+    this.backupsDb.trackMedia(backupUser, 1, 20).join();
+    backupsDb.reconcileMediaUsage(backupUser, new UsageInfo(100, 3), new UsageInfo(90, 2)).join();
+
+    final BackupsDb.TimestampedUsageInfo info = backupsDb.getMediaUsage(backupUser).join();
+    assertThat(info.lastRecalculationTime()).isEqualTo(Instant.ofEpochSecond(5));
+    assertThat(info.usageInfo()).isEqualTo(new UsageInfo(110, 3));
+
+    // Reconciliation releases the claim, and claims that are never released eventually expire
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser, claimDuration).join()).isPresent();
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser, claimDuration).join()).isEmpty();
+    testClock.pin(Instant.ofEpochSecond(5).plus(claimDuration));
+    assertThat(backupsDb.claimMediaUsageRecalculation(backupUser, claimDuration).join()).isPresent();
+  }
+
   @Test
   public void expirationDetectedOnce() {
     final byte[] backupId = TestRandomUtil.nextBytes(16);
@@ -126,6 +156,28 @@ public class BackupsDbTest {
     assertThat(expiredBackups.apply(Instant.ofEpochSecond(3))).isEmpty();
   }
 
+  @Test
+  public void expiredBackupScanProgress() {
+    testClock.pin(Instant.ofEpochSecond(0L));
+
+    for (int i = 0; i < 3; i++) {
+      final byte[] backupId = TestRandomUtil.nextBytes(16);
+      backupsDb.setPublicKey(backupId, BackupLevel.MEDIA, Curve.generateKeyPair().getPublicKey()).join();
+      backupsDb.ttlRefresh(backupUser(backupId, BackupLevel.MEDIA)).join();
+    }
+
+    final AtomicLong rowsScanned = new AtomicLong();
+
+    // Every row is scanned, even though none of them have expired
+    assertThat(backupsDb.getExpiredBackups(1, Schedulers.immediate(), Instant.ofEpochSecond(0L), rowsScanned::addAndGet)
+        .collectList()
+        .block())
+        .isEmpty();
+
+    assertThat(rowsScanned.get()).isEqualTo(3);
+    assertThat(backupsDb.getApproximateBackupCount().join()).isGreaterThanOrEqualTo(0);
+  }
+
   @ParameterizedTest
   @EnumSource(names = {"MEDIA", "ALL"})
   public void expirationFailed(ExpiredBackup.ExpirationType expirationType) {
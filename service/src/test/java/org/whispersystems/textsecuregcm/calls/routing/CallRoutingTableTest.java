@@ -77,6 +77,18 @@ public class CallRoutingTableTest {
     assertThat(actualV6).isEqualTo(List.of("datacenter-3", "datacenter-1", "datacenter-2"));
   }
 
+  @Test
+  void testGetFastestDataCentersBySubnetOverlappingTableFallsBackToShorterPrefix() throws UnknownHostException {
+    var v4address = Inet4Address.getByName("1.123.7.1");
+    assertThat(overlappingTable.getDatacentersBySubnet(v4address)).isEqualTo(List.of("datacenter-1"));
+
+    var v6address = Inet6Address.getByName("2001:db8:b0a1::1");
+    assertThat(overlappingTable.getDatacentersBySubnet(v6address)).isEqualTo(List.of("datacenter-2", "datacenter-1"));
+
+    var unmatchedV6address = Inet6Address.getByName("2001:db8:b0b0::1");
+    assertThat(overlappingTable.getDatacentersBySubnet(unmatchedV6address)).isEqualTo(List.of());
+  }
+
   @Test
   void testGetFastestDataCentersByGeo() {
     var actual = basicTable.getDatacentersByGeo("SA", "SR", Optional.empty());
@@ -136,4 +148,11 @@ public class CallRoutingTableTest {
     var actual = basicTable.getDatacentersFor(v6address, "NA", "US", Optional.of("VA"));
     assertThat(actual).isEqualTo(List.of("datacenter-2", "datacenter-1"));
   }
+
+  @Test
+  void testGetMaxPrefixLength() {
+    assertThat(overlappingTable.getMaxPrefixLength(CallRoutingTable.Protocol.v4)).isEqualTo(24);
+    assertThat(overlappingTable.getMaxPrefixLength(CallRoutingTable.Protocol.v6)).isEqualTo(48);
+    assertThat(CallRoutingTable.empty().getMaxPrefixLength(CallRoutingTable.Protocol.v4)).isEqualTo(0);
+  }
 }
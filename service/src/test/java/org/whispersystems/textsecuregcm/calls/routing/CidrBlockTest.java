@@ -60,4 +60,20 @@ public class CidrBlockTest {
     assertThat(block.ipInBlock(InetAddress.getByName("2001:db8:b0ab:1:1::"))).isFalse();
     assertThat(block.ipInBlock(InetAddress.getByName("2001:da8:b0aa:1:1::"))).isFalse();
   }
+
+  @Test
+  public void testSubnetBytes() throws UnknownHostException {
+    assertThat(((CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("255.32.15.7/24")).subnetBytes())
+        .isEqualTo(InetAddress.getByName("255.32.15.0").getAddress());
+
+    assertThat(((CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("2001:db8:b0aa::1/48")).subnetBytes())
+        .isEqualTo(InetAddress.getByName("2001:db8:b0aa::").getAddress());
+
+    // High bit set, so the underlying subnet value is negative
+    assertThat(((CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("ff02::1/16")).subnetBytes())
+        .isEqualTo(InetAddress.getByName("ff02::").getAddress());
+
+    assertThat(((CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("::1/128")).subnetBytes())
+        .isEqualTo(InetAddress.getByName("::1").getAddress());
+  }
 }
@@ -27,6 +27,8 @@ import java.util.UUID;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TurnCallRouterTest {
@@ -317,4 +319,62 @@ public class TurnCallRouterTest {
     assertThat(router().getRoutingFor(aci, Optional.of(InetAddress.getByName("0.0.0.1")), 10))
         .isEqualTo(optionsWithUrls(List.of()));
   }
+
+  @Test
+  public void testCachesDatacentersByNetwork() throws IOException, GeoIp2Exception {
+    when(performanceTable.getDatacentersFor(any(), any(), any(), any()))
+        .thenReturn(List.of("dc-performance2"));
+
+    final TurnCallRouter router = router();
+    final TurnServerOptions expectedOptions = optionsWithUrls(List.of(
+        "turn:9.9.9.3",
+        "turn:9.9.9.3:80?transport=tcp",
+        "turns:9.9.9.3:443?transport=tcp",
+
+        "turn:[2222:1111:0:abc2:0:0:0:0]",
+        "turn:[2222:1111:0:abc2:0:0:0:0]:80?transport=tcp",
+        "turns:[2222:1111:0:abc2:0:0:0:0]:443?transport=tcp"
+    ));
+
+    assertThat(router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.1")), 10)).isEqualTo(expectedOptions);
+    assertThat(router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.200")), 10)).isEqualTo(expectedOptions);
+    verify(geoIp, times(1)).city(any());
+
+    // A different network misses the cache
+    router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.3.1")), 10);
+    verify(geoIp, times(2)).city(any());
+
+    // Replacing a routing table invalidates cached datacenters
+    performanceTable = mock(CallRoutingTable.class);
+    when(performanceTable.getDatacentersFor(any(), any(), any(), any()))
+        .thenReturn(List.of("dc-manual"));
+
+    assertThat(router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.1")), 10))
+        .isEqualTo(optionsWithUrls(List.of(
+            "turn:1.1.1.1",
+            "turn:1.1.1.1:80?transport=tcp",
+            "turns:1.1.1.1:443?transport=tcp",
+
+            "turn:[2222:1111:0:dead:0:0:0:0]",
+            "turn:[2222:1111:0:dead:0:0:0:0]:80?transport=tcp",
+            "turns:[2222:1111:0:dead:0:0:0:0]:443?transport=tcp"
+        )));
+    verify(geoIp, times(3)).city(any());
+  }
+
+  @Test
+  public void testCacheRespectsLongRoutingTablePrefixes() throws IOException, GeoIp2Exception {
+    when(performanceTable.getMaxPrefixLength(CallRoutingTable.Protocol.v4)).thenReturn(32);
+    when(performanceTable.getDatacentersFor(any(), any(), any(), any()))
+        .thenReturn(List.of("dc-performance2"));
+
+    final TurnCallRouter router = router();
+
+    router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.1")), 10);
+    router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.2")), 10);
+    verify(geoIp, times(2)).city(any());
+
+    router.getRoutingFor(aci, Optional.of(InetAddress.getByName("192.0.2.1")), 10);
+    verify(geoIp, times(2)).city(any());
+  }
 }
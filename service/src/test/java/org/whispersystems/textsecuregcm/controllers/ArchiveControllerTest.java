@@ -345,10 +345,11 @@ public class ArchiveControllerTest {
     when(backupManager.authenticateBackupUser(any(), any()))
         .thenReturn(CompletableFuture.completedFuture(backupUser(presentation.getBackupId(), BackupLevel.MEDIA)));
     final byte[][] mediaIds = new byte[][]{TestRandomUtil.nextBytes(15), TestRandomUtil.nextBytes(15)};
+    // Copy results may arrive in any order, but responses should be in request order
     when(backupManager.copyToBackup(any(), any()))
         .thenReturn(Flux.just(
-            new CopyResult(CopyResult.Outcome.SUCCESS, mediaIds[0], 1),
-            new CopyResult(CopyResult.Outcome.SUCCESS, mediaIds[1], 1)));
+            new CopyResult(CopyResult.Outcome.SUCCESS, mediaIds[1], 1),
+            new CopyResult(CopyResult.Outcome.SUCCESS, mediaIds[0], 1)));
 
     final Response r = resources.getJerseyTest()
         .target("v1/archives/media/batch")
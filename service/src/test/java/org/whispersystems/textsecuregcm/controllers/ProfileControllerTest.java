@@ -40,7 +40,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
@@ -107,6 +106,7 @@ import org.whispersystems.textsecuregcm.storage.VersionedProfile;
 import org.whispersystems.textsecuregcm.tests.util.AccountsHelper;
 import org.whispersystems.textsecuregcm.tests.util.AuthHelper;
 import org.whispersystems.textsecuregcm.tests.util.ProfileTestHelper;
+import org.whispersystems.textsecuregcm.util.AsyncConcurrencyLimiter;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.TestClock;
@@ -175,7 +175,7 @@ class ProfileControllerTest {
           "profilesBucket",
           serverSecretParams,
           zkProfileOperations,
-          Executors.newSingleThreadExecutor()))
+          new AsyncConcurrencyLimiter("batchIdentityCheck", 32)))
       .build();
 
   @BeforeEach
@@ -213,17 +213,25 @@ class ProfileControllerTest {
     when(capabilitiesAccount.getIdentityKey(IdentityType.PNI)).thenReturn(ACCOUNT_PHONE_NUMBER_IDENTITY_KEY);
 
     when(accountsManager.getByServiceIdentifier(any())).thenReturn(Optional.empty());
+    when(accountsManager.getByServiceIdentifierAsync(any()))
+        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
     when(accountsManager.getByE164(AuthHelper.VALID_NUMBER_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByPhoneNumberIdentifier(AuthHelper.VALID_PNI_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByServiceIdentifier(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO))).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByServiceIdentifier(new PniServiceIdentifier(AuthHelper.VALID_PNI_TWO))).thenReturn(Optional.of(profileAccount));
+    when(accountsManager.getByServiceIdentifierAsync(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO)))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(profileAccount)));
+    when(accountsManager.getByServiceIdentifierAsync(new PniServiceIdentifier(AuthHelper.VALID_PNI_TWO)))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(profileAccount)));
     when(accountsManager.getByUsernameHash(USERNAME_HASH)).thenReturn(CompletableFuture.completedFuture(Optional.of(profileAccount)));
 
     when(accountsManager.getByE164(AuthHelper.VALID_NUMBER)).thenReturn(Optional.of(capabilitiesAccount));
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID)).thenReturn(Optional.of(capabilitiesAccount));
     when(accountsManager.getByServiceIdentifier(new AciServiceIdentifier(AuthHelper.VALID_UUID))).thenReturn(Optional.of(capabilitiesAccount));
+    when(accountsManager.getByServiceIdentifierAsync(new AciServiceIdentifier(AuthHelper.VALID_UUID)))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(capabilitiesAccount)));
 
     final byte[] name = TestRandomUtil.nextBytes(81);
     final byte[] emoji = TestRandomUtil.nextBytes(60);
@@ -20,6 +20,7 @@ import io.dropwizard.testing.junit5.ResourceExtension;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -32,6 +33,7 @@ import org.whispersystems.textsecuregcm.auth.AuthenticatedDevice;
 import org.whispersystems.textsecuregcm.entities.ProvisioningMessage;
 import org.whispersystems.textsecuregcm.limits.RateLimiter;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
+import org.whispersystems.textsecuregcm.mappers.CompletionExceptionMapper;
 import org.whispersystems.textsecuregcm.mappers.RateLimitExceededExceptionMapper;
 import org.whispersystems.textsecuregcm.push.ProvisioningManager;
 import org.whispersystems.textsecuregcm.tests.util.AuthHelper;
@@ -50,6 +52,7 @@ class ProvisioningControllerTest {
       .addProvider(AuthHelper.getAuthFilter())
       .addProvider(new AuthValueFactoryProvider.Binder<>(AuthenticatedDevice.class))
       .addProvider(new RateLimitExceededExceptionMapper())
+      .addProvider(new CompletionExceptionMapper())
       .setMapper(SystemMapper.jsonMapper())
       .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
       .addResource(new ProvisioningController(rateLimiters, provisioningManager))
@@ -68,7 +71,7 @@ class ProvisioningControllerTest {
     final String provisioningAddress = ProvisioningConnectListener.generateProvisioningAddress();
     final byte[] messageBody = "test".getBytes(StandardCharsets.UTF_8);
 
-    when(provisioningManager.sendProvisioningMessage(any(), any())).thenReturn(true);
+    when(provisioningManager.sendProvisioningMessage(any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
     try (final Response response = RESOURCE_EXTENSION.getJerseyTest()
         .target("/v1/provisioning/" + provisioningAddress)
@@ -83,6 +86,24 @@ class ProvisioningControllerTest {
     }
   }
 
+  @Test
+  void sendProvisioningMessageNoListener() {
+    final String provisioningAddress = ProvisioningConnectListener.generateProvisioningAddress();
+    final byte[] messageBody = "test".getBytes(StandardCharsets.UTF_8);
+
+    when(provisioningManager.sendProvisioningMessage(any(), any())).thenReturn(CompletableFuture.completedFuture(false));
+
+    try (final Response response = RESOURCE_EXTENSION.getJerseyTest()
+        .target("/v1/provisioning/" + provisioningAddress)
+        .request()
+        .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+        .put(Entity.entity(new ProvisioningMessage(Base64.getMimeEncoder().encodeToString(messageBody)),
+            MediaType.APPLICATION_JSON))) {
+
+      assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+  }
+
   @Test
   void sendProvisioningMessageRateLimited() throws RateLimitExceededException {
     final String provisioningAddress = ProvisioningConnectListener.generateProvisioningAddress();
@@ -53,10 +53,12 @@ class ExperimentEnrollmentManagerTest {
   private static final String EXCLUDED_164 = "+18005551212";
   private static final String E164_EXPERIMENT_NAME = "e164_test";
 
+  private DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+
   @BeforeEach
   void setUp() {
-    final DynamicConfigurationManager dynamicConfigurationManager = mock(DynamicConfigurationManager.class);
-    final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    //noinspection unchecked
+    dynamicConfigurationManager = mock(DynamicConfigurationManager.class);
     random = spy(new Random());
     experimentEnrollmentManager = new ExperimentEnrollmentManager(dynamicConfigurationManager, random);
 
@@ -68,7 +70,19 @@ class ExperimentEnrollmentManagerTest {
     preRegistrationExperimentEnrollmentConfiguration = mock(
         DynamicPreRegistrationExperimentEnrollmentConfiguration.class);
 
-    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+    publishConfiguration();
+
+    account = mock(Account.class);
+    when(account.getUuid()).thenReturn(ACCOUNT_UUID);
+  }
+
+  /**
+   * Simulates the arrival of a new dynamic configuration snapshot; experiment definitions are only re-read when a new
+   * snapshot arrives.
+   */
+  private void publishConfiguration() {
+    final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+
     when(dynamicConfiguration.getExperimentEnrollmentConfiguration(UUID_EXPERIMENT_NAME))
         .thenReturn(Optional.of(experimentEnrollmentConfiguration));
     when(dynamicConfiguration.getPreRegistrationEnrollmentConfiguration(E164_EXPERIMENT_NAME))
@@ -78,8 +92,7 @@ class ExperimentEnrollmentManagerTest {
     when(dynamicConfiguration.getPreRegistrationEnrollmentConfiguration(E164_AND_UUID_EXPERIMENT_NAME))
         .thenReturn(Optional.of(preRegistrationExperimentEnrollmentConfiguration));
 
-    account = mock(Account.class);
-    when(account.getUuid()).thenReturn(ACCOUNT_UUID);
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
   }
 
   @Test
@@ -89,14 +102,29 @@ class ExperimentEnrollmentManagerTest {
         experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME + "-unrelated-experiment"));
 
     when(uuidSelector.getUuids()).thenReturn(Set.of(ACCOUNT_UUID));
+    publishConfiguration();
     assertTrue(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
 
     when(uuidSelector.getUuids()).thenReturn(Collections.emptySet());
     when(experimentEnrollmentConfiguration.getEnrollmentPercentage()).thenReturn(0);
+    publishConfiguration();
 
     assertFalse(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
 
     when(experimentEnrollmentConfiguration.getEnrollmentPercentage()).thenReturn(100);
+    publishConfiguration();
+    assertTrue(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
+  }
+
+  @Test
+  void testIsEnrolled_SameSnapshot() {
+    assertFalse(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
+
+    // Changes within a snapshot shouldn't be visible until a new snapshot arrives
+    when(uuidSelector.getUuids()).thenReturn(Set.of(ACCOUNT_UUID));
+    assertFalse(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
+
+    publishConfiguration();
     assertTrue(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
   }
 
@@ -106,9 +134,11 @@ class ExperimentEnrollmentManagerTest {
     when(uuidSelector.getUuidEnrollmentPercentage()).thenReturn(0);
     assertFalse(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
     when(uuidSelector.getUuidEnrollmentPercentage()).thenReturn(100);
+    publishConfiguration();
     assertTrue(experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME));
 
     when(uuidSelector.getUuidEnrollmentPercentage()).thenReturn(75);
+    publishConfiguration();
     final Map<Boolean, Long> counts = IntStream.range(0, 100).mapToObj(i -> {
           when(random.nextInt(100)).thenReturn(i);
           return experimentEnrollmentManager.isEnrolled(account.getUuid(), UUID_EXPERIMENT_NAME);
@@ -130,13 +160,16 @@ class ExperimentEnrollmentManagerTest {
     when(uuidSelector.getUuidEnrollmentPercentage()).thenReturn(100);
     assertTrue(experimentEnrollmentManager.isEnrolled(NOT_ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
     when(uuidSelector.getUuidEnrollmentPercentage()).thenReturn(0);
+    publishConfiguration();
     assertFalse(experimentEnrollmentManager.isEnrolled(NOT_ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
     assertFalse(experimentEnrollmentManager.isEnrolled(ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
 
     when(uuidSelector.getUuids()).thenReturn(Collections.emptySet());
+    publishConfiguration();
     assertTrue(experimentEnrollmentManager.isEnrolled(ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
     assertFalse(experimentEnrollmentManager.isEnrolled(NOT_ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
     when(preRegistrationExperimentEnrollmentConfiguration.getEnrollmentPercentage()).thenReturn(100);
+    publishConfiguration();
     assertTrue(experimentEnrollmentManager.isEnrolled(ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
     assertTrue(experimentEnrollmentManager.isEnrolled(NOT_ENROLLED_164, account.getUuid(), E164_AND_UUID_EXPERIMENT_NAME));
   }
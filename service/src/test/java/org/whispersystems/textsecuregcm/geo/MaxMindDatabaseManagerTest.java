@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.maxmind.db.ClosedDatabaseException;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.whispersystems.textsecuregcm.s3.S3ObjectMonitor;
+
+class MaxMindDatabaseManagerTest {
+
+  @TempDir
+  private Path databaseDirectory;
+
+  private ScheduledExecutorService executorService;
+  private MaxMindDatabaseManager databaseManager;
+
+  private static final String DATABASE_TAG = "test";
+  private static final Duration GRACE_PERIOD = Duration.ofMinutes(1);
+
+  @BeforeEach
+  void setUp() {
+    executorService = mock(ScheduledExecutorService.class);
+
+    databaseManager = new MaxMindDatabaseManager(mock(S3ObjectMonitor.class), executorService, DATABASE_TAG,
+        databaseDirectory, GRACE_PERIOD);
+  }
+
+  @Test
+  void replacedDatabaseClosedAfterGracePeriod() throws Exception {
+    assertNull(databaseManager.get());
+
+    databaseManager.handleDatabaseChanged(buildDatabaseArchive());
+    final DatabaseReader originalReader = databaseManager.get();
+
+    assertEquals(1, listDatabaseFiles().size());
+    assertThrows(AddressNotFoundException.class, () -> originalReader.city(InetAddress.getLoopbackAddress()));
+
+    databaseManager.handleDatabaseChanged(buildDatabaseArchive());
+    final DatabaseReader replacementReader = databaseManager.get();
+
+    assertNotSame(originalReader, replacementReader);
+
+    // Callers that fetched the original reader just before the swap can keep using it during the grace period
+    assertThrows(AddressNotFoundException.class, () -> originalReader.city(InetAddress.getLoopbackAddress()));
+    assertEquals(2, listDatabaseFiles().size());
+
+    final ArgumentCaptor<Runnable> retirementCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorService)
+        .schedule(retirementCaptor.capture(), eq(GRACE_PERIOD.toMillis()), eq(TimeUnit.MILLISECONDS));
+
+    retirementCaptor.getValue().run();
+
+    assertThrows(ClosedDatabaseException.class, () -> originalReader.city(InetAddress.getLoopbackAddress()));
+    assertThrows(AddressNotFoundException.class, () -> replacementReader.city(InetAddress.getLoopbackAddress()));
+    assertEquals(1, listDatabaseFiles().size());
+  }
+
+  @Test
+  void stopClosesRetiredDatabases() throws Exception {
+    databaseManager.handleDatabaseChanged(buildDatabaseArchive());
+    final DatabaseReader originalReader = databaseManager.get();
+
+    databaseManager.handleDatabaseChanged(buildDatabaseArchive());
+    final DatabaseReader replacementReader = databaseManager.get();
+
+    verify(executorService).schedule(any(Runnable.class), anyLong(), any());
+
+    databaseManager.stop();
+
+    assertNull(databaseManager.get());
+    assertThrows(ClosedDatabaseException.class, () -> originalReader.city(InetAddress.getLoopbackAddress()));
+    assertThrows(ClosedDatabaseException.class, () -> replacementReader.city(InetAddress.getLoopbackAddress()));
+    assertTrue(listDatabaseFiles().isEmpty());
+  }
+
+  @Test
+  void deleteStaleDatabaseFiles() throws IOException {
+    final Path staleDatabaseFile = Files.createTempFile(databaseDirectory, "maxmind-" + DATABASE_TAG + "-", ".mmdb");
+    final Path otherTagDatabaseFile = Files.createTempFile(databaseDirectory, "maxmind-other-", ".mmdb");
+    final Path unrelatedFile = Files.createTempFile(databaseDirectory, "maxmind-" + DATABASE_TAG + "-", ".txt");
+
+    databaseManager.deleteStaleDatabaseFiles();
+
+    assertFalse(Files.exists(staleDatabaseFile));
+    assertTrue(Files.exists(otherTagDatabaseFile));
+    assertTrue(Files.exists(unrelatedFile));
+  }
+
+  private List<Path> listDatabaseFiles() throws IOException {
+    try (final Stream<Path> paths = Files.list(databaseDirectory)) {
+      return paths.filter(path -> path.getFileName().toString().endsWith(".mmdb")).toList();
+    }
+  }
+
+  private static InputStream buildDatabaseArchive() throws IOException {
+    final byte[] database = buildEmptyDatabase();
+    final ByteArrayOutputStream archiveOutputStream = new ByteArrayOutputStream();
+
+    try (final TarArchiveOutputStream tarOutputStream =
+        new TarArchiveOutputStream(new GzipCompressorOutputStream(archiveOutputStream))) {
+
+      final TarArchiveEntry entry = new TarArchiveEntry("GeoIP2-City-Test/GeoIP2-City-Test.mmdb");
+      entry.setSize(database.length);
+
+      tarOutputStream.putArchiveEntry(entry);
+      tarOutputStream.write(database);
+      tarOutputStream.closeArchiveEntry();
+    }
+
+    return new ByteArrayInputStream(archiveOutputStream.toByteArray());
+  }
+
+  /**
+   * Builds a MaxMind database with an empty search tree; every lookup against it finds no address.
+   */
+  private static byte[] buildEmptyDatabase() throws IOException {
+    final ByteArrayOutputStream database = new ByteArrayOutputStream();
+
+    // An empty search tree followed by the 16-byte data section separator
+    database.write(new byte[16]);
+
+    database.write(new byte[]{(byte) 0xab, (byte) 0xcd, (byte) 0xef});
+    database.write("MaxMind.com".getBytes(StandardCharsets.US_ASCII));
+
+    // Metadata map with nine entries
+    database.write(0xe0 | 9);
+    writeString(database, "binary_format_major_version");
+    writeUnsignedShort(database, 2);
+    writeString(database, "binary_format_minor_version");
+    writeUnsignedShort(database, 0);
+    writeString(database, "build_epoch");
+    // Extended type (uint64) with a one-byte payload
+    database.write(new byte[]{0x01, 0x02, 0x01});
+    writeString(database, "database_type");
+    writeString(database, "GeoIP2-City");
+    writeString(database, "languages");
+    // Extended type (array) with no elements
+    database.write(new byte[]{0x00, 0x04});
+    writeString(database, "description");
+    database.write(0xe0);
+    writeString(database, "ip_version");
+    writeUnsignedShort(database, 6);
+    writeString(database, "node_count");
+    // uint32 with a zero-length payload
+    database.write(0xc0);
+    writeString(database, "record_size");
+    writeUnsignedShort(database, 24);
+
+    return database.toByteArray();
+  }
+
+  private static void writeString(final ByteArrayOutputStream outputStream, final String string) throws IOException {
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    outputStream.write(0x40 | bytes.length);
+    outputStream.write(bytes);
+  }
+
+  private static void writeUnsignedShort(final ByteArrayOutputStream outputStream, final int value) {
+    outputStream.write(0xa0 | 1);
+    outputStream.write(value);
+  }
+}
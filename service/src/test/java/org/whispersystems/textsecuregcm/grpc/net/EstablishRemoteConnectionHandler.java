@@ -150,6 +150,7 @@ class EstablishRemoteConnectionHandler extends ChannelInboundHandlerAdapter {
                       // Forward any messages we got from our gRPC client, now will be proxied to the remote context
                       pendingReads.forEach(localContext::fireChannelRead);
                       pendingReads.clear();
+                      localContext.fireChannelReadComplete();
                       localContext.pipeline().remove(EstablishRemoteConnectionHandler.this);
                     }
 
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.grpc.net;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.signal.chat.rpc.GetAuthenticatedDeviceRequest;
+import org.signal.chat.rpc.GetRequestAttributesRequest;
+import org.signal.chat.rpc.RequestAttributesGrpc;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.signal.libsignal.protocol.ecc.ECPublicKey;
+import org.whispersystems.textsecuregcm.auth.grpc.AuthenticatedDevice;
+import org.whispersystems.textsecuregcm.auth.grpc.ProhibitAuthenticationInterceptor;
+import org.whispersystems.textsecuregcm.auth.grpc.RequireAuthenticationInterceptor;
+import org.whispersystems.textsecuregcm.grpc.RequestAttributesInterceptor;
+import org.whispersystems.textsecuregcm.grpc.RequestAttributesServiceImpl;
+import org.whispersystems.textsecuregcm.storage.ClientPublicKeysManager;
+import org.whispersystems.textsecuregcm.storage.Device;
+
+/**
+ * A self-contained load generator for the Noise-over-WebSocket tunnel. It starts an in-process
+ * {@link NoiseWebSocketTunnelServer} backed by local authenticated and anonymous gRPC servers and a stubbed
+ * {@link ClientPublicKeysManager}, opens many simulated Noise clients against it, and reports handshake rate, call
+ * latency, and heap usage per established connection.
+ * <p>
+ * This class may be run directly from a correctly configured IDE, or using the command line:
+ * <p>
+ * <code>./mvnw clean integration-test -DskipTests=true -Pnoise-tunnel-load-test</code>
+ * <p>
+ * The shape of the load may be adjusted with the following system properties:
+ * <ul>
+ *   <li>{@code noiseLoad.clients}: the total number of simulated clients (default 2,000)</li>
+ *   <li>{@code noiseLoad.anonymousFraction}: the fraction of clients that connect anonymously (default 0.5)</li>
+ *   <li>{@code noiseLoad.callsPerClient}: the number of gRPC calls each client makes after its handshake (default 10)</li>
+ *   <li>{@code noiseLoad.concurrency}: the maximum number of clients handshaking at the same time (default 64)</li>
+ * </ul>
+ * <p>
+ * <strong>NOTE: the client and server share a JVM, so absolute numbers include client-side overhead; this tool is
+ * meant for comparing changes to the tunnel, not for capacity planning in isolation</strong>
+ */
+public class NoiseTunnelLoadGenerator {
+
+  private static final String CLIENTS_PROPERTY = "noiseLoad.clients";
+  private static final String ANONYMOUS_FRACTION_PROPERTY = "noiseLoad.anonymousFraction";
+  private static final String CALLS_PER_CLIENT_PROPERTY = "noiseLoad.callsPerClient";
+  private static final String CONCURRENCY_PROPERTY = "noiseLoad.concurrency";
+
+  private record SimulatedClient(NoiseWebSocketTunnelClient tunnelClient, ManagedChannel channel, boolean authenticated) {
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final int clientCount = Integer.getInteger(CLIENTS_PROPERTY, 2_000);
+    final double anonymousFraction = Double.parseDouble(System.getProperty(ANONYMOUS_FRACTION_PROPERTY, "0.5"));
+    final int callsPerClient = Integer.getInteger(CALLS_PER_CLIENT_PROPERTY, 10);
+    final int concurrency = Integer.getInteger(CONCURRENCY_PROPERTY, 64);
+
+    final NioEventLoopGroup serverEventLoopGroup = new NioEventLoopGroup();
+    final NioEventLoopGroup clientEventLoopGroup = new NioEventLoopGroup();
+    final DefaultEventLoopGroup grpcEventLoopGroup = new DefaultEventLoopGroup();
+    final ExecutorService delegatedTaskExecutor = Executors.newSingleThreadExecutor();
+    final ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    final ECKeyPair serverKeyPair = Curve.generateKeyPair();
+    final ClientConnectionManager clientConnectionManager = new ClientConnectionManager();
+
+    final Map<AuthenticatedDevice, ECPublicKey> publicKeysByDevice = new ConcurrentHashMap<>();
+
+    // Stub-only mocks don't record invocations, which would otherwise skew the heap-per-connection measurement
+    final ClientPublicKeysManager clientPublicKeysManager =
+        mock(ClientPublicKeysManager.class, withSettings().stubOnly());
+
+    when(clientPublicKeysManager.findPublicKey(any(), anyByte())).thenAnswer(invocation ->
+        CompletableFuture.completedFuture(Optional.ofNullable(publicKeysByDevice.get(
+            new AuthenticatedDevice(invocation.getArgument(0), invocation.getArgument(1))))));
+
+    final LocalAddress authenticatedGrpcServerAddress = new LocalAddress("load-test-grpc-service-authenticated");
+    final LocalAddress anonymousGrpcServerAddress = new LocalAddress("load-test-grpc-service-anonymous");
+
+    final ManagedLocalGrpcServer authenticatedGrpcServer =
+        new ManagedLocalGrpcServer(authenticatedGrpcServerAddress, grpcEventLoopGroup) {
+          @Override
+          protected void configureServer(final ServerBuilder<?> serverBuilder) {
+            serverBuilder.addService(new RequestAttributesServiceImpl())
+                .intercept(new RequestAttributesInterceptor(clientConnectionManager))
+                .intercept(new RequireAuthenticationInterceptor(clientConnectionManager));
+          }
+        };
+
+    final ManagedLocalGrpcServer anonymousGrpcServer =
+        new ManagedLocalGrpcServer(anonymousGrpcServerAddress, grpcEventLoopGroup) {
+          @Override
+          protected void configureServer(final ServerBuilder<?> serverBuilder) {
+            serverBuilder.addService(new RequestAttributesServiceImpl())
+                .intercept(new RequestAttributesInterceptor(clientConnectionManager))
+                .intercept(new ProhibitAuthenticationInterceptor(clientConnectionManager));
+          }
+        };
+
+    final NoiseWebSocketTunnelServer tunnelServer = new NoiseWebSocketTunnelServer(0,
+        null,
+        null,
+        serverEventLoopGroup,
+        delegatedTaskExecutor,
+        clientConnectionManager,
+        clientPublicKeysManager,
+        serverKeyPair,
+        authenticatedGrpcServerAddress,
+        anonymousGrpcServerAddress,
+        "load-test-proxy-secret");
+
+    authenticatedGrpcServer.start();
+    anonymousGrpcServer.start();
+    tunnelServer.start();
+
+    final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    final long baselineHeapBytes = usedHeapBytes(memoryMXBean);
+
+    final List<SimulatedClient> clients = new ArrayList<>(clientCount);
+    final long[] handshakeLatenciesNanos = new long[clientCount];
+    final AtomicInteger failedHandshakes = new AtomicInteger();
+    final Semaphore handshakePermits = new Semaphore(concurrency);
+
+    final long handshakeStart = System.nanoTime();
+
+    {
+      final List<CompletableFuture<Void>> handshakeFutures = new ArrayList<>(clientCount);
+
+      for (int i = 0; i < clientCount; i++) {
+        final int clientIndex = i;
+        final boolean authenticated = i >= clientCount * anonymousFraction;
+
+        final NoiseWebSocketTunnelClient.Builder builder = new NoiseWebSocketTunnelClient
+            .Builder(tunnelServer.getLocalAddress(), clientEventLoopGroup, serverKeyPair.getPublicKey());
+
+        if (authenticated) {
+          final ECKeyPair clientKeyPair = Curve.generateKeyPair();
+          final UUID accountIdentifier = UUID.randomUUID();
+
+          publicKeysByDevice.put(new AuthenticatedDevice(accountIdentifier, Device.PRIMARY_ID), clientKeyPair.getPublicKey());
+          builder.setAuthenticated(clientKeyPair, accountIdentifier, Device.PRIMARY_ID);
+        }
+
+        handshakeFutures.add(CompletableFuture.runAsync(() -> {
+          handshakePermits.acquireUninterruptibly();
+
+          try {
+            final NoiseWebSocketTunnelClient tunnelClient = builder.build();
+            final ManagedChannel channel = NettyChannelBuilder.forAddress(tunnelClient.getLocalAddress())
+                .channelType(LocalChannel.class)
+                .eventLoopGroup(grpcEventLoopGroup)
+                .usePlaintext()
+                .build();
+
+            // The Noise handshake carries the first request as a "fast-open" payload, so the latency of the first call
+            // is the latency of the handshake
+            final long start = System.nanoTime();
+            call(channel, authenticated);
+            handshakeLatenciesNanos[clientIndex] = System.nanoTime() - start;
+
+            synchronized (clients) {
+              clients.add(new SimulatedClient(tunnelClient, channel, authenticated));
+            }
+          } catch (final Exception e) {
+            failedHandshakes.incrementAndGet();
+          } finally {
+            handshakePermits.release();
+          }
+        }, clientExecutor));
+      }
+
+      CompletableFuture.allOf(handshakeFutures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    final Duration handshakeElapsed = Duration.ofNanos(System.nanoTime() - handshakeStart);
+    final long establishedHeapBytes = usedHeapBytes(memoryMXBean);
+
+    final long[] callLatenciesNanos = new long[clients.size() * callsPerClient];
+    final AtomicInteger failedCalls = new AtomicInteger();
+    final long callStart = System.nanoTime();
+
+    {
+      final List<CompletableFuture<Void>> callFutures = new ArrayList<>(clients.size());
+
+      for (int i = 0; i < clients.size(); i++) {
+        final SimulatedClient client = clients.get(i);
+        final int offset = i * callsPerClient;
+
+        callFutures.add(CompletableFuture.runAsync(() -> {
+          for (int call = 0; call < callsPerClient; call++) {
+            final long start = System.nanoTime();
+
+            try {
+              call(client.channel(), client.authenticated());
+            } catch (final Exception e) {
+              failedCalls.incrementAndGet();
+            }
+
+            callLatenciesNanos[offset + call] = System.nanoTime() - start;
+          }
+        }, clientExecutor));
+      }
+
+      CompletableFuture.allOf(callFutures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    final Duration callElapsed = Duration.ofNanos(System.nanoTime() - callStart);
+
+    System.out.printf("Established %,d of %,d connections (%,d failed) in %s%n",
+        clients.size(), clientCount, failedHandshakes.get(), handshakeElapsed);
+    System.out.printf("Handshakes/s:          %,.1f%n", clients.size() / (handshakeElapsed.toNanos() / 1e9));
+    System.out.printf("Handshake p50/p99:     %s / %s%n",
+        percentile(handshakeLatenciesNanos, 0.5), percentile(handshakeLatenciesNanos, 0.99));
+    System.out.printf("Calls/s:               %,.1f (%,d failed)%n",
+        callLatenciesNanos.length / (callElapsed.toNanos() / 1e9), failedCalls.get());
+    System.out.printf("Call p50/p99:          %s / %s%n",
+        percentile(callLatenciesNanos, 0.5), percentile(callLatenciesNanos, 0.99));
+    System.out.printf("Heap per connection:   %,d bytes%n",
+        clients.isEmpty() ? 0 : (establishedHeapBytes - baselineHeapBytes) / clients.size());
+
+    for (final SimulatedClient client : clients) {
+      client.channel().shutdownNow();
+      client.tunnelClient().close();
+    }
+
+    tunnelServer.stop();
+    authenticatedGrpcServer.stop();
+    anonymousGrpcServer.stop();
+
+    clientExecutor.shutdown();
+    delegatedTaskExecutor.shutdown();
+
+    clientEventLoopGroup.shutdownGracefully(100, 100, TimeUnit.MILLISECONDS).await();
+    serverEventLoopGroup.shutdownGracefully(100, 100, TimeUnit.MILLISECONDS).await();
+    grpcEventLoopGroup.shutdownGracefully(100, 100, TimeUnit.MILLISECONDS).await();
+  }
+
+  private static void call(final ManagedChannel channel, final boolean authenticated) {
+    if (authenticated) {
+      RequestAttributesGrpc.newBlockingStub(channel)
+          .getAuthenticatedDevice(GetAuthenticatedDeviceRequest.newBuilder().build());
+    } else {
+      RequestAttributesGrpc.newBlockingStub(channel)
+          .getRequestAttributes(GetRequestAttributesRequest.newBuilder().build());
+    }
+  }
+
+  private static Duration percentile(final long[] latenciesNanos, final double percentile) {
+    final long[] nonZeroLatencies = Arrays.stream(latenciesNanos).filter(latency -> latency > 0).sorted().toArray();
+
+    if (nonZeroLatencies.length == 0) {
+      return Duration.ZERO;
+    }
+
+    return Duration.ofNanos(nonZeroLatencies[(int) Math.min(nonZeroLatencies.length - 1,
+        Math.ceil(percentile * nonZeroLatencies.length) - 1)]);
+  }
+
+  private static long usedHeapBytes(final MemoryMXBean memoryMXBean) throws InterruptedException {
+    // A best-effort attempt to discard garbage before sampling; `System.gc()` is only a hint
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+
+    return memoryMXBean.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -112,7 +112,7 @@ class NoiseWebSocketTunnelClient implements AutoCloseable {
       Function<byte[], EstablishRemoteConnectionHandler> handler) {
 
     this.serverBootstrap = new ServerBootstrap()
-        .localAddress(new LocalAddress("websocket-noise-tunnel-client"))
+        .localAddress(new LocalAddress(NoiseWebSocketTunnelClient.class))
         .channel(LocalServerChannel.class)
         .group(eventLoopGroup)
         .childHandler(new ChannelInitializer<LocalChannel>() {
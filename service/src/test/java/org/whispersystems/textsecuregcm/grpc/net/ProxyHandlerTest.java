@@ -0,0 +1,102 @@
+package org.whispersystems.textsecuregcm.grpc.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProxyHandlerTest extends AbstractLeakDetectionTest {
+
+  private EmbeddedChannel peerChannel;
+  private EmbeddedChannel embeddedChannel;
+  private ProxyHandler proxyHandler;
+
+  private AtomicInteger peerFlushes;
+
+  @BeforeEach
+  void setUp() {
+    peerFlushes = new AtomicInteger();
+
+    peerChannel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+      @Override
+      public void flush(final ChannelHandlerContext context) {
+        peerFlushes.incrementAndGet();
+        context.flush();
+      }
+    });
+
+    proxyHandler = new ProxyHandler(peerChannel);
+    embeddedChannel = new EmbeddedChannel(proxyHandler);
+  }
+
+  @AfterEach
+  void tearDown() {
+    peerChannel.finishAndReleaseAll();
+    embeddedChannel.finishAndReleaseAll();
+  }
+
+  @Test
+  void writesCoalescedUntilReadComplete() {
+    final List<ByteBuf> messages = List.of(buffer("first"), buffer("second"), buffer("third"));
+
+    messages.forEach(embeddedChannel.pipeline()::fireChannelRead);
+
+    assertTrue(peerChannel.outboundMessages().isEmpty(), "Writes should not be flushed before the read completes");
+    assertEquals(0, peerFlushes.get());
+
+    embeddedChannel.pipeline().fireChannelReadComplete();
+
+    assertEquals(1, peerFlushes.get());
+    assertEquals(messages.size(), peerChannel.outboundMessages().size());
+
+    for (final ByteBuf message : messages) {
+      final ByteBuf proxied = peerChannel.readOutbound();
+
+      assertEquals(message, proxied);
+      proxied.release();
+    }
+  }
+
+  @Test
+  void readCompleteWithoutReadsDoesNotFlush() {
+    embeddedChannel.pipeline().fireChannelReadComplete();
+
+    assertEquals(0, peerFlushes.get());
+  }
+
+  @Test
+  void flushOnChannelInactive() {
+    embeddedChannel.pipeline().fireChannelRead(buffer("test"));
+    assertTrue(peerChannel.outboundMessages().isEmpty());
+
+    embeddedChannel.close();
+
+    assertEquals(1, peerFlushes.get());
+    assertEquals(1, peerChannel.outboundMessages().size());
+  }
+
+  @Test
+  void flushOnHandlerRemoved() {
+    embeddedChannel.pipeline().fireChannelRead(buffer("test"));
+    assertTrue(peerChannel.outboundMessages().isEmpty());
+
+    embeddedChannel.pipeline().remove(proxyHandler);
+
+    assertEquals(1, peerFlushes.get());
+    assertEquals(1, peerChannel.outboundMessages().size());
+  }
+
+  private static ByteBuf buffer(final String content) {
+    return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+  }
+}
@@ -6,12 +6,26 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
-import java.time.Duration;
 
 public class CardinalityEstimatorTest {
 
@@ -21,28 +35,117 @@ public class CardinalityEstimatorTest {
   @Test
   public void testAdd() throws Exception {
     final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
-    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(1));
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(1),
+        Duration.ofSeconds(10), mock(ScheduledExecutorService.class));
 
     estimator.add("1");
 
+    // Nothing is written to Redis until the estimator flushes
     long count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
+    assertThat(count).isEqualTo(0).isEqualTo(estimator.estimate());
+
+    estimator.flush().toCompletableFuture().join();
+    count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
     assertThat(count).isEqualTo(1).isEqualTo(estimator.estimate());
 
+    estimator.add("1");
     estimator.add("2");
+    estimator.flush().toCompletableFuture().join();
     count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
     assertThat(count).isEqualTo(2).isEqualTo(estimator.estimate());
 
     estimator.add("1");
+    estimator.flush().toCompletableFuture().join();
     count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
     assertThat(count).isEqualTo(2).isEqualTo(estimator.estimate());
   }
 
+  @Test
+  public void testEstimateIncludesOtherInstances() {
+    final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        Duration.ofSeconds(10), mock(ScheduledExecutorService.class));
+    final CardinalityEstimator otherEstimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        Duration.ofSeconds(10), mock(ScheduledExecutorService.class));
+
+    estimator.add("1");
+    otherEstimator.add("2");
+
+    estimator.flush().toCompletableFuture().join();
+    otherEstimator.flush().toCompletableFuture().join();
+
+    // A flush with no new local elements should still pick up elements added elsewhere
+    estimator.flush().toCompletableFuture().join();
+
+    assertThat(estimator.estimate()).isEqualTo(2);
+    assertThat(otherEstimator.estimate()).isEqualTo(2);
+  }
+
+  @Test
+  public void testEarlyFlush() {
+    final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+    final CardinalityEstimator estimator = new CardinalityEstimator(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test",
+        Duration.ofSeconds(10), Duration.ofSeconds(10), scheduledExecutorService);
+
+    for (int i = 0; i < CardinalityEstimator.MAX_PENDING_ELEMENTS - 1; i++) {
+      estimator.add(String.valueOf(i));
+    }
+
+    verify(scheduledExecutorService, never()).execute(any());
+
+    estimator.add("last");
+    estimator.add("extra");
+
+    verify(scheduledExecutorService, times(1)).execute(any());
+  }
+
+  @Test
+  @Timeout(10)
+  public void testConcurrentAddAndDrain() throws Exception {
+    final CardinalityEstimator estimator = new CardinalityEstimator(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test",
+        Duration.ofSeconds(10), Duration.ofSeconds(10), mock(ScheduledExecutorService.class));
+
+    final int adderCount = 4;
+    final int elementsPerAdder = 50_000;
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(adderCount);
+
+    try {
+      final Future<?>[] adders = IntStream.range(0, adderCount)
+          .mapToObj(adder -> executorService.submit(() -> {
+            for (int i = 0; i < elementsPerAdder; i++) {
+              estimator.add(adder + ":" + i);
+            }
+          }))
+          .toArray(Future<?>[]::new);
+
+      final Set<String> drainedElements = new HashSet<>();
+
+      while (!Arrays.stream(adders).allMatch(Future::isDone)) {
+        drainedElements.addAll(Arrays.asList(estimator.drainPendingElements()));
+      }
+
+      for (final Future<?> adder : adders) {
+        adder.get();
+      }
+
+      drainedElements.addAll(Arrays.asList(estimator.drainPendingElements()));
+
+      // Every element added while drains were in progress must land in exactly one drained batch
+      assertThat(drainedElements).hasSize(adderCount * elementsPerAdder);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   @Test
   @Timeout(5)
   public void testEventuallyExpires() throws InterruptedException {
     final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
-    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofMillis(100));
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofMillis(100),
+        Duration.ofSeconds(10), mock(ScheduledExecutorService.class));
     estimator.add("1");
+    estimator.flush().toCompletableFuture().join();
     long count;
     do {
       count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
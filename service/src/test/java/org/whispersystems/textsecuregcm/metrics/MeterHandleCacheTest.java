@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MeterHandleCacheTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private AtomicInteger factoryInvocations;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    factoryInvocations = new AtomicInteger();
+  }
+
+  @Test
+  void get() {
+    final MeterHandleCache<String, Counter> cache = new MeterHandleCache<>("test", key -> {
+      factoryInvocations.incrementAndGet();
+      return meterRegistry.counter("test", "key", key);
+    });
+
+    final Counter counter = cache.get("a");
+    counter.increment();
+
+    assertSame(counter, cache.get("a"));
+    assertEquals(1, factoryInvocations.get());
+    assertEquals(1, meterRegistry.counter("test", "key", "a").count());
+
+    cache.get("b");
+    assertEquals(2, factoryInvocations.get());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void getOverflow() {
+    final MeterHandleCache<String, Counter> cache = new MeterHandleCache<>("test", 2, key -> {
+      factoryInvocations.incrementAndGet();
+      return meterRegistry.counter("test", "key", key);
+    });
+
+    cache.get("a");
+    cache.get("b");
+
+    // Keys beyond the cache's capacity still resolve to the right meter, but aren't retained
+    cache.get("c").increment();
+    cache.get("c").increment();
+
+    assertEquals(2, cache.size());
+    assertEquals(4, factoryInvocations.get());
+    assertEquals(2, meterRegistry.counter("test", "key", "c").count());
+  }
+}
@@ -44,6 +44,7 @@ import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
 import org.glassfish.jersey.uri.UriTemplate;
 import org.junit.jupiter.api.BeforeEach;
@@ -249,6 +250,23 @@ class MetricsRequestEventListenerTest {
     assertTrue(tags.contains(Tag.of(UserAgentTagUtil.PLATFORM_TAG, "unrecognized")));
   }
 
+  @Test
+  void testRequestCounterCacheSizedFromRoutes() {
+    assertEquals(MeterHandleCache.DEFAULT_MAX_SIZE, listener.getRequestCounterCacheMaxSize());
+
+    final int resourceMethodCount = MetricsApplicationEventListener.countResourceMethods(
+        List.of(Resource.from(TestResource.class)));
+
+    assertEquals(1, resourceMethodCount);
+
+    // Small applications keep the default bound
+    listener.setResourceMethodCount(resourceMethodCount);
+    assertEquals(MeterHandleCache.DEFAULT_MAX_SIZE, listener.getRequestCounterCacheMaxSize());
+
+    listener.setResourceMethodCount(250);
+    assertThat(listener.getRequestCounterCacheMaxSize()).isGreaterThanOrEqualTo(250 * 16);
+  }
+
   private static SubProtocol.WebSocketResponseMessage getResponse(ArgumentCaptor<ByteBuffer> responseCaptor)
       throws InvalidProtocolBufferException {
 
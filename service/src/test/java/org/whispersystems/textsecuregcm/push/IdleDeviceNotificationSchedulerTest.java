@@ -46,6 +46,8 @@ class IdleDeviceNotificationSchedulerTest {
         mock(DynamoDbAsyncClient.class),
         "test-idle-device-notifications",
         Duration.ofDays(7),
+        1,
+        0,
         Clock.fixed(CURRENT_TIME, ZoneId.systemDefault()));
   }
 
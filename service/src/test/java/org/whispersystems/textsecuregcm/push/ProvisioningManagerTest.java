@@ -1,6 +1,8 @@
 package org.whispersystems.textsecuregcm.push;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
@@ -8,8 +10,11 @@ import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 import com.google.protobuf.ByteString;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,8 +52,8 @@ class ProvisioningManagerTest {
 
     @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
 
-    provisioningManager.addListener(provisioningAddress, subscribedConsumer);
-    provisioningManager.sendProvisioningMessage(provisioningAddress, content);
+    provisioningManager.addListener(provisioningAddress, subscribedConsumer).join();
+    assertTrue(provisioningManager.sendProvisioningMessage(provisioningAddress, content).join());
 
     final ArgumentCaptor<PubSubProtos.PubSubMessage> messageCaptor =
         ArgumentCaptor.forClass(PubSubProtos.PubSubMessage.class);
@@ -66,11 +71,73 @@ class ProvisioningManagerTest {
 
     @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
 
-    provisioningManager.addListener(provisioningAddress, subscribedConsumer);
-    provisioningManager.removeListener(provisioningAddress);
-    provisioningManager.sendProvisioningMessage(provisioningAddress, content);
+    provisioningManager.addListener(provisioningAddress, subscribedConsumer).join();
+    provisioningManager.removeListener(provisioningAddress).join();
+    assertFalse(provisioningManager.sendProvisioningMessage(provisioningAddress, content).join());
 
     // Make sure that we give the message enough time to show up (if it was going to) before declaring victory
     verify(subscribedConsumer, after(PUBSUB_TIMEOUT_MILLIS).never()).accept(any());
   }
+
+  @Test
+  void addListenerBatched() {
+    final int listenerCount = 100;
+
+    final List<String> provisioningAddresses = IntStream.range(0, listenerCount)
+        .mapToObj(ignored -> UUID.randomUUID().toString())
+        .toList();
+
+    @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
+
+    // Subscribe and unsubscribe requests issued in quick succession should all resolve in order
+    CompletableFuture.allOf(provisioningAddresses.stream()
+            .map(address -> provisioningManager.addListener(address, subscribedConsumer))
+            .toArray(CompletableFuture[]::new))
+        .join();
+
+    final String removedAddress = provisioningAddresses.getFirst();
+    provisioningManager.removeListener(removedAddress).join();
+
+    for (final String address : provisioningAddresses) {
+      assertEquals(!address.equals(removedAddress),
+          provisioningManager.sendProvisioningMessage(address, TestRandomUtil.nextBytes(16)).join());
+    }
+
+    verify(subscribedConsumer, timeout(PUBSUB_TIMEOUT_MILLIS).times(listenerCount - 1)).accept(any());
+  }
+
+  @Test
+  void sendProvisioningMessageSharded() throws Exception {
+    final ProvisioningManager shardedProvisioningManager = new ProvisioningManager(
+        List.of(REDIS_EXTENSION.getRedisClient(), REDIS_EXTENSION.getRedisClient()), new CircuitBreakerConfiguration());
+
+    shardedProvisioningManager.start();
+
+    try {
+      final String provisioningAddress = UUID.randomUUID().toString();
+      final byte[] content = TestRandomUtil.nextBytes(16);
+
+      @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
+
+      shardedProvisioningManager.addListener(provisioningAddress, subscribedConsumer).join();
+      assertTrue(shardedProvisioningManager.sendProvisioningMessage(provisioningAddress, content).join());
+
+      verify(subscribedConsumer, timeout(PUBSUB_TIMEOUT_MILLIS)).accept(any());
+    } finally {
+      shardedProvisioningManager.stop();
+    }
+  }
+
+  @Test
+  void getShardIndex() {
+    for (int i = 0; i < 100; i++) {
+      final String provisioningAddress = UUID.randomUUID().toString();
+      final int shardIndex = ProvisioningManager.getShardIndex(provisioningAddress, 3);
+
+      assertTrue(shardIndex >= 0 && shardIndex < 3);
+      assertEquals(shardIndex, ProvisioningManager.getShardIndex(provisioningAddress, 3));
+    }
+
+    assertEquals(0, ProvisioningManager.getShardIndex(UUID.randomUUID().toString(), 1));
+  }
 }
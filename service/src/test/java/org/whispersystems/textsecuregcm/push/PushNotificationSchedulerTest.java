@@ -239,6 +239,128 @@ class PushNotificationSchedulerTest {
         pushNotificationScheduler.getNextScheduledDelayedNotificationTimestamp(account, device));
   }
 
+  @Test
+  void testProcessSlotRange() {
+    final PushNotificationScheduler.NotificationWorker worker = pushNotificationScheduler.new NotificationWorker(1);
+    final int slotRange = getSlotRange();
+
+    clock.pin(Instant.now());
+
+    pushNotificationScheduler.scheduleDelayedNotification(account, device, Duration.ofMinutes(1)).join();
+    pushNotificationScheduler.scheduleBackgroundApnsNotification(account, device).toCompletableFuture().join();
+
+    // The background notification is due immediately
+    assertEquals(1, worker.processSlotRange(slotRange));
+    verify(apnSender).sendNotification(any());
+
+    // The delayed notification isn't due yet, and processing the background notification queue left nothing behind
+    assertEquals(0, worker.processSlotRange(slotRange));
+    assertEquals(1, getDueQueueCount(slotRange));
+
+    clock.pin(clock.instant().plus(Duration.ofMinutes(1)));
+
+    assertEquals(1, worker.processSlotRange(slotRange));
+    assertEquals(Optional.empty(),
+        pushNotificationScheduler.getNextScheduledDelayedNotificationTimestamp(account, device));
+    assertEquals(0, getDueQueueCount(slotRange));
+  }
+
+  @Test
+  void testProcessSlotRangeSendFailure() {
+    final PushNotificationScheduler.NotificationWorker worker = pushNotificationScheduler.new NotificationWorker(1);
+    final int slotRange = getSlotRange();
+
+    clock.pin(Instant.now());
+
+    when(fcmSender.sendNotification(any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    when(device.getApnId()).thenReturn(null);
+    when(device.getGcmId()).thenReturn("fcm-token");
+
+    pushNotificationScheduler.scheduleDelayedNotification(account, device, Duration.ZERO).join();
+
+    assertEquals(0, worker.processSlotRange(slotRange));
+
+    // The failed queue should stay in the index, but shouldn't be retried immediately
+    assertEquals(1, getDueQueueCount(slotRange));
+    assertEquals(0, worker.processSlotRange(slotRange));
+
+    when(fcmSender.sendNotification(any()))
+        .thenReturn(CompletableFuture.completedFuture(new SendPushNotificationResult(true, Optional.empty(), false, Optional.empty())));
+
+    clock.pin(clock.instant().plus(Duration.ofMinutes(1)));
+
+    assertEquals(1, worker.processSlotRange(slotRange));
+    assertEquals(0, getDueQueueCount(slotRange));
+  }
+
+  @Test
+  void testProcessSlotRangeLeased() {
+    final PushNotificationScheduler.NotificationWorker worker = pushNotificationScheduler.new NotificationWorker(1);
+    final int slotRange = getSlotRange();
+
+    clock.pin(Instant.now());
+
+    pushNotificationScheduler.scheduleBackgroundApnsNotification(account, device).toCompletableFuture().join();
+
+    REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(connection ->
+        connection.sync().set(PushNotificationScheduler.getSlotRangeLeaseKey(slotRange), "another-worker"));
+
+    assertEquals(0, worker.processSlotRange(slotRange));
+    verify(apnSender, never()).sendNotification(any());
+
+    REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(connection ->
+        connection.sync().del(PushNotificationScheduler.getSlotRangeLeaseKey(slotRange)));
+
+    assertEquals(1, worker.processSlotRange(slotRange));
+  }
+
+  @Test
+  void testReindexSlot() {
+    final PushNotificationScheduler.NotificationWorker worker = pushNotificationScheduler.new NotificationWorker(1);
+    final String queueKey = PushNotificationScheduler.getDelayedNotificationQueueKey(account, device);
+    final int slot = SlotHash.getSlot(queueKey);
+
+    clock.pin(Instant.now());
+
+    // Simulate an entry that was never added to the due-time index
+    REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(connection -> connection.sync()
+        .zadd(queueKey, clock.millis(), PushNotificationScheduler.encodeAciAndDeviceId(account, device)));
+
+    assertEquals(0, worker.processSlotRange(getSlotRange()));
+
+    pushNotificationScheduler.reindexSlot(slot);
+
+    assertEquals(1, worker.processSlotRange(getSlotRange()));
+  }
+
+  @Test
+  void testGetIdleSleep() {
+    final PushNotificationScheduler.NotificationWorker worker = pushNotificationScheduler.new NotificationWorker(1);
+
+    clock.pin(Instant.now());
+
+    // Nothing is scheduled, so workers should sleep as long as they're allowed
+    assertEquals(Duration.ofSeconds(5), worker.getIdleSleep());
+
+    pushNotificationScheduler.scheduleDelayedNotification(account, device, Duration.ofSeconds(2)).join();
+    assertEquals(Duration.ofSeconds(2), worker.getIdleSleep());
+
+    clock.pin(clock.instant().plus(Duration.ofSeconds(2)));
+    assertEquals(Duration.ofMillis(100), worker.getIdleSleep());
+  }
+
+  private int getSlotRange() {
+    return SlotHash.getSlot(PushNotificationScheduler.getDelayedNotificationQueueKey(account, device))
+        / PushNotificationScheduler.SLOT_RANGE_SIZE;
+  }
+
+  private long getDueQueueCount(final int slotRange) {
+    return REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
+        connection.sync().zcard(PushNotificationScheduler.getDueQueuesKey(slotRange)));
+  }
+
   @ParameterizedTest
   @CsvSource({
       "1, true",
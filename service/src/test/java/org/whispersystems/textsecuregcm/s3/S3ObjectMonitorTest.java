@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.s3;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,8 +26,7 @@ import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
-import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 class S3ObjectMonitorTest {
 
@@ -49,15 +49,16 @@ class S3ObjectMonitorTest {
         Duration.ofMinutes(1));
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(
-        HeadObjectResponse.builder().eTag(uuid).build());
     final ResponseInputStream<GetObjectResponse> ris = responseInputStreamFromString("abc", uuid);
     when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(ris);
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(uuid).build()))
+        .thenThrow(notModifiedException());
 
     objectMonitor.refresh(listener);
     objectMonitor.refresh(listener);
 
     verify(listener).accept(ris);
+    verify(s3Client).getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(uuid).build());
   }
 
   @Test
@@ -79,8 +80,8 @@ class S3ObjectMonitorTest {
         Duration.ofMinutes(1));
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().key(objectKey).bucket(bucket).build()))
-        .thenReturn(HeadObjectResponse.builder().eTag(uuid).build());
+    when(s3Client.getObject(GetObjectRequest.builder().key(objectKey).bucket(bucket).ifNoneMatch(uuid).build()))
+        .thenThrow(notModifiedException());
     final ResponseInputStream<GetObjectResponse> responseInputStream = responseInputStreamFromString("abc", uuid);
     when(s3Client.getObject(GetObjectRequest.builder().key(objectKey).bucket(bucket).build())).thenReturn(responseInputStream);
 
@@ -90,6 +91,48 @@ class S3ObjectMonitorTest {
     verify(listener, never()).accept(responseInputStream);
   }
 
+  @Test
+  void refreshChangedObject() {
+    final S3Client s3Client = mock(S3Client.class);
+
+    final String bucket = "s3bucket";
+    final String objectKey = "greatest-smooth-jazz-hits-of-all-time.zip";
+
+    //noinspection unchecked
+    final Consumer<InputStream> listener = mock(Consumer.class);
+
+    final S3ObjectMonitor objectMonitor = new S3ObjectMonitor(
+        s3Client,
+        bucket,
+        objectKey,
+        16 * 1024 * 1024,
+        mock(ScheduledExecutorService.class),
+        Duration.ofMinutes(1));
+
+    final String initialETag = UUID.randomUUID().toString();
+    final String updatedETag = UUID.randomUUID().toString();
+    final ResponseInputStream<GetObjectResponse> initialObject = responseInputStreamFromString("abc", initialETag);
+    final ResponseInputStream<GetObjectResponse> updatedObject = responseInputStreamFromString("def", updatedETag);
+
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(initialObject);
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(initialETag).build()))
+        .thenReturn(updatedObject);
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(updatedETag).build()))
+        .thenThrow(notModifiedException());
+
+    objectMonitor.refresh(listener);
+    objectMonitor.refresh(listener);
+    objectMonitor.refresh(listener);
+
+    verify(listener).accept(initialObject);
+    verify(listener).accept(updatedObject);
+    verify(listener, times(2)).accept(any());
+  }
+
+  private static S3Exception notModifiedException() {
+    return (S3Exception) S3Exception.builder().statusCode(304).build();
+  }
+
   private ResponseInputStream<GetObjectResponse> responseInputStreamFromString(final String s, final String etag) {
     final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
     final AbortableInputStream ais = AbortableInputStream.create(new ByteArrayInputStream(bytes));
@@ -116,8 +159,6 @@ class S3ObjectMonitorTest {
         Duration.ofMinutes(1));
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(
-        HeadObjectResponse.builder().eTag(uuid).contentLength(maxObjectSize+1).build());
     final ResponseInputStream<GetObjectResponse> ris = responseInputStreamFromString("a".repeat((int) maxObjectSize+1), uuid);
     when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(ris);
 
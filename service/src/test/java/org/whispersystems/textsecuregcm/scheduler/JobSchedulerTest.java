@@ -3,12 +3,16 @@ package org.whispersystems.textsecuregcm.scheduler;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -19,6 +23,7 @@ import org.whispersystems.textsecuregcm.storage.DynamoDbExtension;
 import org.whispersystems.textsecuregcm.storage.DynamoDbExtensionSchema;
 import org.whispersystems.textsecuregcm.util.TestClock;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 class JobSchedulerTest {
@@ -40,6 +45,14 @@ class JobSchedulerTest {
       super(dynamoDbAsyncClient, tableName, Duration.ofDays(7), clock);
     }
 
+    protected TestJobScheduler(final DynamoDbAsyncClient dynamoDbAsyncClient,
+        final String tableName,
+        final int shardCount,
+        final Clock clock) {
+
+      super(dynamoDbAsyncClient, tableName, Duration.ofDays(7), shardCount, 0, clock);
+    }
+
     @Override
     public String getSchedulerName() {
       return "test";
@@ -121,4 +134,49 @@ class JobSchedulerTest {
     assertEquals(2, jobsEncountered.get(),
         "Jobs should not be cleared after failed processing; encountered job counter should increment on second run");
   }
+
+  @Test
+  void processAvailableJobsSharded() {
+    final int shardCount = 4;
+    final int jobCount = 32;
+
+    final TestJobScheduler scheduler = new TestJobScheduler(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        DynamoDbExtensionSchema.Tables.SCHEDULED_JOBS.tableName(),
+        shardCount,
+        Clock.fixed(CURRENT_TIME, ZoneId.systemDefault()));
+
+    final Set<Integer> shards = new HashSet<>();
+
+    for (int i = 0; i < jobCount; i++) {
+      final AttributeValue runAt = scheduler.buildRunAtAttribute(CURRENT_TIME, i);
+      shards.add(scheduler.getShard(runAt));
+
+      scheduler.scheduleJob(runAt, CURRENT_TIME, null).join();
+    }
+
+    assertTrue(shards.size() > 1, "Jobs should be spread across multiple shards");
+
+    // Split the shards between two processors
+    scheduler.processAvailableJobs(0, 2).block();
+    final int jobsProcessedByFirstProcessor = scheduler.jobsProcessed.get();
+
+    scheduler.processAvailableJobs(1, 2).block();
+    assertEquals(jobCount, scheduler.jobsProcessed.get());
+    assertTrue(jobsProcessedByFirstProcessor < jobCount);
+
+    scheduler.processAvailableJobs().block();
+    assertEquals(jobCount, scheduler.jobsProcessed.get());
+  }
+
+  @Test
+  void getPartitionKey() {
+    final TestJobScheduler scheduler = new TestJobScheduler(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        DynamoDbExtensionSchema.Tables.SCHEDULED_JOBS.tableName(),
+        4,
+        Clock.fixed(CURRENT_TIME, ZoneId.systemDefault()));
+
+    // Jobs scheduled before sharding was introduced must still be found in the first shard
+    assertEquals(scheduler.getSchedulerName(), scheduler.getPartitionKey(0));
+    assertNotEquals(scheduler.getPartitionKey(0), scheduler.getPartitionKey(1));
+  }
 }
@@ -70,7 +70,6 @@ public class AccountCreationDeletionIntegrationTest {
 
   private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneId.systemDefault());
 
-  private ExecutorService accountLockExecutor;
   private ExecutorService clientPresenceExecutor;
 
   private AccountsManager accountsManager;
@@ -108,13 +107,12 @@ public class AccountCreationDeletionIntegrationTest {
         DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS.tableName(),
         DynamoDbExtensionSchema.Tables.USED_LINK_DEVICE_TOKENS.tableName());
 
-    accountLockExecutor = Executors.newSingleThreadExecutor();
     clientPresenceExecutor = Executors.newSingleThreadExecutor();
 
-    final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbClient(),
+    final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
         DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName());
 
-    clientPublicKeysManager = new ClientPublicKeysManager(clientPublicKeys, accountLockManager, accountLockExecutor);
+    clientPublicKeysManager = new ClientPublicKeysManager(clientPublicKeys, accountLockManager);
 
     final SecureStorageClient secureStorageClient = mock(SecureStorageClient.class);
     when(secureStorageClient.deleteStoredData(any())).thenReturn(CompletableFuture.completedFuture(null));
@@ -151,7 +149,6 @@ public class AccountCreationDeletionIntegrationTest {
         mock(ClientPresenceManager.class),
         registrationRecoveryPasswordsManager,
         clientPublicKeysManager,
-        accountLockExecutor,
         clientPresenceExecutor,
         CLOCK,
         "link-device-secret".getBytes(StandardCharsets.UTF_8),
@@ -160,12 +157,8 @@ public class AccountCreationDeletionIntegrationTest {
 
   @AfterEach
   void tearDown() throws InterruptedException {
-    accountLockExecutor.shutdown();
     clientPresenceExecutor.shutdown();
 
-    //noinspection ResultOfMethodCallIgnored
-    accountLockExecutor.awaitTermination(1, TimeUnit.SECONDS);
-
     //noinspection ResultOfMethodCallIgnored
     clientPresenceExecutor.awaitTermination(1, TimeUnit.SECONDS);
   }
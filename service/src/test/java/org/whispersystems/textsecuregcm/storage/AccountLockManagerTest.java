@@ -1,29 +1,38 @@
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClient;
-import com.amazonaws.services.dynamodbv2.ReleaseLockOptions;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import org.junit.jupiter.api.AfterEach;
+import java.util.concurrent.TimeoutException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.util.AttributeValues;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 
 class AccountLockManagerTest {
 
-  private AmazonDynamoDBLockClient lockClient;
-  private ExecutorService executor;
+  @RegisterExtension
+  static final DynamoDbExtension DYNAMO_DB_EXTENSION =
+      new DynamoDbExtension(DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK);
 
   private AccountLockManager accountLockManager;
 
@@ -33,65 +42,78 @@ class AccountLockManagerTest {
   private static final String SECOND_NUMBER = PhoneNumberUtil.getInstance().format(
       PhoneNumberUtil.getInstance().getExampleNumber("JP"), PhoneNumberUtil.PhoneNumberFormat.E164);
 
+  private static final Duration LEASE_DURATION = Duration.ofSeconds(1);
+  private static final Duration HEARTBEAT_PERIOD = Duration.ofMillis(100);
+  private static final Duration RETRY_PERIOD = Duration.ofMillis(50);
+
   @BeforeEach
   void setUp() {
-    lockClient = mock(AmazonDynamoDBLockClient.class);
-    executor = Executors.newSingleThreadExecutor();
-
-    accountLockManager = new AccountLockManager(lockClient);
+    accountLockManager = buildAccountLockManager();
   }
 
-  @AfterEach
-  void tearDown() throws InterruptedException {
-    executor.shutdown();
+  private static AccountLockManager buildAccountLockManager() {
+    return new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName(),
+        LEASE_DURATION,
+        HEARTBEAT_PERIOD,
+        RETRY_PERIOD,
+        Clock.systemUTC());
+  }
 
-    //noinspection ResultOfMethodCallIgnored
-    executor.awaitTermination(1, TimeUnit.SECONDS);
+  @Test
+  void withLock() {
+    accountLockManager.withLock(List.of(FIRST_NUMBER, SECOND_NUMBER), () -> {
+      assertTrue(getLockItem(FIRST_NUMBER).containsKey(AccountLockManager.ATTR_RECORD_VERSION_NUMBER));
+      assertTrue(getLockItem(SECOND_NUMBER).containsKey(AccountLockManager.ATTR_RECORD_VERSION_NUMBER));
+    });
+
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
   }
 
   @Test
-  void withLock() throws InterruptedException {
-    accountLockManager.withLock(List.of(FIRST_NUMBER, SECOND_NUMBER), () -> {}, executor);
+  void withLockDuplicateNumbers() {
+    accountLockManager.withLock(List.of(FIRST_NUMBER, FIRST_NUMBER), () -> {});
 
-    verify(lockClient, times(2)).acquireLock(any());
-    verify(lockClient, times(2)).releaseLock(any(ReleaseLockOptions.class));
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
   }
 
   @Test
-  void withLockTaskThrowsException() throws InterruptedException {
+  void withLockTaskThrowsException() {
     assertThrows(RuntimeException.class, () -> accountLockManager.withLock(List.of(FIRST_NUMBER, SECOND_NUMBER), () -> {
       throw new RuntimeException();
-    }, executor));
+    }));
 
-    verify(lockClient, times(2)).acquireLock(any());
-    verify(lockClient, times(2)).releaseLock(any(ReleaseLockOptions.class));
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
   }
 
   @Test
   void withLockEmptyList() {
     final Runnable task = mock(Runnable.class);
 
-    assertThrows(IllegalArgumentException.class, () -> accountLockManager.withLock(Collections.emptyList(), () -> {}, executor));
+    assertThrows(IllegalArgumentException.class, () -> accountLockManager.withLock(Collections.emptyList(), task));
     verify(task, never()).run();
   }
 
   @Test
-  void withLockAsync() throws InterruptedException {
-    accountLockManager.withLockAsync(List.of(FIRST_NUMBER, SECOND_NUMBER),
-        () -> CompletableFuture.completedFuture(null), executor).join();
+  void withLockAsync() {
+    assertEquals("test", accountLockManager.withLockAsync(List.of(FIRST_NUMBER, SECOND_NUMBER),
+        () -> CompletableFuture.completedFuture("test")).join());
 
-    verify(lockClient, times(2)).acquireLock(any());
-    verify(lockClient, times(2)).releaseLock(any(ReleaseLockOptions.class));
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
   }
 
   @Test
-  void withLockAsyncTaskThrowsException() throws InterruptedException {
-    assertThrows(RuntimeException.class,
+  void withLockAsyncTaskThrowsException() {
+    final CompletionException completionException = assertThrows(CompletionException.class,
         () -> accountLockManager.withLockAsync(List.of(FIRST_NUMBER, SECOND_NUMBER),
-            () -> CompletableFuture.failedFuture(new RuntimeException()), executor).join());
+            () -> CompletableFuture.failedFuture(new IllegalStateException())).join());
 
-    verify(lockClient, times(2)).acquireLock(any());
-    verify(lockClient, times(2)).releaseLock(any(ReleaseLockOptions.class));
+    assertInstanceOf(IllegalStateException.class, completionException.getCause());
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
   }
 
   @Test
@@ -99,9 +121,120 @@ class AccountLockManagerTest {
     final Runnable task = mock(Runnable.class);
 
     assertThrows(IllegalArgumentException.class,
-        () -> accountLockManager.withLockAsync(Collections.emptyList(),
-            () -> CompletableFuture.completedFuture(null), executor));
+        () -> accountLockManager.withLockAsync(Collections.emptyList(), () -> {
+          task.run();
+          return CompletableFuture.completedFuture(null);
+        }));
 
     verify(task, never()).run();
   }
+
+  @Test
+  void withLockAsyncContended() throws Exception {
+    final CompletableFuture<Void> firstTaskFuture = new CompletableFuture<>();
+    final CompletableFuture<Void> firstLockHeld = new CompletableFuture<>();
+
+    final CompletableFuture<Void> firstFuture = accountLockManager.withLockAsync(List.of(FIRST_NUMBER), () -> {
+      firstLockHeld.complete(null);
+      return firstTaskFuture;
+    });
+
+    firstLockHeld.get(1, TimeUnit.SECONDS);
+
+    final CompletableFuture<Void> secondFuture =
+        buildAccountLockManager().withLockAsync(List.of(SECOND_NUMBER, FIRST_NUMBER),
+            () -> CompletableFuture.completedFuture(null));
+
+    assertThrows(TimeoutException.class, () -> secondFuture.get(200, TimeUnit.MILLISECONDS));
+
+    // The second manager should not have acquired any locks while waiting for the first number
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
+
+    firstTaskFuture.complete(null);
+    firstFuture.get(1, TimeUnit.SECONDS);
+    secondFuture.get(1, TimeUnit.SECONDS);
+
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+    assertTrue(getLockItem(SECOND_NUMBER).isEmpty());
+  }
+
+  @Test
+  void withLockAsyncHeartbeat() throws Exception {
+    final CompletableFuture<Void> taskFuture = new CompletableFuture<>();
+    final CompletableFuture<Void> lockHeld = new CompletableFuture<>();
+
+    final CompletableFuture<Void> lockFuture = accountLockManager.withLockAsync(List.of(FIRST_NUMBER), () -> {
+      lockHeld.complete(null);
+      return taskFuture;
+    });
+
+    lockHeld.get(1, TimeUnit.SECONDS);
+
+    final String initialRecordVersionNumber =
+        getLockItem(FIRST_NUMBER).get(AccountLockManager.ATTR_RECORD_VERSION_NUMBER).s();
+
+    Thread.sleep(HEARTBEAT_PERIOD.multipliedBy(3).toMillis());
+
+    assertNotEquals(initialRecordVersionNumber,
+        getLockItem(FIRST_NUMBER).get(AccountLockManager.ATTR_RECORD_VERSION_NUMBER).s());
+
+    // A second manager should never be able to take over a lock that's still getting heartbeats
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> buildAccountLockManager().withLockAsync(List.of(FIRST_NUMBER),
+            () -> CompletableFuture.completedFuture(null)).join());
+
+    assertInstanceOf(LockNotAcquiredException.class, completionException.getCause());
+    assertFalse(lockFuture.isDone());
+
+    taskFuture.complete(null);
+    lockFuture.get(1, TimeUnit.SECONDS);
+
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+  }
+
+  @Test
+  void withLockStaleLease() {
+    // Simulate a lock left behind by a process that stopped sending heartbeats
+    DYNAMO_DB_EXTENSION.getDynamoDbClient().putItem(PutItemRequest.builder()
+        .tableName(DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName())
+        .item(Map.of(
+            AccountLockManager.KEY_ACCOUNT_E164, AttributeValues.fromString(FIRST_NUMBER),
+            AccountLockManager.ATTR_OWNER_NAME, AttributeValues.fromString("abandoned"),
+            AccountLockManager.ATTR_LEASE_DURATION, AttributeValues.fromString("100"),
+            AccountLockManager.ATTR_RECORD_VERSION_NUMBER, AttributeValues.fromString("stale")))
+        .build());
+
+    accountLockManager.withLock(List.of(FIRST_NUMBER), () ->
+        assertNotEquals("abandoned", getLockItem(FIRST_NUMBER).get(AccountLockManager.ATTR_OWNER_NAME).s()));
+
+    assertTrue(getLockItem(FIRST_NUMBER).isEmpty());
+  }
+
+  @Test
+  void withLockNotAcquired() {
+    DYNAMO_DB_EXTENSION.getDynamoDbClient().putItem(PutItemRequest.builder()
+        .tableName(DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName())
+        .item(Map.of(
+            AccountLockManager.KEY_ACCOUNT_E164, AttributeValues.fromString(FIRST_NUMBER),
+            AccountLockManager.ATTR_OWNER_NAME, AttributeValues.fromString("other"),
+            AccountLockManager.ATTR_LEASE_DURATION, AttributeValues.fromString("60000"),
+            AccountLockManager.ATTR_RECORD_VERSION_NUMBER, AttributeValues.fromString("held")))
+        .build());
+
+    final Runnable task = mock(Runnable.class);
+
+    assertThrows(LockNotAcquiredException.class, () -> accountLockManager.withLock(List.of(FIRST_NUMBER), task));
+    verify(task, never()).run();
+
+    assertEquals("held", getLockItem(FIRST_NUMBER).get(AccountLockManager.ATTR_RECORD_VERSION_NUMBER).s());
+  }
+
+  private static Map<String, AttributeValue> getLockItem(final String e164) {
+    return DYNAMO_DB_EXTENSION.getDynamoDbClient().getItem(GetItemRequest.builder()
+            .tableName(DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName())
+            .key(Map.of(AccountLockManager.KEY_ACCOUNT_E164, AttributeValues.fromString(e164)))
+            .consistentRead(true)
+            .build())
+        .item();
+  }
 }
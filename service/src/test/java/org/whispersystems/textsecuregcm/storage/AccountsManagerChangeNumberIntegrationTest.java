@@ -65,7 +65,6 @@ class AccountsManagerChangeNumberIntegrationTest {
 
   private KeysManager keysManager;
   private ClientPresenceManager clientPresenceManager;
-  private ExecutorService accountLockExecutor;
   private ExecutorService clientPresenceExecutor;
 
   private AccountsManager accountsManager;
@@ -101,14 +100,13 @@ class AccountsManagerChangeNumberIntegrationTest {
           Tables.DELETED_ACCOUNTS.tableName(),
           Tables.USED_LINK_DEVICE_TOKENS.tableName());
 
-      accountLockExecutor = Executors.newSingleThreadExecutor();
       clientPresenceExecutor = Executors.newSingleThreadExecutor();
 
-      final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbClient(),
+      final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
           Tables.DELETED_ACCOUNTS_LOCK.tableName());
 
       final ClientPublicKeysManager clientPublicKeysManager =
-          new ClientPublicKeysManager(clientPublicKeys, accountLockManager, accountLockExecutor);
+          new ClientPublicKeysManager(clientPublicKeys, accountLockManager);
 
       final SecureStorageClient secureStorageClient = mock(SecureStorageClient.class);
       when(secureStorageClient.deleteStoredData(any())).thenReturn(CompletableFuture.completedFuture(null));
@@ -146,7 +144,6 @@ class AccountsManagerChangeNumberIntegrationTest {
           clientPresenceManager,
           registrationRecoveryPasswordsManager,
           clientPublicKeysManager,
-          accountLockExecutor,
           clientPresenceExecutor,
           mock(Clock.class),
           "link-device-secret".getBytes(StandardCharsets.UTF_8),
@@ -156,12 +153,8 @@ class AccountsManagerChangeNumberIntegrationTest {
 
   @AfterEach
   void tearDown() throws InterruptedException {
-    accountLockExecutor.shutdown();
     clientPresenceExecutor.shutdown();
 
-    //noinspection ResultOfMethodCallIgnored
-    accountLockExecutor.awaitTermination(1, TimeUnit.SECONDS);
-
     //noinspection ResultOfMethodCallIgnored
     clientPresenceExecutor.awaitTermination(1, TimeUnit.SECONDS);
   }
@@ -107,9 +107,9 @@ class AccountsManagerConcurrentModificationIntegrationTest {
         task.run();
 
         return null;
-      }).when(accountLockManager).withLock(any(), any(), any());
+      }).when(accountLockManager).withLock(any(), any());
 
-      when(accountLockManager.withLockAsync(any(), any(), any())).thenAnswer(invocation -> {
+      when(accountLockManager.withLockAsync(any(), any())).thenAnswer(invocation -> {
         final Supplier<CompletableFuture<?>> taskSupplier = invocation.getArgument(1);
         taskSupplier.get().join();
 
@@ -134,7 +134,6 @@ class AccountsManagerConcurrentModificationIntegrationTest {
           mock(RegistrationRecoveryPasswordsManager.class),
           mock(ClientPublicKeysManager.class),
           mock(Executor.class),
-          mock(Executor.class),
           mock(Clock.class),
           "link-device-secret".getBytes(StandardCharsets.UTF_8),
           dynamicConfigurationManager
@@ -212,9 +212,9 @@ class AccountsManagerTest {
       task.run();
 
       return null;
-    }).when(accountLockManager).withLock(any(), any(), any());
+    }).when(accountLockManager).withLock(any(), any());
 
-    when(accountLockManager.withLockAsync(any(), any(), any())).thenAnswer(invocation -> {
+    when(accountLockManager.withLockAsync(any(), any())).thenAnswer(invocation -> {
       final Supplier<CompletableFuture<?>> taskSupplier = invocation.getArgument(1);
       return taskSupplier.get();
     });
@@ -248,7 +248,6 @@ class AccountsManagerTest {
         clientPresenceManager,
         registrationRecoveryPasswordsManager,
         clientPublicKeysManager,
-        mock(Executor.class),
         clientPresenceExecutor,
         CLOCK,
         LINK_DEVICE_SECRET,
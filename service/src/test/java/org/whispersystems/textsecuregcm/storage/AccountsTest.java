@@ -30,10 +30,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -63,6 +65,7 @@ import org.whispersystems.textsecuregcm.util.CompletableFutureTestUtil;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.TestClock;
 import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
@@ -686,6 +689,32 @@ class AccountsTest {
         retrievedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()));
   }
 
+  @Test
+  void testGetAllFromSegment() {
+    final Set<UUID> expectedAccountIdentifiers = new HashSet<>();
+
+    for (int i = 1; i <= 100; i++) {
+      final Account account = generateAccount("+1" + String.format("%03d", i), UUID.randomUUID(), UUID.randomUUID());
+      expectedAccountIdentifiers.add(account.getUuid());
+      createAccount(account);
+    }
+
+    final int totalSegments = 3;
+
+    final List<Accounts.ScanPage> pages = Flux.range(0, totalSegments)
+        .concatMap(segment -> accounts.getAllFromSegment(segment, totalSegments, null))
+        .collectList()
+        .block();
+
+    assertNotNull(pages);
+    assertEquals(expectedAccountIdentifiers, pages.stream()
+        .flatMap(page -> page.accounts().stream())
+        .map(Account::getUuid)
+        .collect(Collectors.toSet()));
+
+    assertTrue(pages.stream().allMatch(page -> page.consumedCapacityUnits() >= 0));
+  }
+
   @Test
   void testDelete() {
     final Device deletedDevice = generateDevice(DEVICE_ID_1);
@@ -61,7 +61,6 @@ public class AddRemoveDeviceIntegrationTest {
 
   private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneId.systemDefault());
 
-  private ExecutorService accountLockExecutor;
   private ExecutorService clientPresenceExecutor;
 
   private KeysManager keysManager;
@@ -98,13 +97,12 @@ public class AddRemoveDeviceIntegrationTest {
         DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS.tableName(),
         DynamoDbExtensionSchema.Tables.USED_LINK_DEVICE_TOKENS.tableName());
 
-    accountLockExecutor = Executors.newSingleThreadExecutor();
     clientPresenceExecutor = Executors.newSingleThreadExecutor();
 
-    final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbClient(),
+    final AccountLockManager accountLockManager = new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
         DynamoDbExtensionSchema.Tables.DELETED_ACCOUNTS_LOCK.tableName());
 
-    clientPublicKeysManager = new ClientPublicKeysManager(clientPublicKeys, accountLockManager, accountLockExecutor);
+    clientPublicKeysManager = new ClientPublicKeysManager(clientPublicKeys, accountLockManager);
 
     final SecureStorageClient secureStorageClient = mock(SecureStorageClient.class);
     when(secureStorageClient.deleteStoredData(any())).thenReturn(CompletableFuture.completedFuture(null));
@@ -141,7 +139,6 @@ public class AddRemoveDeviceIntegrationTest {
         mock(ClientPresenceManager.class),
         registrationRecoveryPasswordsManager,
         clientPublicKeysManager,
-        accountLockExecutor,
         clientPresenceExecutor,
         CLOCK,
         "link-device-secret".getBytes(StandardCharsets.UTF_8),
@@ -150,12 +147,8 @@ public class AddRemoveDeviceIntegrationTest {
 
   @AfterEach
   void tearDown() throws InterruptedException {
-    accountLockExecutor.shutdown();
     clientPresenceExecutor.shutdown();
 
-    //noinspection ResultOfMethodCallIgnored
-    accountLockExecutor.awaitTermination(1, TimeUnit.SECONDS);
-
     //noinspection ResultOfMethodCallIgnored
     clientPresenceExecutor.awaitTermination(1, TimeUnit.SECONDS);
   }
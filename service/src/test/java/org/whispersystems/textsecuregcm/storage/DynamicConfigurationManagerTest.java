@@ -6,6 +6,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import org.junit.jupiter.api.AfterEach;
@@ -158,4 +160,57 @@ class DynamicConfigurationManagerTest {
     });
 
   }
+
+  @Test
+  void testConfigurationListener() {
+    when(appConfig.startConfigurationSession(startConfigurationSession))
+        .thenReturn(StartConfigurationSessionResponse.builder()
+            .initialConfigurationToken("0")
+            .build());
+
+    when(appConfig.getLatestConfiguration(GetLatestConfigurationRequest.builder().
+        configurationToken("0").build()))
+        .thenReturn(GetLatestConfigurationResponse.builder()
+            .configuration(VALID_CONFIG)
+            .nextPollConfigurationToken("1").build());
+
+    when(appConfig.getLatestConfiguration(GetLatestConfigurationRequest.builder().
+        configurationToken("1").build()))
+        .thenReturn(GetLatestConfigurationResponse.builder()
+            .configuration(SdkBytes.fromUtf8String("""
+                experiments:
+                  test:
+                    enrollmentPercentage: 50
+                captcha:
+                  scoreFloor: 1.0
+                """))
+            .nextPollConfigurationToken("2").build());
+
+    when(appConfig.getLatestConfiguration(GetLatestConfigurationRequest.builder().
+        configurationToken("2").build()))
+        .thenReturn(GetLatestConfigurationResponse.builder()
+            .configuration(SdkBytes.fromUtf8String(""))
+            .nextPollConfigurationToken("2").build());
+
+    final List<DynamicConfiguration> earlyListenerConfigurations = new CopyOnWriteArrayList<>();
+    final List<DynamicConfiguration> lateListenerConfigurations = new CopyOnWriteArrayList<>();
+
+    dynamicConfigurationManager.addConfigurationListener(earlyListenerConfigurations::add);
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      dynamicConfigurationManager.start();
+
+      // A listener registered after the initial load should immediately receive the current snapshot
+      dynamicConfigurationManager.addConfigurationListener(lateListenerConfigurations::add);
+      assertThat(lateListenerConfigurations).isNotEmpty();
+
+      while (earlyListenerConfigurations.size() < 2) {
+        Thread.sleep(100);
+      }
+    });
+
+    assertThat(earlyListenerConfigurations).hasSize(2);
+    assertThat(earlyListenerConfigurations.get(1).getExperimentEnrollmentConfiguration("test")).isPresent();
+    assertThat(earlyListenerConfigurations.getLast()).isSameAs(dynamicConfigurationManager.getConfiguration());
+  }
 }
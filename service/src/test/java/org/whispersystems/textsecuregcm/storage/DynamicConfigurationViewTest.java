@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DynamicConfigurationViewTest {
+
+  @Test
+  void get() {
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<String> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    final AtomicInteger derivations = new AtomicInteger();
+
+    final DynamicConfigurationView<String, Integer> view =
+        new DynamicConfigurationView<>(dynamicConfigurationManager, configuration -> {
+          derivations.incrementAndGet();
+          return configuration.length();
+        });
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn("first");
+
+    assertEquals(5, view.get());
+    assertEquals(5, view.get());
+    assertEquals(1, derivations.get());
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn("second");
+
+    assertEquals(6, view.get());
+    assertEquals(6, view.get());
+    assertEquals(2, derivations.get());
+  }
+}
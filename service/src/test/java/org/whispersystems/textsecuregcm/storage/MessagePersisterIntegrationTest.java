@@ -13,7 +13,6 @@ import static org.mockito.Mockito.when;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
-import io.lettuce.core.cluster.SlotHash;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
@@ -129,11 +128,6 @@ class MessagePersisterIntegrationTest {
         expectedMessages.add(message);
       }
 
-      REDIS_CLUSTER_EXTENSION.getRedisCluster()
-          .useCluster(connection -> connection.sync().set(MessagesCache.NEXT_SLOT_TO_PERSIST_KEY,
-              String.valueOf(
-                  SlotHash.getSlot(MessagesCache.getMessageQueueKey(account.getUuid(), Device.PRIMARY_ID)) - 1)));
-
       final AtomicBoolean messagesPersisted = new AtomicBoolean(false);
 
       messagesManager.addMessageAvailabilityListener(account.getUuid(), Device.PRIMARY_ID,
@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -27,7 +28,9 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -132,7 +135,9 @@ class MessagePersisterTest {
 
   @Test
   void testPersistNextQueuesNoQueues() {
-    messagePersister.persistNextQueues(Instant.now());
+    for (int slotRange = 0; slotRange < MessagesCache.PERSIST_SLOT_RANGE_COUNT; slotRange++) {
+      messagePersister.persistNextQueues(Instant.now(), slotRange);
+    }
 
     verify(accountsManager, never()).getByAccountIdentifier(any(UUID.class));
   }
@@ -145,9 +150,8 @@ class MessagePersisterTest {
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()), getSlotRange(queueName));
 
     final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
 
@@ -164,14 +168,15 @@ class MessagePersisterTest {
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
-    messagePersister.persistNextQueues(now);
+    messagePersister.persistNextQueues(now, getSlotRange(queueName));
 
     verify(messagesDynamoDb, never()).store(any(), any(), any());
   }
 
   @Test
+  // Inserting several thousand messages one at a time takes most of the class-wide budget on its own
+  @Timeout(value = 20, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
   void testPersistNextQueuesMultiplePages() {
     final int slot = 7;
     final int queueCount = (MessagePersister.QUEUE_BATCH_LIMIT * 3) + 7;
@@ -194,9 +199,7 @@ class MessagePersisterTest {
       insertMessages(accountUuid, deviceId, messagesPerQueue, now);
     }
 
-    setNextSlotToPersist(slot);
-
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()), MessagesCache.getSlotRange(slot));
 
     final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
 
@@ -204,6 +207,79 @@ class MessagePersisterTest {
     assertEquals(queueCount * messagesPerQueue, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
   }
 
+  @Test
+  void testPersistNextQueuesStealBusySlot() {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final int slot = SlotHash.getSlot(queueName);
+    final int messageCount = 17;
+    final Instant now = Instant.now();
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
+
+    // Pretend another worker found the slot while scanning its range, but hasn't claimed it yet
+    messagesCache.offerBusySlotsToPersist(Map.of(slot, now));
+
+    assertEquals(1, messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()),
+        (MessagesCache.getSlotRange(slot) + 1) % MessagesCache.PERSIST_SLOT_RANGE_COUNT));
+
+    final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
+
+    verify(messagesDynamoDb, atLeastOnce()).store(messagesCaptor.capture(), eq(DESTINATION_ACCOUNT_UUID),
+        eq(DESTINATION_DEVICE));
+    assertEquals(messageCount, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
+    assertEquals(Optional.empty(), messagesCache.claimOldestBusySlotToPersist());
+  }
+
+  @Test
+  void testPersistNextQueuesSlotRangeLeased() {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final int slot = SlotHash.getSlot(queueName);
+    final Instant now = Instant.now();
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, 17, now);
+
+    final int slotRange = MessagesCache.getSlotRange(slot);
+
+    assertTrue(messagesCache.leaseSlotRangeToPersist(slotRange, "other-worker", Duration.ofMinutes(1)));
+
+    assertEquals(0, messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()), slotRange));
+    verify(messagesDynamoDb, never()).store(any(), any(), any());
+
+    assertTrue(messagesCache.releaseSlotRangeLease(slotRange, "other-worker"));
+
+    assertEquals(1, messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()), slotRange));
+  }
+
+  @Test
+  void testClaimOldestBusySlotToPersist() {
+    final Instant now = Instant.now();
+    final int olderSlot = MessagesCache.PERSIST_SLOT_RANGE_SIZE * 3 + 7;
+    final int newerSlot = 11;
+
+    messagesCache.offerBusySlotsToPersist(Map.of(newerSlot, now, olderSlot, now.minusSeconds(1)));
+
+    assertEquals(Optional.of(olderSlot), messagesCache.claimOldestBusySlotToPersist());
+    assertEquals(Optional.of(newerSlot), messagesCache.claimOldestBusySlotToPersist());
+    assertEquals(Optional.empty(), messagesCache.claimOldestBusySlotToPersist());
+  }
+
+  @Test
+  void testOldestUnpersistedQueueAgeGaugeExpiration() {
+    final Instant now = Instant.now();
+
+    messagePersister.persistNextQueues(now, 1);
+    assertEquals(Set.of(1), messagePersister.getSlotRangesWithOldestUnpersistedQueueAgeGauges());
+
+    messagePersister.persistNextQueues(now.plusSeconds(30), 2);
+    assertEquals(Set.of(1, 2), messagePersister.getSlotRangesWithOldestUnpersistedQueueAgeGauges());
+
+    // This persister hasn't scanned range 1 in over a minute, and so shouldn't keep reporting on it
+    messagePersister.persistNextQueues(now.plusSeconds(61), 3);
+    assertEquals(Set.of(2, 3), messagePersister.getSlotRangesWithOldestUnpersistedQueueAgeGauges());
+  }
+
   @Test
   void testPersistQueueRetry() {
     final String queueName = new String(
@@ -212,13 +288,12 @@ class MessagePersisterTest {
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     doAnswer((Answer<Void>) invocation -> {
       throw new RuntimeException("OH NO.");
         }).when(messagesDynamoDb).store(any(), eq(DESTINATION_ACCOUNT_UUID), eq(DESTINATION_DEVICE));
 
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()), getSlotRange(queueName));
 
     assertEquals(List.of(queueName),
         messagesCache.getQueuesToPersist(SlotHash.getSlot(queueName),
@@ -227,13 +302,10 @@ class MessagePersisterTest {
 
   @Test
   void testPersistQueueRetryLoop() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = (MessagePersister.MESSAGE_BATCH_LIMIT * 3) + 7;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     // returning `0` indicates something not working correctly
     when(messagesManager.persistMessages(any(UUID.class), any(), anyList())).thenReturn(0);
@@ -245,13 +317,10 @@ class MessagePersisterTest {
 
   @Test
   void testUnlinkOnFullQueue() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = 1;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     final Device primary = mock(Device.class);
     when(primary.getId()).thenReturn((byte) 1);
@@ -287,13 +356,10 @@ class MessagePersisterTest {
 
   @Test
   void testFailedUnlinkOnFullQueueThrowsForRetry() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = 1;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     final Device primary = mock(Device.class);
     when(primary.getId()).thenReturn((byte) 1);
@@ -362,8 +428,7 @@ class MessagePersisterTest {
     }
   }
 
-  private void setNextSlotToPersist(final int nextSlot) {
-    REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(
-        connection -> connection.sync().set(MessagesCache.NEXT_SLOT_TO_PERSIST_KEY, String.valueOf(nextSlot - 1)));
+  private static int getSlotRange(final String queueName) {
+    return MessagesCache.getSlotRange(SlotHash.getSlot(queueName));
   }
 }
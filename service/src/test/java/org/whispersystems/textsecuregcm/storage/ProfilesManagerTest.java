@@ -121,6 +121,7 @@ public class ProfilesManagerTest {
     assertSame(retrieved.get(), profile);
 
     verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(commands, times(1)).get(eq("profiles::missing::" + uuid + "::someversion"));
     verify(commands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
     verifyNoMoreInteractions(commands);
 
@@ -136,6 +137,7 @@ public class ProfilesManagerTest {
         null, null, "somecommitment".getBytes());
 
     when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.get(eq("profiles::missing::" + uuid + "::someversion"))).thenReturn(MockRedisFuture.completedFuture(null));
     when(asyncCommands.hset(eq("profiles::" + uuid), eq("someversion"), anyString())).thenReturn(MockRedisFuture.completedFuture(null));
     when(profiles.getAsync(eq(uuid), eq("someversion"))).thenReturn(CompletableFuture.completedFuture(Optional.of(profile)));
 
@@ -145,6 +147,7 @@ public class ProfilesManagerTest {
     assertSame(retrieved.get(), profile);
 
     verify(asyncCommands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(asyncCommands, times(1)).get(eq("profiles::missing::" + uuid + "::someversion"));
     verify(asyncCommands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
     verifyNoMoreInteractions(asyncCommands);
 
@@ -152,6 +155,55 @@ public class ProfilesManagerTest {
     verifyNoMoreInteractions(profiles);
   }
 
+  @Test
+  public void testGetProfileMissingVersion() {
+    final UUID uuid = UUID.randomUUID();
+    final String missingVersionKey = "profiles::missing::" + uuid + "::someversion";
+
+    when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.empty());
+
+    assertTrue(profilesManager.get(uuid, "someversion").isEmpty());
+
+    verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(commands, times(1)).get(eq(missingVersionKey));
+    verify(commands, times(1))
+        .setex(eq(missingVersionKey), eq(ProfilesManager.MISSING_VERSION_CACHE_TTL.toSeconds()), anyString());
+    verifyNoMoreInteractions(commands);
+
+    verify(profiles, times(1)).get(eq(uuid), eq("someversion"));
+    verifyNoMoreInteractions(profiles);
+
+    // Once a version is known to be missing, subsequent lookups shouldn't go to DynamoDB
+    when(commands.get(eq(missingVersionKey))).thenReturn("1");
+
+    assertTrue(profilesManager.get(uuid, "someversion").isEmpty());
+    verifyNoMoreInteractions(profiles);
+  }
+
+  @Test
+  public void testGetProfileAsyncMissingVersion() {
+    final UUID uuid = UUID.randomUUID();
+    final String missingVersionKey = "profiles::missing::" + uuid + "::someversion";
+
+    when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.get(eq(missingVersionKey))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.setex(eq(missingVersionKey), eq(ProfilesManager.MISSING_VERSION_CACHE_TTL.toSeconds()), anyString()))
+        .thenReturn(MockRedisFuture.completedFuture("OK"));
+    when(profiles.getAsync(eq(uuid), eq("someversion"))).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    assertTrue(profilesManager.getAsync(uuid, "someversion").join().isEmpty());
+
+    verify(asyncCommands, times(1))
+        .setex(eq(missingVersionKey), eq(ProfilesManager.MISSING_VERSION_CACHE_TTL.toSeconds()), anyString());
+    verify(profiles, times(1)).getAsync(eq(uuid), eq("someversion"));
+
+    // Once a version is known to be missing, subsequent lookups shouldn't go to DynamoDB
+    when(asyncCommands.get(eq(missingVersionKey))).thenReturn(MockRedisFuture.completedFuture("1"));
+
+    assertTrue(profilesManager.getAsync(uuid, "someversion").join().isEmpty());
+    verifyNoMoreInteractions(profiles);
+  }
+
   @Test
   public void testGetProfileBrokenCache() {
     final UUID uuid = UUID.randomUUID();
@@ -168,6 +220,7 @@ public class ProfilesManagerTest {
     assertSame(retrieved.get(), profile);
 
     verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(commands, times(1)).get(eq("profiles::missing::" + uuid + "::someversion"));
     verify(commands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
     verifyNoMoreInteractions(commands);
 
@@ -183,6 +236,7 @@ public class ProfilesManagerTest {
         null, null, "somecommitment".getBytes());
 
     when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(MockRedisFuture.failedFuture(new RedisException("Connection lost")));
+    when(asyncCommands.get(eq("profiles::missing::" + uuid + "::someversion"))).thenReturn(MockRedisFuture.failedFuture(new RedisException("Connection lost")));
     when(asyncCommands.hset(eq("profiles::" + uuid), eq("someversion"), anyString())).thenReturn(MockRedisFuture.completedFuture(null));
     when(profiles.getAsync(eq(uuid), eq("someversion"))).thenReturn(CompletableFuture.completedFuture(Optional.of(profile)));
 
@@ -192,6 +246,7 @@ public class ProfilesManagerTest {
     assertSame(retrieved.get(), profile);
 
     verify(asyncCommands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(asyncCommands, times(1)).get(eq("profiles::missing::" + uuid + "::someversion"));
     verify(asyncCommands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
     verifyNoMoreInteractions(asyncCommands);
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AsyncConcurrencyLimiterTest {
+
+  @Test
+  void limitsInFlightOperations() {
+    final AsyncConcurrencyLimiter limiter = new AsyncConcurrencyLimiter("test", 2);
+
+    final List<CompletableFuture<Integer>> operations = new ArrayList<>();
+    final List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+    for (int i = 0; i < 5; i++) {
+      final CompletableFuture<Integer> operation = new CompletableFuture<>();
+      operations.add(operation);
+
+      results.add(limiter.submit(() -> operation));
+    }
+
+    assertEquals(2, limiter.getActiveTasks());
+    assertEquals(3, limiter.getWaitingTasks());
+
+    for (int i = 0; i < operations.size(); i++) {
+      operations.get(i).complete(i);
+      assertEquals(i, results.get(i).join());
+    }
+
+    assertEquals(0, limiter.getActiveTasks());
+    assertEquals(0, limiter.getWaitingTasks());
+  }
+
+  @Test
+  void queuedOperationsStartInOrder() {
+    final AsyncConcurrencyLimiter limiter = new AsyncConcurrencyLimiter("test", 1);
+
+    final CompletableFuture<Void> blocker = new CompletableFuture<>();
+    limiter.submit(() -> blocker);
+
+    final List<Integer> startOrder = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      final int index = i;
+
+      limiter.submit(() -> {
+        startOrder.add(index);
+        return CompletableFuture.completedFuture(null);
+      });
+    }
+
+    assertTrue(startOrder.isEmpty());
+
+    blocker.complete(null);
+
+    assertEquals(List.of(0, 1, 2), startOrder);
+  }
+
+  @Test
+  void synchronousCompletionDoesNotRecurse() {
+    final AsyncConcurrencyLimiter limiter = new AsyncConcurrencyLimiter("test", 1);
+
+    final CompletableFuture<Void> blocker = new CompletableFuture<>();
+    limiter.submit(() -> blocker);
+
+    final AtomicInteger completed = new AtomicInteger();
+    final int operationCount = 100_000;
+
+    for (int i = 0; i < operationCount; i++) {
+      limiter.submit(() -> CompletableFuture.completedFuture(null))
+          .thenRun(completed::incrementAndGet);
+    }
+
+    // If each immediately-completed operation started the next one from its own callback, this would overflow the stack
+    blocker.complete(null);
+
+    assertEquals(operationCount, completed.get());
+    assertEquals(0, limiter.getActiveTasks());
+  }
+
+  @Test
+  void dynamicLimit() {
+    final AtomicInteger maxConcurrency = new AtomicInteger(2);
+    final AsyncConcurrencyLimiter limiter = new AsyncConcurrencyLimiter("test", maxConcurrency::get);
+
+    final List<CompletableFuture<Void>> operations = new ArrayList<>();
+
+    for (int i = 0; i < 6; i++) {
+      final CompletableFuture<Void> operation = new CompletableFuture<>();
+      operations.add(operation);
+
+      limiter.submit(() -> operation);
+    }
+
+    assertEquals(2, limiter.getActiveTasks());
+
+    // Shrinking the limit doesn't start anything new until enough operations have finished
+    maxConcurrency.set(1);
+    operations.get(0).complete(null);
+
+    assertEquals(1, limiter.getActiveTasks());
+    assertEquals(4, limiter.getWaitingTasks());
+
+    // Growing the limit takes effect the next time an operation finishes
+    maxConcurrency.set(3);
+    operations.get(1).complete(null);
+
+    assertEquals(3, limiter.getActiveTasks());
+    assertEquals(1, limiter.getWaitingTasks());
+  }
+
+  @Test
+  void failuresReleasePermits() {
+    final AsyncConcurrencyLimiter limiter = new AsyncConcurrencyLimiter("test", 1);
+
+    final CompletableFuture<Object> failed =
+        limiter.submit(() -> CompletableFuture.failedFuture(new IllegalStateException()));
+
+    final CompletableFuture<Object> thrown = limiter.submit(() -> {
+      throw new IllegalStateException();
+    });
+
+    final CompletionException completionException = assertThrows(CompletionException.class, failed::join);
+    assertTrue(completionException.getCause() instanceof IllegalStateException);
+    assertThrows(CompletionException.class, thrown::join);
+
+    assertEquals(0, limiter.getActiveTasks());
+    assertFalse(limiter.submit(() -> CompletableFuture.completedFuture(1)).isCompletedExceptionally());
+  }
+}
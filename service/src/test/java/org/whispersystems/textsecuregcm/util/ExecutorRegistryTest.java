@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.whispersystems.textsecuregcm.configuration.ExecutorConfiguration;
+
+class ExecutorRegistryTest {
+
+  private ExecutorRegistry executorRegistry;
+
+  @BeforeEach
+  void setUp() {
+    executorRegistry = new ExecutorRegistry(ExecutorRegistryTest.class,
+        new LifecycleEnvironment(new MetricRegistry()),
+        Map.of("virtual", new ExecutorConfiguration(true, 2),
+            "platform", new ExecutorConfiguration(false, 3)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"virtual", "platform", "default"})
+  void executorService(final String executorName) throws Exception {
+    final ExecutorService executorService = executorRegistry.executorService(executorName, 4);
+
+    final int expectedMaxConcurrency = switch (executorName) {
+      case "virtual" -> 2;
+      case "platform" -> 3;
+      default -> 4;
+    };
+
+    final AtomicInteger activeTasks = new AtomicInteger();
+    final AtomicInteger maxActiveTasks = new AtomicInteger();
+    final CountDownLatch allStarted = new CountDownLatch(expectedMaxConcurrency);
+
+    final List<Future<?>> futures = new ArrayList<>();
+
+    for (int i = 0; i < expectedMaxConcurrency * 4; i++) {
+      futures.add(executorService.submit(() -> {
+        maxActiveTasks.accumulateAndGet(activeTasks.incrementAndGet(), Math::max);
+        allStarted.countDown();
+
+        try {
+          // Hold the permit until enough tasks have started to saturate the executor
+          allStarted.await(1, TimeUnit.SECONDS);
+          Thread.sleep(10);
+        } catch (final InterruptedException e) {
+          throw new RuntimeException(e);
+        } finally {
+          activeTasks.decrementAndGet();
+        }
+      }));
+    }
+
+    for (final Future<?> future : futures) {
+      future.get(5, TimeUnit.SECONDS);
+    }
+
+    assertEquals(expectedMaxConcurrency, maxActiveTasks.get());
+
+    executorService.shutdown();
+    assertTrue(executorService.awaitTermination(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void executorServiceDuplicateName() {
+    executorRegistry.executorService("duplicate", 1);
+    assertThrows(IllegalArgumentException.class, () -> executorRegistry.executorService("duplicate", 1));
+  }
+
+  @Test
+  void executorServiceVirtualThreadsWithPlatformThreadCustomizer() {
+    assertThrows(IllegalArgumentException.class,
+        () -> executorRegistry.executorService("virtual", 1, builder -> builder.workQueue(new ArrayBlockingQueue<>(1))));
+
+    // The rejected executor should not have claimed its name
+    executorRegistry.executorService("virtual", 1).shutdown();
+
+    executorRegistry.executorService("platform", 1, builder -> builder.workQueue(new ArrayBlockingQueue<>(1))).shutdown();
+  }
+
+  @Test
+  void getExecutorName() throws Exception {
+    final ExecutorService virtualExecutorService = executorRegistry.executorService("virtual", 1);
+    final ExecutorService platformExecutorService = executorRegistry.executorService("platform", 1);
+
+    final String virtualThreadName = virtualExecutorService.submit(() -> Thread.currentThread().getName()).get();
+    final String platformThreadName = platformExecutorService.submit(() -> Thread.currentThread().getName()).get();
+
+    assertEquals("virtual", executorRegistry.getExecutorName(virtualThreadName));
+    assertEquals("platform", executorRegistry.getExecutorName(platformThreadName));
+
+    assertEquals(ExecutorRegistry.UNKNOWN_EXECUTOR_NAME, executorRegistry.getExecutorName("unregistered-1"));
+    assertEquals(ExecutorRegistry.UNKNOWN_EXECUTOR_NAME, executorRegistry.getExecutorName("virtual"));
+    assertEquals(ExecutorRegistry.UNKNOWN_EXECUTOR_NAME, executorRegistry.getExecutorName(null));
+    assertFalse(virtualThreadName.contains("."));
+
+    virtualExecutorService.shutdown();
+    platformExecutorService.shutdown();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.net.InetAddresses;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class InetAddressPrefixTrieTest {
+
+  @ParameterizedTest
+  @MethodSource
+  void getLongestPrefixMatch(final String address, final Optional<String> expectedMatch) {
+    final InetAddressPrefixTrie<String> trie = new InetAddressPrefixTrie<>();
+
+    for (final String cidrBlock : List.of("10.0.0.0/8", "10.1.0.0/16", "10.1.2.0/24", "2001:db8::/32", "2001:db8:1::/48")) {
+      trie.put(new InetAddressRange(cidrBlock), cidrBlock);
+    }
+
+    assertEquals(expectedMatch, trie.getLongestPrefixMatch(InetAddresses.forString(address)));
+    assertEquals(expectedMatch.isPresent(), trie.contains(InetAddresses.forString(address).getAddress()));
+  }
+
+  private static Stream<Arguments> getLongestPrefixMatch() {
+    return Stream.of(
+        Arguments.of("10.9.9.9", Optional.of("10.0.0.0/8")),
+        Arguments.of("10.1.9.9", Optional.of("10.1.0.0/16")),
+        Arguments.of("10.1.2.3", Optional.of("10.1.2.0/24")),
+        Arguments.of("11.1.2.3", Optional.empty()),
+        Arguments.of("2001:db8::1", Optional.of("2001:db8::/32")),
+        Arguments.of("2001:db8:1::1", Optional.of("2001:db8:1::/48")),
+        Arguments.of("2001:db9::1", Optional.empty()),
+
+        // IPv4 and IPv6 prefixes never match addresses of the other family
+        Arguments.of("::a01:203", Optional.empty())
+    );
+  }
+
+  @Test
+  void zeroLengthPrefix() {
+    final InetAddressPrefixTrie<Boolean> trie = new InetAddressPrefixTrie<>();
+    trie.put(new InetAddressRange("0.0.0.0/0"), true);
+
+    assertTrue(trie.contains(InetAddresses.forString("203.0.113.7").getAddress()));
+    assertFalse(trie.contains(InetAddresses.forString("2001:db8::1").getAddress()));
+  }
+
+  @Test
+  void putReplacesValue() {
+    final InetAddressPrefixTrie<String> trie = new InetAddressPrefixTrie<>();
+    assertTrue(trie.isEmpty());
+
+    trie.put(new InetAddressRange("192.168.0.0/16"), "first");
+    trie.put(new InetAddressRange("192.168.1.1/16"), "second");
+
+    assertEquals(1, trie.size());
+    assertEquals("second", trie.getLongestPrefixMatch(InetAddresses.forString("192.168.7.7").getAddress()));
+  }
+
+  @Test
+  void badArguments() {
+    final InetAddressPrefixTrie<Boolean> trie = new InetAddressPrefixTrie<>();
+
+    assertThrows(IllegalArgumentException.class, () -> trie.put(new byte[4], 33, true));
+    assertThrows(IllegalArgumentException.class, () -> trie.put(new byte[5], 8, true));
+    assertThrows(IllegalArgumentException.class, () -> trie.contains(new byte[5]));
+  }
+}
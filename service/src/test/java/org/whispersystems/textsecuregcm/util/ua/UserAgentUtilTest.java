@@ -6,10 +6,15 @@
 package org.whispersystems.textsecuregcm.util.ua;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.vdurmont.semver4j.Semver;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -61,4 +66,39 @@ class UserAgentUtilTest {
         Arguments.of("Signal-Android/7.6.2 Android/34 libsignal/0.46.0",
             new UserAgent(ClientPlatform.ANDROID, new Semver("7.6.2"), "Android/34 libsignal/0.46.0")));
   }
+
+  @Test
+  void testParseUserAgentStringCached() throws UnrecognizedUserAgentException {
+    final String userAgentString = "Signal-Android/4.68.3 Android/25";
+
+    assertSame(UserAgentUtil.parseUserAgentString(userAgentString),
+        UserAgentUtil.parseUserAgentString(new String(userAgentString)));
+
+    // Failures are remembered, too, but every caller still gets a fresh exception
+    final String bogusUserAgentString = "Signal-Android/4.6-8.3.unreasonableversionstring-17";
+
+    final UnrecognizedUserAgentException first = assertThrows(UnrecognizedUserAgentException.class,
+        () -> UserAgentUtil.parseUserAgentString(bogusUserAgentString));
+
+    final UnrecognizedUserAgentException second = assertThrows(UnrecognizedUserAgentException.class,
+        () -> UserAgentUtil.parseUserAgentString(bogusUserAgentString));
+
+    assertNotSame(first, second);
+    assertEquals(first.getMessage(), second.getMessage());
+  }
+
+  @Test
+  void testParseUserAgentStringUncacheable() throws UnrecognizedUserAgentException {
+    final String longUserAgentString =
+        "Signal-Android/4.68.3 " + "A".repeat(UserAgentUtil.MAX_CACHEABLE_USER_AGENT_LENGTH);
+
+    assertTrue(UserAgentUtil.isCacheable("Signal-Android/4.68.3 Android/25"));
+    assertTrue(UserAgentUtil.isCacheable("signal-ios/7.0.0"));
+    assertFalse(UserAgentUtil.isCacheable(longUserAgentString));
+    assertFalse(UserAgentUtil.isCacheable("Mozilla/5.0"));
+
+    // Strings that aren't cached are still parsed
+    assertEquals(ClientPlatform.ANDROID, UserAgentUtil.parseUserAgentString(longUserAgentString).getPlatform());
+    assertThrows(UnrecognizedUserAgentException.class, () -> UserAgentUtil.parseUserAgentString("Mozilla/5.0"));
+  }
 }
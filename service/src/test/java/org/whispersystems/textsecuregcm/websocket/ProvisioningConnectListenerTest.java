@@ -10,12 +10,15 @@ import org.whispersystems.websocket.WebSocketClient;
 import org.whispersystems.websocket.session.WebSocketSessionContext;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class ProvisioningConnectListenerTest {
 
@@ -25,6 +28,8 @@ class ProvisioningConnectListenerTest {
   @BeforeEach
   void setUp() {
     provisioningManager = mock(ProvisioningManager.class);
+    when(provisioningManager.addListener(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(provisioningManager.removeListener(any())).thenReturn(CompletableFuture.completedFuture(null));
     provisioningConnectListener = new ProvisioningConnectListener(provisioningManager);
   }
 
@@ -60,4 +65,18 @@ class ProvisioningConnectListenerTest {
     assertEquals(addListenerProvisioningAddressCaptor.getValue(), removeListenerProvisioningAddressCaptor.getValue());
     assertEquals(addListenerProvisioningAddressCaptor.getValue(), sentProvisioningAddress);
   }
+
+  @Test
+  void onWebSocketConnectSubscribeFailed() {
+    final WebSocketClient webSocketClient = mock(WebSocketClient.class);
+    final WebSocketSessionContext context = new WebSocketSessionContext(webSocketClient);
+
+    when(provisioningManager.addListener(any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    provisioningConnectListener.onWebSocketConnect(context);
+
+    verify(webSocketClient, never()).sendRequest(eq("PUT"), eq("/v1/address"), any(), any());
+    verify(webSocketClient).close(eq(1011), any());
+  }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.whispersystems.textsecuregcm.workers.AbstractSinglePassCrawlAccountsCommand.CHECKPOINT_INTERVAL_PAGES;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.Accounts;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class AbstractSinglePassCrawlAccountsCommandTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private AccountsManager accountsManager;
+  private AccountCrawlCheckpoints checkpoints;
+  private AbstractSinglePassCrawlAccountsCommand.CrawlProgress progress;
+
+  private static final int SEGMENT = 3;
+  private static final int TOTAL_SEGMENTS = 8;
+  private static final int PAGE_COUNT = CHECKPOINT_INTERVAL_PAGES * 2 + 3;
+  private static final int ACCOUNTS_PER_PAGE = 10;
+
+  @BeforeEach
+  void setUp() {
+    accountsManager = mock(AccountsManager.class);
+    checkpoints = new AccountCrawlCheckpoints(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test", TOTAL_SEGMENTS);
+    progress = new AbstractSinglePassCrawlAccountsCommand.CrawlProgress("test", TOTAL_SEGMENTS, 1000);
+
+    // Every other segment is empty
+    when(accountsManager.streamSegmentFromDynamo(anyInt(), eq(TOTAL_SEGMENTS), any()))
+        .thenReturn(Flux.just(new Accounts.ScanPage(List.of(), Optional.empty(), 1)));
+  }
+
+  @Test
+  void crawl() {
+    final List<Accounts.ScanPage> pages = generatePages();
+    mockSegment(pages);
+
+    final List<Account> crawledAccounts = new ArrayList<>();
+    final List<Optional<AccountCrawlCheckpoints.Checkpoint>> checkpointsAtRoundStart = new ArrayList<>();
+
+    AbstractSinglePassCrawlAccountsCommand.crawl(accountsManager, TOTAL_SEGMENTS, checkpoints, progress, null,
+        accounts -> {
+          checkpointsAtRoundStart.add(checkpoints.getCheckpoint(SEGMENT));
+          crawledAccounts.addAll(accounts.collectList().block());
+        });
+
+    assertEquals(PAGE_COUNT * ACCOUNTS_PER_PAGE, crawledAccounts.size());
+    assertEquals(pages.stream().flatMap(page -> page.accounts().stream()).toList(), crawledAccounts);
+
+    // Each round after the first should start from the end of the previous round
+    assertEquals(3, checkpointsAtRoundStart.size());
+    assertEquals(Optional.empty(), checkpointsAtRoundStart.getFirst());
+
+    for (int round = 1; round < checkpointsAtRoundStart.size(); round++) {
+      final int lastPageInPreviousRound = round * CHECKPOINT_INTERVAL_PAGES - 1;
+
+      assertEquals(Optional.of(new AccountCrawlCheckpoints.Checkpoint(
+              pages.get(lastPageInPreviousRound).lastEvaluatedAccountIdentifier().orElseThrow(),
+              (long) (lastPageInPreviousRound + 1) * ACCOUNTS_PER_PAGE)),
+          checkpointsAtRoundStart.get(round));
+    }
+
+    assertEquals(Optional.empty(), checkpoints.getCheckpoint(SEGMENT + 1));
+  }
+
+  @Test
+  void crawlSlowConsumer() {
+    final List<Accounts.ScanPage> pages = generatePages();
+    mockSegment(pages);
+
+    final AtomicLong accountsProcessed = new AtomicLong();
+
+    AbstractSinglePassCrawlAccountsCommand.crawl(accountsManager, TOTAL_SEGMENTS, checkpoints, progress, null,
+        accounts -> accounts
+            .flatMap(account -> Mono.delay(Duration.ofMillis(1))
+                .doOnNext(ignored -> {
+                  // A checkpoint must never cover accounts that haven't finished processing
+                  final long accountsCheckpointed = checkpoints.getCheckpoint(SEGMENT)
+                      .map(AccountCrawlCheckpoints.Checkpoint::accountsCrawled)
+                      .orElse(0L);
+
+                  assertTrue(accountsCheckpointed <= accountsProcessed.get());
+                  accountsProcessed.incrementAndGet();
+                }), 4)
+            .then()
+            .block());
+
+    assertEquals(PAGE_COUNT * ACCOUNTS_PER_PAGE, accountsProcessed.get());
+  }
+
+  @Test
+  void crawlResume() {
+    final List<Accounts.ScanPage> pages = generatePages();
+    mockSegment(pages);
+
+    final int resumeAfterPage = 5;
+
+    checkpoints.setCheckpoint(SEGMENT, new AccountCrawlCheckpoints.Checkpoint(
+        pages.get(resumeAfterPage).lastEvaluatedAccountIdentifier().orElseThrow(),
+        (long) (resumeAfterPage + 1) * ACCOUNTS_PER_PAGE));
+
+    final AtomicLong accountsProcessed = new AtomicLong();
+
+    AbstractSinglePassCrawlAccountsCommand.crawl(accountsManager, TOTAL_SEGMENTS, checkpoints, progress, null,
+        accounts -> accountsProcessed.addAndGet(accounts.count().block()));
+
+    assertEquals((long) (PAGE_COUNT - resumeAfterPage - 1) * ACCOUNTS_PER_PAGE, accountsProcessed.get());
+
+    checkpoints.clear();
+    assertEquals(Optional.empty(), checkpoints.getCheckpoint(SEGMENT));
+  }
+
+  @Test
+  void checkpointsIgnoredForDifferentSegmentCount() {
+    checkpoints.setCheckpoint(SEGMENT, new AccountCrawlCheckpoints.Checkpoint(UUID.randomUUID(), 1));
+
+    assertEquals(Optional.empty(),
+        new AccountCrawlCheckpoints(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test", TOTAL_SEGMENTS + 1)
+            .getCheckpoint(SEGMENT));
+  }
+
+  private void mockSegment(final List<Accounts.ScanPage> pages) {
+    when(accountsManager.streamSegmentFromDynamo(eq(SEGMENT), eq(TOTAL_SEGMENTS), any()))
+        .thenAnswer(invocation -> {
+          final UUID exclusiveStartAccountIdentifier = invocation.getArgument(2);
+
+          int firstPage = 0;
+
+          if (exclusiveStartAccountIdentifier != null) {
+            while (!pages.get(firstPage).lastEvaluatedAccountIdentifier()
+                .equals(Optional.of(exclusiveStartAccountIdentifier))) {
+              firstPage++;
+            }
+
+            firstPage++;
+          }
+
+          return Flux.fromIterable(pages.subList(firstPage, pages.size()));
+        });
+  }
+
+  private static List<Accounts.ScanPage> generatePages() {
+    final List<Accounts.ScanPage> pages = new ArrayList<>(PAGE_COUNT);
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final boolean lastPage = i == PAGE_COUNT - 1;
+      pages.add(new Accounts.ScanPage(generateAccounts(),
+          lastPage ? Optional.empty() : Optional.of(UUID.randomUUID()),
+          1));
+    }
+
+    return pages;
+  }
+
+  private static List<Account> generateAccounts() {
+    return IntStream.range(0, ACCOUNTS_PER_PAGE)
+        .mapToObj(ignored -> mock(Account.class))
+        .toList();
+  }
+}
@@ -37,7 +37,7 @@ class ProcessScheduledJobsServiceCommandTest {
     final TestJobScheduler testJobScheduler = new TestJobScheduler(testPublisher);
 
     final ProcessScheduledJobsServiceCommand.ScheduledJobProcessor scheduledJobProcessor =
-        new ProcessScheduledJobsServiceCommand.ScheduledJobProcessor(testJobScheduler, scheduledExecutorService, 60);
+        new ProcessScheduledJobsServiceCommand.ScheduledJobProcessor(testJobScheduler, scheduledExecutorService, 60, 0, 1);
 
     scheduledJobProcessor.start();
     testJobScheduler.getStartLatch().await();
@@ -59,7 +59,7 @@ class ProcessScheduledJobsServiceCommandTest {
     final TestJobScheduler testJobScheduler = new TestJobScheduler(testPublisher);
 
     final ProcessScheduledJobsServiceCommand.ScheduledJobProcessor scheduledJobProcessor =
-        new ProcessScheduledJobsServiceCommand.ScheduledJobProcessor(testJobScheduler, scheduledExecutorService, 60);
+        new ProcessScheduledJobsServiceCommand.ScheduledJobProcessor(testJobScheduler, scheduledExecutorService, 60, 0, 1);
 
     scheduledJobProcessor.start();
     testJobScheduler.getStartLatch().await();
@@ -85,7 +85,7 @@ class ProcessScheduledJobsServiceCommandTest {
     }
 
     /**
-     * A {@link CountDownLatch} indicating whether the {@link Mono} returned by {@link #processAvailableJobs()} has been
+     * A {@link CountDownLatch} indicating whether the {@link Mono} returned by {@link #processAvailableJobs(int, int)} has been
      * subscribed to.
      */
     public CountDownLatch getStartLatch() {
@@ -93,7 +93,7 @@ class ProcessScheduledJobsServiceCommandTest {
     }
 
     /**
-     * A {@link CountDownLatch} indicating whether the {@link Mono} returned by {@link #processAvailableJobs()} has
+     * A {@link CountDownLatch} indicating whether the {@link Mono} returned by {@link #processAvailableJobs(int, int)} has
      * terminated or been canceled.
      */
     public CountDownLatch getEndLatch() {
@@ -111,7 +111,7 @@ class ProcessScheduledJobsServiceCommandTest {
     }
 
     @Override
-    public Mono<Void> processAvailableJobs() {
+    public Mono<Void> processAvailableJobs(final int processorIndex, final int processorCount) {
       return testPublisher.flux()
           .then()
           .doOnSubscribe(ignored -> startLatch.countDown())
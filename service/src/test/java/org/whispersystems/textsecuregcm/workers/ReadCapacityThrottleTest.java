@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.util.TestClock;
+
+class ReadCapacityThrottleTest {
+
+  @Test
+  void recordRead() {
+    final TestClock clock = TestClock.pinned(Instant.now());
+    final ReadCapacityThrottle throttle = new ReadCapacityThrottle(100, clock);
+
+    // 50 units at 100 units/second should take half a second to pay off
+    assertEquals(Duration.ofMillis(500), throttle.recordRead(50));
+
+    // Concurrent readers share the same budget
+    assertEquals(Duration.ofMillis(1500), throttle.recordRead(100));
+
+    clock.pin(clock.instant().plus(Duration.ofMillis(1500)));
+    assertEquals(Duration.ofMillis(100), throttle.recordRead(10));
+  }
+
+  @Test
+  void recordReadAfterIdle() {
+    final TestClock clock = TestClock.pinned(Instant.now());
+    final ReadCapacityThrottle throttle = new ReadCapacityThrottle(100, clock);
+
+    assertEquals(Duration.ofMillis(500), throttle.recordRead(50));
+
+    // Unused capacity doesn't accumulate while idle
+    clock.pin(clock.instant().plus(Duration.ofMinutes(1)));
+    assertEquals(Duration.ofMillis(500), throttle.recordRead(50));
+  }
+
+  @Test
+  void invalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new ReadCapacityThrottle(0, TestClock.now()));
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class RemoveExpiredBackupsCommandTest {
+
+  @ParameterizedTest
+  @CsvSource({
+      // Nothing scanned yet; only backups already found can be counted
+      "1000, 0, 0, 0, 0",
+      // 10% of scanned rows were expired, so ~90 more expired backups are expected in the remaining 900 rows
+      "1000, 100, 10, 4, 96",
+      // The scan has passed the (stale) approximate count; only pending backups remain
+      "1000, 1200, 50, 45, 5",
+      "1000, 1000, 0, 0, 0"
+  })
+  void estimateBackupsRemaining(final long approximateBackupCount, final long rowsScanned, final long backupsFound,
+      final long backupsProcessed, final long expectedBackupsRemaining) {
+
+    assertEquals(expectedBackupsRemaining, RemoveExpiredBackupsCommand.estimateBackupsRemaining(
+        approximateBackupCount, rowsScanned, backupsFound, backupsProcessed));
+  }
+}